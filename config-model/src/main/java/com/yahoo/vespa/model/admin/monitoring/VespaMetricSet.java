@@ -63,6 +63,12 @@ public class VespaMetricSet {
         metrics.add(new Metric("jrt.transport.client.tls-connections-established"));
         metrics.add(new Metric("jrt.transport.server.unencrypted-connections-established"));
         metrics.add(new Metric("jrt.transport.client.unencrypted-connections-established"));
+        metrics.add(new Metric("jrt.transport.server.tls-sessions-resumed"));
+        metrics.add(new Metric("jrt.transport.client.tls-sessions-resumed"));
+
+        // Java (JRT) write metrics
+        metrics.add(new Metric("jrt.transport.packets-written"));
+        metrics.add(new Metric("jrt.transport.socket-writes"));
 
         // C++ TLS metrics
         metrics.add(new Metric("vds.server.network.tls-handshakes-failed"));
@@ -165,6 +171,10 @@ public class VespaMetricSet {
         metrics.add(new Metric("httpapi_succeeded.rate"));
         metrics.add(new Metric("httpapi_failed.rate"));
         metrics.add(new Metric("httpapi_parse_error.rate"));
+        metrics.add(new Metric("httpapi_queued_operations.max"));
+        metrics.add(new Metric("httpapi_dispatch_latency.max"));
+        metrics.add(new Metric("httpapi_dispatch_latency.sum"));
+        metrics.add(new Metric("httpapi_dispatch_latency.count"));
 
         metrics.add(new Metric("mem.heap.total.average"));
         metrics.add(new Metric("mem.heap.free.average"));
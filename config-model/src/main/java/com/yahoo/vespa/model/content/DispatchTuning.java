@@ -11,7 +11,7 @@ public class DispatchTuning {
 
     public static final DispatchTuning empty = new DispatchTuning.Builder().build();
 
-    public enum DispatchPolicy { ROUNDROBIN, ADAPTIVE}
+    public enum DispatchPolicy { ROUNDROBIN, ADAPTIVE, LEAST_LOADED }
 
     private final Integer maxHitsPerPartition;
     private DispatchPolicy dispatchPolicy;
@@ -71,6 +71,7 @@ public class DispatchTuning {
             switch (policy.toLowerCase()) {
                 case "adaptive": case "random": return DispatchPolicy.ADAPTIVE; // TODO: Deprecate 'random' on Java 8
                 case "round-robin": return DispatchPolicy.ROUNDROBIN;
+                case "least-loaded": return DispatchPolicy.LEAST_LOADED;
                 default: throw new IllegalArgumentException("Unknown dispatch policy '" + policy + "'");
             }
         }
@@ -305,6 +305,9 @@ public class IndexedSearchCluster extends SearchCluster
                 case ROUNDROBIN:
                     builder.distributionPolicy(DistributionPolicy.ROUNDROBIN);
                     break;
+                case LEAST_LOADED:
+                    builder.distributionPolicy(DistributionPolicy.LEAST_LOADED);
+                    break;
             }
         }
         if (tuning.dispatch.getMaxHitsPerPartition() != null)
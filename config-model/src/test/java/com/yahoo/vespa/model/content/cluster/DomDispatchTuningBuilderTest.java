@@ -89,6 +89,18 @@ public class DomDispatchTuningBuilderTest {
                         "</content>");
         assertTrue(DispatchTuning.DispatchPolicy.ADAPTIVE == dispatch.getDispatchPolicy());
     }
+    @Test
+    public void requireThatTuningDispatchPolicyLeastLoaded() throws Exception {
+        DispatchTuning dispatch = newTuningDispatch(
+                "<content>" +
+                        "  <tuning>" +
+                        "    <dispatch>" +
+                        "      <dispatch-policy>least-loaded</dispatch-policy>" +
+                        "    </dispatch>" +
+                        "  </tuning>" +
+                        "</content>");
+        assertTrue(DispatchTuning.DispatchPolicy.LEAST_LOADED == dispatch.getDispatchPolicy());
+    }
 
     private static DispatchTuning newTuningDispatch(String xml) throws Exception {
         return DomTuningDispatchBuilder.build(
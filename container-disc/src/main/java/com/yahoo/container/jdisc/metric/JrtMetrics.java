@@ -30,6 +30,10 @@ class JrtMetrics {
         increment("jrt.transport.client.tls-connections-established", changesSincePrevious.clientTlsConnectionsEstablished());
         increment("jrt.transport.server.unencrypted-connections-established", changesSincePrevious.serverUnencryptedConnectionsEstablished());
         increment("jrt.transport.client.unencrypted-connections-established", changesSincePrevious.clientUnencryptedConnectionsEstablished());
+        increment("jrt.transport.server.tls-sessions-resumed", changesSincePrevious.serverTlsSessionsResumed());
+        increment("jrt.transport.client.tls-sessions-resumed", changesSincePrevious.clientTlsSessionsResumed());
+        increment("jrt.transport.packets-written", changesSincePrevious.packetsWritten());
+        increment("jrt.transport.socket-writes", changesSincePrevious.socketWrites());
         previousSnapshot = snapshot;
     }
 
@@ -90,7 +90,7 @@ public final class SessionCache extends AbstractComponent {
              new DocumentProtocol(new DocumentTypeManager(documentmanagerConfig),
                                   new LoadTypeSet(loadTypeConfig),
                                   policiesConfig,
-                                  distributionConfig));
+                                  distributionConfig).setLazyDocuments(containerMbusConfig.lazy_documents()));
     }
 
     public SessionCache(Supplier<NetworkMultiplexer> net, ContainerMbusConfig containerMbusConfig,
@@ -2,9 +2,9 @@
 package com.yahoo.prelude.fastsearch;
 
 import com.google.common.collect.ImmutableMap;
-import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.BinaryView;
+import com.yahoo.slime.DecodeIndex;
 import com.yahoo.data.access.Inspector;
-import com.yahoo.slime.Slime;
 import com.yahoo.data.access.slime.SlimeAdapter;
 import com.yahoo.prelude.ConfigurationException;
 
@@ -74,8 +74,8 @@ public final class DocsumDefinitionSet {
             throw new IllegalArgumentException("Only expecting SchemaLess docsums - summary class:" + summaryClass + " hit:" + hit);
         }
         DocsumDefinition docsumDefinition = getDocsum(summaryClass);
-        Slime value = BinaryFormat.decode(buffer.array(), buffer.arrayOffset()+buffer.position(), buffer.remaining());
-        Inspector docsum = new SlimeAdapter(value.get());
+        Inspector docsum = new SlimeAdapter(BinaryView.inspect(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                                                               buffer.remaining(), new DecodeIndex()));
         if (docsum.type() != OBJECT) {
             return "Hit " + hit + " failed: " + docsum.asString();
         }
@@ -2,6 +2,7 @@
 package com.yahoo.prelude.fastsearch;
 
 import com.yahoo.data.access.ObjectTraverser;
+import com.yahoo.data.access.slime.SlimeAdapter;
 import com.yahoo.document.GlobalId;
 import com.yahoo.net.URI;
 import com.yahoo.search.query.Sorting;
@@ -10,6 +11,7 @@ import com.yahoo.search.result.Hit;
 import com.yahoo.search.result.Relevance;
 import com.yahoo.data.access.Inspector;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -546,6 +548,7 @@ public class FastHit extends Hit {
         }
 
         Object getField(String name) {
+            if (type.getField(name) == null) return null; // avoid looking up fields this summary cannot have
             return type.convert(name, data.field(name));
         }
 
@@ -564,7 +567,10 @@ public class FastHit extends Hit {
                 if (!shadowed(name) && !removed(name)) {
                     DocsumField fieldType = type.getField(name);
                     if (fieldType != null) {
-                        if (fieldType.isString()) {
+                        if (fieldType.isString() && value instanceof SlimeAdapter) {
+                            ByteBuffer utf8Value = ((SlimeAdapter)value).asUtf8Buffer(); // not copied
+                            consumer.accept(name, utf8Value.array(), utf8Value.arrayOffset() + utf8Value.position(), utf8Value.remaining());
+                        } else if (fieldType.isString()) {
                             byte[] utf8Value = value.asUtf8();
                             consumer.accept(name, utf8Value, 0, utf8Value.length);
                         } else {
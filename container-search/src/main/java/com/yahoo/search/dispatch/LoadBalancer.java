@@ -2,7 +2,9 @@
 package com.yahoo.search.dispatch;
 
 import com.yahoo.search.dispatch.searchcluster.Group;
+import com.yahoo.search.dispatch.searchcluster.Node;
 import com.yahoo.search.dispatch.searchcluster.SearchCluster;
+import com.yahoo.vespa.config.search.DispatchConfig;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -30,13 +32,15 @@ public class LoadBalancer {
     private final List<GroupStatus> scoreboard;
     private final GroupScheduler scheduler;
 
-    public LoadBalancer(SearchCluster searchCluster, boolean roundRobin) {
+    public LoadBalancer(SearchCluster searchCluster, DispatchConfig.DistributionPolicy.Enum policy) {
         this.scoreboard = new ArrayList<>(searchCluster.groups().size());
         for (Group group : searchCluster.orderedGroups()) {
             scoreboard.add(new GroupStatus(group));
         }
-        if (roundRobin || scoreboard.size() == 1) {
+        if (policy == DispatchConfig.DistributionPolicy.ROUNDROBIN || scoreboard.size() == 1) {
             this.scheduler = new RoundRobinScheduler(scoreboard);
+        } else if (policy == DispatchConfig.DistributionPolicy.LEAST_LOADED) {
+            this.scheduler = new LeastLoadedScheduler(new Random(), scoreboard);
         } else {
             this.scheduler = new AdaptiveScheduler(new Random(), scoreboard);
         }
@@ -119,6 +123,19 @@ public class LoadBalancer {
             return 1.0 / averageSearchTime;
         }
 
+        /**
+         * Returns the expected latency of a search sent to this group now, in milliseconds.
+         * This is the expected latency of the slowest working node, as a query must wait for all of them.
+         */
+        double expectedSearchLatency() {
+            double latency = 0;
+            for (Node node : group.nodes()) {
+                if (node.isWorking() == Boolean.FALSE) continue;
+                latency = Math.max(latency, node.expectedSearchLatency());
+            }
+            return latency;
+        }
+
         int groupId() {
             return group.id();
         }
@@ -254,4 +271,57 @@ public class LoadBalancer {
         }
     }
 
+    /**
+     * Selects the least loaded of two groups picked at random, where the load of a group is the
+     * expected search latency of its slowest node. Since node latencies include the requests
+     * currently pending on each node, this moves load away from slow and busy nodes quickly.
+     * Choosing the best of two random groups rather than the best of all avoids sending
+     * every query to the same group between load updates.
+     */
+    static class LeastLoadedScheduler implements GroupScheduler {
+
+        private final Random random;
+        private final List<GroupStatus> scoreboard;
+
+        public LeastLoadedScheduler(Random random, List<GroupStatus> scoreboard) {
+            this.random = random;
+            this.scoreboard = scoreboard;
+        }
+
+        private Optional<GroupStatus> selectGroup(boolean requireCoverage, Set<Integer> rejected) {
+            List<GroupStatus> candidates = new ArrayList<>(scoreboard.size());
+            for (GroupStatus gs : scoreboard) {
+                if (rejected == null || !rejected.contains(gs.group.id())) {
+                    if (!requireCoverage || gs.group.hasSufficientCoverage()) {
+                        candidates.add(gs);
+                    }
+                }
+            }
+            if (candidates.isEmpty()) {
+                return Optional.empty();
+            }
+            if (candidates.size() == 1) {
+                return Optional.of(candidates.get(0));
+            }
+            int first = random.nextInt(candidates.size());
+            int second = random.nextInt(candidates.size() - 1);
+            if (second >= first) {
+                second++;
+            }
+            GroupStatus a = candidates.get(first);
+            GroupStatus b = candidates.get(second);
+            return Optional.of(a.expectedSearchLatency() <= b.expectedSearchLatency() ? a : b);
+        }
+
+        @Override
+        public Optional<GroupStatus> takeNextGroup(Set<Integer> rejectedGroups) {
+            Optional<GroupStatus> gs = selectGroup(true, rejectedGroups);
+            if (gs.isPresent()) {
+                return gs;
+            }
+            // fallback - any coverage better than none
+            return selectGroup(false, rejectedGroups);
+        }
+    }
+
 }
@@ -22,6 +22,10 @@ interface Client {
         void receive(ResponseOrError<ProtobufResponse> response);
     }
 
+    interface DocsumsResponseReceiver {
+        void receive(ResponseOrError<GetDocsumsResponse> response);
+    }
+
     class ResponseOrError<T> {
 
         final Optional<T> response;
@@ -85,7 +89,7 @@ interface Client {
 
     interface NodeConnection {
         void getDocsums(List<FastHit> hits, CompressionType compression, int uncompressedLength, byte[] compressedSlime,
-                RpcFillInvoker.GetDocsumsResponseReceiver responseReceiver, double timeoutSeconds);
+                DocsumsResponseReceiver responseReceiver, double timeoutSeconds);
 
         void request(String rpcMethod, CompressionType compression, int uncompressedLength, byte[] compressedPayload,
                      ResponseReceiver responseReceiver, double timeoutSeconds);
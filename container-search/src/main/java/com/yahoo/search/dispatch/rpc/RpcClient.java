@@ -25,8 +25,9 @@ class RpcClient implements Client {
 
     private final Supervisor supervisor;
 
-    public RpcClient(String name, int transportThreads) {
-        supervisor = new Supervisor(new Transport(name, transportThreads));
+    public RpcClient(String name, int transportThreads, int writeCoalescingBytes, double writeCoalescingDelay) {
+        supervisor = new Supervisor(new Transport(name, transportThreads))
+                .setWriteCoalescing(writeCoalescingBytes, writeCoalescingDelay);
     }
 
     @Override
@@ -61,7 +62,7 @@ class RpcClient implements Client {
 
         @Override
         public void getDocsums(List<FastHit> hits, CompressionType compression, int uncompressedLength,
-                               byte[] compressedSlime, RpcFillInvoker.GetDocsumsResponseReceiver responseReceiver, double timeoutSeconds) {
+                               byte[] compressedSlime, DocsumsResponseReceiver responseReceiver, double timeoutSeconds) {
             Request request = new Request("proton.getDocsums");
             request.parameters().add(new Int8Value(compression.getCode()));
             request.parameters().add(new Int32Value(uncompressedLength));
@@ -110,9 +111,9 @@ class RpcClient implements Client {
         private final RpcNodeConnection node;
 
         /** The handler to which the response is forwarded */
-        private final RpcFillInvoker.GetDocsumsResponseReceiver handler;
+        private final DocsumsResponseReceiver handler;
 
-        public RpcDocsumResponseWaiter(RpcNodeConnection node, RpcFillInvoker.GetDocsumsResponseReceiver handler) {
+        public RpcDocsumResponseWaiter(RpcNodeConnection node, DocsumsResponseReceiver handler) {
             this.node = node;
             this.handler = handler;
         }
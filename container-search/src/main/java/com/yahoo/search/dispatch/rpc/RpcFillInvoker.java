@@ -15,20 +15,24 @@ import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.dispatch.FillInvoker;
 import com.yahoo.search.dispatch.rpc.Client.GetDocsumsResponse;
+import com.yahoo.search.dispatch.searchcluster.Node;
 import com.yahoo.search.query.SessionId;
 import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.search.result.Hit;
 import com.yahoo.slime.ArrayTraverser;
 import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.BinaryView;
 import com.yahoo.slime.Cursor;
 import com.yahoo.slime.Slime;
 
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -43,11 +47,13 @@ public class RpcFillInvoker extends FillInvoker {
 
     private final DocumentDatabase documentDb;
     private final RpcResourcePool resourcePool;
+    private final Function<Integer, Optional<Node>> nodes;
     private GetDocsumsResponseReceiver responseReceiver;
 
-    RpcFillInvoker(RpcResourcePool resourcePool, DocumentDatabase documentDb) {
+    RpcFillInvoker(RpcResourcePool resourcePool, Function<Integer, Optional<Node>> nodes, DocumentDatabase documentDb) {
         this.documentDb = documentDb;
         this.resourcePool = resourcePool;
+        this.nodes = nodes;
     }
 
     @Override
@@ -118,7 +124,14 @@ public class RpcFillInvoker extends FillInvoker {
                                 query.getSessionId(), query.getRanking().getLocation(), hits));
         double timeoutSeconds = ((double) query.getTimeLeft() - 3.0) / 1000.0;
         Compressor.Compression compressionResult = resourcePool.compress(query, serializedSlime);
-        node.getDocsums(hits, compressionResult.type(), serializedSlime.length, compressionResult.data(), responseReceiver, timeoutSeconds);
+        Optional<Node> searchNode = nodes.apply(nodeId);
+        searchNode.ifPresent(Node::requestSent);
+        node.getDocsums(hits, compressionResult.type(), serializedSlime.length, compressionResult.data(),
+                        response -> {
+                            searchNode.ifPresent(Node::requestCompleted);
+                            responseReceiver.receive(response);
+                        },
+                        timeoutSeconds);
     }
 
     static private Slime toSlime(String rankProfile, String summaryClass, String docType, SessionId sessionId, Location location, List<FastHit> hits) {
@@ -147,7 +160,7 @@ public class RpcFillInvoker extends FillInvoker {
     }
 
     /** Receiver of the responses to a set of getDocsums requests */
-    public static class GetDocsumsResponseReceiver {
+    public static class GetDocsumsResponseReceiver implements Client.DocsumsResponseReceiver {
 
         private final BlockingQueue<Client.ResponseOrError<GetDocsumsResponse>> responses;
         private final Compressor compressor;
@@ -167,6 +180,7 @@ public class RpcFillInvoker extends FillInvoker {
         }
 
         /** Called by a thread belonging to the client when a valid response becomes available */
+        @Override
         public void receive(Client.ResponseOrError<GetDocsumsResponse> response) {
             responses.add(response);
         }
@@ -232,7 +246,7 @@ public class RpcFillInvoker extends FillInvoker {
         }
 
         private int fill(List<FastHit> hits, String summaryClass, DocumentDatabase documentDb, byte[] slimeBytes) {
-            com.yahoo.slime.Inspector root = BinaryFormat.decode(slimeBytes).get();
+            com.yahoo.slime.Inspector root = BinaryView.inspect(slimeBytes);
             com.yahoo.slime.Inspector errors = root.field("errors");
             boolean hasErrors = errors.valid() && (errors.entries() > 0);
             if (hasErrors) {
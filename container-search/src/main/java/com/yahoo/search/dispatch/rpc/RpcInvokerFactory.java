@@ -47,13 +47,17 @@ public class RpcInvokerFactory extends InvokerFactory {
         boolean useDispatchDotSummaries = query.properties().getBoolean(dispatchSummaries, false);
 
         return  ((useDispatchDotSummaries || !useProtoBuf) && ! summaryNeedsQuery)
-                ? new RpcFillInvoker(rpcResourcePool, searcher.getDocumentDatabase(query))
-                : new RpcProtobufFillInvoker(rpcResourcePool, searcher.getDocumentDatabase(query), searcher.getServerId(), summaryNeedsQuery);
+                ? new RpcFillInvoker(rpcResourcePool, this::node, searcher.getDocumentDatabase(query))
+                : new RpcProtobufFillInvoker(rpcResourcePool, this::node, searcher.getDocumentDatabase(query), searcher.getServerId(), summaryNeedsQuery);
+    }
+
+    private Optional<Node> node(int key) {
+        return searchCluster == null ? Optional.empty() : searchCluster.node(key);
     }
 
     // for testing
     public FillInvoker createFillInvoker(DocumentDatabase documentDb) {
-        return new RpcFillInvoker(rpcResourcePool, documentDb);
+        return new RpcFillInvoker(rpcResourcePool, this::node, documentDb);
     }
 
 }
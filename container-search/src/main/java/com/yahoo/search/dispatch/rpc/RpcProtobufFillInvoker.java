@@ -17,17 +17,20 @@ import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.dispatch.FillInvoker;
 import com.yahoo.search.dispatch.rpc.Client.ProtobufResponse;
+import com.yahoo.search.dispatch.searchcluster.Node;
 import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.search.result.Hit;
 import com.yahoo.slime.ArrayTraverser;
-import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.BinaryView;
 
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -45,6 +48,7 @@ public class RpcProtobufFillInvoker extends FillInvoker {
 
     private final DocumentDatabase documentDb;
     private final RpcResourcePool resourcePool;
+    private final Function<Integer, Optional<Node>> nodes;
     private final boolean summaryNeedsQuery;
     private final String serverId;
 
@@ -56,9 +60,11 @@ public class RpcProtobufFillInvoker extends FillInvoker {
     /** The number of responses we should receive (and process) before this is complete */
     private int outstandingResponses;
 
-    RpcProtobufFillInvoker(RpcResourcePool resourcePool, DocumentDatabase documentDb, String serverId, boolean summaryNeedsQuery) {
+    RpcProtobufFillInvoker(RpcResourcePool resourcePool, Function<Integer, Optional<Node>> nodes,
+                           DocumentDatabase documentDb, String serverId, boolean summaryNeedsQuery) {
         this.documentDb = documentDb;
         this.resourcePool = resourcePool;
+        this.nodes = nodes;
         this.serverId = serverId;
         this.summaryNeedsQuery = summaryNeedsQuery;
     }
@@ -128,8 +134,14 @@ public class RpcProtobufFillInvoker extends FillInvoker {
         Query query = result.getQuery();
         double timeoutSeconds = ((double) query.getTimeLeft() - 3.0) / 1000.0;
         Compressor.Compression compressionResult = resourcePool.compress(query, payload);
-        node.request(RPC_METHOD, compressionResult.type(), payload.length, compressionResult.data(), roe -> receive(roe, hits),
-                timeoutSeconds);
+        Optional<Node> searchNode = nodes.apply(nodeId);
+        searchNode.ifPresent(Node::requestSent);
+        node.request(RPC_METHOD, compressionResult.type(), payload.length, compressionResult.data(),
+                     roe -> {
+                         searchNode.ifPresent(Node::requestCompleted);
+                         receive(roe, hits);
+                     },
+                     timeoutSeconds);
     }
 
     private void processResponses(Result result, String summaryClass) throws TimeoutException {
@@ -194,7 +206,7 @@ public class RpcProtobufFillInvoker extends FillInvoker {
     private int fill(Result result, List<FastHit> hits, String summaryClass, byte[] payload) {
         try {
             var protobuf = SearchProtocol.DocsumReply.parseFrom(payload);
-            var root = BinaryFormat.decode(protobuf.getSlimeSummaries().toByteArray()).get();
+            var root = BinaryView.inspect(protobuf.getSlimeSummaries().toByteArray());
             var errors = root.field("errors");
             boolean hasErrors = errors.valid() && (errors.entries() > 0);
             if (hasErrors) {
@@ -47,7 +47,8 @@ public class RpcResourcePool extends AbstractComponent {
     @Inject
     public RpcResourcePool(DispatchConfig dispatchConfig) {
         super();
-        client = new RpcClient("dispatch-client", dispatchConfig.numJrtTransportThreads());
+        client = new RpcClient("dispatch-client", dispatchConfig.numJrtTransportThreads(),
+                               dispatchConfig.jrtWriteCoalescingBytes(), dispatchConfig.jrtWriteCoalescingDelay());
 
         // Create rpc node connection pools indexed by the node distribution key
         var builder = new ImmutableMap.Builder<Integer, NodeConnectionPool>();
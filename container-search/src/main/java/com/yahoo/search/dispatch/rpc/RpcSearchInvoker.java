@@ -34,6 +34,7 @@ public class RpcSearchInvoker extends SearchInvoker implements Client.ResponseRe
     private final int maxHits;
 
     private Query query;
+    private long requestSentNanos;
 
     RpcSearchInvoker(VespaBackEndSearcher searcher, Node node, RpcResourcePool resourcePool, int maxHits) {
         super(Optional.of(node));
@@ -58,6 +59,8 @@ public class RpcSearchInvoker extends SearchInvoker implements Client.ResponseRe
 
         RpcContext context = getContext(incomingContext);
         double timeoutSeconds = ((double) query.getTimeLeft() - 3.0) / 1000.0;
+        requestSentNanos = System.nanoTime();
+        node.requestSent();
         nodeConnection.request(RPC_METHOD,
                                context.compressedPayload.type(),
                                context.compressedPayload.uncompressedSize(),
@@ -111,6 +114,7 @@ public class RpcSearchInvoker extends SearchInvoker implements Client.ResponseRe
     }
 
     public void receive(Client.ResponseOrError<ProtobufResponse> response) {
+        node.searchCompleted(response.response().isPresent(), (System.nanoTime() - requestSentNanos) / 1_000_000.0);
         responses.add(response);
         responseAvailable();
     }
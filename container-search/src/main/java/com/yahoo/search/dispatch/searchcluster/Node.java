@@ -3,6 +3,7 @@ package com.yahoo.search.dispatch.searchcluster;
 
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -13,6 +14,10 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 public class Node {
 
+    private static final double INITIAL_LATENCY_MS = 1.0;
+    private static final double MIN_LATENCY_MS = 0.01;
+    private static final long LATENCY_DECAY_RATE = 100;
+
     private final int key;
     private int pathIndex;
     private final String hostname;
@@ -25,6 +30,10 @@ public class Node {
     private final AtomicLong lastPong = new AtomicLong(0);
     private final AtomicBoolean isBlockingWrites = new AtomicBoolean(false);
 
+    private final AtomicInteger pendingRequests = new AtomicInteger(0);
+    private long searches = 0;
+    private volatile double averageSearchLatency = INITIAL_LATENCY_MS;
+
     public Node(int key, String hostname, int group) {
         this.key = key;
         this.hostname = hostname;
@@ -80,6 +89,47 @@ public class Node {
 
     boolean isBlockingWrites() { return isBlockingWrites.get(); }
 
+    /**
+     * Call when a search or docsum request is sent to this node.
+     * This must be followed by exactly one call to {@link #requestCompleted} or {@link #searchCompleted}.
+     */
+    public void requestSent() { pendingRequests.incrementAndGet(); }
+
+    /** Call when a request sent to this node has completed, successfully or not */
+    public void requestCompleted() { pendingRequests.decrementAndGet(); }
+
+    /**
+     * Call when a search request sent to this node has completed, successfully or not.
+     * Only the latencies of successful searches are counted in the average latency, such that
+     * a node does not attract more requests by failing them quickly.
+     *
+     * @param success whether the search returned a result
+     * @param latencyMs the time from the request was sent until it completed, in milliseconds
+     */
+    public void searchCompleted(boolean success, double latencyMs) {
+        requestCompleted();
+        if ( ! success) return;
+        synchronized (this) {
+            double decayRate = Math.min(searches + 1, LATENCY_DECAY_RATE);
+            averageSearchLatency = (Math.max(latencyMs, MIN_LATENCY_MS) + (decayRate - 1) * averageSearchLatency) / decayRate;
+            searches++;
+        }
+    }
+
+    /** Returns the number of requests sent to this node which have not yet completed */
+    public int pendingRequests() { return pendingRequests.get(); }
+
+    /** Returns the exponentially decaying average latency of searches on this node, in milliseconds */
+    public double averageSearchLatency() { return averageSearchLatency; }
+
+    /**
+     * Returns the expected latency of a search sent to this node now, in milliseconds:
+     * The average latency scaled by the number of requests it has to share this node with.
+     */
+    public double expectedSearchLatency() {
+        return averageSearchLatency * (1 + Math.max(0, pendingRequests.get()));
+    }
+
     @Override
     public int hashCode() { return Objects.hash(hostname, key, pathIndex, group); }
 
@@ -100,7 +150,7 @@ public class Node {
     public String toString() {
         return "search node key = " + key + " hostname = "+ hostname + " path = " + pathIndex + " in group " + group +
                " statusIsKnown = " + statusIsKnown.get() + " working = " + working.get() +
-               " activeDocs = " + activeDocuments.get();
+               " activeDocs = " + activeDocuments.get() + " pendingRequests = " + pendingRequests.get();
     }
 
 }
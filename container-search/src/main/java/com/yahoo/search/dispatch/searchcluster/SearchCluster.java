@@ -14,6 +14,7 @@ import com.yahoo.search.cluster.NodeManager;
 import com.yahoo.search.dispatch.TopKEstimator;
 import com.yahoo.vespa.config.search.DispatchConfig;
 
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +37,7 @@ public class SearchCluster implements NodeManager<Node> {
     private final String clusterId;
     private final ImmutableMap<Integer, Group> groups;
     private final ImmutableMultimap<String, Node> nodesByHost;
+    private final ImmutableMap<Integer, Node> nodesByKey;
     private final ImmutableList<Group> orderedGroups;
     private final VipStatus vipStatus;
     private final PingFactory pingFactory;
@@ -79,6 +81,12 @@ public class SearchCluster implements NodeManager<Node> {
         for (Node node : nodes)
             nodesByHostBuilder.put(node.hostname(), node);
         this.nodesByHost = nodesByHostBuilder.build();
+
+        // Index nodes by distribution key
+        Map<Integer, Node> nodesByKey = new HashMap<>();
+        for (Node node : nodes)
+            nodesByKey.putIfAbsent(node.key(), node);
+        this.nodesByKey = ImmutableMap.copyOf(nodesByKey);
         hitEstimator = new TopKEstimator(30.0, dispatchConfig.topKProbability(), SKEW_FACTOR);
 
         this.localCorpusDispatchTarget = findLocalCorpusDispatchTarget(HostName.getLocalhost(), nodesByHost, groups);
@@ -140,6 +148,11 @@ public class SearchCluster implements NodeManager<Node> {
         }
     }
 
+    /** Returns the node with the given distribution key, if it is in this cluster */
+    public Optional<Node> node(int key) {
+        return Optional.ofNullable(nodesByKey.get(key));
+    }
+
     /**
      * Returns the wanted number of nodes per group - size()/groups.size().
      * The actual node count for a given group may differ due to node retirements.
@@ -11,9 +11,10 @@ import com.yahoo.container.logging.TraceRenderer;
 import com.yahoo.data.JsonProducer;
 import com.yahoo.data.access.Inspectable;
 import com.yahoo.data.access.Inspector;
+import com.yahoo.data.access.ObjectTraverser;
 import com.yahoo.data.access.Type;
-import com.yahoo.data.access.simple.JsonRender;
 import com.yahoo.data.access.simple.Value;
+import com.yahoo.data.access.slime.SlimeAdapter;
 import com.yahoo.document.datatypes.FieldValue;
 import com.yahoo.document.datatypes.StringFieldValue;
 import com.yahoo.document.datatypes.TensorFieldValue;
@@ -54,6 +55,7 @@ import java.io.StringWriter;
 import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayDeque;
 import java.util.Arrays;
@@ -697,10 +699,81 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
             }
         }
 
+        /**
+         * Writes the given data directly to the generator, producing the same JSON as JsonRender
+         * without creating an intermediate string. Strings are written from their UTF-8 bytes,
+         * without copying them when the data is backed by Slime.
+         */
         private void renderInspectorDirect(Inspector data) throws IOException {
-            StringBuilder intermediate = new StringBuilder();
-            JsonRender.render(data, intermediate, true);
-            generator.writeRawValue(intermediate.toString());
+            switch (data.type()) {
+                case EMPTY:
+                    generator.writeNull();
+                    break;
+                case BOOL:
+                    generator.writeBoolean(data.asBool());
+                    break;
+                case LONG:
+                    generator.writeNumber(data.asLong());
+                    break;
+                case DOUBLE:
+                    double value = data.asDouble();
+                    if (Double.isFinite(value))
+                        generator.writeNumber(value);
+                    else
+                        generator.writeNull();
+                    break;
+                case STRING:
+                    if (data instanceof SlimeAdapter) {
+                        ByteBuffer utf8 = ((SlimeAdapter)data).asUtf8Buffer(); // not copied
+                        generator.writeUTF8String(utf8.array(), utf8.arrayOffset() + utf8.position(), utf8.remaining());
+                    }
+                    else {
+                        byte[] utf8 = data.asUtf8();
+                        generator.writeUTF8String(utf8, 0, utf8.length);
+                    }
+                    break;
+                case DATA:
+                    generator.writeString(toHexString(data.asData()));
+                    break;
+                case ARRAY:
+                    generator.writeStartArray();
+                    for (int i = 0; i < data.entryCount(); i++)
+                        renderInspectorDirect(data.entry(i));
+                    generator.writeEndArray();
+                    break;
+                case OBJECT:
+                    generator.writeStartObject();
+                    try {
+                        data.traverse((ObjectTraverser) (name, fieldValue) -> {
+                            try {
+                                generator.writeFieldName(name);
+                                renderInspectorDirect(fieldValue);
+                            }
+                            catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+                    }
+                    catch (UncheckedIOException e) {
+                        throw e.getCause();
+                    }
+                    generator.writeEndObject();
+                    break;
+            }
+        }
+
+        private static final char[] hexDigits = "0123456789ABCDEF".toCharArray();
+
+        /** Returns data as rendered by JsonRender: 0x followed by two upper case hex digits per byte */
+        private static String toHexString(byte[] data) {
+            char[] hex = new char[2 + data.length * 2];
+            hex[0] = '0';
+            hex[1] = 'x';
+            for (int i = 0; i < data.length; i++) {
+                hex[2 + i * 2] = hexDigits[(data[i] >> 4) & 0xf];
+                hex[3 + i * 2] = hexDigits[data[i] & 0xf];
+            }
+            return new String(hex);
         }
 
         protected void renderFieldContents(Object field) throws IOException {
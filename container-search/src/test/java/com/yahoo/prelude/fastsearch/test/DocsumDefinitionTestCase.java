@@ -14,16 +14,24 @@ import com.yahoo.document.DocumentId;
 import com.yahoo.document.GlobalId;
 import com.yahoo.slime.BinaryFormat;
 import com.yahoo.slime.Cursor;
+import com.yahoo.search.result.Hit;
+import com.yahoo.search.result.StructuredData;
 import com.yahoo.slime.Slime;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.serialization.TypedBinaryFormat;
 import org.junit.Test;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -75,6 +83,65 @@ public class DocsumDefinitionTestCase {
         assertEquals("index:null/0/" + asHexString(hit.getGlobalId()), hit.getId().toString());
     }
 
+    @Test
+    public void testDecodingSummariesOfSeveralClasses() {
+        DocsumDefinitionSet set = createDocsumDefinitionSet("file:src/test/java/com/yahoo/prelude/fastsearch/test/summary-classes.cfg");
+        Tensor embedding = Tensor.from("tensor(x[2]):[1.0, 2.0]");
+        Tensor attributeEmbedding = Tensor.from("tensor(x[2]):[3.0, 4.0]");
+
+        Slime attributes = new Slime();
+        attributes.setObject().setLong("popularity", 7);
+        attributes.get().setData("embedding", TypedBinaryFormat.encode(attributeEmbedding));
+
+        Slime title = new Slime();
+        title.setObject().setString("title", "Bl\u00e5b\u00e6r");
+        title.get().setLong("popularity", 99); // not a field of this summary class
+
+        Slime full = new Slime();
+        Cursor fullDocsum = full.setObject();
+        fullDocsum.setString("title", "Bl\u00e5b\u00e6r");
+        fullDocsum.setString("body", "A long body");
+        fullDocsum.setData("embedding", TypedBinaryFormat.encode(embedding));
+        Cursor author = fullDocsum.setObject("author");
+        author.setString("name", "Ola");
+        author.setLong("age", 42);
+
+        byte[] titleDocsum = encode(title);
+        FastHit hit = new FastHit();
+        assertNull(set.lazyDecode("attributes", encode(attributes), hit));
+        assertNull(set.lazyDecode("title", titleDocsum, hit));
+
+        // Raw string values are windows into the docsum, other values are converted
+        Map<String, Object> raw = new HashMap<>();
+        hit.forEachFieldAsRaw(new Hit.RawUtf8Consumer() {
+            @Override
+            public void accept(String name, byte[] utf8, int offset, int length) {
+                assertSame(titleDocsum, utf8);
+                raw.put(name, new String(utf8, offset, length, StandardCharsets.UTF_8));
+            }
+            @Override
+            public void accept(String name, Object value) { raw.put(name, value); }
+        });
+        assertEquals(Map.of("title", "Bl\u00e5b\u00e6r", "popularity", 7, "embedding", attributeEmbedding), raw);
+
+        // A field which is missing from the class of the last summary is found in another
+        assertEquals(7, hit.getField("popularity"));
+        assertEquals("Bl\u00e5b\u00e6r", hit.getField("title"));
+        assertEquals(attributeEmbedding, hit.getField("embedding"));
+        assertNull(hit.getField("body"));
+
+        hit = new FastHit();
+        assertNull(set.lazyDecode("attributes", encode(attributes), hit));
+        assertNull(set.lazyDecode("default", encode(full), hit));
+        assertEquals("Bl\u00e5b\u00e6r", hit.getField("title"));
+        assertEquals("A long body", hit.getField("body"));
+        assertEquals(embedding, hit.getField("embedding")); // from the last summary having the field
+        assertEquals(7, hit.getField("popularity"));
+        StructuredData struct = (StructuredData)hit.getField("author");
+        assertEquals("Ola", struct.inspect().field("name").asString());
+        assertEquals(42, struct.inspect().field("age").asLong());
+    }
+
     private static String asHexString(GlobalId gid) {
         StringBuilder sb = new StringBuilder();
         byte[] rawGid = gid.getRawId();
@@ -101,6 +168,10 @@ public class DocsumDefinitionTestCase {
         docsum.setLong("LANG1", 10);
         docsum.setLong("WORDS", 352);
         docsum.setLong("BYTES", 9190);
+        return encode(slime);
+    }
+
+    private static byte[] encode(Slime slime) {
         byte[] tmp = BinaryFormat.encode(slime);
         ByteBuffer buf = ByteBuffer.allocate(tmp.length + 4);
         buf.order(ByteOrder.LITTLE_ENDIAN);
@@ -0,0 +1,161 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.search.dispatch.searchcluster.Group;
+import com.yahoo.search.dispatch.searchcluster.Node;
+import com.yahoo.search.dispatch.searchcluster.SearchCluster;
+import com.yahoo.vespa.config.search.DispatchConfig.DistributionPolicy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static com.yahoo.search.dispatch.MockSearchCluster.createDispatchConfig;
+
+/**
+ * Simulates dispatching queries to a cluster of groups where some nodes are slower than the rest,
+ * and prints the resulting query latency percentiles for each group distribution policy.
+ *
+ * The simulation runs in simulated time: Queries arrive at random intervals, each node serves one
+ * request at a time in arrival order, and a query completes when all nodes of its group have responded.
+ *
+ * @author bratseth
+ */
+public class LoadBalancerBenchmark {
+
+    private static final int groups = 4;
+    private static final int nodesPerGroup = 4;
+    private static final int queries = 200000;
+    private static final double meanServiceTimeMs = 2.0;
+    private static final double utilization = 0.5;
+
+    /** The service time multiplier of each node, by distribution key */
+    private final double[] slowness;
+
+    public LoadBalancerBenchmark(double[] slowness) {
+        this.slowness = slowness;
+    }
+
+    public Percentiles run(DistributionPolicy.Enum policy) {
+        List<Node> nodes = new ArrayList<>();
+        for (int key = 0; key < groups * nodesPerGroup; key++)
+            nodes.add(new Node(key, "host" + key, key / nodesPerGroup));
+        SearchCluster cluster = new SearchCluster("a", createDispatchConfig(nodes), null, null);
+        cluster.groups().values().forEach(group -> group.nodes().forEach(node -> node.setWorking(true)));
+        LoadBalancer loadBalancer = new LoadBalancer(cluster, policy);
+
+        Random random = new Random(1);
+        PriorityQueue<Event> events = new PriorityQueue<>();
+        Map<Node, Double> nodeAvailableAt = new HashMap<>();
+        double meanInterarrivalMs = meanServiceTimeMs / (utilization * groups);
+        double[] latencies = new double[queries];
+
+        double arrival = 0;
+        for (int i = 0; i < queries; i++) {
+            arrival += exponential(random, meanInterarrivalMs);
+            events.add(new Event(arrival, null, new SimulatedQuery(i, arrival)));
+        }
+
+        while ( ! events.isEmpty()) {
+            Event event = events.poll();
+            SimulatedQuery query = event.query;
+            if (event.node == null) { // the query arrives
+                query.group = loadBalancer.takeGroup(null).get();
+                query.pendingResponses = query.group.nodes().size();
+                for (Node node : query.group.nodes()) {
+                    node.requestSent();
+                    double start = Math.max(event.time, nodeAvailableAt.getOrDefault(node, 0.0));
+                    double end = start + exponential(random, meanServiceTimeMs * slowness[node.key()]);
+                    nodeAvailableAt.put(node, end);
+                    events.add(new Event(end, node, query));
+                }
+            }
+            else { // a node responds
+                event.node.searchCompleted(true, event.time - query.arrival);
+                if (--query.pendingResponses == 0) {
+                    latencies[query.id] = event.time - query.arrival;
+                    loadBalancer.releaseGroup(query.group, true, latencies[query.id]);
+                }
+            }
+        }
+        return new Percentiles(latencies);
+    }
+
+    private static double exponential(Random random, double mean) {
+        return -mean * Math.log(1 - random.nextDouble());
+    }
+
+    private static class SimulatedQuery {
+
+        final int id;
+        final double arrival;
+        Group group;
+        int pendingResponses;
+
+        SimulatedQuery(int id, double arrival) {
+            this.id = id;
+            this.arrival = arrival;
+        }
+
+    }
+
+    private static class Event implements Comparable<Event> {
+
+        final double time;
+        /** The node responding, or null if this is the arrival of the query */
+        final Node node;
+        final SimulatedQuery query;
+
+        Event(double time, Node node, SimulatedQuery query) {
+            this.time = time;
+            this.node = node;
+            this.query = query;
+        }
+
+        @Override
+        public int compareTo(Event other) { return Double.compare(time, other.time); }
+
+    }
+
+    public static class Percentiles {
+
+        private final double[] sorted;
+
+        Percentiles(double[] latencies) {
+            sorted = latencies.clone();
+            Arrays.sort(sorted);
+        }
+
+        public double get(double percentile) {
+            return sorted[Math.min(sorted.length - 1, (int)(percentile / 100 * sorted.length))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ENGLISH, "p50 %7.2f ms, p90 %7.2f ms, p99 %7.2f ms, p99.9 %7.2f ms",
+                                 get(50), get(90), get(99), get(99.9));
+        }
+
+    }
+
+    public static void main(String[] args) {
+        double[] uniform = new double[groups * nodesPerGroup];
+        Arrays.fill(uniform, 1.0);
+        double[] skewed = uniform.clone();
+        skewed[1] = 1.8; // one node in the first group is almost twice as slow
+        skewed[6] = 1.3; // and one in the second group is somewhat slower
+
+        for (double[] slowness : List.of(uniform, skewed)) {
+            System.out.println(slowness == uniform ? "Uniform node speeds:" : "Skewed node speeds:");
+            LoadBalancerBenchmark benchmark = new LoadBalancerBenchmark(slowness);
+            for (DistributionPolicy.Enum policy : DistributionPolicy.Enum.values())
+                System.out.println(String.format(Locale.ENGLISH, "  %-14s %s", policy, benchmark.run(policy)));
+        }
+    }
+
+}
@@ -3,17 +3,19 @@ package com.yahoo.search.dispatch;
 
 import com.yahoo.search.dispatch.LoadBalancer.AdaptiveScheduler;
 import com.yahoo.search.dispatch.LoadBalancer.GroupStatus;
+import com.yahoo.search.dispatch.LoadBalancer.LeastLoadedScheduler;
 import com.yahoo.search.dispatch.searchcluster.Group;
 import com.yahoo.search.dispatch.searchcluster.Node;
 import com.yahoo.search.dispatch.searchcluster.SearchCluster;
+import com.yahoo.vespa.config.search.DispatchConfig.DistributionPolicy;
 import junit.framework.AssertionFailedError;
 import org.junit.Test;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
 
 import static com.yahoo.search.dispatch.MockSearchCluster.createDispatchConfig;
 import static org.hamcrest.Matchers.closeTo;
@@ -31,7 +33,7 @@ public class LoadBalancerTest {
     public void requireThatLoadBalancerServesSingleNodeSetups() {
         Node n1 = new Node(0, "test-node1", 0);
         SearchCluster cluster = new SearchCluster("a", createDispatchConfig(n1), null, null);
-        LoadBalancer lb = new LoadBalancer(cluster, true);
+        LoadBalancer lb = new LoadBalancer(cluster, DistributionPolicy.ROUNDROBIN);
 
         Optional<Group> grp = lb.takeGroup(null);
         Group group = grp.orElseGet(() -> {
@@ -45,7 +47,7 @@ public class LoadBalancerTest {
         Node n1 = new Node(0, "test-node1", 0);
         Node n2 = new Node(1, "test-node2", 1);
         SearchCluster cluster = new SearchCluster("a", createDispatchConfig(n1, n2), null, null);
-        LoadBalancer lb = new LoadBalancer(cluster, true);
+        LoadBalancer lb = new LoadBalancer(cluster, DistributionPolicy.ROUNDROBIN);
 
         Optional<Group> grp = lb.takeGroup(null);
         Group group = grp.orElseGet(() -> {
@@ -61,7 +63,7 @@ public class LoadBalancerTest {
         Node n3 = new Node(0, "test-node3", 1);
         Node n4 = new Node(1, "test-node4", 1);
         SearchCluster cluster = new SearchCluster("a", createDispatchConfig(n1, n2, n3, n4), null, null);
-        LoadBalancer lb = new LoadBalancer(cluster, true);
+        LoadBalancer lb = new LoadBalancer(cluster, DistributionPolicy.ROUNDROBIN);
 
         Optional<Group> grp = lb.takeGroup(null);
         assertThat(grp.isPresent(), is(true));
@@ -72,7 +74,7 @@ public class LoadBalancerTest {
         Node n1 = new Node(0, "test-node1", 0);
         Node n2 = new Node(1, "test-node2", 1);
         SearchCluster cluster = new SearchCluster("a", createDispatchConfig(n1, n2), null,null);
-        LoadBalancer lb = new LoadBalancer(cluster, true);
+        LoadBalancer lb = new LoadBalancer(cluster, DistributionPolicy.ROUNDROBIN);
 
         // get first group
         Optional<Group> grp = lb.takeGroup(null);
@@ -157,13 +159,81 @@ public class LoadBalancerTest {
         assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(4));
     }
 
+    @Test
+    public void requireThatNodeLoadIsTracked() {
+        Node node = new Node(0, "test-node", 0);
+        node.requestSent();
+        node.requestSent();
+        assertThat(node.pendingRequests(), equalTo(2));
+        node.searchCompleted(true, 4.0);
+        node.requestCompleted();
+        assertThat(node.pendingRequests(), equalTo(0));
+        assertThat(node.averageSearchLatency(), equalTo(4.0));
+        node.requestSent();
+        node.searchCompleted(true, 6.0);
+        assertThat(node.averageSearchLatency(), equalTo(5.0));
+        node.requestSent();
+        assertThat(node.expectedSearchLatency(), equalTo(10.0));
+    }
+
+    @Test
+    public void requireThatFailedSearchesDoNotLowerNodeLatency() {
+        Node failing = new Node(0, "failing", 0);
+        Node working = new Node(1, "working", 1);
+        failing.requestSent();
+        failing.searchCompleted(true, 5.0);
+        working.requestSent();
+        working.searchCompleted(true, 2.0);
+        for (int i = 0; i < 100; i++) {
+            failing.requestSent();
+            failing.searchCompleted(false, 0.1);
+        }
+        assertThat(failing.pendingRequests(), equalTo(0));
+        assertThat(failing.averageSearchLatency(), equalTo(5.0));
+
+        List<GroupStatus> scoreboard = List.of(newGroupStatus(0, failing), newGroupStatus(1, working));
+        LeastLoadedScheduler sched = new LeastLoadedScheduler(new Random(), scoreboard);
+        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(1));
+    }
+
+    @Test
+    public void requireThatLeastLoadedSchedulerPrefersGroupWithLeastLoadedSlowestNode() {
+        Node fast1 = new Node(0, "fast1", 0);
+        Node slow = new Node(1, "slow", 0);
+        Node fast2 = new Node(2, "fast2", 1);
+        Node fast3 = new Node(3, "fast3", 1);
+        for (Node node : List.of(fast1, fast2, fast3)) {
+            node.requestSent();
+            node.searchCompleted(true, 1.0);
+        }
+        slow.requestSent();
+        slow.searchCompleted(true, 10.0);
+        List<GroupStatus> scoreboard = List.of(newGroupStatus(0, fast1, slow), newGroupStatus(1, fast2, fast3));
+        LeastLoadedScheduler sched = new LeastLoadedScheduler(new Random(), scoreboard);
+
+        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(1));
+        assertThat(sched.takeNextGroup(Set.of(1)).get().groupId(), equalTo(0));
+
+        // Pending requests make a fast node slower than a slow idle one
+        for (int i = 0; i < 10; i++)
+            fast2.requestSent();
+        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(0));
+
+        // Nodes which are down are not waited for
+        slow.setWorking(false);
+        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(0));
+        for (int i = 0; i < 11; i++)
+            fast1.requestSent();
+        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(1));
+    }
+
     private static void updateSearchTime(GroupStatus gs, double time) {
         gs.allocate();
         gs.release(true, time);
     }
 
-    private GroupStatus newGroupStatus(int id) {
-        Group dummyGroup = new Group(id, Collections.emptyList()) {
+    private GroupStatus newGroupStatus(int id, Node ... nodes) {
+        Group dummyGroup = new Group(id, List.of(nodes)) {
             @Override
             public boolean hasSufficientCoverage() {
                 return true;
@@ -1,6 +1,7 @@
 // Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.dispatch.rpc;
 
+import com.yahoo.compress.CompressionType;
 import com.yahoo.prelude.fastsearch.DocsumDefinition;
 import com.yahoo.prelude.fastsearch.DocsumDefinitionSet;
 import com.yahoo.prelude.fastsearch.DocsumField;
@@ -8,6 +9,8 @@ import com.yahoo.prelude.fastsearch.DocumentDatabase;
 import com.yahoo.prelude.fastsearch.FastHit;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
+import com.yahoo.search.dispatch.searchcluster.Node;
+import com.yahoo.search.dispatch.searchcluster.SearchCluster;
 
 import org.junit.Test;
 
@@ -17,6 +20,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static com.yahoo.search.dispatch.MockSearchCluster.createDispatchConfig;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
@@ -66,6 +70,46 @@ public class FillTestCase {
         assertEquals(4L, result.hits().get("hit:4").getField("field2"));
     }
 
+    @Test
+    public void testFillingCountsPendingRequestsOnNodes() {
+        SearchCluster cluster = new SearchCluster("a", createDispatchConfig(new Node(0, "host0", 0),
+                                                                            new Node(1, "host1", 0)),
+                                                  null, null);
+        Node node0 = cluster.node(0).get();
+        Node node1 = cluster.node(1).get();
+        List<Integer> pendingWhenSent = new ArrayList<>();
+        Map<Integer, Client.NodeConnection> nodes = new HashMap<>();
+        nodes.put(0, countingPending(client.createConnection("host0", 123), node0, pendingWhenSent));
+        nodes.put(1, countingPending(client.createConnection("host1", 123), node1, pendingWhenSent));
+        RpcResourcePool rpcResourcePool = new RpcResourcePool(nodes);
+        RpcInvokerFactory factory = new RpcInvokerFactory(rpcResourcePool, cluster);
+
+        Query query = new Query();
+        Result result = new Result(query);
+        result.hits().add(createHit(0, 0));
+        result.hits().add(createHit(1, 1));
+        result.hits().add(createHit(0, 2));
+
+        client.setDocsumReponse("host0", 0, "summaryClass1", map("field1", "s.0.0", "field2", 0));
+        client.setDocsumReponse("host1", 1, "summaryClass1", map("field1", "s.1.1", "field2", 1));
+        client.setDocsumReponse("host0", 2, "summaryClass1", map("field1", "s.0.2", "field2", 2));
+
+        factory.createFillInvoker(db()).fill(result, "summaryClass1");
+
+        assertEquals("s.0.0", result.hits().get("hit:0").getField("field1").toString());
+        assertEquals("s.1.1", result.hits().get("hit:1").getField("field1").toString());
+        assertEquals("s.0.2", result.hits().get("hit:2").getField("field1").toString());
+        assertEquals("One request pending on each node while it is filling", List.of(1, 1), pendingWhenSent);
+        assertEquals(0, node0.pendingRequests());
+        assertEquals(0, node1.pendingRequests());
+
+        client.setMalfunctioning(true);
+        factory.createFillInvoker(db()).fill(result, "summaryClass1");
+        assertEquals("Malfunctioning", result.hits().getError().getDetailedMessage());
+        assertEquals(0, node0.pendingRequests());
+        assertEquals(0, node1.pendingRequests());
+    }
+
     @Test
     public void testEmptyHits() {
         Map<Integer, Client.NodeConnection> nodes = new HashMap<>();
@@ -183,6 +227,29 @@ public class FillTestCase {
         assertEquals("Could not fill hits from unknown node 1", result.hits().getError().getDetailedMessage());
     }
 
+    /** Returns a connection which records the requests pending on the given node when a fill is sent to it */
+    private Client.NodeConnection countingPending(Client.NodeConnection connection, Node node, List<Integer> pendingWhenSent) {
+        return new Client.NodeConnection() {
+
+            @Override
+            public void getDocsums(List<FastHit> hits, CompressionType compression, int uncompressedLength, byte[] compressedSlime,
+                                   Client.DocsumsResponseReceiver responseReceiver, double timeoutSeconds) {
+                pendingWhenSent.add(node.pendingRequests());
+                connection.getDocsums(hits, compression, uncompressedLength, compressedSlime, responseReceiver, timeoutSeconds);
+            }
+
+            @Override
+            public void request(String rpcMethod, CompressionType compression, int uncompressedLength, byte[] compressedPayload,
+                                Client.ResponseReceiver responseReceiver, double timeoutSeconds) {
+                connection.request(rpcMethod, compression, uncompressedLength, compressedPayload, responseReceiver, timeoutSeconds);
+            }
+
+            @Override
+            public void close() { connection.close(); }
+
+        };
+    }
+
     private DocumentDatabase db() {
         List<DocsumField> fields = new ArrayList<>();
         fields.add(DocsumField.create("field1", "string"));
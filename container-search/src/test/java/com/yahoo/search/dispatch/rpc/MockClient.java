@@ -56,7 +56,7 @@ public class MockClient implements Client {
 
         @Override
         public void getDocsums(List<FastHit> hitsContext, CompressionType compression, int uncompressedSize, byte[] compressedSlime,
-                RpcFillInvoker.GetDocsumsResponseReceiver responseReceiver, double timeoutSeconds) {
+                DocsumsResponseReceiver responseReceiver, double timeoutSeconds) {
             if (malfunctioning) {
                 responseReceiver.receive(ResponseOrError.fromError("Malfunctioning"));
                 return;
@@ -9,7 +9,7 @@ import com.yahoo.prelude.fastsearch.FastHit;
 import com.yahoo.prelude.fastsearch.VespaBackEndSearcher;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
-import com.yahoo.search.dispatch.rpc.RpcFillInvoker.GetDocsumsResponseReceiver;
+import com.yahoo.search.dispatch.rpc.Client.DocsumsResponseReceiver;
 import com.yahoo.search.dispatch.searchcluster.Node;
 import com.yahoo.search.searchchain.Execution;
 import org.junit.Test;
@@ -76,6 +76,20 @@ public class RpcSearchInvokerTest {
         assertEquals(maxHits, request.getHits());
     }
 
+    @Test
+    public void testFailedSearchIsNotCountedInNodeLatency() throws IOException {
+        var mockClient = new MockClient();
+        mockClient.setMalfunctioning(true);
+        var mockPool = new RpcResourcePool(ImmutableMap.of(7, mockClient.createConnection("foo", 123)));
+        var node = new Node(7, "seven", 1);
+        double initialLatency = node.averageSearchLatency();
+        var invoker = new RpcSearchInvoker(mockSearcher(), node, mockPool, 1000);
+
+        invoker.sendSearchRequest(new Query("search/?query=test"), null);
+        assertEquals(0, node.pendingRequests());
+        assertEquals(initialLatency, node.averageSearchLatency(), 0.0);
+    }
+
     private Client parameterCollectorClient(AtomicReference<CompressionType> compressionTypeHolder, AtomicReference<byte[]> payloadHolder,
             AtomicInteger lengthHolder) {
         return new Client() {
@@ -86,7 +100,7 @@ public class RpcSearchInvokerTest {
                 return new NodeConnection() {
                     @Override
                     public void getDocsums(List<FastHit> hits, CompressionType compression, int uncompressedLength, byte[] compressedSlime,
-                            GetDocsumsResponseReceiver responseReceiver, double timeoutSeconds) {
+                            DocsumsResponseReceiver responseReceiver, double timeoutSeconds) {
                         fail("Unexpected call");
                     }
 
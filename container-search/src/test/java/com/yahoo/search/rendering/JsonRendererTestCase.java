@@ -48,6 +48,8 @@ import com.yahoo.search.statistics.ElapsedTimeTestCase;
 import com.yahoo.search.statistics.ElapsedTimeTestCase.CreativeTimeSource;
 import com.yahoo.search.statistics.ElapsedTimeTestCase.UselessSearcher;
 import com.yahoo.search.statistics.TimeTracker;
+import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.BinaryView;
 import com.yahoo.slime.Cursor;
 import com.yahoo.slime.Slime;
 import com.yahoo.tensor.Tensor;
@@ -1048,6 +1050,55 @@ public class JsonRendererTestCase {
         assertEqualJson(expected, summary);
     }
 
+    @Test
+    public void testStructuredDataOfAllTypes() throws InterruptedException, ExecutionException, IOException {
+        String expected = "{"
+                + "    \"root\": {"
+                + "        \"children\": ["
+                + "            {"
+                + "                \"fields\": {"
+                + "                    \"struct\": {"
+                + "                        \"nix\": null,"
+                + "                        \"bool\": true,"
+                + "                        \"long\": -7809531904,"
+                + "                        \"double\": 0.25,"
+                + "                        \"nan\": null,"
+                + "                        \"string\": \"quoted \\\"\u00e6\u00f8\u00e5\\\"\\n\","
+                + "                        \"data\": \"0x00FF10\","
+                + "                        \"array\": [ 1, { \"inner\": \"value\" }, [] ]"
+                + "                    }"
+                + "                },"
+                + "                \"id\": \"structured data\","
+                + "                \"relevance\": 1.0"
+                + "            }"
+                + "        ],"
+                + "        \"fields\": {"
+                + "            \"totalCount\": 0"
+                + "        },"
+                + "        \"id\": \"toplevel\","
+                + "        \"relevance\": 1.0"
+                + "    }"
+                + "}";
+        Slime slime = new Slime();
+        Cursor c = slime.setObject();
+        c.setNix("nix");
+        c.setBool("bool", true);
+        c.setLong("long", -7809531904L);
+        c.setDouble("double", 0.25);
+        c.setDouble("nan", Double.NaN);
+        c.setString("string", "quoted \"\u00e6\u00f8\u00e5\"\n");
+        c.setData("data", new byte[] { 0, (byte)0xff, 0x10 });
+        Cursor array = c.setArray("array");
+        array.addLong(1);
+        array.addObject().setString("inner", "value");
+        array.addArray();
+        Result r = newEmptyResult();
+        Hit h = new Hit("structured data");
+        h.setField("struct", new StructuredData(new SlimeAdapter(BinaryView.inspect(BinaryFormat.encode(slime)))));
+        r.hits().add(h);
+        assertEqualJson(expected, render(r));
+    }
+
     @Test
     public void testFieldValueInHit() throws IOException, InterruptedException, ExecutionException {
         String expected = "{"
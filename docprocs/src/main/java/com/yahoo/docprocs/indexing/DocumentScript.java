@@ -17,6 +17,7 @@ import com.yahoo.document.update.FieldUpdate;
 import com.yahoo.document.update.MapValueUpdate;
 import com.yahoo.document.update.ValueUpdate;
 import com.yahoo.vespa.indexinglanguage.AdapterFactory;
+import com.yahoo.vespa.indexinglanguage.CompiledScript;
 import com.yahoo.vespa.indexinglanguage.expressions.Expression;
 
 import java.util.Collection;
@@ -33,11 +34,23 @@ public class DocumentScript {
     private final String documentType;
     private final Set<String> inputFields;
     private final Expression expression;
+    private final CompiledScript compiled;
 
     public DocumentScript(String documentType, Collection<String> inputFields, Expression expression) {
+        this(documentType, inputFields, expression, null);
+    }
+
+    /**
+     * Creates a document script
+     *
+     * @param compiled the expression compiled for the document type, used to execute on documents of that type,
+     *                 or null to always interpret the expression
+     */
+    public DocumentScript(String documentType, Collection<String> inputFields, Expression expression, CompiledScript compiled) {
         this.documentType = documentType;
         this.inputFields = new HashSet<>(inputFields);
         this.expression = expression;
+        this.compiled = compiled;
     }
 
     public Expression getExpression() { return expression; }
@@ -47,9 +60,16 @@ public class DocumentScript {
             requireThatFieldIsDeclaredInDocument(entry.getKey());
             removeAnyLinguisticsSpanTree(entry.getValue());
         }
+        if (executesCompiled(document))
+            return compiled.execute(adapterFactory, document);
         return expression.execute(adapterFactory, document);
     }
 
+    /** Returns whether this executes the script compiled for the type of the given document rather than interpreting it */
+    boolean executesCompiled(Document document) {
+        return compiled != null && compiled.canExecute(document);
+    }
+
     public DocumentUpdate execute(AdapterFactory adapterFactory, DocumentUpdate update) {
         for (FieldUpdate fieldUpdate : update.fieldUpdates()) {
             requireThatFieldIsDeclaredInDocument(fieldUpdate.getField());
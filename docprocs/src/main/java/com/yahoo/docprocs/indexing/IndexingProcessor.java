@@ -89,6 +89,10 @@ public class IndexingProcessor extends DocumentProcessor {
         return docTypeMgr;
     }
 
+    DocumentScript getScript(DocumentType documentType) {
+        return scriptMgr.getScript(documentType);
+    }
+
     private void processDocument(DocumentPut prev, List<DocumentOperation> out) {
         DocumentScript script = scriptMgr.getScript(prev.getDocument().getDataType());
         if (script == null) {
@@ -8,11 +8,13 @@ import java.util.logging.Level;
 
 import com.yahoo.language.process.Embedder;
 import com.yahoo.vespa.configdefinition.IlscriptsConfig;
+import com.yahoo.vespa.indexinglanguage.CompiledScript;
 import com.yahoo.vespa.indexinglanguage.ScriptParserContext;
 import com.yahoo.vespa.indexinglanguage.expressions.InputExpression;
 import com.yahoo.vespa.indexinglanguage.expressions.OutputExpression;
 import com.yahoo.vespa.indexinglanguage.expressions.ScriptExpression;
 import com.yahoo.vespa.indexinglanguage.expressions.StatementExpression;
+import com.yahoo.vespa.indexinglanguage.expressions.VerificationException;
 import com.yahoo.vespa.indexinglanguage.parser.IndexingInput;
 import com.yahoo.vespa.indexinglanguage.parser.ParseException;
 
@@ -121,12 +123,22 @@ public class ScriptManager {
 
             ScriptExpression script = new ScriptExpression(expressions);
             script.select(fieldPathOptimizer, fieldPathOptimizer);
-            fieldScripts.put(FULL, new DocumentScript(ilscript.doctype(), ilscript.docfield(),script));
+            fieldScripts.put(FULL, new DocumentScript(ilscript.doctype(), ilscript.docfield(), script, compile(script, documentType)));
             documentFieldScripts.put(ilscript.doctype(), Collections.unmodifiableMap(fieldScripts));
         }
         return Collections.unmodifiableMap(documentFieldScripts);
     }
 
+    /** Returns the given script compiled for the given type, or null if it cannot be, such that it must be interpreted */
+    private static CompiledScript compile(ScriptExpression script, DocumentType documentType) {
+        try {
+            return CompiledScript.compile(script, documentType);
+        } catch (VerificationException | IllegalArgumentException e) {
+            log.log(Level.FINE, "Interpreting the script for type '%s': %s", documentType.getName(), e.getMessage());
+            return null;
+        }
+    }
+
     private static StatementExpression parse(String docType, ScriptParserContext parserConfig, String content) {
         parserConfig.setInputStream(new IndexingInput(content));
         try {
@@ -7,6 +7,8 @@ import com.yahoo.document.Document;
 import com.yahoo.document.DocumentPut;
 import com.yahoo.document.DocumentOperation;
 import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.DocumentTypeManagerConfigurer;
 import com.yahoo.document.DocumentUpdate;
 import com.yahoo.document.config.DocumentmanagerConfig;
 import com.yahoo.document.datatypes.StringFieldValue;
@@ -44,6 +46,21 @@ public class IndexingProcessorTestCase {
         assertEquals("music", output.getDataType().getName());
     }
 
+    @Test
+    public void requireThatIndexerProcessesDocumentsOfTypesFromOtherManagersWithCompiledScripts() {
+        DocumentTypeManager otherManager =
+                DocumentTypeManagerConfigurer.configureNewManager(ConfigGetter.getConfig(DocumentmanagerConfig.class, CONFIG_ID));
+        Document input = new Document(otherManager.getDocumentType("music"), "id:ns:music::");
+        input.setFieldValue("artist", new StringFieldValue("69"));
+        input.setFieldValue("isbn", new StringFieldValue("isbnmarker"));
+        assertTrue(indexer.getScript(input.getDataType()).executesCompiled(input));
+
+        Document output = ((DocumentPut)process(new DocumentPut(input))).getDocument();
+        assertEquals(new StringFieldValue("69"), output.getFieldValue("title"));
+        assertEquals(new StringFieldValue("isbnmarker"), output.getFieldValue("song"));
+        assertEquals(new StringFieldValue("isbnmarker"), output.getFieldValue("isbn"));
+    }
+
     @Test
     public void requireThatIndexerForwardsDocumentsOfUnknownType() {
         Document input = new Document(new DocumentType("unknown"), "id:ns:unknown::");
@@ -6,7 +6,6 @@ import com.yahoo.document.datatypes.Struct;
 import com.yahoo.document.datatypes.StructuredFieldValue;
 import com.yahoo.document.json.JsonWriter;
 import com.yahoo.document.serialization.DocumentReader;
-import com.yahoo.document.serialization.DocumentSerializer;
 import com.yahoo.document.serialization.DocumentSerializerFactory;
 import com.yahoo.document.serialization.DocumentWriter;
 import com.yahoo.document.serialization.FieldReader;
@@ -131,9 +130,10 @@ public class Document extends StructuredFieldValue {
     }
 
     public int getSerializedSize() throws SerializationException {
-        DocumentSerializer data = DocumentSerializerFactory.create6(new GrowableByteBuffer(64 * 1024, 2.0f));
-        data.write(this);
-        return data.getBuf().position();
+        return DocumentSerializerFactory.withReusedHead(data -> {
+            data.write(this);
+            return data.getBuf().position();
+        });
     }
 
     /**
@@ -143,26 +143,28 @@ public class Document extends StructuredFieldValue {
     public final int getApproxSize() { return 4096; }
 
     public void serialize(OutputStream out) throws SerializationException {
-        DocumentSerializer writer = DocumentSerializerFactory.create6(new GrowableByteBuffer(64 * 1024, 2.0f));
-        writer.write(this);
-        GrowableByteBuffer data = writer.getBuf();
-        byte[] array;
-        if (data.hasArray()) {
-            //just get the array
-            array = data.array();
-        } else {
-            //copy the bytebuffer into the array
-            array = new byte[data.position()];
-            int endPos = data.position();
-            data.position(0);
-            data.get(array);
-            data.position(endPos);
-        }
-        try {
-            out.write(array, 0, data.position());
-        } catch (IOException ioe) {
-            throw new SerializationException(ioe);
-        }
+        DocumentSerializerFactory.withReusedHead(writer -> {
+            writer.write(this);
+            GrowableByteBuffer data = writer.getBuf();
+            byte[] array;
+            if (data.hasArray()) {
+                //just get the array
+                array = data.array();
+            } else {
+                //copy the bytebuffer into the array
+                array = new byte[data.position()];
+                int endPos = data.position();
+                data.position(0);
+                data.get(array);
+                data.position(endPos);
+            }
+            try {
+                out.write(array, 0, data.position());
+            } catch (IOException ioe) {
+                throw new SerializationException(ioe);
+            }
+            return null;
+        });
     }
 
     public static Document createDocument(DocumentReader buffer) {
@@ -9,6 +9,7 @@ import com.yahoo.document.PositionDataType;
 import com.yahoo.document.StructDataType;
 import com.yahoo.document.serialization.FieldReader;
 import com.yahoo.document.serialization.FieldWriter;
+import com.yahoo.document.serialization.LazyFields;
 import com.yahoo.document.serialization.XmlSerializationHelper;
 import com.yahoo.document.serialization.XmlStream;
 import com.yahoo.vespa.objects.Ids;
@@ -29,6 +30,7 @@ public class Struct extends StructuredFieldValue {
     public static final int classId = registerClass(Ids.document + 33, Struct.class);
     private Hashlet<Integer, FieldValue> values = new Hashlet<>();
     private int [] order = null;
+    private LazyFields lazyFields = null;
 
     private int version;
 
@@ -47,6 +49,27 @@ public class Struct extends StructuredFieldValue {
         order = null;
     }
 
+    /** Deserializes the given field of this if it is not yet deserialized, and returns it, or null if not present */
+    private FieldValue deserializeLazy(Field field) {
+        FieldValue value = lazyFields.deserialize(field);
+        if (value != null) {
+            values.put(field.getId(), value);
+            invalidateOrder();
+        }
+        if (lazyFields.pendingCount() == 0) {
+            lazyFields = null;
+        }
+        return value;
+    }
+
+    private void deserializeAll() {
+        if (lazyFields == null) return;
+        for (Field field : getDataType().getFields()) {
+            if (lazyFields == null) return;
+            deserializeLazy(field);
+        }
+    }
+
     public Struct(DataType type) {
         super((StructDataType) type);
         this.version = Document.SERIALIZED_VERSION;
@@ -86,6 +109,22 @@ public class Struct extends StructuredFieldValue {
         return getDataType().getCompressionConfig().threshold;
     }
 
+    /**
+     * Sets the serialized fields of this which are deserialized when first accessed.
+     * This is called by deserializers, and only on an empty struct.
+     */
+    public void setLazyFields(LazyFields lazyFields) {
+        if (values.size() != 0) {
+            throw new IllegalStateException("Lazy fields can only be set on an empty struct");
+        }
+        this.lazyFields = lazyFields;
+    }
+
+    /** Returns the serialized fields of this which are not yet deserialized, or null if none */
+    public LazyFields getLazyFields() {
+        return lazyFields;
+    }
+
     @Override
     public Struct clone() {
         Struct struct = (Struct) super.clone();
@@ -94,21 +133,25 @@ public class Struct extends StructuredFieldValue {
         for (int i = 0; i < values.size(); i++) {
             struct.values.put(values.key(i), values.value(i).clone());
         }
+        struct.lazyFields = (lazyFields != null) ? lazyFields.copy() : null;
         return struct;
     }
 
     @Override
     public void clear() {
         values = new Hashlet<>();
+        lazyFields = null;
         invalidateOrder();
     }
 
     @Override
     public Iterator<Map.Entry<Field, FieldValue>> iterator() {
+        deserializeAll();
         return new FieldSet().iterator();
     }
 
     public Set<Map.Entry<Field, FieldValue>> getFields() {
+        deserializeAll();
         return new FieldSet();
     }
 
@@ -127,7 +170,14 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public FieldValue getFieldValue(Field field) {
-        return values.get(field.getId());
+        FieldValue value = values.get(field.getId());
+        if (value == null && lazyFields != null) {
+            Field myField = getDataType().getField(field.getId());
+            if (myField != null) {
+                value = deserializeLazy(myField);
+            }
+        }
+        return value;
     }
 
 
@@ -138,7 +188,7 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public int getFieldCount() {
-        return values.size();
+        return values.size() + (lazyFields != null ? lazyFields.pendingCount() : 0);
     }
 
     @Override
@@ -164,6 +214,9 @@ public class Struct extends StructuredFieldValue {
                     "Inconsistent field: " + field);
         }
 
+        if (lazyFields != null) {
+            lazyFields.discard(field.getId());
+        }
         int index = values.getIndexOfKey(field.getId());
         if (index == -1) {
             values.put(field.getId(), value);
@@ -175,7 +228,10 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public FieldValue removeFieldValue(Field field) {
-        FieldValue found = values.get(field.getId());
+        FieldValue found = getFieldValue(field);
+        if (lazyFields != null) {
+            lazyFields.discard(field.getId());
+        }
         if (found != null) {
             Hashlet<Integer, FieldValue> copy = new Hashlet<>();
             copy.reserve(values.size() - 1);
@@ -223,11 +279,14 @@ public class Struct extends StructuredFieldValue {
         if (!super.equals(o)) return false;
 
         Struct struct = (Struct) o;
+        deserializeAll();
+        struct.deserializeAll();
         return values.equals(struct.values);
     }
 
     @Override
     public int hashCode() {
+        deserializeAll();
         int result = super.hashCode();
         result = 31 * result + values.hashCode();
         return result;
@@ -237,6 +296,7 @@ public class Struct extends StructuredFieldValue {
     public String toString() {
         StringBuilder retVal = new StringBuilder();
         retVal.append("Struct (").append(getDataType()).append("): ");
+        deserializeAll();
         int [] increasing = getInOrder();
         for (int i = 0; i < increasing.length; i++) {
             int id = increasing[i];
@@ -257,6 +317,8 @@ public class Struct extends StructuredFieldValue {
             return cmp;
         }
         Struct rhs = (Struct)obj;
+        deserializeAll();
+        rhs.deserializeAll();
         cmp = values.size() - rhs.values.size();
         if (cmp != 0) {
             return cmp;
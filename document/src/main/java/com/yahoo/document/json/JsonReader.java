@@ -6,12 +6,14 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.yahoo.document.DocumentId;
 import com.yahoo.document.DocumentOperation;
+import com.yahoo.document.DocumentPut;
 import com.yahoo.document.DocumentType;
 import com.yahoo.document.DocumentTypeManager;
 import com.yahoo.document.TestAndSetCondition;
 import com.yahoo.document.json.document.DocumentParser;
 import com.yahoo.document.json.readers.DocumentParseInfo;
 import com.yahoo.document.json.readers.VespaJsonDocumentReader;
+import com.yahoo.document.serialization.LazyDocumentBuilder;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -61,6 +63,31 @@ public class JsonReader {
      * @return the document
      */
     public DocumentOperation readSingleDocument(DocumentOperationType operationType, String docIdString) {
+        DocumentParseInfo documentParseInfo = parseSingleDocument(operationType, docIdString);
+        VespaJsonDocumentReader vespaJsonDocumentReader = new VespaJsonDocumentReader();
+        DocumentOperation operation = vespaJsonDocumentReader.createDocumentOperation(
+                getDocumentTypeFromString(documentParseInfo.documentId.getDocType(), typeManager), documentParseInfo);
+        operation.setCondition(TestAndSetCondition.fromConditionString(documentParseInfo.condition));
+        return operation;
+    }
+
+    /**
+     * Reads a single put operation like {@link #readSingleDocument}, but without setting the field values
+     * on the document: Each value is serialized as soon as it is read, and the document is serialized by copying
+     * these bytes unless it is changed. Fields are deserialized if accessed, see {@link LazyDocumentBuilder}.
+     *
+     * @param docIdString document ID.
+     * @return the put operation
+     */
+    public DocumentPut readSingleLazyPut(String docIdString) {
+        DocumentParseInfo documentParseInfo = parseSingleDocument(DocumentOperationType.PUT, docIdString);
+        DocumentPut put = new VespaJsonDocumentReader().createLazyPut(
+                getDocumentTypeFromString(documentParseInfo.documentId.getDocType(), typeManager), documentParseInfo, typeManager);
+        put.setCondition(TestAndSetCondition.fromConditionString(documentParseInfo.condition));
+        return put;
+    }
+
+    private DocumentParseInfo parseSingleDocument(DocumentOperationType operationType, String docIdString) {
         DocumentId docId = new DocumentId(docIdString);
         DocumentParseInfo documentParseInfo;
         try {
@@ -71,11 +98,7 @@ public class JsonReader {
             throw new IllegalArgumentException(e);
         }
         documentParseInfo.operationType = operationType;
-        VespaJsonDocumentReader vespaJsonDocumentReader = new VespaJsonDocumentReader();
-        DocumentOperation operation = vespaJsonDocumentReader.createDocumentOperation(
-                getDocumentTypeFromString(documentParseInfo.documentId.getDocType(), typeManager), documentParseInfo);
-        operation.setCondition(TestAndSetCondition.fromConditionString(documentParseInfo.condition));
-        return operation;
+        return documentParseInfo;
     }
 
     /** Returns the next document operation, or null if we have reached the end */
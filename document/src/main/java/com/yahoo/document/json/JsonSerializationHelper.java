@@ -93,10 +93,11 @@ public class JsonSerializationHelper {
 
     static void serializeTensorCells(JsonGenerator generator, Tensor tensor) throws IOException {
         generator.writeArrayFieldStart(TensorReader.TENSOR_CELLS);
-        for (Map.Entry<TensorAddress, Double> cell : tensor.cells().entrySet()) {
+        for (Iterator<Tensor.Cell> i = tensor.cellIterator(); i.hasNext(); ) {
+            Tensor.Cell cell = i.next();
             generator.writeStartObject();
             serializeTensorAddress(generator, cell.getKey(), tensor.type());
-            generator.writeNumberField(TensorReader.TENSOR_VALUE, cell.getValue());
+            generator.writeNumberField(TensorReader.TENSOR_VALUE, cell.getDoubleValue());
             generator.writeEndObject();
         }
         generator.writeEndArray();
@@ -105,10 +106,11 @@ public class JsonSerializationHelper {
     static void serializeTensorAddresses(JsonGenerator generator, Tensor tensor) throws IOException {
         TensorType tensorType = tensor.type();
         generator.writeArrayFieldStart(TensorRemoveUpdateReader.TENSOR_ADDRESSES);
-        for (Map.Entry<TensorAddress, Double> cell : tensor.cells().entrySet()) {
+        for (Iterator<Tensor.Cell> cells = tensor.cellIterator(); cells.hasNext(); ) {
+            TensorAddress address = cells.next().getKey();
             generator.writeStartObject();
             for (int i = 0; i < tensorType.dimensions().size(); i++) {
-                generator.writeStringField(tensorType.dimensions().get(i).name(), cell.getKey().label(i));
+                generator.writeStringField(tensorType.dimensions().get(i).name(), address.label(i));
             }
             generator.writeEndObject();
         }
@@ -2,11 +2,19 @@
 package com.yahoo.document.json.readers;
 
 import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.base.Preconditions;
+import com.yahoo.document.ArrayDataType;
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
 import com.yahoo.document.Field;
 import com.yahoo.document.datatypes.FieldValue;
 import com.yahoo.document.datatypes.StructuredFieldValue;
 import com.yahoo.document.json.JsonReaderException;
 import com.yahoo.document.json.TokenBuffer;
+import com.yahoo.document.serialization.LazyDocumentBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.yahoo.document.json.readers.SingleValueReader.readSingleValue;
 
@@ -32,6 +40,56 @@ public class StructReader {
         }
     }
 
+    /**
+     * Reads the fields of the given document into the given builder, instead of setting them on the document.
+     * Values of text types, and arrays of these, are written from their JSON text, without creating field values.
+     */
+    public static void fillDocument(TokenBuffer buffer, Document document, LazyDocumentBuilder builder) {
+        int initNesting = buffer.nesting();
+        buffer.next();
+
+        while (buffer.nesting() >= initNesting) {
+            Field f = getField(buffer, document);
+            try {
+                // skip fields set to null
+                if (buffer.currentToken() != JsonToken.VALUE_NULL)
+                    setField(buffer, f, builder);
+                buffer.next();
+            } catch (IllegalArgumentException e) {
+                throw new JsonReaderException(f, e);
+            }
+        }
+    }
+
+    private static void setField(TokenBuffer buffer, Field field, LazyDocumentBuilder builder) {
+        DataType type = field.getDataType();
+        if (LazyDocumentBuilder.isTextType(type) && buffer.currentToken().isScalarValue()) {
+            builder.setFieldText(field, buffer.currentText());
+        }
+        else if (   type instanceof ArrayDataType && LazyDocumentBuilder.isTextType(((ArrayDataType) type).getNestedType())
+                 && buffer.currentToken() == JsonToken.START_ARRAY) {
+            builder.setFieldTexts(field, readTexts(buffer, ((ArrayDataType) type).getNestedType()));
+        }
+        else {
+            builder.setFieldValue(field, readSingleValue(buffer, type));
+        }
+    }
+
+    /** Returns the texts of the scalar elements of the array at the current position */
+    private static List<String> readTexts(TokenBuffer buffer, DataType elementType) {
+        List<String> texts = new ArrayList<>();
+        int initNesting = buffer.nesting();
+        buffer.next();
+        while (buffer.nesting() >= initNesting) {
+            Preconditions.checkArgument(buffer.currentToken() != JsonToken.VALUE_NULL, "Illegal null value for array entry");
+            Preconditions.checkArgument(buffer.currentToken().isScalarValue(),
+                                        "Expected a value of type %s, but got %s", elementType.getName(), buffer.currentToken());
+            texts.add(buffer.currentText());
+            buffer.next();
+        }
+        return texts;
+    }
+
     public static Field getField(TokenBuffer buffer, StructuredFieldValue parent) {
         Field field = parent.getField(buffer.currentName());
         if (field == null) {
@@ -8,6 +8,7 @@ import com.yahoo.document.DocumentOperation;
 import com.yahoo.document.DocumentPut;
 import com.yahoo.document.DocumentRemove;
 import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentTypeManager;
 import com.yahoo.document.DocumentUpdate;
 import com.yahoo.document.Field;
 import com.yahoo.document.datatypes.Array;
@@ -18,6 +19,7 @@ import com.yahoo.document.fieldpathupdate.FieldPathUpdate;
 import com.yahoo.document.fieldpathupdate.RemoveFieldPathUpdate;
 import com.yahoo.document.json.JsonReaderException;
 import com.yahoo.document.json.TokenBuffer;
+import com.yahoo.document.serialization.LazyDocumentBuilder;
 import com.yahoo.document.update.FieldUpdate;
 
 import static com.yahoo.document.json.readers.AddRemoveCreator.createAdds;
@@ -30,6 +32,7 @@ import static com.yahoo.document.json.readers.MapReader.UPDATE_MATCH;
 import static com.yahoo.document.json.readers.MapReader.createMapUpdate;
 import static com.yahoo.document.json.readers.SingleValueReader.UPDATE_ASSIGN;
 import static com.yahoo.document.json.readers.SingleValueReader.readSingleUpdate;
+import static com.yahoo.document.json.readers.StructReader.fillDocument;
 import static com.yahoo.document.json.readers.TensorAddUpdateReader.createTensorAddUpdate;
 import static com.yahoo.document.json.readers.TensorAddUpdateReader.isTensorField;
 import static com.yahoo.document.json.readers.TensorModifyUpdateReader.UPDATE_MODIFY;
@@ -77,6 +80,31 @@ public class VespaJsonDocumentReader {
         return documentOperation;
     }
 
+    /**
+     * Creates a put like {@link #createDocumentOperation}, but serializes each field value as soon as it is read
+     * instead of setting it on the document, see {@link LazyDocumentBuilder}.
+     */
+    public DocumentPut createLazyPut(DocumentType documentType, DocumentParseInfo documentParseInfo, DocumentTypeManager manager) {
+        if (documentParseInfo.create.isPresent())
+            throw new IllegalArgumentException("Could not set create flag on non update operation.");
+
+        DocumentPut put = new DocumentPut(new Document(documentType, documentParseInfo.documentId));
+        TokenBuffer buffer = documentParseInfo.fieldsBuffer;
+        try {
+            if (buffer.isEmpty()) // no "fields" map
+                throw new IllegalArgumentException(put + " is missing a 'fields' map");
+            expectObjectStart(buffer.currentToken());
+            LazyDocumentBuilder builder = new LazyDocumentBuilder(manager, put.getDocument());
+            fillDocument(buffer, put.getDocument(), builder);
+            expectObjectEnd(buffer.currentToken());
+            builder.build();
+            verifyEndState(buffer, JsonToken.END_OBJECT);
+        } catch (JsonReaderException e) {
+            throw JsonReaderException.addDocId(e, documentParseInfo.documentId);
+        }
+        return put;
+    }
+
     // Exposed for unit testing...
     public void readPut(TokenBuffer buffer, DocumentPut put) {
         try {
@@ -19,6 +19,16 @@ public class DocumentDeserializerFactory {
         return new VespaDocumentDeserializerHead(manager, buf);
     }
 
+    /**
+     * Creates a de-serializer for the current head document format, which keeps the fields of documents
+     * serialized until each is first accessed, and which writes out the bytes it read when a document
+     * is serialized again without any of its fields having been accessed or changed.
+     * Documents read by this must not be accessed by multiple threads, even if they are only read.
+     */
+    public static DocumentDeserializer createLazyHead(DocumentTypeManager manager, GrowableByteBuffer buf) {
+        return new VespaDocumentDeserializerHead(manager, buf, true);
+    }
+
     /**
      * Creates a de-serializer for the 6.x document format.
      * This format is an extension of the 4.2 format.
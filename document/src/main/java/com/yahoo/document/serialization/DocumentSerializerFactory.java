@@ -3,6 +3,8 @@ package com.yahoo.document.serialization;
 
 import com.yahoo.io.GrowableByteBuffer;
 
+import java.util.function.Function;
+
 /**
  * Factory for creating document serializers tied to a document format.
  *
@@ -10,6 +12,16 @@ import com.yahoo.io.GrowableByteBuffer;
  */
 public class DocumentSerializerFactory {
 
+    /** The initial size of reused buffers, which they are shrunk back to if they grow larger than the max */
+    private static final int initialReusedBufferSize = 8 * 1024;
+
+    /** Buffers larger than this are not kept for reuse, as each thread keeps one per struct nesting depth */
+    private static final int maxReusedBufferSize = 64 * 1024;
+
+    /** The serializer of each thread, or null while it is in use */
+    private static final ThreadLocal<VespaDocumentSerializerHead> reusedHead =
+            ThreadLocal.withInitial(() -> new VespaDocumentSerializerHead(new GrowableByteBuffer(initialReusedBufferSize, 2.0f)));
+
     /**
      * Creates a serializer for the current head document format.
      * This format is an extension of the 6.x format.
@@ -34,4 +46,27 @@ public class DocumentSerializerFactory {
         return new VespaDocumentSerializer6(new GrowableByteBuffer());
     }
 
+    /**
+     * Calls the given function with a serializer for the current head document format, which is reused by the
+     * next call to this on the same thread, together with its buffers. The serialized bytes must therefore
+     * be consumed by the given function. Use this when serializing many documents to avoid allocating and
+     * growing new buffers for each of them.
+     *
+     * @return the value returned by the given function
+     */
+    public static <T> T withReusedHead(Function<DocumentSerializer, T> function) {
+        VespaDocumentSerializerHead serializer = reusedHead.get();
+        if (serializer == null) // already in use by this thread
+            return function.apply(new VespaDocumentSerializerHead(new GrowableByteBuffer(initialReusedBufferSize, 2.0f)));
+
+        reusedHead.set(null);
+        try {
+            return function.apply(serializer);
+        }
+        finally {
+            serializer.reset(initialReusedBufferSize, maxReusedBufferSize);
+            reusedHead.set(serializer);
+        }
+    }
+
 }
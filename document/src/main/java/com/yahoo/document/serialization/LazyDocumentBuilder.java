@@ -0,0 +1,219 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.serialization;
+
+import com.yahoo.compress.CompressionType;
+import com.yahoo.document.ArrayDataType;
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.Field;
+import com.yahoo.document.StructDataType;
+import com.yahoo.document.datatypes.FieldValue;
+import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.text.Text;
+import com.yahoo.text.Utf8;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.TreeMap;
+
+/**
+ * Sets the fields of a document by serializing each value as it is added, such that field values need not
+ * be kept in memory, and no struct holding them is created. The fields of the document built are then
+ * deserialized when they are accessed, and the document is serialized by copying the bytes written here
+ * if it is not changed, see {@link LazyFields}.
+ *
+ * Values of atomic types, and arrays of these, can also be written directly from their text, without creating
+ * any field values, see {@link #isTextType}.
+ *
+ * @author bratseth
+ */
+public class LazyDocumentBuilder {
+
+    private final DocumentTypeManager manager;
+    private final Document document;
+    private final GrowableByteBuffer buffer = new GrowableByteBuffer(4096, 2.0f);
+    private final VespaDocumentSerializer6 serializer = new VespaDocumentSerializerHead(buffer);
+
+    /** The offset and length of the last value written of each field, by field id */
+    private final Map<Integer, int[]> fields = new TreeMap<>();
+
+    /**
+     * Creates a builder of the fields of the given document
+     *
+     * @param manager the manager of the type of the document, used to deserialize its fields when accessed
+     * @param document the document to set the fields of, which must be empty
+     */
+    public LazyDocumentBuilder(DocumentTypeManager manager, Document document) {
+        if (document.getFieldCount() != 0)
+            throw new IllegalArgumentException("Lazy fields can only be set on an empty document, but " + document +
+                                               " has " + document.getFieldCount() + " fields");
+        this.manager = manager;
+        this.document = document;
+    }
+
+    /** Serializes the given value of the given field, replacing any previous value of it */
+    public LazyDocumentBuilder setFieldValue(Field field, FieldValue value) {
+        if ( ! field.getDataType().isValueCompatible(value))
+            throw new IllegalArgumentException("Incompatible data types. Got " + value.getDataType() +
+                                               ", expected " + field.getDataType());
+        int start = buffer.position();
+        value.serialize(field, serializer);
+        fields.put(field.getId(), new int[] { start, buffer.position() - start });
+        return this;
+    }
+
+    /**
+     * Returns whether values of the given type can be set from their text by {@link #setFieldText}, and arrays of
+     * them by {@link #setFieldTexts}. These are the numeric types, bool and string.
+     */
+    public static boolean isTextType(DataType type) {
+        return    type.equals(DataType.STRING) || type.equals(DataType.INT) || type.equals(DataType.LONG)
+               || type.equals(DataType.DOUBLE) || type.equals(DataType.FLOAT) || type.equals(DataType.BYTE)
+               || type.equals(DataType.BOOL);
+    }
+
+    /**
+     * Serializes the value of the given field parsed from the given text, replacing any previous value of it.
+     * This is the same value as the one created by the data type of the field from the text.
+     *
+     * @throws IllegalArgumentException if the type of the field is not a text type, or the text is not a valid value
+     */
+    public LazyDocumentBuilder setFieldText(Field field, String text) {
+        if ( ! isTextType(field.getDataType()))
+            throw new IllegalArgumentException("Field " + field + " can not be set from text");
+        int start = buffer.position();
+        writeText(field.getDataType(), text);
+        fields.put(field.getId(), new int[] { start, buffer.position() - start });
+        return this;
+    }
+
+    /**
+     * Serializes the value of the given array field, with elements parsed from the given texts,
+     * replacing any previous value of it.
+     *
+     * @throws IllegalArgumentException if the field is not an array of a text type, or a text is not a valid value
+     */
+    public LazyDocumentBuilder setFieldTexts(Field field, List<String> texts) {
+        if ( ! (field.getDataType() instanceof ArrayDataType && isTextType(((ArrayDataType) field.getDataType()).getNestedType())))
+            throw new IllegalArgumentException("Field " + field + " can not be set from a list of texts");
+        DataType elementType = ((ArrayDataType) field.getDataType()).getNestedType();
+        int start = buffer.position();
+        try {
+            buffer.putInt1_2_4Bytes(texts.size());
+            for (String text : texts)
+                writeText(elementType, text);
+        }
+        catch (RuntimeException e) {
+            buffer.position(start); // discard the elements written
+            throw e;
+        }
+        fields.put(field.getId(), new int[] { start, buffer.position() - start });
+        return this;
+    }
+
+    /** Writes the given text as a value of the given text type, in the format of {@link VespaDocumentSerializer6} */
+    private void writeText(DataType type, String text) {
+        if (type.equals(DataType.STRING)) {
+            OptionalInt illegalCodePoint = Text.validateTextString(text);
+            if (illegalCodePoint.isPresent())
+                throw new IllegalArgumentException("The string field value contains illegal code point 0x" +
+                                                   Integer.toHexString(illegalCodePoint.getAsInt()).toUpperCase());
+            byte[] utf8 = Utf8.toBytes(text);
+            buffer.put((byte) 0); // coding: no span trees
+            buffer.putInt1_4Bytes(utf8.length + 1);
+            buffer.put(utf8);
+            buffer.put((byte) 0);
+        }
+        else if (type.equals(DataType.INT)) buffer.putInt(Integer.parseInt(text));
+        else if (type.equals(DataType.LONG)) buffer.putLong(Long.parseLong(text));
+        else if (type.equals(DataType.DOUBLE)) buffer.putDouble(Double.parseDouble(text));
+        else if (type.equals(DataType.FLOAT)) buffer.putFloat(Float.parseFloat(text));
+        else if (type.equals(DataType.BYTE)) buffer.put(Byte.parseByte(text));
+        else if (type.equals(DataType.BOOL)) buffer.put(Boolean.parseBoolean(text) ? (byte) 1 : (byte) 0);
+        else throw new IllegalArgumentException(type + " is not a text type");
+    }
+
+    /** Sets the fields added to this on the document of this, and returns it. This builder cannot be used after this. */
+    @SuppressWarnings("deprecation")
+    public Document build() {
+        if (fields.isEmpty()) return document;
+
+        // Write fields in the order of their ids, and skip values which are replaced, like when serializing a struct
+        int[] fieldIds = new int[fields.size()];
+        int[] offsets = new int[fields.size()];
+        int[] lengths = new int[fields.size()];
+        int dataSize = 0;
+        int i = 0;
+        for (Map.Entry<Integer, int[]> field : fields.entrySet()) {
+            fieldIds[i] = field.getKey();
+            offsets[i] = field.getValue()[0];
+            lengths[i] = field.getValue()[1];
+            dataSize += lengths[i++];
+        }
+
+        StructDataType type = document.getHeader().getDataType();
+        LazyFields lazyFields = type.getCompressor().type() == CompressionType.NONE
+                                ? writeUncompressed(fieldIds, offsets, lengths, dataSize)
+                                : writeCompressed(type, fieldIds, offsets, lengths, dataSize);
+        document.getHeader().setLazyFields(lazyFields);
+        return document;
+    }
+
+    /** Writes the struct header, followed by each field value, which is then copied only once */
+    private LazyFields writeUncompressed(int[] fieldIds, int[] offsets, int[] lengths, int dataSize) {
+        GrowableByteBuffer header = new GrowableByteBuffer(16 + 12 * fieldIds.length);
+        header.putInt(dataSize);
+        header.put(CompressionType.NONE.getCode());
+        header.putInt1_4Bytes(fieldIds.length);
+        for (int i = 0; i < fieldIds.length; i++) {
+            header.putInt1_4Bytes(fieldIds[i]);
+            header.putInt2_4_8Bytes(lengths[i]);
+        }
+
+        byte[] serialized = new byte[header.position() + dataSize];
+        System.arraycopy(header.array(), 0, serialized, 0, header.position());
+        int offset = header.position();
+        for (int i = 0; i < fieldIds.length; i++) {
+            System.arraycopy(buffer.array(), offsets[i], serialized, offset, lengths[i]);
+            offsets[i] = offset;
+            offset += lengths[i];
+        }
+        return new LazyFields(manager, serialized, serialized, fieldIds, offsets, lengths);
+    }
+
+    /** Collects the field values into one buffer to compress them, and writes the struct from that */
+    private LazyFields writeCompressed(StructDataType type, int[] fieldIds, int[] offsets, int[] lengths, int dataSize) {
+        GrowableByteBuffer fieldData = new GrowableByteBuffer(Math.max(16, dataSize));
+        List<Integer> ids = new ArrayList<>(fieldIds.length);
+        List<Integer> fieldLengths = new ArrayList<>(fieldIds.length);
+        for (int i = 0; i < fieldIds.length; i++) {
+            fieldData.put(buffer.array(), offsets[i], lengths[i]);
+            ids.add(fieldIds[i]);
+            fieldLengths.add(lengths[i]);
+        }
+        fieldData.flip();
+
+        GrowableByteBuffer structBuffer = new GrowableByteBuffer(fieldData.remaining() + 64);
+        new VespaDocumentSerializerHead(structBuffer).writeStruct(type, fieldData, ids, fieldLengths);
+        structBuffer.flip();
+        byte[] serialized = new byte[structBuffer.remaining()];
+        structBuffer.get(serialized);
+
+        // The struct starts with its data length and compression type; incompressible field data is at its end
+        byte[] data = fieldData.array();
+        int offset = 0;
+        if ( ! CompressionType.valueOf(serialized[4]).isCompressed()) {
+            data = serialized;
+            offset = serialized.length - dataSize;
+        }
+        for (int i = 0; i < fieldIds.length; i++) {
+            offsets[i] = offset;
+            offset += lengths[i];
+        }
+        return new LazyFields(manager, serialized, data, fieldIds, offsets, lengths);
+    }
+
+}
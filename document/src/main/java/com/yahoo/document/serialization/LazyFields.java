@@ -0,0 +1,116 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.serialization;
+
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.Field;
+import com.yahoo.document.datatypes.FieldValue;
+import com.yahoo.io.GrowableByteBuffer;
+
+import java.util.Arrays;
+
+/**
+ * The serialized fields of a struct which are not deserialized yet, as read by a deserializer created by
+ * {@link DocumentDeserializerFactory#createLazyHead}. Each field is deserialized when it is first accessed.
+ * As long as no field is deserialized or changed, the struct is serialized by copying the bytes it was read from.
+ * This applies to the fields of documents as well as to any struct value they contain, so structs which are
+ * not changed are copied also when other parts of the document they are in are changed.
+ *
+ * @author bratseth
+ */
+public final class LazyFields {
+
+    private final DocumentTypeManager manager;
+    private final byte[] serialized; // the struct as it was read, or null if it must be serialized field by field
+    private final byte[] data; // the uncompressed field data, which may be the serialized array
+    private final int[] ids;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final boolean[] pending;
+    private int pendingCount;
+    private boolean changed = false;
+
+    LazyFields(DocumentTypeManager manager, byte[] serialized, byte[] data, int[] ids, int[] offsets, int[] lengths) {
+        this.manager = manager;
+        this.serialized = serialized;
+        this.data = data;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.pending = new boolean[ids.length];
+        Arrays.fill(pending, true);
+        this.pendingCount = ids.length;
+    }
+
+    private LazyFields(LazyFields other) {
+        this.manager = other.manager;
+        this.serialized = other.serialized;
+        this.data = other.data;
+        this.ids = other.ids;
+        this.offsets = other.offsets;
+        this.lengths = other.lengths;
+        this.pending = other.pending.clone();
+        this.pendingCount = other.pendingCount;
+        this.changed = other.changed;
+    }
+
+    /** Returns a copy of this which keeps track of deserialized fields independently of this */
+    public LazyFields copy() { return new LazyFields(this); }
+
+    /** Returns the number of fields which are not yet deserialized */
+    public int pendingCount() { return pendingCount; }
+
+    /** Returns whether the field with the given id is serialized in this and not yet deserialized */
+    public boolean isPending(int fieldId) { return indexOf(fieldId) >= 0; }
+
+    /**
+     * Deserializes the given field, which is then no longer pending in this.
+     *
+     * @return the deserialized value, or null if this field is not pending in this
+     */
+    public FieldValue deserialize(Field field) {
+        int index = indexOf(field.getId());
+        if (index < 0) return null;
+
+        remove(index);
+        FieldValue value = field.getDataType().createFieldValue();
+        // Structs in the value are also deserialized lazily, such that unchanged ones are copied when serialized
+        value.deserialize(field, new VespaDocumentDeserializerHead(manager, GrowableByteBuffer.wrap(data, offsets[index], lengths[index]), true));
+        return value;
+    }
+
+    /** Discards the serialized value of the field with the given id, if pending, as it is set or removed */
+    public void discard(int fieldId) {
+        changed = true;
+        int index = indexOf(fieldId);
+        if (index >= 0)
+            remove(index);
+    }
+
+    /** Returns whether no field is deserialized, set or removed, such that the original bytes can be copied */
+    boolean isUnchanged() { return serialized != null && ! changed; }
+
+    /** Writes the struct as it was read to the given buffer */
+    void writeSerialized(GrowableByteBuffer buffer) {
+        buffer.put(serialized);
+    }
+
+    /** Writes the serialized value of the given pending field to the given buffer */
+    void writePending(int fieldId, GrowableByteBuffer buffer) {
+        int index = indexOf(fieldId);
+        buffer.put(data, offsets[index], lengths[index]);
+    }
+
+    private void remove(int index) {
+        changed = true;
+        pending[index] = false;
+        pendingCount--;
+    }
+
+    private int indexOf(int fieldId) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == fieldId && pending[i]) return i;
+        }
+        return -1;
+    }
+
+}
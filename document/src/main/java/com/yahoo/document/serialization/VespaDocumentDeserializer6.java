@@ -67,6 +67,7 @@ import com.yahoo.vespa.objects.FieldBase;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -82,6 +83,7 @@ import static com.yahoo.text.Utf8.calculateStringPositions;
 public class VespaDocumentDeserializer6 extends BufferSerializer implements DocumentDeserializer {
 
     private final Compressor compressor = new Compressor();
+    private final boolean lazy;
     private DocumentTypeManager manager;
     private short version;
     private List<SpanNode> spanNodes;
@@ -89,9 +91,19 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
     private int[] stringPositions;
 
     VespaDocumentDeserializer6(DocumentTypeManager manager, GrowableByteBuffer buf) {
+        this(manager, buf, false);
+    }
+
+    /**
+     * Creates a deserializer
+     *
+     * @param lazy whether to keep the fields of documents serialized until they are accessed, see {@link LazyFields}
+     */
+    VespaDocumentDeserializer6(DocumentTypeManager manager, GrowableByteBuffer buf, boolean lazy) {
         super(buf);
         this.manager = manager;
         this.version = Document.SERIALIZED_VERSION;
+        this.lazy = lazy;
     }
 
     final public DocumentTypeManager getDocumentTypeManager() { return manager; }
@@ -119,11 +131,12 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
 
         Struct h = doc.getHeader();
         h.clear();
+        boolean lazyHeader = lazy && (content & 0x6) != 0x6; // Fields from a separate body are merged in eagerly
         if ((content & 0x2) != 0) {
-            readHeaderBody(h);
+            readHeaderBody(h, lazyHeader);
         }
         if ((content & 0x4) != 0) {
-            readHeaderBody(h);
+            readHeaderBody(h, lazyHeader);
         }
 
         if (dataLength != (position() - dataPos)) {
@@ -266,6 +279,7 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
             throw new DeserializationException("Illegal document serialization version " + version);
         }
 
+        int start = position();
         int dataSize = getInt(null);
         byte comprCode = getByte(null);
         CompressionType compression = CompressionType.valueOf(comprCode);
@@ -291,6 +305,12 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
             fieldIdsAndLengths.add(new Tuple2<>(getInt1_4Bytes(null), getInt2_4_8Bytes(null)));
         }
 
+        if (lazy) {
+            s.clear();
+            readLazyFields(s, start, compression, uncompressedSize, dataSize, fieldIdsAndLengths);
+            return;
+        }
+
         // save a reference to the big buffer we're reading from:
         GrowableByteBuffer bigBuf = buf;
 
@@ -323,13 +343,14 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
         buf = bigBuf;
     }
 
-    private void readHeaderBody(Struct primary) {
+    private void readHeaderBody(Struct primary, boolean lazy) {
         primary.setVersion(version);
 
         if (version < 8) {
             throw new DeserializationException("Illegal document serialization version " + version);
         }
 
+        int start = position();
         int dataSize = getInt(null);
 
         byte comprCode = getByte(null);
@@ -356,6 +377,11 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
             fieldIdsAndLengths.add(new Tuple2<>(getInt1_4Bytes(null), getInt2_4_8Bytes(null)));
         }
 
+        if (lazy) {
+            readLazyFields(primary, start, compression, uncompressedSize, dataSize, fieldIdsAndLengths);
+            return;
+        }
+
         // save a reference to the big buffer we're reading from:
         GrowableByteBuffer bigBuf = buf;
 
@@ -385,6 +411,52 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
         buf = bigBuf;
     }
 
+    /**
+     * Sets the fields of the given struct to be deserialized on access. The serialized struct, starting at the given
+     * position, is copied out of the buffer, and this copy also holds the field data unless it is compressed.
+     */
+    private void readLazyFields(Struct primary, int start, CompressionType compression, int uncompressedSize,
+                                int dataSize, List<Tuple2<Integer, Long>> fieldIdsAndLengths) {
+        int dataStart = position();
+        position(dataStart + dataSize);
+        byte[] serialized = Arrays.copyOfRange(getBuf().array(), start, position());
+
+        byte[] data = serialized;
+        int offset = dataStart - start;
+        int end = offset + dataSize;
+        if (compression.isCompressed()) {
+            data = compressor.decompress(compression, serialized, offset, uncompressedSize, Optional.of(dataSize));
+            offset = 0;
+            end = data.length;
+        }
+
+        StructDataType priType = primary.getDataType();
+        int[] ids = new int[fieldIdsAndLengths.size()];
+        int[] offsets = new int[ids.length];
+        int[] lengths = new int[ids.length];
+        int known = 0;
+        for (Tuple2<Integer, Long> idAndLength : fieldIdsAndLengths) {
+            // The field values are only read when accessed, so check here that they are within the struct
+            if (idAndLength.second < 0 || offset + idAndLength.second > end)
+                throw new DeserializationException("Field " + idAndLength.first + " of " + priType.getName() + " with length " +
+                                                   idAndLength.second + " extends beyond the " + (end - offset) +
+                                                   " remaining bytes of the struct");
+            int length = idAndLength.second.intValue();
+            if (priType.getField(idAndLength.first) != null) {
+                ids[known] = idAndLength.first;
+                offsets[known] = offset;
+                lengths[known] = length;
+                known++;
+            }
+            offset += length;
+        }
+        if (known == 0) return;
+
+        // Unknown fields are dropped on deserialization, so the serialized struct can only be copied if there are none
+        primary.setLazyFields(new LazyFields(manager, known == ids.length ? serialized : null, data,
+                                             Arrays.copyOf(ids, known), Arrays.copyOf(offsets, known), Arrays.copyOf(lengths, known)));
+    }
+
     public void read(FieldBase field, StructuredFieldValue value) {
         throw new IllegalArgumentException("read not implemented yet.");
     }
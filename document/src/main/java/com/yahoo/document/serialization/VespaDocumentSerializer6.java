@@ -11,6 +11,7 @@ import com.yahoo.document.DocumentId;
 import com.yahoo.document.DocumentType;
 import com.yahoo.document.DocumentUpdate;
 import com.yahoo.document.Field;
+import com.yahoo.document.StructDataType;
 import com.yahoo.document.WeightedSetDataType;
 import com.yahoo.document.annotation.AlternateSpanList;
 import com.yahoo.document.annotation.Annotation;
@@ -60,10 +61,11 @@ import com.yahoo.vespa.objects.FieldBase;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.yahoo.text.Utf8.calculateBytePositions;
 
@@ -74,13 +76,32 @@ import static com.yahoo.text.Utf8.calculateBytePositions;
  **/
 public class VespaDocumentSerializer6 extends BufferSerializer implements DocumentSerializer {
 
+    /** The size of the fields of the last struct serialized of each type, by type id, used to size struct buffers */
+    private static final Map<Integer, Integer> structSizeHints = new ConcurrentHashMap<>();
+
     private int spanNodeCounter = -1;
     private int[] bytePositions;
 
+    /** The buffers fields of structs are serialized into before they are written, by struct nesting depth */
+    private final List<GrowableByteBuffer> structBuffers = new ArrayList<>();
+    private int structDepth = 0;
+
     VespaDocumentSerializer6(GrowableByteBuffer buf) {
         super(buf);
     }
 
+    /**
+     * Clears the buffer of this such that it can be used to serialize again, and replaces any buffers
+     * with a larger capacity than the given max, to avoid holding on to memory for a rare large document.
+     */
+    void reset(int initialBufferSize, int maxBufferSize) {
+        if (buf.capacity() > maxBufferSize)
+            buf = new GrowableByteBuffer(initialBufferSize, 2.0f);
+        buf.clear();
+        structBuffers.removeIf(buffer -> buffer.capacity() > maxBufferSize);
+        structDepth = 0;
+    }
+
     public void write(Document doc) {
         write(new Field(doc.getDataType().getName(), 0, doc.getDataType()), doc);
     }
@@ -318,35 +339,95 @@ public class VespaDocumentSerializer6 extends BufferSerializer implements Docume
      * @param s     - field value
      */
     public void write(FieldBase field, Struct s) {
+        LazyFields lazyFields = s.getLazyFields();
+        if (lazyFields != null && lazyFields.isUnchanged()) {
+            lazyFields.writeSerialized(buf);
+            return;
+        }
+
         // Serialize all parts first.. As we need to know length before starting
         // Serialize all the fields.
 
         //keep the buffer we're serializing everything into:
         GrowableByteBuffer bigBuffer = buf;
 
-        //create a new buffer and serialize into that for a while:
-        GrowableByteBuffer buffer = new GrowableByteBuffer(4096, 2.0f);
+        //reuse a buffer for this depth and serialize into that for a while:
+        GrowableByteBuffer buffer = structBuffer(s.getDataType());
         buf = buffer;
+        structDepth++;
 
-        List<Integer> fieldIds = new LinkedList<>();
-        List<java.lang.Integer> fieldLengths = new LinkedList<>();
+        List<Integer> fieldIds = new ArrayList<>();
+        List<java.lang.Integer> fieldLengths = new ArrayList<>();
 
-        for (Map.Entry<Field, FieldValue> value : s.getFields()) {
+        try {
+            if (lazyFields == null) {
+                for (Map.Entry<Field, FieldValue> value : s.getFields()) {
 
-            int startPos = buffer.position();
-            value.getValue().serialize(value.getKey(), this);
+                    int startPos = buffer.position();
+                    value.getValue().serialize(value.getKey(), this);
 
-            fieldLengths.add(buffer.position() - startPos);
-            fieldIds.add(value.getKey().getId());
-        }
+                    fieldLengths.add(buffer.position() - startPos);
+                    fieldIds.add(value.getKey().getId());
+                }
+            } else { // copy fields which are not deserialized, and serialize the others, in the same order as above
+                List<Field> fields = new ArrayList<>(s.getDataType().getFields());
+                fields.sort(Comparator.comparingInt(Field::getId));
+                for (Field structField : fields) {
+                    int startPos = buffer.position();
+                    if (lazyFields.isPending(structField.getId())) {
+                        lazyFields.writePending(structField.getId(), buffer);
+                    } else {
+                        FieldValue value = s.getFieldValue(structField);
+                        if (value == null) continue;
+                        value.serialize(structField, this);
+                    }
 
-        // Switch buffers again:
+                    fieldLengths.add(buffer.position() - startPos);
+                    fieldIds.add(structField.getId());
+                }
+            }
+        }
+        finally { // switch buffers again, also if a field fails to serialize, as this serializer may be reused
+            structDepth--;
+            buf = bigBuffer;
+        }
         buffer.flip();
-        buf = bigBuffer;
 
+        writeStruct(s.getDataType(), buffer, fieldIds, fieldLengths);
+    }
+
+    /** Returns an empty buffer for the fields of a struct of the given type at the current depth */
+    private GrowableByteBuffer structBuffer(StructDataType type) {
+        int sizeHint = Math.max(4096, structSizeHints.getOrDefault(type.getId(), 0));
+        if (structDepth == structBuffers.size())
+            structBuffers.add(new GrowableByteBuffer(sizeHint, 2.0f));
+        else if (structBuffers.get(structDepth).capacity() < sizeHint)
+            structBuffers.set(structDepth, new GrowableByteBuffer(sizeHint, 2.0f));
+        GrowableByteBuffer buffer = structBuffers.get(structDepth);
+        buffer.clear();
+        return buffer;
+    }
+
+    /** Remembers the size of the fields of the given struct type, if it differs much from the last we remembered */
+    private static void updateSizeHint(StructDataType type, int size) {
+        int sizeHint = structSizeHints.getOrDefault(type.getId(), 0);
+        if (size > sizeHint || size < sizeHint / 2)
+            structSizeHints.put(type.getId(), size);
+    }
+
+    /**
+     * Writes a struct of the given type from its serialized fields.
+     *
+     * @param type the type of the struct
+     * @param buffer the serialized fields, between position and limit
+     * @param fieldIds the ids of the serialized fields, in the order they are serialized
+     * @param fieldLengths the serialized lengths of the fields in the order they are serialized
+     */
+    void writeStruct(StructDataType type, GrowableByteBuffer buffer, List<Integer> fieldIds, List<Integer> fieldLengths) {
         int uncompressedSize = buffer.remaining();
+        updateSizeHint(type, uncompressedSize);
         Compressor.Compression compression =
-            s.getDataType().getCompressor().compress(buffer.getByteBuffer().array(), buffer.remaining());
+            type.getCompressor().compress(buffer.getByteBuffer().array(), buffer.remaining());
 
         // Actual serialization starts here.
         int lenPos = buf.position();
@@ -357,9 +438,9 @@ public class VespaDocumentSerializer6 extends BufferSerializer implements Docume
             buf.putInt2_4_8Bytes(uncompressedSize);
         }
 
-        buf.putInt1_4Bytes(s.getFieldCount());
+        buf.putInt1_4Bytes(fieldIds.size());
 
-        for (int i = 0; i < s.getFieldCount(); ++i) {
+        for (int i = 0; i < fieldIds.size(); ++i) {
             putInt1_4Bytes(null, fieldIds.get(i));
             putInt2_4_8Bytes(null, fieldLengths.get(i));
         }
@@ -0,0 +1,254 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.serialization;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.yahoo.document.ArrayDataType;
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.Field;
+import com.yahoo.document.StructDataType;
+import com.yahoo.document.datatypes.Array;
+import com.yahoo.document.datatypes.IntegerFieldValue;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.document.datatypes.Struct;
+import com.yahoo.document.json.DocumentOperationType;
+import com.yahoo.document.json.JsonReader;
+import com.yahoo.io.GrowableByteBuffer;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * @author bratseth
+ */
+@SuppressWarnings("deprecation")
+public class LazyFieldsTestCase {
+
+    private final DocumentTypeManager manager = new DocumentTypeManager();
+    private final DocumentType type = new DocumentType("lazy");
+    private final StructDataType nestedType = new StructDataType("nested");
+
+    public LazyFieldsTestCase() {
+        nestedType.addField(new Field("text", DataType.STRING));
+        type.addField("title", DataType.STRING);
+        type.addField("count", DataType.INT);
+        type.addField("tags", new ArrayDataType(DataType.STRING));
+        type.addField("nested", nestedType);
+        type.addField("unset", DataType.STRING);
+        manager.registerDocumentType(type);
+    }
+
+    private Document createDocument() {
+        Document doc = new Document(type, "id:ns:lazy::1");
+        doc.setFieldValue("title", new StringFieldValue("a title"));
+        doc.setFieldValue("count", new IntegerFieldValue(42));
+        Array<StringFieldValue> tags = new Array<>(type.getField("tags").getDataType());
+        tags.add(new StringFieldValue("foo"));
+        tags.add(new StringFieldValue("bar"));
+        doc.setFieldValue("tags", tags);
+        Struct nested = new Struct(nestedType);
+        nested.setFieldValue("text", new StringFieldValue("nested text"));
+        doc.setFieldValue("nested", nested);
+        return doc;
+    }
+
+    private static byte[] serialize(Document doc) {
+        GrowableByteBuffer buffer = new GrowableByteBuffer();
+        DocumentSerializerFactory.createHead(buffer).write(doc);
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private Document deserialize(byte[] bytes, boolean lazy) {
+        GrowableByteBuffer buffer = GrowableByteBuffer.wrap(bytes);
+        return new Document(lazy ? DocumentDeserializerFactory.createLazyHead(manager, buffer)
+                                 : DocumentDeserializerFactory.createHead(manager, buffer));
+    }
+
+    @Test
+    public void fields_are_deserialized_when_accessed() {
+        Document original = createDocument();
+        Document doc = deserialize(serialize(original), true);
+        assertEquals(4, doc.getFieldCount());
+        assertEquals(4, doc.getHeader().getLazyFields().pendingCount());
+
+        assertEquals(new StringFieldValue("a title"), doc.getFieldValue("title"));
+        assertEquals(3, doc.getHeader().getLazyFields().pendingCount());
+        assertEquals(original.getFieldValue("nested"), doc.getFieldValue("nested"));
+        assertEquals(2, doc.getHeader().getLazyFields().pendingCount());
+        assertNull(doc.getFieldValue("unset"));
+        assertEquals(4, doc.getFieldCount());
+
+        assertEquals(original, doc);
+        assertNull(doc.getHeader().getLazyFields());
+        assertEquals(original.toJson(), deserialize(serialize(original), true).toJson());
+    }
+
+    @Test
+    public void unchanged_documents_are_serialized_by_copying() {
+        byte[] serialized = serialize(createDocument());
+        Document doc = deserialize(serialized, true);
+        assertArrayEquals(serialized, serialize(doc));
+        assertArrayEquals(serialized, serialize(doc.clone()));
+        assertEquals(4, doc.getHeader().getLazyFields().pendingCount());
+    }
+
+    @Test
+    public void changes_are_serialized_along_with_the_fields_not_deserialized() {
+        Document expected = createDocument();
+        Document doc = deserialize(serialize(expected), true);
+
+        expected.setFieldValue("count", new IntegerFieldValue(7));
+        doc.setFieldValue("count", new IntegerFieldValue(7));
+        assertEquals(3, doc.getHeader().getLazyFields().pendingCount());
+        assertArrayEquals(serialize(expected), serialize(doc));
+
+        ((Array<StringFieldValue>)expected.getFieldValue("tags")).add(new StringFieldValue("baz"));
+        ((Array<StringFieldValue>)doc.getFieldValue("tags")).add(new StringFieldValue("baz"));
+        expected.removeFieldValue("title");
+        assertEquals(new StringFieldValue("a title"), doc.removeFieldValue("title"));
+        expected.setFieldValue("unset", new StringFieldValue("set"));
+        doc.setFieldValue("unset", new StringFieldValue("set"));
+        assertEquals(1, doc.getHeader().getLazyFields().pendingCount());
+        assertEquals(4, doc.getFieldCount());
+        byte[] serialized = serialize(doc);
+        assertArrayEquals(serialize(expected), serialized);
+        assertEquals(expected, deserialize(serialized, false));
+    }
+
+    @Test
+    public void unchanged_structs_are_copied_when_other_fields_change() {
+        Document expected = createDocument();
+        Document doc = deserialize(serialize(expected), true);
+
+        Struct nested = (Struct)doc.getFieldValue("nested");
+        assertEquals(1, nested.getLazyFields().pendingCount());
+        expected.setFieldValue("title", new StringFieldValue("changed"));
+        doc.setFieldValue("title", new StringFieldValue("changed"));
+        byte[] serialized = serialize(doc);
+        assertArrayEquals(serialize(expected), serialized);
+        assertEquals(1, nested.getLazyFields().pendingCount());
+
+        Struct copied = (Struct)deserialize(serialized, true).getFieldValue("nested");
+        copied.setFieldValue("text", new StringFieldValue("changed"));
+        assertEquals(new StringFieldValue("changed"), copied.getFieldValue("text"));
+        assertEquals(new StringFieldValue("nested text"), nested.getFieldValue("text"));
+    }
+
+    @Test
+    public void clones_are_deserialized_independently() {
+        Document doc = deserialize(serialize(createDocument()), true);
+        Document clone = doc.clone();
+        clone.setFieldValue("title", new StringFieldValue("changed"));
+        assertEquals(new StringFieldValue("a title"), doc.getFieldValue("title"));
+        assertEquals(new StringFieldValue("changed"), clone.getFieldValue("title"));
+        assertFalse(doc.equals(clone));
+    }
+
+    @Test
+    public void json_puts_are_serialized_as_the_fields_are_read() {
+        String json = "{ \"fields\": { \"tags\": [ \"foo\", \"bar\" ], \"title\": \"replaced\", \"unset\": null, " +
+                      "\"nested\": { \"text\": \"nested text\" }, \"count\": 42, \"title\": \"a title\" } }";
+        DocumentPut put = jsonReader(json).readSingleLazyPut("id:ns:lazy::1");
+        assertEquals(4, put.getDocument().getHeader().getLazyFields().pendingCount());
+        assertArrayEquals(serialize(createDocument()), serialize(put.getDocument()));
+        assertEquals(createDocument(), put.getDocument());
+        assertEquals(((DocumentPut)jsonReader(json).readSingleDocument(DocumentOperationType.PUT, "id:ns:lazy::1")).getDocument(),
+                     jsonReader(json).readSingleLazyPut("id:ns:lazy::1").getDocument());
+    }
+
+    @Test
+    public void json_puts_of_text_types_are_written_from_the_json_text() {
+        DocumentType texts = new DocumentType("texts");
+        for (DataType type : List.of(DataType.STRING, DataType.INT, DataType.LONG, DataType.DOUBLE,
+                                     DataType.FLOAT, DataType.BYTE, DataType.BOOL)) {
+            texts.addField(type.getName(), type);
+            texts.addField(type.getName() + "s", new ArrayDataType(type));
+        }
+        texts.addField("uri", DataType.URI);
+        manager.registerDocumentType(texts);
+
+        String json = "{ \"fields\": { \"string\": \"bl\u00e5b\u00e6r\", \"strings\": [ \"\", \"b\" ], " +
+                      "\"int\": -7, \"ints\": [ 1, 2147483647 ], \"long\": 9223372036854775807, \"longs\": [], " +
+                      "\"double\": 0.5, \"doubles\": [ -1e10 ], \"float\": 1.25, \"floats\": [ 3 ], " +
+                      "\"byte\": -128, \"bytes\": [ 127 ], \"bool\": true, \"bools\": [ false, true ], " +
+                      "\"uri\": \"http://host/path\" } }";
+        Document expected = ((DocumentPut)jsonReader(json).readSingleDocument(DocumentOperationType.PUT, "id:ns:texts::1")).getDocument();
+        Document doc = jsonReader(json).readSingleLazyPut("id:ns:texts::1").getDocument();
+        assertEquals(15, doc.getHeader().getLazyFields().pendingCount());
+        assertArrayEquals(serialize(expected), serialize(doc));
+        assertEquals(expected, doc);
+
+        assertIllegalLazyPut("{ \"fields\": { \"int\": 1.5 } }", "For input string: \"1.5\"");
+        assertIllegalLazyPut("{ \"fields\": { \"ints\": [ 1, \"two\" ] } }", "For input string: \"two\"");
+        assertIllegalLazyPut("{ \"fields\": { \"strings\": [ \"a\", null ] } }", "Illegal null value for array entry");
+        assertIllegalLazyPut("{ \"fields\": { \"strings\": [ [ \"a\" ] ] } }", "Expected a value of type string, but got START_ARRAY");
+        assertIllegalLazyPut("{ \"fields\": { \"string\": \"\\u0000\" } }", "The string field value contains illegal code point 0x0");
+    }
+
+    private void assertIllegalLazyPut(String json, String message) {
+        try {
+            jsonReader(json).readSingleLazyPut("id:ns:texts::1");
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals(message, e.getCause().getMessage());
+        }
+    }
+
+    private JsonReader jsonReader(String json) {
+        return new JsonReader(manager, new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), new JsonFactory());
+    }
+
+    @Test
+    public void documents_are_serialized_by_copying_from_a_buffer_with_other_content() {
+        byte[] serialized = serialize(createDocument());
+        ByteBuffer buffer = ByteBuffer.allocate(serialized.length + 10);
+        buffer.put(new byte[5]).put(serialized).put(new byte[5]);
+        buffer.position(5);
+        Document doc = new Document(DocumentDeserializerFactory.createLazyHead(manager, new GrowableByteBuffer(buffer)));
+        assertArrayEquals(serialized, serialize(doc));
+        assertEquals(createDocument(), doc);
+    }
+
+    @Test
+    public void field_lengths_beyond_the_struct_are_reported_on_deserialization() {
+        Document original = new Document(type, "id:ns:lazy::1");
+        original.setFieldValue("title", new StringFieldValue("a title"));
+        byte[] serialized = serialize(original);
+        int value = indexOf(serialized, "a title".getBytes(StandardCharsets.UTF_8)) - 2; // after coding and length
+        serialized[value - 2] = 0x3f; // the largest 2 byte field length
+        serialized[value - 1] = (byte)0xff;
+        try {
+            deserialize(serialized, true);
+            fail("Expected exception");
+        }
+        catch (DeserializationException e) {
+            assertEquals("Field " + type.getField("title").getId() + " of lazy.header with length 16383 extends beyond " +
+                         "the 10 remaining bytes of the struct", e.getMessage());
+        }
+    }
+
+    private static int indexOf(byte[] bytes, byte[] part) {
+        for (int i = 0; i + part.length <= bytes.length; i++) {
+            if (Arrays.equals(bytes, i, i + part.length, part, 0, part.length)) return i;
+        }
+        throw new IllegalArgumentException("Not found");
+    }
+
+}
@@ -0,0 +1,120 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.serialization;
+
+import com.yahoo.document.ArrayDataType;
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.Field;
+import com.yahoo.document.StructDataType;
+import com.yahoo.document.datatypes.Array;
+import com.yahoo.document.datatypes.Raw;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.document.datatypes.Struct;
+import com.yahoo.io.GrowableByteBuffer;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * @author bratseth
+ */
+public class ReusedSerializerTestCase {
+
+    private final DocumentTypeManager manager = new DocumentTypeManager();
+    private final DocumentType type = new DocumentType("reused");
+    private final StructDataType elementType = new StructDataType("element");
+
+    public ReusedSerializerTestCase() {
+        elementType.addField(new Field("text", DataType.STRING));
+        type.addField("title", DataType.STRING);
+        type.addField("elements", new ArrayDataType(elementType));
+        type.addField("data", DataType.RAW);
+        manager.registerDocumentType(type);
+    }
+
+    private Document createDocument(String id, int elements, int dataSize) {
+        Document doc = new Document(type, id);
+        doc.setFieldValue("title", new StringFieldValue("title of " + id));
+        Array<Struct> array = new Array<>(type.getField("elements").getDataType());
+        for (int i = 0; i < elements; i++) {
+            Struct element = new Struct(elementType);
+            element.setFieldValue("text", new StringFieldValue("element " + i));
+            array.add(element);
+        }
+        doc.setFieldValue("elements", array);
+        doc.setFieldValue("data", new Raw(new byte[dataSize]));
+        return doc;
+    }
+
+    private static byte[] serialize(Document doc) {
+        GrowableByteBuffer buffer = new GrowableByteBuffer();
+        DocumentSerializerFactory.createHead(buffer).write(doc);
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static byte[] serializeReusing(Document doc) {
+        return DocumentSerializerFactory.withReusedHead(serializer -> {
+            serializer.write(doc);
+            byte[] bytes = new byte[serializer.getBuf().position()];
+            serializer.getBuf().flip();
+            serializer.getBuf().get(bytes);
+            return bytes;
+        });
+    }
+
+    @Test
+    public void reused_serializers_write_the_same_bytes_as_new_ones() {
+        Document small = createDocument("id:ns:reused::small", 3, 10);
+        Document large = createDocument("id:ns:reused::large", 1000, 5 * 1024 * 1024);
+        for (Document doc : new Document[] { small, large, small, large, small }) {
+            byte[] serialized = serializeReusing(doc);
+            assertArrayEquals(serialize(doc), serialized);
+            assertEquals(doc, new Document(DocumentDeserializerFactory.createHead(manager, GrowableByteBuffer.wrap(serialized))));
+        }
+    }
+
+    @Test
+    public void reused_serializers_write_the_same_bytes_after_failing_to_serialize_a_document() {
+        Document failing = createDocument("id:ns:reused::failing", 3, 10);
+        Struct element = new Struct(elementType);
+        element.setFieldValue("text", new StringFieldValue("fails") {
+            @Override
+            public void serialize(Field field, FieldWriter writer) {
+                throw new IllegalStateException("Failing to serialize " + field);
+            }
+        });
+        ((Array<Struct>)failing.getFieldValue("elements")).add(element);
+        try {
+            serializeReusing(failing);
+            fail("Expected exception");
+        }
+        catch (IllegalStateException expected) { }
+
+        Document doc = createDocument("id:ns:reused::doc", 5, 10);
+        assertArrayEquals(serialize(doc), serializeReusing(doc));
+    }
+
+    @Test
+    public void serializers_can_be_used_while_another_is_in_use_by_the_same_thread() {
+        Document first = createDocument("id:ns:reused::first", 5, 10);
+        Document second = createDocument("id:ns:reused::second", 7, 20);
+        byte[][] serialized = DocumentSerializerFactory.withReusedHead(serializer -> {
+            serializer.write(first);
+            byte[] inner = serializeReusing(second);
+            byte[] outer = new byte[serializer.getBuf().position()];
+            serializer.getBuf().flip();
+            serializer.getBuf().get(outer);
+            return new byte[][] { outer, inner };
+        });
+        assertArrayEquals(serialize(first), serialized[0]);
+        assertArrayEquals(serialize(second), serialized[1]);
+    }
+
+}
@@ -38,6 +38,7 @@ public class DocumentProtocol implements Protocol {
     private final RoutingPolicyRepository routingPolicyRepository = new RoutingPolicyRepository();
     private final RoutableRepository routableRepository;
     private final DocumentTypeManager docMan;
+    private volatile boolean lazyDocuments = false;
 
     /** The name of this protocol. */
     public static final Utf8String NAME = new Utf8String("document");
@@ -369,6 +370,23 @@ public class DocumentProtocol implements Protocol {
         return this;
     }
 
+    /**
+     * Sets whether the documents of decoded routables should be deserialized lazily, such that each field is
+     * deserialized when it is first accessed, and the bytes of fields which are not accessed or changed are
+     * copied when the document is encoded again. This is useful where documents are passed on after looking
+     * at some of their fields, but documents decoded this way must not be accessed by multiple threads.
+     * The layout of each document is checked when it is decoded, but the values of its fields are only checked
+     * when they are deserialized, so a corrupt field value causes an exception on access rather than a decode error.
+     * This method is thread-safe, and may be invoked on a protocol object that is already in use.
+     *
+     * @param lazy whether to deserialize documents lazily
+     * @return this, to allow chaining
+     */
+    public DocumentProtocol setLazyDocuments(boolean lazy) {
+        this.lazyDocuments = lazy;
+        return this;
+    }
+
     /**
      * Returns a string representation of the given error code.
      *
@@ -523,7 +541,7 @@ public class DocumentProtocol implements Protocol {
 
     public Routable decode(Version version, byte[] data) {
         try {
-            return routableRepository.decode(docMan, version, data);
+            return routableRepository.decode(docMan, version, data, lazyDocuments);
         } catch (RuntimeException e) {
             log.log(Level.WARNING, "Failed to decode document data", e);
             return null;
@@ -3,15 +3,31 @@ package com.yahoo.documentapi.messagebus.protocol;
 
 import com.yahoo.config.subscription.ConfigSubscriber;
 import com.yahoo.document.DocumentGet;
+import com.yahoo.document.DocumentOperation;
+import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentUpdate;
 import com.yahoo.document.select.DocumentSelector;
 import com.yahoo.document.select.Result;
+import com.yahoo.document.select.Visitor;
 import com.yahoo.document.select.parser.ParseException;
+import com.yahoo.document.select.rule.ArithmeticNode;
+import com.yahoo.document.select.rule.AttributeNode;
+import com.yahoo.document.select.rule.ComparisonNode;
+import com.yahoo.document.select.rule.DocumentNode;
+import com.yahoo.document.select.rule.EmbracedNode;
+import com.yahoo.document.select.rule.IdNode;
+import com.yahoo.document.select.rule.LiteralNode;
+import com.yahoo.document.select.rule.LogicNode;
+import com.yahoo.document.select.rule.NegationNode;
+import com.yahoo.document.select.rule.NowNode;
+import com.yahoo.document.select.rule.VariableNode;
 import com.yahoo.messagebus.Message;
 import com.yahoo.messagebus.routing.Route;
 import com.yahoo.messagebus.routing.RoutingContext;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,22 +37,25 @@ import java.util.logging.Logger;
  * names to a document selector and a feed name of every search cluster. This can very well be extended to include
  * storage at a later time.
  *
+ * Most selectors only depend on the document type, and the result of those is remembered for each document type,
+ * until new config arrives.
+ *
  * @author Simon Thoresen Hult
  */
 public class DocumentRouteSelectorPolicy
         implements DocumentProtocolRoutingPolicy, ConfigSubscriber.SingleSubscriber<DocumentrouteselectorpolicyConfig> {
 
     private static Logger log = Logger.getLogger(DocumentRouteSelectorPolicy.class.getName());
-    private Map<String, DocumentSelector> config;
+    private Map<String, RouteSelector> config;
     private String error = "Not configured.";
     private ConfigSubscriber subscriber;
 
     /** This policy is constructed with the proper config at its time of creation. */
     public DocumentRouteSelectorPolicy(DocumentProtocolPoliciesConfig config) {
-        Map<String, DocumentSelector> selectors = new HashMap<>();
+        Map<String, RouteSelector> selectors = new HashMap<>();
         config.cluster().forEach((name, cluster) -> {
             try {
-                selectors.put(name, new DocumentSelector(cluster.selector()));
+                selectors.put(name, new RouteSelector(new DocumentSelector(cluster.selector())));
             }
             catch (ParseException e) {
                 throw new IllegalArgumentException("Error parsing selector '" +
@@ -78,7 +97,7 @@ public class DocumentRouteSelectorPolicy
     @Override
     public void configure(DocumentrouteselectorpolicyConfig cfg) {
         String error = null;
-        Map<String, DocumentSelector> config = new HashMap<>();
+        Map<String, RouteSelector> config = new HashMap<>();
         for (int i = 0; i < cfg.route().size(); i++) {
             DocumentrouteselectorpolicyConfig.Route route = cfg.route(i);
             if (route.selector().isEmpty()) {
@@ -93,7 +112,7 @@ public class DocumentRouteSelectorPolicy
                         e.getMessage();
                 break;
             }
-            config.put(route.name(), selector);
+            config.put(route.name(), new RouteSelector(selector));
         }
         synchronized (this) {
             this.config = config;
@@ -110,19 +129,23 @@ public class DocumentRouteSelectorPolicy
             return;
         }
 
-        // Invoke private select method for each candidate recipient.
+        // Invoke private select method for each candidate recipient, using the config current when starting.
+        Map<String, RouteSelector> config;
+        String error;
         synchronized (this) {
-            if (error != null) {
-                context.setError(DocumentProtocol.ERROR_POLICY_FAILURE, error);
-                return;
-            }
-            for (int i = 0; i < context.getNumRecipients(); ++i) {
-                Route recipient = context.getRecipient(i);
-                String routeName = recipient.toString();
-                if (select(context, routeName)) {
-                    Route route = context.getMessageBus().getRoutingTable(DocumentProtocol.NAME).getRoute(routeName);
-                    context.addChild(route != null ? route : recipient);
-                }
+            config = this.config;
+            error = this.error;
+        }
+        if (error != null) {
+            context.setError(DocumentProtocol.ERROR_POLICY_FAILURE, error);
+            return;
+        }
+        for (int i = 0; i < context.getNumRecipients(); ++i) {
+            Route recipient = context.getRecipient(i);
+            String routeName = recipient.toString();
+            if (select(context, config, routeName)) {
+                Route route = context.getMessageBus().getRoutingTable(DocumentProtocol.NAME).getRoute(routeName);
+                context.addChild(route != null ? route : recipient);
             }
         }
         context.setSelectOnRetry(false);
@@ -139,14 +162,15 @@ public class DocumentRouteSelectorPolicy
      * validates the location, this method returns true.
      *
      * @param context   the routing context that contains the necessary data.
+     * @param config    the selectors of the routes, or null if not configured.
      * @param routeName the candidate route whose selector to run.
      * @return whether or not to send to the given recipient.
      */
-    private boolean select(RoutingContext context, String routeName) {
+    private static boolean select(RoutingContext context, Map<String, RouteSelector> config, String routeName) {
         if (config == null) {
             return true;
         }
-        DocumentSelector selector = config.get(routeName);
+        RouteSelector selector = config.get(routeName);
         if (selector == null) {
             return true;
         }
@@ -164,7 +188,7 @@ public class DocumentRouteSelectorPolicy
         case DocumentProtocol.MESSAGE_REMOVEDOCUMENT: {
             RemoveDocumentMessage removeMsg = (RemoveDocumentMessage)msg;
             if (removeMsg.getDocumentId().hasDocType()) {
-                return selector.accepts(removeMsg.getDocumentRemove()) != Result.FALSE;
+                return selector.acceptsById(removeMsg.getDocumentRemove()) != Result.FALSE;
             } else {
                 return true;
             }
@@ -173,7 +197,7 @@ public class DocumentRouteSelectorPolicy
             GetDocumentMessage getMsg = (GetDocumentMessage)msg;
             if (getMsg.getDocumentId().hasDocType()) {
                 DocumentGet getOp = new DocumentGet(getMsg.getDocumentId());
-                return selector.accepts(getOp) != Result.FALSE;
+                return selector.acceptsById(getOp) != Result.FALSE;
             } else {
                 return true;
             }
@@ -196,4 +220,74 @@ public class DocumentRouteSelectorPolicy
         }
     }
 
+    /**
+     * The document selector of a route. If the selector only depends on the document type, its result is
+     * remembered for each document type. Puts and updates select by the type of the document, including
+     * inheritance, while removes and gets select by the type in the document id, so these are kept apart.
+     */
+    private static class RouteSelector {
+
+        private final DocumentSelector selector;
+        private final boolean typeOnly;
+        private final Map<String, Result> resultByDocumentType = new ConcurrentHashMap<>();
+        private final Map<String, Result> resultByIdType = new ConcurrentHashMap<>();
+
+        RouteSelector(DocumentSelector selector) {
+            this.selector = selector;
+            TypeOnlyVisitor visitor = new TypeOnlyVisitor();
+            selector.visit(visitor);
+            this.typeOnly = visitor.typeOnly;
+        }
+
+        Result accepts(DocumentPut put) {
+            return accepts(put, put.getDocument().getDataType().getName(), resultByDocumentType);
+        }
+
+        Result accepts(DocumentUpdate update) {
+            return accepts(update, update.getDocumentType().getName(), resultByDocumentType);
+        }
+
+        /** Returns the result of this for a remove or get, whose id has a document type */
+        Result acceptsById(DocumentOperation operation) {
+            return accepts(operation, operation.getId().getDocType(), resultByIdType);
+        }
+
+        private Result accepts(DocumentOperation operation, String type, Map<String, Result> results) {
+            if ( ! typeOnly) return selector.accepts(operation);
+
+            Result result = results.get(type);
+            if (result == null) // concurrent misses compute the same result
+                results.put(type, result = selector.accepts(operation));
+            return result;
+        }
+
+        @Override
+        public String toString() { return selector.toString(); }
+
+    }
+
+    /** Finds whether a selector depends on nothing but the document type */
+    private static class TypeOnlyVisitor implements Visitor {
+
+        boolean typeOnly = true;
+
+        @Override public void visit(ArithmeticNode node) { typeOnly = false; }
+        @Override public void visit(AttributeNode node) { typeOnly = false; }
+        @Override public void visit(ComparisonNode node) { typeOnly = false; }
+        @Override public void visit(DocumentNode node) { }
+        @Override public void visit(EmbracedNode node) { node.getNode().accept(this); }
+        @Override public void visit(IdNode node) { typeOnly = false; }
+        @Override public void visit(LiteralNode node) { }
+        @Override public void visit(NegationNode node) { node.getNode().accept(this); }
+        @Override public void visit(NowNode node) { typeOnly = false; }
+        @Override public void visit(VariableNode node) { typeOnly = false; }
+
+        @Override
+        public void visit(LogicNode node) {
+            for (LogicNode.NodeItem item : node.getItems())
+                item.getNode().accept(this);
+        }
+
+    }
+
 }
@@ -7,7 +7,6 @@ import com.yahoo.concurrent.CopyOnWriteHashMap;
 import com.yahoo.document.DocumentTypeManager;
 import com.yahoo.document.serialization.DocumentDeserializer;
 import com.yahoo.document.serialization.DocumentDeserializerFactory;
-import com.yahoo.document.serialization.DocumentSerializer;
 import com.yahoo.document.serialization.DocumentSerializerFactory;
 import com.yahoo.documentapi.messagebus.loadtypes.LoadTypeSet;
 import com.yahoo.io.GrowableByteBuffer;
@@ -47,9 +46,10 @@ final class RoutableRepository {
      *
      * @param version The version of the encoded routable.
      * @param data    The byte array containing the encoded routable.
+     * @param lazyDocuments Whether to deserialize the fields of documents in the routable as they are accessed.
      * @return The decoded routable.
      */
-    Routable decode(DocumentTypeManager docMan, Version version, byte[] data) {
+    Routable decode(DocumentTypeManager docMan, Version version, byte[] data, boolean lazyDocuments) {
         if (data == null || data.length == 0) {
             log.log(Level.SEVERE, "Received empty byte array for deserialization.");
             return null;
@@ -58,7 +58,8 @@ final class RoutableRepository {
             log.log(Level.SEVERE,"Can not decode anything from (version " + version + "). Only major version 5 and up supported.");
             return null;
         }
-        DocumentDeserializer in = DocumentDeserializerFactory.createHead(docMan, GrowableByteBuffer.wrap(data));
+        DocumentDeserializer in = lazyDocuments ? DocumentDeserializerFactory.createLazyHead(docMan, GrowableByteBuffer.wrap(data))
+                                                : DocumentDeserializerFactory.createHead(docMan, GrowableByteBuffer.wrap(data));
 
 
         int type = in.getInt(null);
@@ -97,18 +98,18 @@ final class RoutableRepository {
             log.log(Level.SEVERE,"Can not encode routable type " + type + " (version " + version + "). Only major version 5 and up supported.");
             return new byte[0];
         }
-        DocumentSerializer out= DocumentSerializerFactory.createHead(new GrowableByteBuffer(8192));
-
-        out.putInt(null, type);
-        if (!factory.encode(obj, out)) {
-            log.log(Level.SEVERE, "Routable factory " + factory.getClass().getName() + " failed to serialize " +
-                                    "routable of type " + type + " (version " + version + ").");
-            return new byte[0];
-        }
-        byte[] ret = new byte[out.getBuf().position()];
-        out.getBuf().rewind();
-        out.getBuf().get(ret);
-        return ret;
+        return DocumentSerializerFactory.withReusedHead(out -> {
+            out.putInt(null, type);
+            if (!factory.encode(obj, out)) {
+                log.log(Level.SEVERE, "Routable factory " + factory.getClass().getName() + " failed to serialize " +
+                                      "routable of type " + type + " (version " + version + ").");
+                return new byte[0];
+            }
+            byte[] ret = new byte[out.getBuf().position()];
+            out.getBuf().rewind();
+            out.getBuf().get(ret);
+            return ret;
+        });
     }
 
     /**
@@ -592,6 +592,36 @@ public class PolicyTestCase {
         frame.destroy();
     }
 
+    @Test
+    public void testDocumentRouteSelectorRemembersResultsOfTypeOnlySelectors() {
+        PolicyTestFrame frame = new PolicyTestFrame(manager);
+        frame.setHop(new HopSpec("test", "[DocumentRouteSelector:raw:" +
+                                         "route[2]\n" +
+                                         "route[0].name \"foo\"\n" +
+                                         "route[0].selector \"(testdoc or other) and not other\"\n" +
+                                         "route[0].feed \"myfeed\"\n" +
+                                         "route[1].name \"bar\"\n" +
+                                         "route[1].selector \"other\"\n" +
+                                         "route[1].feed \"myfeed\"\n]").addRecipient("foo").addRecipient("bar"));
+
+        for (int i = 0; i < 3; i++) {
+            frame.setMessage(new PutDocumentMessage(new DocumentPut(new Document(manager.getDocumentType("testdoc"),
+                                                                                 new DocumentId("id:ns:testdoc::" + i)))));
+            frame.assertSelect(Arrays.asList("foo"));
+
+            frame.setMessage(new PutDocumentMessage(new DocumentPut(new Document(manager.getDocumentType("other"),
+                                                                                 new DocumentId("id:ns:other::" + i)))));
+            frame.assertSelect(Arrays.asList("bar"));
+
+            frame.setMessage(new RemoveDocumentMessage(new DocumentId("id:ns:other::" + i)));
+            frame.assertSelect(Arrays.asList("bar"));
+
+            frame.setMessage(new GetDocumentMessage(new DocumentId("id:ns:testdoc::" + i), "fieldSet"));
+            frame.assertSelect(Arrays.asList("foo"));
+        }
+        frame.destroy();
+    }
+
     @Test
     public void testDocumentSelectorDualCluster() {
         PolicyTestFrame frame = new PolicyTestFrame(manager);
@@ -0,0 +1,175 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.indexinglanguage;
+
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.datatypes.FieldValue;
+import com.yahoo.vespa.indexinglanguage.expressions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A script prepared for execution on documents of a given type: Statements which start with constants are
+ * folded into the value they produce, the fields read and written are resolved in the document type, and the
+ * script is verified against the type such that the types of the values passed between expressions need not
+ * be checked during execution.
+ *
+ * @author bratseth
+ */
+public final class CompiledScript {
+
+    private final DocumentType documentType;
+    private final Expression expression;
+
+    private CompiledScript(DocumentType documentType, Expression expression) {
+        this.documentType = documentType;
+        this.expression = expression;
+    }
+
+    /** Returns the type of documents this can execute on */
+    public DocumentType getDocumentType() { return documentType; }
+
+    /** Returns the expression this executes, which is equivalent to the one this was compiled from */
+    public Expression getExpression() { return expression; }
+
+    /**
+     * Returns whether this can execute on the given document, which is the case if it is of the type this is compiled for.
+     * Types are compared by name, as documents are usually created from a different type manager than the type of this.
+     */
+    public boolean canExecute(Document document) {
+        return document.getDataType().getName().equals(documentType.getName());
+    }
+
+    /**
+     * Executes this on the given document.
+     *
+     * @return the output document
+     * @throws IllegalArgumentException if this cannot execute on the given document
+     */
+    public Document execute(AdapterFactory factory, Document document) {
+        if ( ! canExecute(document))
+            throw new IllegalArgumentException("This script is compiled for documents of type '" + documentType.getName() +
+                                               "', not '" + document.getDataType().getName() + "'");
+        DocumentAdapter adapter = factory.newDocumentAdapter(document);
+        expression.execute(new ExecutionContext(adapter).setVerified(true));
+        return adapter.getFullOutput();
+    }
+
+    /**
+     * Compiles the given script for documents of the given type.
+     *
+     * @throws VerificationException if the script is not valid for documents of this type
+     */
+    public static CompiledScript compile(Expression script, DocumentType documentType) {
+        // Copy the field expressions, as they are resolved in the type below, and would otherwise be shared with the script
+        Expression expression = new ConstantFolder().convert(new FieldExpressionCopier().convert(script));
+        Document document = new Document(documentType, "id:indexing:" + documentType.getName() + "::compiled");
+        expression.verify(new SimpleDocumentAdapter(document, document));
+
+        InputExpression.FieldPathOptimizer inputResolver = new InputExpression.FieldPathOptimizer(documentType);
+        expression.select(inputResolver, inputResolver);
+        OutputExpression.FieldResolver outputResolver = new OutputExpression.FieldResolver(documentType);
+        expression.select(outputResolver, outputResolver);
+        return new CompiledScript(documentType, expression);
+    }
+
+    /** Replaces the constant start of each statement by the value it produces */
+    private static class ConstantFolder extends ExpressionConverter {
+
+        @Override
+        protected boolean shouldConvert(Expression exp) {
+            return exp instanceof StatementExpression;
+        }
+
+        @Override
+        protected Expression doConvert(Expression exp) {
+            List<Expression> expressions = new ArrayList<>();
+            for (Expression expression : (StatementExpression)exp)
+                expressions.add(convert(expression));
+
+            int constantCount = 0;
+            while (constantCount < expressions.size() && isConstant(expressions.get(constantCount), constantCount == 0))
+                constantCount++;
+            if (constantCount == 0) return new StatementExpression(expressions);
+            if (constantCount == 1 && expressions.get(0) instanceof SetValueExpression) return new StatementExpression(expressions);
+
+            FieldValue value = valueOf(new StatementExpression(expressions.subList(0, constantCount)));
+            if (value == null) return new StatementExpression(expressions);
+
+            List<Expression> folded = new ArrayList<>();
+            folded.add(new SetValueExpression(value));
+            folded.addAll(expressions.subList(constantCount, expressions.size()));
+            return new StatementExpression(folded);
+        }
+
+        /** Returns whether the given expression produces the same value each time, given the same input */
+        private static boolean isConstant(Expression exp, boolean first) {
+            if (first && ! ExpressionOptimizer.ignoresInput(exp)) return false;
+            PureFunctionVisitor visitor = new PureFunctionVisitor();
+            visitor.visit(exp);
+            return visitor.pure;
+        }
+
+        /** Returns the value produced by the given expression, or null if it fails, which it will then do on execution */
+        private static FieldValue valueOf(Expression constant) {
+            try {
+                return constant.execute();
+            }
+            catch (RuntimeException e) {
+                return null;
+            }
+        }
+
+    }
+
+    /** Copies the expressions which read and write fields, and with them all the expressions containing those */
+    private static class FieldExpressionCopier extends ExpressionConverter {
+
+        @Override
+        protected boolean shouldConvert(Expression exp) {
+            return exp instanceof InputExpression || exp instanceof OutputExpression;
+        }
+
+        @Override
+        protected Expression doConvert(Expression exp) {
+            if (exp instanceof InputExpression) return new InputExpression(((InputExpression)exp).getFieldName());
+            if (exp instanceof AttributeExpression) return new AttributeExpression(((OutputExpression)exp).getFieldName());
+            if (exp instanceof IndexExpression) return new IndexExpression(((OutputExpression)exp).getFieldName());
+            if (exp instanceof SummaryExpression) return new SummaryExpression(((OutputExpression)exp).getFieldName());
+            if (exp instanceof PassthroughExpression) return new PassthroughExpression(((OutputExpression)exp).getFieldName());
+            throw new IllegalArgumentException("Cannot compile a script containing " + exp.getClass().getSimpleName());
+        }
+
+    }
+
+    private static class PureFunctionVisitor extends ExpressionVisitor {
+
+        boolean pure = true;
+
+        @Override
+        protected void doVisit(Expression exp) {
+            pure &= exp instanceof SetValueExpression ||
+                    exp instanceof StatementExpression ||
+                    exp instanceof ParenthesisExpression ||
+                    exp instanceof ArithmeticExpression ||
+                    exp instanceof CatExpression ||
+                    exp instanceof LowerCaseExpression ||
+                    exp instanceof TrimExpression ||
+                    exp instanceof SubstringExpression ||
+                    exp instanceof Base64DecodeExpression ||
+                    exp instanceof Base64EncodeExpression ||
+                    exp instanceof HexDecodeExpression ||
+                    exp instanceof HexEncodeExpression ||
+                    exp instanceof ToBoolExpression ||
+                    exp instanceof ToByteExpression ||
+                    exp instanceof ToDoubleExpression ||
+                    exp instanceof ToFloatExpression ||
+                    exp instanceof ToIntegerExpression ||
+                    exp instanceof ToLongExpression ||
+                    exp instanceof ToStringExpression;
+        }
+
+    }
+
+}
@@ -56,6 +56,11 @@ public class FieldPathUpdateAdapter implements UpdateAdapter {
         return adapter.getInputValue(fieldPath);
     }
 
+    @Override
+    public FieldValue getInputValue(Field field) {
+        return adapter.getInputValue(field);
+    }
+
     @Override
     public void tryOutputType(Expression exp, String fieldName, DataType valueType) {
         adapter.tryOutputType(exp, fieldName, valueType);
@@ -66,6 +71,11 @@ public class FieldPathUpdateAdapter implements UpdateAdapter {
         return adapter.setOutputValue(exp, fieldName, fieldValue);
     }
 
+    @Override
+    public FieldValueAdapter setOutputValue(Expression exp, Field field, FieldValue fieldValue) {
+        return adapter.setOutputValue(exp, field, fieldValue);
+    }
+
     @SuppressWarnings({ "unchecked", "rawtypes" })
     private void createUpdatesAt(List<FieldPathEntry> path, FieldValue value, int idx, DocumentUpdate out) {
         FieldPath updatePath = update.getFieldPath();
@@ -84,6 +84,11 @@ public class FieldUpdateAdapter implements UpdateAdapter {
     @Override
     public FieldValue getInputValue(FieldPath fieldPath) { return adapter.getInputValue(fieldPath); }
 
+    @Override
+    public FieldValue getInputValue(Field field) {
+        return adapter.getInputValue(field);
+    }
+
     @Override
     public void tryOutputType(Expression exp, String fieldName, DataType valueType) {
         adapter.tryOutputType(exp, fieldName, valueType);
@@ -94,6 +99,11 @@ public class FieldUpdateAdapter implements UpdateAdapter {
         return adapter.setOutputValue(exp, fieldName, fieldValue);
     }
 
+    @Override
+    public FieldValueAdapter setOutputValue(Expression exp, Field field, FieldValue fieldValue) {
+        return adapter.setOutputValue(exp, field, fieldValue);
+    }
+
     public static FieldUpdateAdapter fromPartialUpdate(DocumentAdapter documentAdapter, ValueUpdate valueUpdate) {
         return new FieldUpdateAdapter(null, documentAdapter, new PartialBuilder(valueUpdate));
     }
@@ -4,6 +4,7 @@ package com.yahoo.vespa.indexinglanguage;
 import com.yahoo.document.DataType;
 import com.yahoo.document.Document;
 import com.yahoo.document.DocumentUpdate;
+import com.yahoo.document.Field;
 import com.yahoo.document.FieldPath;
 import com.yahoo.document.datatypes.FieldValue;
 import com.yahoo.document.fieldpathupdate.FieldPathUpdate;
@@ -51,11 +52,21 @@ public class IdentityFieldPathUpdateAdapter implements UpdateAdapter {
         return fwdAdapter.getInputValue(fieldPath);
     }
 
+    @Override
+    public FieldValue getInputValue(Field field) {
+        return fwdAdapter.getInputValue(field);
+    }
+
     @Override
     public FieldValueAdapter setOutputValue(Expression exp, String fieldName, FieldValue fieldValue) {
         return fwdAdapter.setOutputValue(exp, fieldName, fieldValue);
     }
 
+    @Override
+    public FieldValueAdapter setOutputValue(Expression exp, Field field, FieldValue fieldValue) {
+        return fwdAdapter.setOutputValue(exp, field, fieldValue);
+    }
+
     @Override
     public DataType getInputType(Expression exp, String fieldName) {
         return fwdAdapter.getInputType(exp, fieldName);
@@ -63,6 +63,11 @@ public class SimpleDocumentAdapter implements DocumentAdapter {
         }
     }
 
+    @Override
+    public FieldValue getInputValue(Field field) {
+        return input.getFieldValue(field);
+    }
+
     @Override
     public void tryOutputType(Expression exp, String fieldName, DataType valueType) {
         Field field = output.getDataType().getField(fieldName);
@@ -87,4 +92,10 @@ public class SimpleDocumentAdapter implements DocumentAdapter {
         return this;
     }
 
+    @Override
+    public SimpleDocumentAdapter setOutputValue(Expression exp, Field field, FieldValue fieldValue) {
+        output.setFieldValue(field, fieldValue);
+        return this;
+    }
+
 }
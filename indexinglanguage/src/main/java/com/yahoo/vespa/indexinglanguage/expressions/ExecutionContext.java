@@ -2,6 +2,7 @@
 package com.yahoo.vespa.indexinglanguage.expressions;
 
 import com.yahoo.document.DataType;
+import com.yahoo.document.Field;
 import com.yahoo.document.FieldPath;
 import com.yahoo.document.datatypes.FieldValue;
 import com.yahoo.language.Language;
@@ -20,6 +21,7 @@ public class ExecutionContext implements FieldTypeAdapter, FieldValueAdapter, Cl
     private final FieldValueAdapter adapter;
     private FieldValue value;
     private Language language;
+    private boolean verified = false;
 
     public ExecutionContext() {
         this(null);
@@ -58,6 +60,14 @@ public class ExecutionContext implements FieldTypeAdapter, FieldValueAdapter, Cl
         return adapter.getInputValue(fieldPath);
     }
 
+    @Override
+    public FieldValue getInputValue(Field field) {
+        if (adapter == null) {
+            throw new IllegalStateException("Can not get field '" + field.getName() + "' because adapter is null.");
+        }
+        return adapter.getInputValue(field);
+    }
+
     @Override
     public void tryOutputType(Expression exp, String fieldName, DataType valueType) {
         adapter.tryOutputType(exp, fieldName, valueType);
@@ -72,6 +82,15 @@ public class ExecutionContext implements FieldTypeAdapter, FieldValueAdapter, Cl
         return this;
     }
 
+    @Override
+    public ExecutionContext setOutputValue(Expression exp, Field field, FieldValue fieldValue) {
+        if (adapter == null) {
+            throw new IllegalStateException("Can not set field '" + field.getName() + "' because adapter is null.");
+        }
+        adapter.setOutputValue(exp, field, fieldValue);
+        return this;
+    }
+
     public FieldValueAdapter getAdapter() {
         return adapter;
     }
@@ -113,6 +132,20 @@ public class ExecutionContext implements FieldTypeAdapter, FieldValueAdapter, Cl
         return detected;
     }
 
+    /** Returns whether the expressions executed in this are verified to accept and produce the values they get */
+    public boolean isVerified() {
+        return verified;
+    }
+
+    /**
+     * Sets whether the expressions executed in this are verified against the types of all values they will get,
+     * such that the input and output types of each expression need not be checked during execution.
+     */
+    public ExecutionContext setVerified(boolean verified) {
+        this.verified = verified;
+        return this;
+    }
+
     public FieldValue getValue() {
         return value;
     }
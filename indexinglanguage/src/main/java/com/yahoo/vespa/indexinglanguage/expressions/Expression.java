@@ -83,12 +83,14 @@ public abstract class Expression extends Selectable {
             if (input == null) {
                 return null;
             }
-            if (!inputType.isValueCompatible(input)) {
+            if (!context.isVerified() && !inputType.isValueCompatible(input)) {
                 throw new IllegalArgumentException("Expression '" + this + "' expected " + inputType.getName() +
                                                    " input, got " + input.getDataType().getName() + ".");
             }
         }
         doExecute(context);
+        if (context.isVerified()) return context.getValue();
+
         DataType outputType = createdOutputType();
         if (outputType != null) {
             FieldValue output = context.getValue();
@@ -1,6 +1,7 @@
 // Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.indexinglanguage.expressions;
 
+import com.yahoo.document.Field;
 import com.yahoo.document.FieldPath;
 import com.yahoo.document.datatypes.FieldValue;
 
@@ -12,6 +13,16 @@ public interface FieldValueAdapter extends FieldTypeAdapter {
     FieldValue getInputValue(String fieldName);
     FieldValue getInputValue(FieldPath fieldPath);
 
+    /** Returns the value of the given top-level field, resolved before execution */
+    default FieldValue getInputValue(Field field) {
+        return getInputValue(field.getName());
+    }
+
     FieldValueAdapter setOutputValue(Expression exp, String fieldName, FieldValue fieldValue);
 
+    /** Sets the value of the given top-level field, resolved before execution */
+    default FieldValueAdapter setOutputValue(Expression exp, Field field, FieldValue fieldValue) {
+        return setOutputValue(exp, field.getName(), fieldValue);
+    }
+
 }
@@ -3,7 +3,9 @@ package com.yahoo.vespa.indexinglanguage.expressions;
 
 import com.yahoo.document.DataType;
 import com.yahoo.document.DocumentType;
+import com.yahoo.document.Field;
 import com.yahoo.document.FieldPath;
+import com.yahoo.document.FieldPathEntry;
 import com.yahoo.vespa.objects.ObjectOperation;
 import com.yahoo.vespa.objects.ObjectPredicate;
 
@@ -17,6 +19,7 @@ public final class InputExpression extends Expression {
 
     private final String fieldName;
     private FieldPath fieldPath;
+    private Field field; // set if the field path is a top-level field
 
     public InputExpression(String fieldName) {
         super(null);
@@ -29,7 +32,9 @@ public final class InputExpression extends Expression {
 
     @Override
     protected void doExecute(ExecutionContext context) {
-        if (fieldPath != null) {
+        if (field != null) {
+            context.setValue(context.getInputValue(field));
+        } else if (fieldPath != null) {
             context.setValue(context.getInputValue(fieldPath));
         } else {
             context.setValue(context.getInputValue(fieldName));
@@ -84,6 +89,8 @@ public final class InputExpression extends Expression {
         public void execute(Object obj) {
             InputExpression exp = (InputExpression) obj;
             exp.fieldPath = documentType.buildFieldPath(exp.getFieldName());
+            if (exp.fieldPath.size() == 1 && exp.fieldPath.get(0).getType() == FieldPathEntry.Type.STRUCT_FIELD)
+                exp.field = exp.fieldPath.get(0).getFieldRef();
         }
 
         @Override
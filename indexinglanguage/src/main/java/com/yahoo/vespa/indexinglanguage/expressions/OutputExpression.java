@@ -2,6 +2,8 @@
 package com.yahoo.vespa.indexinglanguage.expressions;
 
 import com.yahoo.document.DataType;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.Field;
 import com.yahoo.vespa.objects.ObjectOperation;
 import com.yahoo.vespa.objects.ObjectPredicate;
 
@@ -15,6 +17,7 @@ public abstract class OutputExpression extends Expression {
 
     private final String image;
     private final String fieldName;
+    private Field field; // set if resolved before execution
 
     public OutputExpression(String image, String fieldName) {
         super(UnresolvedDataType.INSTANCE);
@@ -28,7 +31,10 @@ public abstract class OutputExpression extends Expression {
 
     @Override
     protected void doExecute(ExecutionContext context) {
-        context.setOutputValue(this, fieldName, context.getValue());
+        if (field != null)
+            context.setOutputValue(this, field, context.getValue());
+        else
+            context.setOutputValue(this, fieldName, context.getValue());
     }
 
     @Override
@@ -63,6 +69,28 @@ public abstract class OutputExpression extends Expression {
         return getClass().hashCode() + (fieldName != null ? fieldName.hashCode() : 0);
     }
 
+    /** Resolves the fields output expressions write to in a document type, for documents of that type */
+    public static class FieldResolver implements ObjectOperation, ObjectPredicate {
+
+        private final DocumentType documentType;
+
+        public FieldResolver(DocumentType documentType) {
+            this.documentType = documentType;
+        }
+
+        @Override
+        public void execute(Object obj) {
+            OutputExpression exp = (OutputExpression) obj;
+            exp.field = documentType.getField(exp.getFieldName());
+        }
+
+        @Override
+        public boolean check(Object obj) {
+            return obj instanceof OutputExpression;
+        }
+
+    }
+
     public static class OutputFieldNameExtractor implements ObjectOperation, ObjectPredicate {
 
         private final List<String> outputFieldNames = new ArrayList<>(1);
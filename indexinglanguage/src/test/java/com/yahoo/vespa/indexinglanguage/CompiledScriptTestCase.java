@@ -0,0 +1,143 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.indexinglanguage;
+
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.Field;
+import com.yahoo.document.datatypes.IntegerFieldValue;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.vespa.indexinglanguage.expressions.*;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author bratseth
+ */
+public class CompiledScriptTestCase {
+
+    private final DocumentType type;
+
+    public CompiledScriptTestCase() {
+        type = new DocumentType("mytype");
+        type.addField("in-1", DataType.STRING);
+        type.addField("in-2", DataType.STRING);
+        type.addField("out-1", DataType.STRING);
+        type.addField("out-2", DataType.STRING);
+        type.addField("out-3", DataType.STRING);
+        type.addField("out-4", DataType.INT);
+        type.addField("out-5", DataType.STRING);
+    }
+
+    private Expression createScript() {
+        return new ScriptExpression(
+                new StatementExpression(new InputExpression("in-1"), new AttributeExpression("out-1")),
+                new StatementExpression(new InputExpression("in-1"), new LowerCaseExpression(), new IndexExpression("out-2")),
+                new StatementExpression(new SetValueExpression(new StringFieldValue(" FOO ")), new TrimExpression(),
+                                        new LowerCaseExpression(), new SummaryExpression("out-3")),
+                new StatementExpression(new ArithmeticExpression(new SetValueExpression(new IntegerFieldValue(6)),
+                                                                 ArithmeticExpression.Operator.MUL,
+                                                                 new SetValueExpression(new IntegerFieldValue(7))),
+                                        new AttributeExpression("out-4")),
+                new StatementExpression(new InputExpression("in-2"), new SummaryExpression("out-5")));
+    }
+
+    private Document createDocument() {
+        Document document = new Document(type, "id:scheme:mytype::");
+        document.setFieldValue("in-1", new StringFieldValue("Mixed Case"));
+        return document;
+    }
+
+    @Test
+    public void compiled_scripts_produce_the_same_output_as_interpreted_scripts() {
+        Document interpreted = Expression.execute(createScript(), createDocument());
+        Document compiled = CompiledScript.compile(createScript(), type).execute(new SimpleAdapterFactory(), createDocument());
+        assertEquals(interpreted, compiled);
+        assertEquals(new StringFieldValue("Mixed Case"), compiled.getFieldValue("out-1"));
+        assertEquals(new StringFieldValue("mixed case"), compiled.getFieldValue("out-2"));
+        assertEquals(new StringFieldValue("foo"), compiled.getFieldValue("out-3"));
+        assertEquals(new IntegerFieldValue(42), compiled.getFieldValue("out-4"));
+        assertNull(compiled.getFieldValue("out-5"));
+    }
+
+    @Test
+    public void constant_statement_starts_are_folded() {
+        ScriptExpression script = (ScriptExpression)CompiledScript.compile(createScript(), type).getExpression();
+        assertEquals("input in-1 | lowercase | index out-2", script.get(1).toString());
+        assertEquals("\"foo\" | summary out-3", script.get(2).toString());
+        assertEquals("42 | attribute out-4", script.get(3).toString());
+    }
+
+    @Test
+    public void statements_which_fail_on_constants_are_not_folded() {
+        Expression script = new StatementExpression(new SetValueExpression(new StringFieldValue("not a number")),
+                                                    new ToIntegerExpression(), new AttributeExpression("out-4"));
+        CompiledScript compiled = CompiledScript.compile(script, type);
+        assertEquals(script.toString(), compiled.getExpression().toString());
+        try {
+            compiled.execute(new SimpleAdapterFactory(), createDocument());
+            fail("Expected exception");
+        } catch (NumberFormatException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void scripts_which_are_invalid_for_the_type_are_not_compiled() {
+        try {
+            CompiledScript.compile(new StatementExpression(new InputExpression("in-1"), new AttributeExpression("nonexisting")), type);
+            fail("Expected exception");
+        } catch (VerificationException e) {
+            assertEquals("Field 'nonexisting' not found.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void compiled_scripts_execute_on_documents_of_an_equal_type_from_another_manager() {
+        DocumentType equal = new DocumentType("mytype");
+        for (Field field : type.getFields())
+            equal.addField(field.getName(), field.getDataType());
+        Document document = new Document(equal, "id:scheme:mytype::");
+        document.setFieldValue("in-1", new StringFieldValue("Mixed Case"));
+
+        CompiledScript compiled = CompiledScript.compile(createScript(), type);
+        assertTrue(compiled.canExecute(document));
+        assertEquals(new StringFieldValue("mixed case"), compiled.execute(new SimpleAdapterFactory(), document).getFieldValue("out-2"));
+    }
+
+    @Test
+    public void compiling_does_not_resolve_fields_in_the_script_compiled() {
+        Expression script = new StatementExpression(new InputExpression("in-1"), new AttributeExpression("out-1"));
+        CompiledScript.compile(script, type);
+
+        // The fields of this type have the same names as those of the type compiled for, but other ids
+        DocumentType other = new DocumentType("other");
+        other.addField("in-1", DataType.INT);
+        other.addField("out-1", DataType.INT);
+        Document document = new Document(other, "id:scheme:other::");
+        document.setFieldValue("in-1", new IntegerFieldValue(17));
+        assertEquals(new IntegerFieldValue(17), Expression.execute(script, document).getFieldValue("out-1"));
+    }
+
+    @Test
+    public void compiled_scripts_only_execute_on_documents_of_their_type() {
+        DocumentType other = new DocumentType("other");
+        other.addField("in-1", DataType.STRING);
+        CompiledScript compiled = CompiledScript.compile(createScript(), type);
+        Document document = new Document(other, "id:scheme:other::");
+        assertTrue(compiled.canExecute(createDocument()));
+        assertFalse(compiled.canExecute(document));
+        try {
+            compiled.execute(new SimpleAdapterFactory(), document);
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("This script is compiled for documents of type 'mytype', not 'other'", e.getMessage());
+        }
+    }
+
+}
@@ -6,6 +6,7 @@ import java.nio.ByteBuffer;
 
 
 class Buffer {
+    private final BufferPool pool;
     private ByteBuffer buf;
     private int        readPos;
     private int        writePos;
@@ -55,18 +56,41 @@ class Buffer {
             if (buf.capacity() + free < minFree) {
                 size = buf.capacity() + minFree;
             }
-            ByteBuffer tmp = ByteBuffer.allocate(size);
+            ByteBuffer tmp = allocate(size);
             tmp.order(buf.order());
             buf.position(readPos);
             buf.limit(writePos);
             tmp.put(buf);
+            free(buf);
             buf = tmp;
             readPos = 0;
         }
     }
 
+    private ByteBuffer allocate(int size) {
+        return (pool != null) ? pool.acquire(size) : ByteBuffer.allocate(size);
+    }
+
+    private void free(ByteBuffer buf) {
+        if (pool != null) {
+            pool.release(buf);
+        }
+    }
+
     public Buffer(int size) {
-        buf = ByteBuffer.allocate(size);
+        this(size, null);
+    }
+
+    /**
+     * Create a buffer which takes its memory from the given pool, and
+     * returns it there when it is no longer needed.
+     *
+     * @param size initial size
+     * @param pool the pool to use, or null to allocate on the heap
+     **/
+    public Buffer(int size, BufferPool pool) {
+        this.pool = pool;
+        buf = allocate(size);
         readPos = 0;
         writePos = 0;
         readMode = false;
@@ -76,14 +100,15 @@ class Buffer {
         int rpos = readMode? buf.position() : readPos;
         int wpos = readMode? writePos : buf.position();
         int used = wpos - rpos;
-        if (used > size || buf.capacity() <= size) {
+        if (used > size || buf.capacity() <= ((pool != null) ? pool.capacityFor(size) : size)) {
             return false;
         }
-        ByteBuffer tmp = ByteBuffer.allocate(size);
+        ByteBuffer tmp = allocate(size);
         tmp.order(buf.order());
         buf.position(rpos);
         buf.limit(wpos);
         tmp.put(buf);
+        free(buf);
         buf = tmp;
         readPos = 0;
         writePos = used;
@@ -92,6 +117,17 @@ class Buffer {
         return true;
     }
 
+    /**
+     * Drop any data in this buffer and return its memory to the pool.
+     **/
+    public void release() {
+        free(buf);
+        buf = ByteBuffer.allocate(0);
+        readPos = 0;
+        writePos = 0;
+        readMode = false;
+    }
+
     public int bytes() {
         return (readMode)
             ? (writePos - buf.position())
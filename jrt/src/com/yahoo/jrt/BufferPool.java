@@ -0,0 +1,108 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of direct byte buffers, shared by all connections of a {@link Transport}.
+ * Reading from and writing to a socket through a direct buffer saves the copy the JDK
+ * otherwise makes to a temporary direct buffer, but direct buffers are expensive to
+ * allocate and are only freed by the garbage collector, which is why they are pooled.
+ * <p>
+ * Pooled buffers have capacities which are powers of two, from {@link #MIN_SIZE} to
+ * {@link #MAX_SIZE}. Larger buffers are rare, and are allocated on the heap instead.
+ * Each capacity keeps at most a given number of bytes of idle buffers; buffers released
+ * beyond this are left to the garbage collector.
+ *
+ * @author bratseth
+ */
+class BufferPool {
+
+    static final int MIN_SIZE = 4 * 1024;
+    static final int MAX_SIZE = 1024 * 1024;
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_SIZE);
+    private static final int MAX_SHIFT = Integer.numberOfTrailingZeros(MAX_SIZE);
+
+    private final Bucket[] buckets = new Bucket[MAX_SHIFT - MIN_SHIFT + 1];
+
+    /**
+     * Creates a new buffer pool
+     *
+     * @param maxIdleBytesPerSize the max number of bytes of idle buffers to keep of each capacity
+     */
+    BufferPool(int maxIdleBytesPerSize) {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket(Math.max(1, maxIdleBytesPerSize / (MIN_SIZE << i)));
+        }
+    }
+
+    /** Returns the capacity of a buffer returned by {@link #acquire} for the given size */
+    int capacityFor(int size) {
+        if (size <= 0) return 0;
+        if (size <= MIN_SIZE) return MIN_SIZE;
+        if (size > MAX_SIZE) return size;
+        return Integer.highestOneBit(size - 1) << 1;
+    }
+
+    /** Returns a cleared, big endian buffer with at least the given capacity */
+    ByteBuffer acquire(int size) {
+        int capacity = capacityFor(size);
+        Bucket bucket = bucketOf(capacity);
+        if (bucket == null) {
+            return ByteBuffer.allocate(capacity);
+        }
+        ByteBuffer buffer = bucket.idle.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(capacity);
+        }
+        bucket.count.decrementAndGet();
+        buffer.clear();
+        return buffer.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Returns the given buffer to this pool, unless it was not allocated by it.
+     * The buffer must not be used by the caller after this.
+     */
+    void release(ByteBuffer buffer) {
+        if ( ! buffer.isDirect()) return;
+        Bucket bucket = bucketOf(buffer.capacity());
+        if (bucket == null) return;
+        if (bucket.count.incrementAndGet() > bucket.maxCount) {
+            bucket.count.decrementAndGet();
+            return;
+        }
+        bucket.idle.offer(buffer);
+    }
+
+    /** Returns the number of idle buffers in this pool */
+    int idleCount() {
+        int count = 0;
+        for (Bucket bucket : buckets) {
+            count += bucket.count.get();
+        }
+        return count;
+    }
+
+    private Bucket bucketOf(int capacity) {
+        if (capacity < MIN_SIZE || capacity > MAX_SIZE || Integer.bitCount(capacity) != 1) return null;
+        return buckets[Integer.numberOfTrailingZeros(capacity) - MIN_SHIFT];
+    }
+
+    private static class Bucket {
+
+        final ConcurrentLinkedQueue<ByteBuffer> idle = new ConcurrentLinkedQueue<>();
+        final AtomicInteger count = new AtomicInteger(0);
+        final int maxCount;
+
+        Bucket(int maxCount) {
+            this.maxCount = maxCount;
+        }
+
+    }
+
+}
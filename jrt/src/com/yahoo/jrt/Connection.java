@@ -23,6 +23,7 @@ class Connection extends Target {
     private static final int READ_REDO  = 10;
     private static final int WRITE_SIZE = 16*1024;
     private static final int WRITE_REDO = 10;
+    private static final int KEEP_SIZE  = 64*1024; // larger buffers are returned to the pool when drained
 
     private static final int INITIAL    = 0;
     private static final int CONNECTING = 1;
@@ -32,11 +33,18 @@ class Connection extends Target {
     private int state = INITIAL;
     private final Queue  queue   = new Queue();
     private final Queue  myQueue = new Queue();
-    private final Buffer input   = new Buffer(0); // Start off with empty buffer.
-    private final Buffer output  = new Buffer(0); // Start off with empty buffer.
+    private final Buffer input;
+    private final Buffer output;
     private final int maxInputSize;
     private final int maxOutputSize;
     private final boolean dropEmptyBuffers;
+    private final int coalesceBytes;
+    private final long coalesceNanos;
+    private int coalescedBytes = 0;
+    private long firstCoalescedNanos = 0;
+    private boolean corked = false;
+    private volatile long packetsWritten = 0; // only updated by the transport thread
+    private volatile long socketWrites = 0;
     private final boolean tcpNoDelay;
     private final Map<Integer, ReplyHandler> replyMap = new HashMap<>();
     private final Map<TargetWatcher, TargetWatcher> watchers = new IdentityHashMap<>();
@@ -96,11 +104,15 @@ class Connection extends Target {
         this.parent = parent;
         this.owner = owner;
         this.socket = parent.transport().createServerCryptoSocket(channel);
+        this.input = new Buffer(0, parent.transport().getBufferPool()); // Start off with empty buffer.
+        this.output = new Buffer(0, parent.transport().getBufferPool()); // Start off with empty buffer.
         this.spec = null;
         this.tcpNoDelay = tcpNoDelay;
         maxInputSize = owner.getMaxInputBufferSize();
         maxOutputSize = owner.getMaxOutputBufferSize();
         dropEmptyBuffers = owner.getDropEmptyBuffers();
+        coalesceBytes = owner.getWriteCoalescingBytes();
+        coalesceNanos = (long)(owner.getWriteCoalescingDelay() * 1_000_000_000);
         server = true;
         owner.sessionInit(this);
     }
@@ -108,12 +120,16 @@ class Connection extends Target {
     public Connection(TransportThread parent, Supervisor owner, Spec spec, Object context, boolean tcpNoDelay) {
         super(context);
         this.parent = parent;
+        this.input = new Buffer(0, parent.transport().getBufferPool()); // Start off with empty buffer.
+        this.output = new Buffer(0, parent.transport().getBufferPool()); // Start off with empty buffer.
         this.owner = owner;
         this.spec = spec;
         this.tcpNoDelay = tcpNoDelay;
         maxInputSize = owner.getMaxInputBufferSize();
         maxOutputSize = owner.getMaxOutputBufferSize();
         dropEmptyBuffers = owner.getDropEmptyBuffers();
+        coalesceBytes = owner.getWriteCoalescingBytes();
+        coalesceNanos = (long)(owner.getWriteCoalescingDelay() * 1_000_000_000);
         server = false;
         owner.sessionInit(this);
     }
@@ -152,6 +168,16 @@ class Connection extends Target {
                 queue.enqueue(packet);
                 writeWork++;
                 accepted = true;
+                if (coalesceBytes > 0) {
+                    if (coalescedBytes == 0) {
+                        firstCoalescedNanos = System.nanoTime();
+                    }
+                    coalescedBytes += packet.bytes();
+                    if (corked && coalescedBytes >= coalesceBytes) {
+                        corked = false;
+                        enableWrite = (state == CONNECTED);
+                    }
+                }
                 if (handler != null) {
                     replyMap.put(handler.key(), handler);
                 }
@@ -309,6 +335,8 @@ class Connection extends Target {
         if (dropEmptyBuffers) {
             socket.dropEmptyBuffers();
             input.shrink(0);
+        } else {
+            input.shrink(KEEP_SIZE);
         }
         if (maxInputSize > 0) {
             input.shrink(maxInputSize);
@@ -325,10 +353,53 @@ class Connection extends Target {
         }
     }
 
+    /**
+     * Hold back writing the queued packets if they are fewer bytes
+     * than we coalesce, and the first of them has not waited for the
+     * coalescing delay. Write events are then disabled until enough
+     * bytes are queued, or the delay has passed.
+     *
+     * @return true if writing is held back
+     **/
+    private boolean holdBack() throws IOException {
+        if (coalesceBytes == 0 || output.bytes() > 0 || !myQueue.isEmpty()) {
+            return false;
+        }
+        long deadline;
+        synchronized (this) {
+            if (coalescedBytes == 0 || coalescedBytes >= coalesceBytes) {
+                return false;
+            }
+            deadline = firstCoalescedNanos + coalesceNanos;
+            if (deadline - System.nanoTime() <= 0) {
+                return false;
+            }
+        }
+        if (socket.flush() == CryptoSocket.FlushResult.NEED_WRITE) {
+            return false;
+        }
+        synchronized (this) {
+            if (coalescedBytes >= coalesceBytes) {
+                return false;
+            }
+            corked = true;
+        }
+        disableWrite();
+        parent.flushLater(this, deadline);
+        return true;
+    }
+
     private void write() throws IOException {
+        if (holdBack()) {
+            return;
+        }
         synchronized (this) {
             queue.flush(myQueue);
+            coalescedBytes = 0;
+            corked = false;
         }
+        int packets = 0;
+        int writes = 0;
         for (int i = 0; i < WRITE_REDO; i++) {
             while (output.bytes() < WRITE_SIZE) {
                 Packet packet = (Packet) myQueue.dequeue();
@@ -339,16 +410,23 @@ class Connection extends Target {
                 ByteBuffer wb = output.getWritable(info.packetLength());
                 owner.writePacket(info);
                 info.encodePacket(packet, wb);
+                packets++;
             }
             ByteBuffer rb = output.getReadable();
             if (rb.remaining() == 0) {
                 break;
             }
             socket.write(rb);
+            writes++;
             if (rb.remaining() > 0) {
                 break;
             }
         }
+        if (packets > 0 || writes > 0) {
+            packetsWritten += packets;
+            socketWrites += writes;
+        }
+        parent.transport().metrics().addWrites(packets, writes);
         int myWriteWork = 0;
         if (output.bytes() > 0) {
             myWriteWork++;
@@ -369,6 +447,8 @@ class Connection extends Target {
         if (dropEmptyBuffers) {
             socket.dropEmptyBuffers();
             output.shrink(0);
+        } else {
+            output.shrink(KEEP_SIZE);
         }
         if (maxOutputSize > 0) {
             output.shrink(maxOutputSize);
@@ -390,6 +470,8 @@ class Connection extends Target {
         if (selectionKey != null) {
             selectionKey.cancel();
         }
+        input.release();
+        output.release();
     }
 
     public boolean isClosed() {
@@ -457,6 +539,16 @@ class Connection extends Target {
                 .flatMap(CryptoSocket::getSecurityContext);
     }
 
+    @Override
+    public long packetsWritten() {
+        return packetsWritten;
+    }
+
+    @Override
+    public long socketWrites() {
+        return socketWrites;
+    }
+
     public boolean isClient() {
         return !server;
     }
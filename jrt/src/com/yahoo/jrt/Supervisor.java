@@ -24,6 +24,8 @@ public class Supervisor {
     private int                     maxInputBufferSize  = 64*1024;
     private int                     maxOutputBufferSize = 64*1024;
     private boolean                 dropEmptyBuffers = false;
+    private int                     writeCoalescingBytes = 0;
+    private double                  writeCoalescingDelay = 0.0;
 
     /**
      * Create a new Supervisor based on the given {@link Transport}
@@ -79,6 +81,31 @@ public class Supervisor {
     }
     int getMaxOutputBufferSize() { return maxOutputBufferSize; }
 
+    /**
+     * Coalesce the packets written to each connection. Packets queued
+     * on a connection are then held back until they add up to the
+     * given number of bytes, or the given delay has passed since the
+     * first of them was queued, and then written together. This
+     * reduces the number of socket writes and TLS records on
+     * connections carrying many small packets, at the cost of
+     * latency. The delay has millisecond resolution.
+     *
+     * @param bytes number of bytes to wait for. 0 means no coalescing.
+     * @param delay max number of seconds to hold back a packet
+     * @throws IllegalArgumentException if bytes or delay is negative
+     **/
+    public Supervisor setWriteCoalescing(int bytes, double delay) {
+        if (bytes < 0)
+            throw new IllegalArgumentException("write coalescing bytes must be non-negative, but was " + bytes);
+        if ( ! (delay >= 0))
+            throw new IllegalArgumentException("write coalescing delay must be non-negative, but was " + delay);
+        writeCoalescingBytes = bytes;
+        writeCoalescingDelay = delay;
+        return this;
+    }
+    int getWriteCoalescingBytes() { return writeCoalescingBytes; }
+    double getWriteCoalescingDelay() { return writeCoalescingDelay; }
+
     /**
      * Obtain the method map for this Supervisor
      *
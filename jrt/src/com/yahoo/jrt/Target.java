@@ -74,6 +74,25 @@ public abstract class Target {
      */
     public abstract Optional<SecurityContext> getSecurityContext();
 
+    /**
+     * Obtain the number of packets written to the connection for
+     * which this target is an endpoint.
+     *
+     * @return number of packets written
+     **/
+    public abstract long packetsWritten();
+
+    /**
+     * Obtain the number of socket writes made on the connection for
+     * which this target is an endpoint. Its ratio to the number of
+     * packets written shows how well packets are coalesced on this
+     * connection, while {@link TransportMetrics} only has the sums
+     * over all connections.
+     *
+     * @return number of socket writes
+     **/
+    public abstract long socketWrites();
+
     /**
      * Check if this target represents the client side of a
      * connection.
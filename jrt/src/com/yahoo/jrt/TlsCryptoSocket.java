@@ -27,12 +27,18 @@ import static javax.net.ssl.SSLEngineResult.Status;
 /**
  * A {@link CryptoSocket} using TLS ({@link SSLEngine})
  *
+ * The buffers holding encrypted data are heap buffers, and are not taken from the {@link BufferPool} of the
+ * transport, since crypto sockets are created by a {@link CryptoEngine}, which has no access to it.
+ * Reads and writes of encrypted data therefore go through the temporary direct buffers of the JDK.
+ *
  * @author bjorncs
  */
 public class TlsCryptoSocket implements CryptoSocket {
 
     private static final ByteBuffer NULL_BUFFER = ByteBuffer.allocate(0);
 
+    private static final int MAX_RECORD_PAYLOAD = 16 * 1024; // Max plaintext of a TLS record
+
     private static final Logger log = Logger.getLogger(TlsCryptoSocket.class.getName());
 
     private enum HandshakeState { NOT_STARTED, NEED_READ, NEED_WRITE, NEED_WORK, COMPLETED }
@@ -46,6 +52,7 @@ public class TlsCryptoSocket implements CryptoSocket {
     private int sessionApplicationBufferSize;
     private ByteBuffer handshakeDummyBuffer;
     private HandshakeState handshakeState;
+    private long handshakeStartTime;
     private AuthorizationResult authorizationResult;
 
     public TlsCryptoSocket(SocketChannel channel, SSLEngine sslEngine) {
@@ -93,6 +100,7 @@ public class TlsCryptoSocket implements CryptoSocket {
             switch (state) {
                 case NOT_STARTED:
                     log.fine(() -> "Initiating handshake");
+                    handshakeStartTime = System.currentTimeMillis();
                     sslEngine.beginHandshake();
                     break;
                 case NEED_WRITE:
@@ -127,11 +135,15 @@ public class TlsCryptoSocket implements CryptoSocket {
                         SSLSession session = sslEngine.getSession();
                         sessionApplicationBufferSize = session.getApplicationBufferSize();
                         sessionPacketBufferSize = session.getPacketBufferSize();
-                        log.fine(() -> String.format("Handshake complete: protocol=%s, cipherSuite=%s", session.getProtocol(), session.getCipherSuite()));
+                        // A resumed session is the one cached when it was created by an earlier handshake
+                        boolean resumed = session.getCreationTime() < handshakeStartTime;
+                        log.fine(() -> String.format("Handshake complete: protocol=%s, cipherSuite=%s, resumed=%b", session.getProtocol(), session.getCipherSuite(), resumed));
                         if (sslEngine.getUseClientMode()) {
                             metrics.incrementClientTlsConnectionsEstablished();
+                            if (resumed) metrics.incrementClientTlsSessionsResumed();
                         } else {
                             metrics.incrementServerTlsConnectionsEstablished();
+                            if (resumed) metrics.incrementServerTlsSessionsResumed();
                         }
                         return HandshakeState.COMPLETED;
                     case NEED_TASK:
@@ -205,6 +217,8 @@ public class TlsCryptoSocket implements CryptoSocket {
         int totalBytesWrapped = 0;
         int bytesWrapped;
         do {
+            // Leave what is less than a full record for the next write, to be wrapped into the same record as what follows it
+            if (totalBytesWrapped > 0 && src.remaining() < MAX_RECORD_PAYLOAD) break;
             bytesWrapped = applicationDataWrap(src);
             totalBytesWrapped += bytesWrapped;
         } while (bytesWrapped > 0 && wrapBuffer.bytes() < sessionPacketBufferSize);
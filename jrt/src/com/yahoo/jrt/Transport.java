@@ -30,6 +30,7 @@ public class Transport {
     private final int eventsBeforeWakeup;
 
     private final TransportMetrics metrics = TransportMetrics.getInstance();
+    private final BufferPool bufferPool = new BufferPool(4 * 1024 * 1024);
     private final ArrayList<TransportThread> threads = new ArrayList<>();
     private final Random rnd = new Random();
 
@@ -90,6 +91,9 @@ public class Transport {
     boolean getTcpNoDelay() { return tcpNoDelay; }
     int getEventsBeforeWakeup() { return eventsBeforeWakeup; }
 
+    /** Returns the pool of direct buffers shared by the connections of all transport threads */
+    BufferPool getBufferPool() { return bufferPool; }
+
     public String getName() { return name; }
 
     /**
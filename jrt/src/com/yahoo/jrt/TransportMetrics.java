@@ -19,6 +19,10 @@ public class TransportMetrics {
     private final AtomicLong clientTlsConnectionsEstablished = new AtomicLong(0);
     private final AtomicLong serverUnencryptedConnectionsEstablished = new AtomicLong(0);
     private final AtomicLong clientUnencryptedConnectionsEstablished = new AtomicLong(0);
+    private final AtomicLong serverTlsSessionsResumed = new AtomicLong(0);
+    private final AtomicLong clientTlsSessionsResumed = new AtomicLong(0);
+    private final AtomicLong packetsWritten = new AtomicLong(0);
+    private final AtomicLong socketWrites = new AtomicLong(0);
 
     private TransportMetrics() {}
 
@@ -48,6 +52,22 @@ public class TransportMetrics {
         return clientUnencryptedConnectionsEstablished.get();
     }
 
+    public long serverTlsSessionsResumed() {
+        return serverTlsSessionsResumed.get();
+    }
+
+    public long clientTlsSessionsResumed() {
+        return clientTlsSessionsResumed.get();
+    }
+
+    public long packetsWritten() {
+        return packetsWritten.get();
+    }
+
+    public long socketWrites() {
+        return socketWrites.get();
+    }
+
     public Snapshot snapshot() { return new Snapshot(this); }
 
     void incrementTlsCertificateVerificationFailures() {
@@ -74,6 +94,23 @@ public class TransportMetrics {
         clientUnencryptedConnectionsEstablished.incrementAndGet();
     }
 
+    void incrementServerTlsSessionsResumed() {
+        serverTlsSessionsResumed.incrementAndGet();
+    }
+
+    void incrementClientTlsSessionsResumed() {
+        clientTlsSessionsResumed.incrementAndGet();
+    }
+
+    void addWrites(int packets, int writes) {
+        if (packets > 0) {
+            packetsWritten.addAndGet(packets);
+        }
+        if (writes > 0) {
+            socketWrites.addAndGet(writes);
+        }
+    }
+
     @Override
     public String toString() {
         return "TransportMetrics{" +
@@ -83,11 +120,15 @@ public class TransportMetrics {
                 ", clientTlsConnectionsEstablished=" + clientTlsConnectionsEstablished +
                 ", serverUnencryptedConnectionsEstablished=" + serverUnencryptedConnectionsEstablished +
                 ", clientUnencryptedConnectionsEstablished=" + clientUnencryptedConnectionsEstablished +
+                ", serverTlsSessionsResumed=" + serverTlsSessionsResumed +
+                ", clientTlsSessionsResumed=" + clientTlsSessionsResumed +
+                ", packetsWritten=" + packetsWritten +
+                ", socketWrites=" + socketWrites +
                 '}';
     }
 
     public static class Snapshot {
-        public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0, 0);
+        public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
 
         private final long tlsCertificateVerificationFailures;
         private final long peerAuthorizationFailures;
@@ -95,6 +136,10 @@ public class TransportMetrics {
         private final long clientTlsConnectionsEstablished;
         private final long serverUnencryptedConnectionsEstablished;
         private final long clientUnencryptedConnectionsEstablished;
+        private final long serverTlsSessionsResumed;
+        private final long clientTlsSessionsResumed;
+        private final long packetsWritten;
+        private final long socketWrites;
 
         private Snapshot(TransportMetrics metrics) {
             this(metrics.tlsCertificateVerificationFailures.get(),
@@ -102,7 +147,11 @@ public class TransportMetrics {
                  metrics.serverTlsConnectionsEstablished.get(),
                  metrics.clientTlsConnectionsEstablished.get(),
                  metrics.serverUnencryptedConnectionsEstablished.get(),
-                 metrics.clientUnencryptedConnectionsEstablished.get());
+                 metrics.clientUnencryptedConnectionsEstablished.get(),
+                 metrics.serverTlsSessionsResumed.get(),
+                 metrics.clientTlsSessionsResumed.get(),
+                 metrics.packetsWritten.get(),
+                 metrics.socketWrites.get());
         }
 
         private Snapshot(long tlsCertificateVerificationFailures,
@@ -110,13 +159,21 @@ public class TransportMetrics {
                         long serverTlsConnectionsEstablished,
                         long clientTlsConnectionsEstablished,
                         long serverUnencryptedConnectionsEstablished,
-                        long clientUnencryptedConnectionsEstablished) {
+                        long clientUnencryptedConnectionsEstablished,
+                        long serverTlsSessionsResumed,
+                        long clientTlsSessionsResumed,
+                        long packetsWritten,
+                        long socketWrites) {
             this.tlsCertificateVerificationFailures = tlsCertificateVerificationFailures;
             this.peerAuthorizationFailures = peerAuthorizationFailures;
             this.serverTlsConnectionsEstablished = serverTlsConnectionsEstablished;
             this.clientTlsConnectionsEstablished = clientTlsConnectionsEstablished;
             this.serverUnencryptedConnectionsEstablished = serverUnencryptedConnectionsEstablished;
             this.clientUnencryptedConnectionsEstablished = clientUnencryptedConnectionsEstablished;
+            this.serverTlsSessionsResumed = serverTlsSessionsResumed;
+            this.clientTlsSessionsResumed = clientTlsSessionsResumed;
+            this.packetsWritten = packetsWritten;
+            this.socketWrites = socketWrites;
         }
 
         public long tlsCertificateVerificationFailures() { return tlsCertificateVerificationFailures; }
@@ -125,6 +182,10 @@ public class TransportMetrics {
         public long clientTlsConnectionsEstablished() { return clientTlsConnectionsEstablished; }
         public long serverUnencryptedConnectionsEstablished() { return serverUnencryptedConnectionsEstablished; }
         public long clientUnencryptedConnectionsEstablished() { return clientUnencryptedConnectionsEstablished; }
+        public long serverTlsSessionsResumed() { return serverTlsSessionsResumed; }
+        public long clientTlsSessionsResumed() { return clientTlsSessionsResumed; }
+        public long packetsWritten() { return packetsWritten; }
+        public long socketWrites() { return socketWrites; }
 
         public Snapshot changesSince(Snapshot base) {
             return new Snapshot(
@@ -133,7 +194,11 @@ public class TransportMetrics {
                 changesSince(base, Snapshot::serverTlsConnectionsEstablished),
                 changesSince(base, Snapshot::clientTlsConnectionsEstablished),
                 changesSince(base, Snapshot::serverUnencryptedConnectionsEstablished),
-                changesSince(base, Snapshot::clientUnencryptedConnectionsEstablished));
+                changesSince(base, Snapshot::clientUnencryptedConnectionsEstablished),
+                changesSince(base, Snapshot::serverTlsSessionsResumed),
+                changesSince(base, Snapshot::clientTlsSessionsResumed),
+                changesSince(base, Snapshot::packetsWritten),
+                changesSince(base, Snapshot::socketWrites));
         }
 
         private long changesSince(Snapshot base, ToLongFunction<Snapshot> metricProperty) {
@@ -149,6 +214,10 @@ public class TransportMetrics {
                     ", clientTlsConnectionsEstablished=" + clientTlsConnectionsEstablished +
                     ", serverUnencryptedConnectionsEstablished=" + serverUnencryptedConnectionsEstablished +
                     ", clientUnencryptedConnectionsEstablished=" + clientUnencryptedConnectionsEstablished +
+                    ", serverTlsSessionsResumed=" + serverTlsSessionsResumed +
+                    ", clientTlsSessionsResumed=" + clientTlsSessionsResumed +
+                    ", packetsWritten=" + packetsWritten +
+                    ", socketWrites=" + socketWrites +
                     '}';
         }
     }
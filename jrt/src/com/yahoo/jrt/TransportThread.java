@@ -5,7 +5,9 @@ package com.yahoo.jrt;
 import java.io.IOException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -54,6 +56,15 @@ public class TransportThread {
         public void run() { handleHandshakeWorkDone(conn); }
     }
 
+    private static class HeldConnection {
+        final Connection conn;
+        final long deadline;
+        HeldConnection(Connection conn, long deadline) {
+            this.conn = conn;
+            this.deadline = deadline;
+        }
+    }
+
     private static class SyncCmd implements Runnable {
         boolean done = false;
         public synchronized void waitDone() {
@@ -76,6 +87,7 @@ public class TransportThread {
     private final Scheduler scheduler;
     private int             state;
     private final Selector  selector;
+    private final List<HeldConnection> held = new ArrayList<>();
 
     private void handleAddConnection(Connection conn) {
         if (conn.isClosed()) {
@@ -232,6 +244,41 @@ public class TransportThread {
         }
     }
 
+    /**
+     * Enable write events for a connection which is holding back
+     * writes to coalesce packets, once the given time has passed.
+     * Must be called from the transport thread.
+     *
+     * @param conn the connection holding back writes
+     * @param deadline the {@link System#nanoTime} to enable write events at
+     **/
+    void flushLater(Connection conn, long deadline) {
+        held.add(new HeldConnection(conn, deadline));
+    }
+
+    private void flushHeld(long now) {
+        Iterator<HeldConnection> it = held.iterator();
+        while (it.hasNext()) {
+            HeldConnection entry = it.next();
+            if (entry.deadline - now <= 0) {
+                it.remove();
+                if (!entry.conn.isClosed()) {
+                    entry.conn.enableWrite();
+                }
+            }
+        }
+    }
+
+    /** Returns the number of ms to wait for I/O, or 0 to not wait at all */
+    private long selectTimeout(long now) {
+        long timeout = 100;
+        for (HeldConnection entry : held) {
+            long millis = (entry.deadline - now + 999_999) / 1_000_000;
+            timeout = Math.min(timeout, Math.max(0, millis));
+        }
+        return timeout;
+    }
+
     void handshakeWorkDone(Connection conn) {
         postCommand(new HandshakeWorkDoneCmd(conn));
     }
@@ -294,7 +341,12 @@ public class TransportThread {
 
             // perform I/O selection
             try {
-                selector.select(100);
+                long timeout = selectTimeout(System.nanoTime());
+                if (timeout > 0) {
+                    selector.select(timeout);
+                } else {
+                    selector.selectNow();
+                }
             } catch (IOException e) {
                 log.log(Level.WARNING, "error during select", e);
             }
@@ -313,6 +365,11 @@ public class TransportThread {
                 }
             }
 
+            // write what connections have held back for coalescing
+            if (!held.isEmpty()) {
+                flushHeld(System.nanoTime());
+            }
+
             // check scheduled tasks
             scheduler.checkTasks(System.currentTimeMillis());
         }
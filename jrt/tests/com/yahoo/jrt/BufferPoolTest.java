@@ -0,0 +1,87 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author bratseth
+ */
+public class BufferPoolTest {
+
+    @Test
+    public void testCapacities() {
+        BufferPool pool = new BufferPool(1024 * 1024);
+        assertEquals(0, pool.capacityFor(0));
+        assertEquals(BufferPool.MIN_SIZE, pool.capacityFor(1));
+        assertEquals(BufferPool.MIN_SIZE, pool.capacityFor(BufferPool.MIN_SIZE));
+        assertEquals(2 * BufferPool.MIN_SIZE, pool.capacityFor(BufferPool.MIN_SIZE + 1));
+        assertEquals(BufferPool.MAX_SIZE, pool.capacityFor(BufferPool.MAX_SIZE));
+        assertEquals(BufferPool.MAX_SIZE + 1, pool.capacityFor(BufferPool.MAX_SIZE + 1));
+
+        assertTrue(pool.acquire(100).isDirect());
+        assertEquals(16 * 1024, pool.acquire(10000).capacity());
+        assertFalse(pool.acquire(BufferPool.MAX_SIZE + 1).isDirect());
+        assertEquals(0, pool.acquire(0).capacity());
+    }
+
+    @Test
+    public void testReuse() {
+        BufferPool pool = new BufferPool(2 * BufferPool.MIN_SIZE);
+        ByteBuffer a = pool.acquire(10);
+        ByteBuffer b = pool.acquire(10);
+        ByteBuffer c = pool.acquire(10);
+        a.order(ByteOrder.LITTLE_ENDIAN).putInt(42);
+        pool.release(a);
+        pool.release(b);
+        pool.release(c); // exceeds the idle bytes of this size
+        pool.release(ByteBuffer.allocate(BufferPool.MIN_SIZE)); // not from the pool
+        assertEquals(2, pool.idleCount());
+
+        ByteBuffer reused = pool.acquire(BufferPool.MIN_SIZE);
+        assertSame(a, reused);
+        assertEquals(0, reused.position());
+        assertEquals(reused.capacity(), reused.limit());
+        assertEquals(ByteOrder.BIG_ENDIAN, reused.order());
+        assertSame(b, pool.acquire(1));
+        assertNotSame(c, pool.acquire(1));
+        assertEquals(0, pool.idleCount());
+    }
+
+    @Test
+    public void testPooledBuffer() {
+        BufferPool pool = new BufferPool(1024 * 1024);
+        Buffer buf = new Buffer(0, pool);
+        buf.getWritable(10).put((byte)1).put((byte)2);
+        assertTrue(buf.getReadable().isDirect());
+        assertEquals(BufferPool.MIN_SIZE, buf.getReadable().capacity());
+
+        byte[] data = new byte[BufferPool.MIN_SIZE];
+        buf.getWritable(data.length).put(data);
+        assertEquals(2 * BufferPool.MIN_SIZE, buf.getReadable().capacity());
+        assertEquals(1, pool.idleCount()); // the smaller buffer was returned when growing
+
+        assertFalse(buf.shrink(0));
+        assertEquals(1, buf.getReadable().get());
+        assertEquals(2, buf.getReadable().get());
+        assertFalse(buf.shrink(BufferPool.MIN_SIZE + 1)); // would not give a smaller buffer
+        buf.getReadable().get(data);
+        assertTrue(buf.shrink(0));
+        assertEquals(2, pool.idleCount());
+
+        buf.getWritable(1).put((byte)3);
+        assertEquals(1, pool.idleCount());
+        buf.release();
+        assertEquals(0, buf.bytes());
+        assertEquals(2, pool.idleCount());
+    }
+
+}
@@ -0,0 +1,120 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import com.yahoo.security.tls.TlsContext;
+
+import javax.net.ssl.SSLSessionContext;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static com.yahoo.jrt.CryptoUtils.createTestTlsContext;
+
+/**
+ * Measures the cost of TLS in jrt: handshakes per second when reconnecting, with and without
+ * resuming cached sessions, and payload bytes per CPU second over a single connection carrying
+ * many small requests, with and without coalescing packets into fewer and larger TLS records.
+ *
+ * @author bratseth
+ */
+public class TlsBenchmark {
+
+    private static final double seconds = 5;
+
+    private final TlsContext tlsContext = createTestTlsContext();
+    private final Supervisor server = new Supervisor(new Transport("server", new TlsCryptoEngine(tlsContext), 1));
+    private final Acceptor acceptor;
+
+    private TlsBenchmark() throws ListenFailedException {
+        server.addMethod(new Method("echo", "x", "x", req -> req.returnValues().add(req.parameters().get(0))));
+        acceptor = server.listen(new Spec(0));
+    }
+
+    /** Connects, pings and disconnects repeatedly, and returns the number of handshakes per second */
+    private double handshakesPerSecond(boolean resumption) {
+        Supervisor client = new Supervisor(new Transport("client", new TlsCryptoEngine(tlsContext), 1));
+        SSLSessionContext sessions = tlsContext.context().getClientSessionContext();
+        long handshakes = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < seconds * 1e9) {
+            if ( ! resumption)
+                Collections.list(sessions.getIds()).forEach(id -> sessions.getSession(id).invalidate());
+            Target target = client.connect(new Spec("localhost", acceptor.port()));
+            Request ping = new Request("frt.rpc.ping");
+            target.invokeSync(ping, 60.0);
+            if (ping.isError()) throw new IllegalStateException(ping.errorMessage());
+            target.close();
+            handshakes++;
+        }
+        client.transport().shutdown().join();
+        return handshakes / ((System.nanoTime() - start) / 1e9);
+    }
+
+    /** Sends batches of requests with small payloads over one connection, and returns the payload bytes per CPU second */
+    private double bytesPerCpuSecond(boolean coalescing) {
+        Supervisor client = new Supervisor(new Transport("client", new TlsCryptoEngine(tlsContext), 1));
+        if (coalescing)
+            client.setWriteCoalescing(16 * 1024, 0.001);
+        Target target = client.connect(new Spec("localhost", acceptor.port()));
+        byte[] payload = new byte[200];
+        long bytes = 0;
+        long startCpu = processCpuNanos();
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < seconds * 1e9) {
+            List<Request> requests = new ArrayList<>();
+            List<Test.Waiter> waiters = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                Request request = new Request("echo");
+                request.parameters().add(new DataValue(payload));
+                Test.Waiter waiter = new Test.Waiter();
+                target.invokeAsync(request, 60.0, waiter);
+                requests.add(request);
+                waiters.add(waiter);
+            }
+            for (int i = 0; i < requests.size(); i++) {
+                waiters.get(i).waitDone();
+                if (requests.get(i).isError()) throw new IllegalStateException(requests.get(i).errorMessage());
+                bytes += 2 * payload.length;
+            }
+        }
+        double cpuSeconds = (processCpuNanos() - startCpu) / 1e9;
+        target.close();
+        client.transport().shutdown().join();
+        return bytes / cpuSeconds;
+    }
+
+    private static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+    private void close() {
+        acceptor.shutdown().join();
+        server.transport().shutdown().join();
+    }
+
+    public static void main(String[] args) throws ListenFailedException {
+        TlsBenchmark benchmark = new TlsBenchmark();
+        benchmark.handshakesPerSecond(true); // warmup
+        benchmark.bytesPerCpuSecond(true);
+        for (boolean enabled : new boolean[] { false, true }) {
+            TransportMetrics.Snapshot before = TransportMetrics.getInstance().snapshot();
+            double handshakes = benchmark.handshakesPerSecond(enabled);
+            TransportMetrics.Snapshot handshaken = TransportMetrics.getInstance().snapshot().changesSince(before);
+            System.out.printf(Locale.ENGLISH, "Session resumption %-8s: %8.1f handshakes/s, %d of %d sessions resumed\n",
+                              enabled ? "enabled" : "disabled", handshakes,
+                              handshaken.clientTlsSessionsResumed(), handshaken.clientTlsConnectionsEstablished());
+        }
+        for (boolean enabled : new boolean[] { false, true }) {
+            TransportMetrics.Snapshot before = TransportMetrics.getInstance().snapshot();
+            double bytes = benchmark.bytesPerCpuSecond(enabled);
+            TransportMetrics.Snapshot written = TransportMetrics.getInstance().snapshot().changesSince(before);
+            System.out.printf(Locale.ENGLISH, "Write coalescing   %-8s: %8.1f MB/CPU s, %.3f socket writes per packet\n",
+                              enabled ? "enabled" : "disabled", bytes / 1e6,
+                              written.socketWrites() / (double) written.packetsWritten());
+        }
+        benchmark.close();
+    }
+
+}
@@ -0,0 +1,116 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import org.junit.After;
+import org.junit.Before;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author bratseth
+ */
+public class WriteCoalescingTest {
+
+    Supervisor   server;
+    Acceptor     acceptor;
+    Supervisor   client;
+    Target       target;
+
+    @Before
+    public void setUp() throws ListenFailedException {
+        server   = new Supervisor(new Transport());
+        acceptor = server.listen(new Spec(0));
+        server.addMethod(new Method("concat", "ss", "s", this::rpc_concat));
+    }
+
+    @After
+    public void tearDown() {
+        if (target != null) target.close();
+        acceptor.shutdown().join();
+        if (client != null) client.transport().shutdown().join();
+        server.transport().shutdown().join();
+    }
+
+    private void connect(int bytes, double delay) {
+        client = new Supervisor(new Transport()).setWriteCoalescing(bytes, delay);
+        target = client.connect(new Spec("localhost", acceptor.port()));
+    }
+
+    private void rpc_concat(Request req) {
+        req.returnValues().add(new StringValue(req.parameters().get(0).asString() +
+                                               req.parameters().get(1).asString()));
+    }
+
+    private static Request concat(int i) {
+        Request req = new Request("concat");
+        req.parameters().add(new StringValue("abc"));
+        req.parameters().add(new StringValue(String.valueOf(i)));
+        return req;
+    }
+
+    private List<Test.Waiter> invoke(List<Request> requests) {
+        List<Test.Waiter> waiters = new ArrayList<>();
+        for (Request req : requests) {
+            Test.Waiter waiter = new Test.Waiter();
+            target.invokeAsync(req, 60.0, waiter);
+            waiters.add(waiter);
+        }
+        return waiters;
+    }
+
+    private static void assertReplies(List<Request> requests) {
+        for (int i = 0; i < requests.size(); i++) {
+            assertFalse(requests.get(i).errorMessage(), requests.get(i).isError());
+            assertEquals("abc" + i, requests.get(i).returnValues().get(0).asString());
+        }
+    }
+
+    @org.junit.Test
+    public void testPacketsAreWrittenTogetherAfterDelay() {
+        connect(1024 * 1024, 0.1);
+        TransportMetrics.Snapshot before = client.transport().metrics().snapshot();
+        List<Request> requests = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            requests.add(concat(i));
+        long start = System.nanoTime();
+        invoke(requests).forEach(Test.Waiter::waitDone);
+        assertTrue(System.nanoTime() - start >= 100_000_000);
+        assertReplies(requests);
+
+        TransportMetrics.Snapshot written = client.transport().metrics().snapshot().changesSince(before);
+        assertTrue(written.packetsWritten() >= 20);
+        assertTrue(written.socketWrites() < written.packetsWritten());
+
+        assertTrue(target.packetsWritten() >= 20);
+        assertTrue(target.socketWrites() < target.packetsWritten());
+    }
+
+    @org.junit.Test
+    public void testPacketsAreWrittenWhenEnoughBytesAreQueued() {
+        int count = 5;
+        connect(count * new RequestPacket(0, 0, "concat", concat(0).parameters()).bytes(), 3600);
+        List<Request> requests = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            requests.add(concat(i));
+        invoke(requests).forEach(Test.Waiter::waitDone); // would time out if not written before the delay
+        assertReplies(requests);
+    }
+
+    @org.junit.Test(expected = IllegalArgumentException.class)
+    public void testNegativeBytesAreRejected() {
+        client = new Supervisor(new Transport());
+        client.setWriteCoalescing(-1, 0.1);
+    }
+
+    @org.junit.Test(expected = IllegalArgumentException.class)
+    public void testNegativeDelayIsRejected() {
+        client = new Supervisor(new Transport());
+        client.setWriteCoalescing(1024, -0.1);
+    }
+
+}
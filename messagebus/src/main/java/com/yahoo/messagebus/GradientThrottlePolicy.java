@@ -0,0 +1,256 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus;
+
+import com.yahoo.concurrent.SystemTimer;
+import com.yahoo.concurrent.Timer;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This is an implementation of the {@link ThrottlePolicy} which limits the number of pending messages of a
+ * {@link SourceSession} by how latency changes with the window size, rather than by probing for the window
+ * size which gives the highest throughput, like the {@link DynamicThrottlePolicy}.
+ * <p>
+ * Latency is measured over periods of about one window size of replies, as the total time messages were pending
+ * divided by the number of replies. At regular intervals, one period is run with half the window size, and the
+ * latency of the following periods is compared to the latency measured with this smaller window: while the server
+ * has spare capacity, halving the window barely changes latency, but once messages are queueing at the server,
+ * latency grows with the window size. While the latency stays within a tolerance of that with half the window,
+ * the window grows by the square root of its size each period; beyond this, it shrinks by the ratio between the
+ * two, down to half its size in a single period. Periods with error replies back off by a fixed factor.
+ * </p><p>
+ * As the latency with half the window is measured anew at each interval, the policy adapts when the server
+ * becomes slower, e.g., while merging, without mistaking the higher latency for queueing caused by itself.
+ * </p>
+ *
+ * @author bratseth
+ */
+public class GradientThrottlePolicy extends StaticThrottlePolicy {
+
+    private static final Logger log = Logger.getLogger(GradientThrottlePolicy.class.getName());
+
+    private enum Phase { normal, draining, probing }
+
+    private final Timer timer;
+    private double windowSize = 16;
+    private double minWindowSize = 1;
+    private double maxWindowSize = Integer.MAX_VALUE;
+    private double latencyTolerance = 1.5;
+    private double smoothing = 0.2;
+    private double backOff = 0.9;
+    private int probeInterval = 20;
+
+    private Phase phase = Phase.normal;
+    private long periods = 0;
+    private double probedLatency = 0;
+
+    private int pending = 0;
+    private long periodStart;
+    private long lastChange;
+    private double pendingTime = 0;
+    private int replies = 0;
+    private int errors = 0;
+
+    public GradientThrottlePolicy() {
+        this(SystemTimer.INSTANCE);
+    }
+
+    /**
+     * Constructs a new instance of this class using the given clock to measure latency.
+     *
+     * @param timer the timer to use
+     */
+    public GradientThrottlePolicy(Timer timer) {
+        this.timer = timer;
+        this.periodStart = this.lastChange = timer.milliTime();
+    }
+
+    @Override
+    public boolean canSend(Message message, int pendingCount) {
+        return super.canSend(message, pendingCount) && pendingCount < currentWindowSize();
+    }
+
+    @Override
+    public void processMessage(Message message) {
+        super.processMessage(message);
+        pendingChanged(timer.milliTime());
+        ++pending;
+    }
+
+    @Override
+    public void processReply(Reply reply) {
+        super.processReply(reply);
+        long time = timer.milliTime();
+        pendingChanged(time);
+        --pending;
+        ++replies;
+        if (reply.hasErrors())
+            ++errors;
+        if (replies >= currentWindowSize() && pendingTime > 0)
+            endPeriod(time);
+    }
+
+    /** Returns the window size in effect now, which is halved while probing */
+    private double currentWindowSize() {
+        return phase == Phase.normal ? windowSize : Math.max(minWindowSize, windowSize / 2);
+    }
+
+    /** Adds the time spent pending by all messages since the last change to the pending count */
+    private void pendingChanged(long time) {
+        pendingTime += pending * (double)(time - lastChange);
+        lastChange = time;
+    }
+
+    private void endPeriod(long time) {
+        double latency = pendingTime / replies;
+        double averagePending = pendingTime / (time - periodStart);
+        switch (phase) {
+            case draining: // messages sent with the full window are replied to in this period: Ignore it
+                phase = Phase.probing;
+                break;
+            case probing:
+                probedLatency = latency;
+                phase = Phase.normal;
+                break;
+            case normal:
+                resize(latency, averagePending);
+                if (++periods % probeInterval == 0)
+                    phase = Phase.draining;
+        }
+        periodStart = time;
+        pendingTime = 0;
+        replies = 0;
+        errors = 0;
+    }
+
+    private void resize(double latency, double averagePending) {
+        if (errors > 0) {
+            windowSize *= backOff;
+        }
+        else {
+            double gradient = probedLatency == 0 ? 1 : Math.max(0.5, Math.min(1, latencyTolerance * probedLatency / latency));
+            double growth = averagePending < windowSize / 2 ? 0 : Math.sqrt(windowSize); // grow only when the window is used
+            windowSize = (1 - smoothing) * windowSize + smoothing * (windowSize * gradient + growth);
+        }
+        windowSize = Math.max(minWindowSize, Math.min(maxWindowSize, windowSize));
+        if (log.isLoggable(Level.FINE))
+            log.log(Level.FINE, "windowSize " + windowSize + " latency " + latency + " latency with half window " +
+                                probedLatency + " average pending " + averagePending + " errors " + errors);
+    }
+
+    /**
+     * Sets the factor by which latency may exceed the latency measured with half the window size before the window
+     * size is reduced.
+     * Lower values give lower latency, and higher values make it more likely that the server is saturated.
+     * Must be larger than 1.
+     *
+     * @param latencyTolerance the tolerance to set
+     * @return this, to allow chaining
+     */
+    public GradientThrottlePolicy setLatencyTolerance(double latencyTolerance) {
+        if (latencyTolerance <= 1)
+            throw new IllegalArgumentException("Latency tolerance must be larger than 1");
+
+        this.latencyTolerance = latencyTolerance;
+        return this;
+    }
+
+    /**
+     * Sets the number of periods, each of about a window size of replies, between each time the latency with half
+     * the window size is measured. Lower values make the policy adapt faster to changes in the server,
+     * at the cost of using the smaller window more often.
+     *
+     * @param periods the number of periods to set
+     * @return this, to allow chaining
+     */
+    public GradientThrottlePolicy setProbeInterval(int periods) {
+        if (periods < 1)
+            throw new IllegalArgumentException("Probe interval cannot be less than one period");
+
+        this.probeInterval = periods;
+        return this;
+    }
+
+    /**
+     * Sets the weight of each new window size computed, in [0, 1]. Smaller values make the window size
+     * change more slowly, but more steadily.
+     *
+     * @param smoothing the smoothing to set
+     * @return this, to allow chaining
+     */
+    public GradientThrottlePolicy setSmoothing(double smoothing) {
+        this.smoothing = Math.max(0, Math.min(1, smoothing));
+        return this;
+    }
+
+    /**
+     * Sets the factor of window size to back off to when error replies are received. Capped to [0, 1]
+     *
+     * @param windowSizeBackOff the back off to set
+     * @return this, to allow chaining
+     */
+    public GradientThrottlePolicy setWindowSizeBackOff(double windowSizeBackOff) {
+        this.backOff = Math.max(0, Math.min(1, windowSizeBackOff));
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of pending operations allowed at any time, in
+     * order to avoid using too much resources.
+     *
+     * @param max the max to set
+     * @return this, to allow chaining
+     */
+    public GradientThrottlePolicy setMaxWindowSize(double max) {
+        if (max < 1)
+            throw new IllegalArgumentException("Maximum window size cannot be less than one");
+
+        this.maxWindowSize = max;
+        this.windowSize = Math.min(windowSize, maxWindowSize);
+        return this;
+    }
+
+    public double getMaxWindowSize() {
+        return maxWindowSize;
+    }
+
+    /**
+     * Sets the minimum number of pending operations allowed at any time, in
+     * order to keep a level of performance.
+     *
+     * @param min the min to set
+     * @return this, to allow chaining
+     */
+    public GradientThrottlePolicy setMinWindowSize(double min) {
+        if (min < 1)
+            throw new IllegalArgumentException("Minimum window size cannot be less than one");
+
+        this.minWindowSize = min;
+        this.windowSize = Math.max(windowSize, minWindowSize);
+        return this;
+    }
+
+    public double getMinWindowSize() {
+        return minWindowSize;
+    }
+
+    @Override
+    public GradientThrottlePolicy setMaxPendingCount(int maxCount) {
+        super.setMaxPendingCount(maxCount);
+        return maxCount > 0 ? setMaxWindowSize(maxCount) : this;
+    }
+
+    /**
+     * Returns the maximum number of pending messages allowed.
+     *
+     * @return the max limit
+     */
+    @Override
+    public int getMaxPendingCount() {
+        return (int) windowSize;
+    }
+
+    double getWindowSize() { return windowSize; }
+
+}
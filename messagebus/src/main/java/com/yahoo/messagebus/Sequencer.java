@@ -13,13 +13,18 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * id, and messages are only sent when they are at the front of their list. When a reply arrives, the current front of
  * the list is removed and the next message, if any, is sent.
  *
+ * The lists are kept in a number of stripes selected by sequencing id, each guarded by its own monitor, so that
+ * messages and replies with different sequencing ids rarely contend.
+ *
  * @author Simon Thoresen Hult
  */
 public class Sequencer implements MessageHandler, ReplyHandler {
 
+    private static final int STRIPES = 64; // must be a power of 2
+
     private final AtomicBoolean destroyed = new AtomicBoolean(false);
     private final MessageHandler sender;
-    private final Map<Long, Queue<Message>> seqMap = new HashMap<>();
+    private final Stripe[] stripes = new Stripe[STRIPES];
 
     /**
      * Constructs a new sequencer on top of the given async sender.
@@ -28,6 +33,8 @@ public class Sequencer implements MessageHandler, ReplyHandler {
      */
     public Sequencer(MessageHandler sender) {
         this.sender = sender;
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new Stripe();
     }
 
     /**
@@ -38,21 +45,29 @@ public class Sequencer implements MessageHandler, ReplyHandler {
      */
     public boolean destroy() {
         if (!destroyed.getAndSet(true)) {
-            synchronized (this) {
-                for (Queue<Message> queue : seqMap.values()) {
-                    if (queue != null) {
-                        for (Message msg : queue) {
-                            msg.discard();
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    for (Queue<Message> queue : stripe.seqMap.values()) {
+                        if (queue != null) {
+                            for (Message msg : queue) {
+                                msg.discard();
+                            }
                         }
                     }
+                    stripe.seqMap.clear();
                 }
-                seqMap.clear();
             }
             return true;
         }
         return false;
     }
 
+    /** Returns the stripe holding the state of the given sequencing id */
+    private Stripe stripeOf(long seqId) {
+        long hash = seqId * 0x9e3779b97f4a7c15L; // spread ids which differ only in their high bits
+        return stripes[(int) (hash >>> 32) & (STRIPES - 1)];
+    }
+
     /**
      * Filter a message against the current sequencing state. If this method returns true, the message has been cleared
      * for sending and its sequencing information has been added to the state. If this method returns false, it has been
@@ -65,12 +80,13 @@ public class Sequencer implements MessageHandler, ReplyHandler {
     private boolean filter(Message msg) {
         long seqId = msg.getSequenceId();
         msg.setContext(seqId);
-        synchronized (this) {
-            if (seqMap.containsKey(seqId)) {
-                Queue<Message> queue = seqMap.get(seqId);
+        Stripe stripe = stripeOf(seqId);
+        synchronized (stripe) {
+            if (stripe.seqMap.containsKey(seqId)) {
+                Queue<Message> queue = stripe.seqMap.get(seqId);
                 if (queue == null) {
                     queue = new LinkedList<>();
-                    seqMap.put(seqId, queue);
+                    stripe.seqMap.put(seqId, queue);
                 }
                 if (msg.getTrace().shouldTrace(TraceLevel.COMPONENT)) {
                     msg.getTrace().trace(TraceLevel.COMPONENT,
@@ -79,7 +95,7 @@ public class Sequencer implements MessageHandler, ReplyHandler {
                 queue.add(msg);
                 return false;
             }
-            seqMap.put(seqId, null);
+            stripe.seqMap.put(seqId, null);
         }
         return true;
     }
@@ -138,10 +154,11 @@ public class Sequencer implements MessageHandler, ReplyHandler {
                                    "Sequencer received reply with sequence id '" + seqId + "'.");
         }
         Message msg = null;
-        synchronized (this) {
-            Queue<Message> queue = seqMap.get(seqId);
+        Stripe stripe = stripeOf(seqId);
+        synchronized (stripe) {
+            Queue<Message> queue = stripe.seqMap.get(seqId);
             if (queue == null || queue.isEmpty()) {
-                seqMap.remove(seqId);
+                stripe.seqMap.remove(seqId);
             } else {
                 msg = queue.remove();
             }
@@ -153,4 +170,11 @@ public class Sequencer implements MessageHandler, ReplyHandler {
         handler.handleReply(reply);
     }
 
+    /** The sequencing state of the ids in one stripe, guarded by the monitor of the stripe */
+    private static class Stripe {
+
+        final Map<Long, Queue<Message>> seqMap = new HashMap<>();
+
+    }
+
 }
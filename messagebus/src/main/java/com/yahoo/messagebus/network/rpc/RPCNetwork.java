@@ -62,6 +62,9 @@ public class RPCNetwork implements Network, MethodHandler {
     private final TreeMap<Version, RPCSendAdapter> sendAdapters = new TreeMap<>();
     private NetworkOwner owner;
     private final SlobrokConfigSubscriber slobroksConfig;
+    private final int maxBatchBytes;
+    private final double maxBatchDelaySecs;
+    private RPCSendBatcher batcher = null;
     private final LinkedHashMap<String, Route> lruRouteMap = new LinkedHashMap<>(10000, 0.5f, true);
     private final ExecutorService executor =
             new ThreadPoolExecutor(getNumThreads(), getNumThreads(), 0L, TimeUnit.SECONDS,
@@ -87,6 +90,8 @@ public class RPCNetwork implements Network, MethodHandler {
     public RPCNetwork(RPCNetworkParams params, SlobrokConfigSubscriber slobrokConfig) {
         this.slobroksConfig = slobrokConfig;
         identity = params.getIdentity();
+        maxBatchBytes = params.getMaxBatchBytes();
+        maxBatchDelaySecs = params.getMaxBatchDelaySecs();
         orb = new Supervisor(new Transport("mbus-rpc-" + identity.getServicePrefix(), params.getNumNetworkThreads(),
                 shouldEnableTcpNodelay(params.getOptimization()), params.getTransportEventsBeforeWakeup()));
         orb.setMaxInputBufferSize(params.getMaxInputBufferSize());
@@ -185,7 +190,13 @@ public class RPCNetwork implements Network, MethodHandler {
         this.owner = owner;
 
         sendAdapters.put(new Version(5), new RPCSendV1(this));
-        sendAdapters.put(new Version(6,149), new RPCSendV2(this));
+        RPCSendV2 sendV2 = new RPCSendV2(this);
+        if (maxBatchBytes > 0) {
+            batcher = new RPCSendBatcher(this, sendV2, maxBatchDelaySecs, maxBatchBytes);
+            sendAdapters.put(new Version(6,149), batcher);
+        } else {
+            sendAdapters.put(new Version(6,149), sendV2);
+        }
     }
 
     @Override
@@ -270,6 +281,9 @@ public class RPCNetwork implements Network, MethodHandler {
      */
     public boolean destroy() {
         if (!destroyed.getAndSet(true)) {
+            if (batcher != null) {
+                batcher.destroy();
+            }
             if (slobroksConfig != null) {
                 slobroksConfig.shutdown();
             }
@@ -277,6 +291,9 @@ public class RPCNetwork implements Network, MethodHandler {
             mirror.shutdown();
             listener.shutdown().join();
             orb.transport().shutdown().join();
+            if (batcher != null) {
+                batcher.abortPending();
+            }
             targetPool.flushTargets(true);
             executor.shutdown();
             return true;
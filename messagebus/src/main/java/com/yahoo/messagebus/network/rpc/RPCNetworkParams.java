@@ -21,6 +21,8 @@ public class RPCNetworkParams {
     private double connectionExpireSecs = 30;
     private int numTargetsPerSpec = 1;
     private int numNetworkThreads = 2;
+    private int maxBatchBytes = 0;
+    private double maxBatchDelaySecs = 0.001;
 
     private int transportEventsBeforeWakeup = 1;
     public enum Optimization {LATENCY, THROUGHPUT}
@@ -49,6 +51,8 @@ public class RPCNetworkParams {
         numTargetsPerSpec = params.numTargetsPerSpec;
         numNetworkThreads = params.numNetworkThreads;
         optimization = params.optimization;
+        maxBatchBytes = params.maxBatchBytes;
+        maxBatchDelaySecs = params.maxBatchDelaySecs;
     }
 
     /**
@@ -219,6 +223,52 @@ public class RPCNetworkParams {
         return this;
     }
 
+    /**
+     * Returns the number of payload bytes at which a batch of messages to the same target is sent,
+     * or 0 if messages are not batched.
+     *
+     * @return The number of bytes.
+     */
+    public int getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    /**
+     * Sets the number of payload bytes at which a batch of messages to the same target is sent. Batching sends many
+     * small messages in one request, which saves the per-request overhead of sending them one by one, at the cost of
+     * delaying each by up to the max batch delay. Batching requires all targets to support it; messages to targets
+     * which do not are sent one by one. The default value 0 means messages are not batched.
+     *
+     * @param maxBatchBytes The number of bytes.
+     * @return This, to allow chaining.
+     */
+    public RPCNetworkParams setMaxBatchBytes(int maxBatchBytes) {
+        this.maxBatchBytes = maxBatchBytes;
+        return this;
+    }
+
+    /**
+     * Returns the number of seconds the first message of a batch waits for more messages before the batch is sent.
+     *
+     * @return The number of seconds.
+     */
+    public double getMaxBatchDelaySecs() {
+        return maxBatchDelaySecs;
+    }
+
+    /**
+     * Sets the number of seconds the first message of a batch waits for more messages before the batch is sent,
+     * if the batch does not reach the max batch bytes before that. This has no effect unless batching is enabled
+     * by setting max batch bytes.
+     *
+     * @param secs The number of seconds.
+     * @return This, to allow chaining.
+     */
+    public RPCNetworkParams setMaxBatchDelaySecs(double secs) {
+        this.maxBatchDelaySecs = secs;
+        return this;
+    }
+
     public int getTransportEventsBeforeWakeup() {
         return transportEventsBeforeWakeup;
     }
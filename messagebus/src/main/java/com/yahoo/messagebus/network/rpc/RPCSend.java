@@ -117,28 +117,31 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
     private void doRequestDone(Request req) {
         SendContext ctx = (SendContext)req.getContext();
         String serviceName = ((RPCServiceAddress)ctx.recipient.getServiceAddress()).getServiceName();
-        Reply reply;
-        Error error = null;
         if (!req.checkReturnTypes(getReturnSpec())) {
-            // Map all known JRT errors to the appropriate message bus error.
-            reply = new EmptyReply();
-            switch (req.errorCode()) {
-                case com.yahoo.jrt.ErrorCode.TIMEOUT:
-                    error = new Error(ErrorCode.TIMEOUT,
-                            "A timeout occurred while waiting for '" + serviceName + "' (" +
-                                    ctx.timeout + " seconds expired); " + req.errorMessage());
-                    break;
-                case com.yahoo.jrt.ErrorCode.CONNECTION:
-                    error = new Error(ErrorCode.CONNECTION_ERROR,
-                            "A connection error occurred for '" + serviceName + "'; " + req.errorMessage());
-                    break;
-                default:
-                    error = new Error(ErrorCode.NETWORK_ERROR,
-                            "A network error occurred for '" + serviceName + "'; " + req.errorMessage());
-            }
+            replyReceived(ctx, new EmptyReply(), toError(req, serviceName, ctx.timeout));
         } else {
-            reply = createReply(req.returnValues(), serviceName, ctx.trace);
+            replyReceived(ctx, createReply(req.returnValues(), serviceName, ctx.trace), null);
+        }
+    }
+
+    /** Maps all known JRT errors of the given failed request to the appropriate message bus error. */
+    static Error toError(Request req, String serviceName, double timeout) {
+        switch (req.errorCode()) {
+            case com.yahoo.jrt.ErrorCode.TIMEOUT:
+                return new Error(ErrorCode.TIMEOUT,
+                        "A timeout occurred while waiting for '" + serviceName + "' (" +
+                                timeout + " seconds expired); " + req.errorMessage());
+            case com.yahoo.jrt.ErrorCode.CONNECTION:
+                return new Error(ErrorCode.CONNECTION_ERROR,
+                        "A connection error occurred for '" + serviceName + "'; " + req.errorMessage());
+            default:
+                return new Error(ErrorCode.NETWORK_ERROR,
+                        "A network error occurred for '" + serviceName + "'; " + req.errorMessage());
         }
+    }
+
+    /** Passes a reply received for the message of the given send context to its recipient, with the given error, if any. */
+    final void replyReceived(SendContext ctx, Reply reply, Error error) {
         if (ctx.trace.shouldTrace(TraceLevel.SEND_RECEIVE)) {
             ctx.trace.trace(TraceLevel.SEND_RECEIVE,
                     "Reply (type " + reply.getType() + ") received at " + clientIdent + ".");
@@ -173,23 +176,34 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
 
         request.discardParameters(); // allow garbage collection of request parameters
 
+        deliver(p, (reply, version, payload) -> {
+            createResponse(request.returnValues(), reply, version, payload);
+            request.returnRequest();
+        });
+    }
+
+    /**
+     * Decodes the message in the given parameters and delivers it to the session it is sent to.
+     * The reply to the message, or an error reply if it can not be delivered, is encoded and passed to the given responder.
+     */
+    final void deliver(Params p, Responder responder) {
         // Make sure that the owner understands the protocol.
         Protocol protocol = net.getOwner().getProtocol(p.protocolName);
         if (protocol == null) {
-            replyError(request, p.version, protocol, p.traceLevel,
+            replyError(responder, p.version, protocol, p.traceLevel,
                     new Error(ErrorCode.UNKNOWN_PROTOCOL,
                             "Protocol '" + p.protocolName + "' is not known by " + serverIdent + "."));
             return;
         }
         Routable routable = protocol.decode(p.version, p.payload);
         if (routable == null) {
-            replyError(request, p.version, protocol, p.traceLevel,
+            replyError(responder, p.version, protocol, p.traceLevel,
                     new Error(ErrorCode.DECODE_ERROR,
                             "Protocol '" + protocol.getName() + "' failed to decode routable."));
             return;
         }
         if (routable instanceof Reply) {
-            replyError(request, p.version, protocol, p.traceLevel,
+            replyError(responder, p.version, protocol, p.traceLevel,
                     new Error(ErrorCode.DECODE_ERROR,
                             "Payload decoded to a reply when expecting a message."));
             return;
@@ -198,7 +212,7 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
         if (p.route != null && p.route.length() > 0) {
             msg.setRoute(net.getRoute(p.route));
         }
-        msg.setContext(new ReplyContext(request, p.version, protocol));
+        msg.setContext(new ReplyContext(responder, p.version, protocol));
         msg.pushHandler(this);
         msg.setRetryEnabled(p.retryEnabled);
         msg.setRetry(p.retry);
@@ -234,28 +248,33 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
                         "An error occurred while encoding the reply."));
             }
         }
-        createResponse(ctx.request.returnValues(), reply, ctx.version, payload);
-        ctx.request.returnRequest();
+        ctx.responder.respond(reply, ctx.version, payload);
     }
 
     /**
      * Send an error reply for a given request.
      *
-     * @param request    The JRT request to reply to.
+     * @param responder  The responder of the JRT request to reply to.
      * @param version    The version to serialize for.
      * @param traceLevel The trace level to set in the reply.
      * @param protocol   The message protocol to serialize with.
      * @param err        The error to reply with.
      */
-    private void replyError(Request request, Version version, Protocol protocol, int traceLevel, Error err) {
+    private void replyError(Responder responder, Version version, Protocol protocol, int traceLevel, Error err) {
         Reply reply = new EmptyReply();
-        reply.setContext(new ReplyContext(request, version, protocol));
+        reply.setContext(new ReplyContext(responder, version, protocol));
         reply.getTrace().setLevel(traceLevel);
         reply.addError(err);
         handleReply(reply);
     }
 
-    private static class SendContext {
+    /** Returns an encoded reply to the sender of the message it replies to. */
+    @FunctionalInterface
+    interface Responder {
+        void respond(Reply reply, Version version, byte[] payload);
+    }
+
+    static class SendContext {
 
         final RoutingNode recipient;
         final Trace trace;
@@ -270,12 +289,12 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
 
     private static class ReplyContext {
 
-        final Request request;
+        final Responder responder;
         final Version version;
         final Protocol protocol;
 
-        ReplyContext(Request request, Version version, Protocol protocol) {
-            this.request = request;
+        ReplyContext(Responder responder, Version version, Protocol protocol) {
+            this.responder = responder;
             this.version = version;
             this.protocol = protocol;
         }
@@ -0,0 +1,308 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus.network.rpc;
+
+import com.yahoo.component.Version;
+import com.yahoo.concurrent.ThreadFactoryFactory;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.RequestWaiter;
+import com.yahoo.jrt.Target;
+import com.yahoo.jrt.TargetWatcher;
+import com.yahoo.messagebus.EmptyReply;
+import com.yahoo.messagebus.Error;
+import com.yahoo.messagebus.ErrorCode;
+import com.yahoo.messagebus.Reply;
+import com.yahoo.messagebus.TraceLevel;
+import com.yahoo.messagebus.routing.Hop;
+import com.yahoo.messagebus.routing.Route;
+import com.yahoo.messagebus.routing.RoutingNode;
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Inspector;
+import com.yahoo.slime.Slime;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A send adapter which sends messages to the same target in batches, as single "mbus.slime.batch" requests.
+ * A batch is sent when the payloads of its messages reach a number of bytes, or when its first message has
+ * waited for a given time. The reply to each message is returned by the target on its own, as soon as it is
+ * ready, and passed on to the recipient of that message. Each message times out at its own deadline, and fails
+ * with a connection error if the connection to the target is lost before it is replied to.
+ *
+ * Messages whose hop ignores the result, and messages to targets which do not support batching, are sent
+ * one by one by the given send adapter.
+ *
+ * @author bratseth
+ */
+class RPCSendBatcher implements RPCSendAdapter, RequestWaiter {
+
+    private final RPCNetwork net;
+    private final RPCSendV2 sender;
+    private final long maxDelayNanos;
+    private final int maxBytes;
+    private final Map<RPCTarget, Batch> batches = new HashMap<>();
+    private final Map<Long, Batch> sentBatches = new ConcurrentHashMap<>();
+    private final AtomicLong nextBatchId = new AtomicLong();
+    /** The connection specs of targets which do not support batches, until the connection to them is lost */
+    private final Set<String> unsupportedSpecs = ConcurrentHashMap.newKeySet();
+    private final ScheduledThreadPoolExecutor timer =
+            new ScheduledThreadPoolExecutor(1, ThreadFactoryFactory.getDaemonThreadFactory("mbus.batch"));
+
+    RPCSendBatcher(RPCNetwork net, RPCSendV2 sender, double maxDelaySecs, int maxBytes) {
+        this.net = net;
+        this.sender = sender;
+        this.maxDelayNanos = (long)(maxDelaySecs * 1e9);
+        this.maxBytes = maxBytes;
+        timer.setRemoveOnCancelPolicy(true); // timeouts of messages which are replied to are cancelled
+        net.getSupervisor().addMethod(sender.buildBatchReplyMethod(this::receiveReply));
+    }
+
+    @Override
+    public void send(RoutingNode recipient, Version version, byte[] payload, long timeRemaining) {
+        RPCServiceAddress address = (RPCServiceAddress)recipient.getServiceAddress();
+        Route route = new Route(recipient.getRoute());
+        Hop hop = route.removeHop(0);
+        if (hop.getIgnoreResult() || unsupportedSpecs.contains(address.getConnectionSpec().toString())) {
+            sender.send(recipient, version, payload, timeRemaining);
+            return;
+        }
+
+        Entry entry = new Entry(recipient, version, route, payload, timeRemaining);
+        Batch full = null;
+        synchronized (batches) {
+            Batch batch = batches.get(address.getTarget());
+            if (batch == null) {
+                batch = new Batch(nextBatchId.incrementAndGet(), address.getTarget());
+                batches.put(batch.target, batch);
+                Batch scheduled = batch;
+                timer.schedule(() -> flush(scheduled), maxDelayNanos, TimeUnit.NANOSECONDS);
+            }
+            batch.add(entry);
+            if (batch.bytes >= maxBytes) {
+                batches.remove(batch.target);
+                full = batch;
+            }
+        }
+        if (full != null) {
+            full.send();
+        }
+    }
+
+    /** Sends the given batch if it is still waiting to be sent */
+    private void flush(Batch batch) {
+        synchronized (batches) {
+            if ( ! batches.remove(batch.target, batch)) return;
+        }
+        net.getExecutor().execute(batch::send);
+    }
+
+    @Override
+    public void handleRequestDone(Request req) {
+        net.getExecutor().execute(() -> ((Batch)req.getContext()).done(req));
+    }
+
+    /** Receives the reply to a single message in a batch */
+    private void receiveReply(Request request) {
+        request.detach();
+        net.getExecutor().execute(() -> {
+            Inspector root = sender.decodeBatchReply(request.parameters());
+            request.returnRequest();
+            Batch batch = sentBatches.get(RPCSendV2.batchIdOf(root));
+            if (batch == null) return; // all its messages have already timed out
+            batch.replyReceived(RPCSendV2.batchIndexOf(root), root);
+        });
+    }
+
+    /**
+     * Sends messages to the given spec one by one until the connection to it is lost, as the target
+     * may be upgraded to support batches when it is restarted.
+     */
+    private void markUnsupported(String spec, Target target) {
+        if ( ! unsupportedSpecs.add(spec)) return;
+        if ( ! target.addWatcher(lost -> unsupportedSpecs.remove(spec)))
+            unsupportedSpecs.remove(spec); // already lost: check the next connection again
+    }
+
+    /** Returns whether messages to the given connection spec are sent in batches */
+    boolean batchesTo(String connectionSpec) {
+        return ! unsupportedSpecs.contains(connectionSpec);
+    }
+
+    /** Sends all waiting batches, and stops batching */
+    void destroy() {
+        List<Batch> waiting;
+        synchronized (batches) {
+            waiting = new ArrayList<>(batches.values());
+            batches.clear();
+        }
+        waiting.forEach(Batch::send);
+        timer.shutdownNow();
+    }
+
+    /** Replies with an error to all sent messages which are not yet replied to. Call when the network is shut down. */
+    void abortPending() {
+        for (Batch batch : sentBatches.values())
+            batch.abort();
+    }
+
+    private static class Entry {
+
+        final RoutingNode recipient;
+        final Version version;
+        final Route route;
+        final byte[] payload;
+        final long timeRemaining;
+        final long deadlineNanos;
+        final RPCSend.SendContext ctx;
+        final AtomicBoolean replied = new AtomicBoolean(false);
+        volatile ScheduledFuture<?> timeout = null;
+
+        Entry(RoutingNode recipient, Version version, Route route, byte[] payload, long timeRemaining) {
+            this.recipient = recipient;
+            this.version = version;
+            this.route = route;
+            this.payload = payload;
+            this.timeRemaining = timeRemaining;
+            this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeRemaining);
+            this.ctx = new RPCSend.SendContext(recipient, timeRemaining);
+        }
+
+        RPCServiceAddress address() { return (RPCServiceAddress)recipient.getServiceAddress(); }
+
+    }
+
+    private class Batch implements TargetWatcher {
+
+        final long id;
+        final RPCTarget target;
+        final List<Entry> entries = new ArrayList<>();
+        final AtomicInteger pending = new AtomicInteger();
+        int bytes = 0;
+
+        Batch(long id, RPCTarget target) {
+            this.id = id;
+            this.target = target;
+        }
+
+        void add(Entry entry) {
+            entries.add(entry);
+            bytes += entry.payload.length;
+        }
+
+        void send() {
+            Slime slime = new Slime();
+            Cursor messages = RPCSendV2.setBatch(slime, id);
+            long lastDeadlineNanos = System.nanoTime();
+            for (Entry entry : entries) {
+                sender.encodeMessage(messages.addObject(), entry.version, entry.route, entry.address(),
+                                     entry.recipient.getMessage(), entry.timeRemaining, entry.payload,
+                                     entry.ctx.trace.getLevel());
+                lastDeadlineNanos = Math.max(lastDeadlineNanos, entry.deadlineNanos);
+                if (entry.ctx.trace.shouldTrace(TraceLevel.SEND_RECEIVE)) {
+                    entry.ctx.trace.trace(TraceLevel.SEND_RECEIVE,
+                                          "Sending message (version " + entry.version + ") to '" +
+                                          entry.address().getServiceName() + "' in a batch of " + entries.size() +
+                                          " with " + entry.ctx.timeout + " seconds timeout.");
+                }
+            }
+            pending.set(entries.size());
+            sentBatches.put(id, this);
+            target.getJRTTarget().addWatcher(this); // if the target is already lost, the batch request fails instead
+            for (Entry entry : entries)
+                entry.timeout = timer.schedule(() -> net.getExecutor().execute(() -> timeOut(entry)),
+                                               entry.deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+
+            Request req = sender.encodeBatchRequest(slime);
+            req.setContext(this);
+            // Each message times out at its own deadline: This only bounds the wait for the target to accept the batch
+            double timeout = (lastDeadlineNanos - System.nanoTime()) / 1e9;
+            target.getJRTTarget().invokeAsync(req, timeout, RPCSendBatcher.this);
+            req.discardParameters(); // allow garbage collection of request parameters
+        }
+
+        /** Called when the target has accepted the batch, or failed to */
+        void done(Request req) {
+            if (req.checkReturnTypes(sender.getReturnSpec())) return; // replies are received one by one
+
+            if (req.errorCode() == com.yahoo.jrt.ErrorCode.NO_SUCH_METHOD) { // resend one by one
+                markUnsupported(entries.get(0).address().getConnectionSpec().toString(), target.getJRTTarget());
+                for (Entry entry : entries) {
+                    if (claim(entry))
+                        sender.send(entry.recipient, entry.version, entry.payload,
+                                    entry.recipient.getMessage().getTimeRemainingNow());
+                }
+                return;
+            }
+            for (Entry entry : entries) {
+                if (claim(entry))
+                    sender.replyReceived(entry.ctx, new EmptyReply(),
+                                         RPCSend.toError(req, entry.address().getServiceName(), entry.ctx.timeout));
+            }
+        }
+
+        void replyReceived(int index, Inspector root) {
+            if (index < 0 || index >= entries.size()) return;
+            Entry entry = entries.get(index);
+            if ( ! claim(entry)) return; // timed out
+            Reply reply = sender.createReply(root, entry.address().getServiceName(), entry.ctx.trace);
+            sender.replyReceived(entry.ctx, reply, null);
+        }
+
+        private void timeOut(Entry entry) {
+            if ( ! claim(entry)) return;
+            sender.replyReceived(entry.ctx, new EmptyReply(),
+                                 new Error(ErrorCode.TIMEOUT,
+                                           "A timeout occurred while waiting for '" + entry.address().getServiceName() +
+                                           "' (" + entry.ctx.timeout + " seconds expired); the message was sent in a batch."));
+        }
+
+        @Override
+        public void notifyTargetInvalid(Target target) {
+            net.getExecutor().execute(() -> {
+                for (Entry entry : entries) {
+                    if (claim(entry))
+                        sender.replyReceived(entry.ctx, new EmptyReply(),
+                                             new Error(ErrorCode.CONNECTION_ERROR,
+                                                       "A connection error occurred for '" + entry.address().getServiceName() +
+                                                       "'; the connection was lost before it replied to a message sent in a batch."));
+                }
+            });
+        }
+
+        void abort() {
+            for (Entry entry : entries) {
+                if (claim(entry))
+                    sender.replyReceived(entry.ctx, new EmptyReply(),
+                                         new Error(ErrorCode.CONNECTION_ERROR,
+                                                   "The network was shut down before '" + entry.address().getServiceName() +
+                                                   "' replied to a message sent in a batch."));
+            }
+        }
+
+        /** Returns whether the caller is the one to pass on the reply to the given entry */
+        private boolean claim(Entry entry) {
+            if ( ! entry.replied.compareAndSet(false, true)) return false;
+
+            ScheduledFuture<?> timeout = entry.timeout;
+            if (timeout != null)
+                timeout.cancel(false);
+            if (pending.decrementAndGet() == 0) {
+                sentBatches.remove(id);
+                target.getJRTTarget().removeWatcher(this);
+            }
+            return true;
+        }
+
+    }
+
+}
@@ -8,7 +8,9 @@ import com.yahoo.jrt.DataValue;
 import com.yahoo.jrt.Int32Value;
 import com.yahoo.jrt.Int8Value;
 import com.yahoo.jrt.Method;
+import com.yahoo.jrt.MethodHandler;
 import com.yahoo.jrt.Request;
+import com.yahoo.jrt.Target;
 import com.yahoo.jrt.Values;
 import com.yahoo.messagebus.EmptyReply;
 import com.yahoo.messagebus.Error;
@@ -23,8 +25,14 @@ import com.yahoo.slime.Inspector;
 import com.yahoo.slime.Slime;
 import com.yahoo.text.Utf8Array;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
- * Implements the request adapter for method "mbus.slime".
+ * Implements the request adapter for method "mbus.slime", and the receiving side of method "mbus.slime.batch",
+ * which carries a batch of messages in one request. The batch request is returned when its messages are decoded,
+ * and the reply to each message is returned on its own, as soon as it is ready, by invoking
+ * "mbus.slime.batch.reply" back on the sender.
  *
  * @author baldersheim
  */
@@ -33,9 +41,16 @@ public class RPCSendV2 extends RPCSend {
     private final static String METHOD_NAME = "mbus.slime";
     private final static String METHOD_PARAMS = "bixbix";
     private final static String METHOD_RETURN = "bixbix";
+    final static String BATCH_METHOD_NAME = "mbus.slime.batch";
+    final static String BATCH_REPLY_METHOD_NAME = "mbus.slime.batch.reply";
     private final Compressor compressor = new Compressor(CompressionType.LZ4, 3, 0.90, 1024);
+    private final RPCNetwork net;
 
-    protected RPCSendV2(RPCNetwork net) { super(net); }
+    protected RPCSendV2(RPCNetwork net) {
+        super(net);
+        this.net = net;
+        net.getSupervisor().addMethod(buildBatchMethod());
+    }
 
     @Override
     protected String getReturnSpec() { return METHOD_RETURN; }
@@ -59,6 +74,38 @@ public class RPCSendV2 extends RPCSend {
                 .returnDesc(5, "body_payload", "Slime encoded body payload.");
         return method;
     }
+
+    private Method buildBatchMethod() {
+        Method method = new Method(BATCH_METHOD_NAME, METHOD_PARAMS, METHOD_RETURN, this::invokeBatch);
+        method.methodDesc("Send a batch of message bus requests and get all their replies back.");
+        method.paramDesc(0, "header_encoding", "Encoding type of header.")
+                .paramDesc(1, "header_decodedSize", "Number of bytes after header decoding.")
+                .paramDesc(2, "header_payload", "Slime encoded header payload.")
+                .paramDesc(3, "body_encoding", "Encoding type of body.")
+                .paramDesc(4, "body_decoded_ize", "Number of bytes after body decoding.")
+                .paramDesc(5, "body_payload", "Slime encoded body payload, with the batch id and the messages in the 'batch' array.");
+        method.returnDesc(0, "header_encoding", "Encoding type of header.")
+                .returnDesc(1, "header_decoded_size", "Number of bytes after header decoding.")
+                .returnDesc(2, "header_payload", "Slime encoded header payload.")
+                .returnDesc(3, "body_encoding", "Encoding type of body.")
+                .returnDesc(4, "body_encoded_size", "Number of bytes after body decoding.")
+                .returnDesc(5, "body_payload", "Empty slime encoded body payload.");
+        return method;
+    }
+
+    /** Returns the method receiving the replies to batched messages, which must be added by the sender of batches */
+    Method buildBatchReplyMethod(MethodHandler handler) {
+        Method method = new Method(BATCH_REPLY_METHOD_NAME, METHOD_PARAMS, "", handler);
+        method.methodDesc("Return the reply to a message bus request sent in a batch.");
+        method.paramDesc(0, "header_encoding", "Encoding type of header.")
+                .paramDesc(1, "header_decodedSize", "Number of bytes after header decoding.")
+                .paramDesc(2, "header_payload", "Slime encoded header payload.")
+                .paramDesc(3, "body_encoding", "Encoding type of body.")
+                .paramDesc(4, "body_decoded_ize", "Number of bytes after body decoding.")
+                .paramDesc(5, "body_payload", "Slime encoded body payload, with the batch id and index of the message replied to.");
+        return method;
+    }
+
     private static final String VERSION_F = "version";
     private static final String ROUTE_F = "route";
     private static final String SESSION_F = "session";
@@ -74,22 +121,37 @@ public class RPCSendV2 extends RPCSend {
     private static final String CODE_F = "code";
     private static final String BLOB_F = "msg";
     private static final String MSG_F = "msg";
+    private static final String BATCH_F = "batch";
+    private static final String BATCH_ID_F = "batchid";
+    private static final String BATCH_INDEX_F = "batchindex";
 
     @Override
     protected Request encodeRequest(Version version, Route route, RPCServiceAddress address, Message msg,
                                     long timeRemaining, byte[] payload, int traceLevel)
     {
-
         Request req = new Request(METHOD_NAME);
-        Values v = req.parameters();
+        Slime slime = new Slime();
+        encodeMessage(slime.setObject(), version, route, address, msg, timeRemaining, payload, traceLevel);
+        addBody(req.parameters(), slime);
+        return req;
+    }
 
-        v.add(new Int8Value(CompressionType.NONE.getCode()));
-        v.add(new Int32Value(0));
-        v.add(new DataValue(new byte[0]));
+    /** Returns a request sending the batch of messages added to the array set by {@link #setBatch} using {@link #encodeMessage} */
+    Request encodeBatchRequest(Slime slime) {
+        Request req = new Request(BATCH_METHOD_NAME);
+        addBody(req.parameters(), slime);
+        return req;
+    }
 
-        Slime slime = new Slime();
+    /** Sets the id of a batch, and returns the array to add its messages to, in a slime which is to be encoded by {@link #encodeBatchRequest} */
+    static Cursor setBatch(Slime slime, long batchId) {
         Cursor root = slime.setObject();
+        root.setLong(BATCH_ID_F, batchId);
+        return root.setArray(BATCH_F);
+    }
 
+    void encodeMessage(Cursor root, Version version, Route route, RPCServiceAddress address, Message msg,
+                       long timeRemaining, byte[] payload, int traceLevel) {
         root.setString(VERSION_F, version.toUtf8().getBytes());
         root.setString(ROUTE_F, route.toString());
         root.setString(SESSION_F, address.getSessionName());
@@ -99,23 +161,45 @@ public class RPCSendV2 extends RPCSend {
         root.setLong(TIMEREMAINING_F, msg.getTimeRemaining());
         root.setLong(TRACELEVEL_F, traceLevel);
         root.setData(BLOB_F, payload);
+    }
+
+    /** Adds an empty header and the given slime as the compressed body of a request or response */
+    private void addBody(Values v, Slime slime) {
+        v.add(new Int8Value(CompressionType.NONE.getCode()));
+        v.add(new Int32Value(0));
+        v.add(new DataValue(new byte[0]));
 
         Compressor.Compression compressionResult = BinaryFormat.encode_and_compress(slime, compressor);
 
         v.add(new Int8Value(compressionResult.type().getCode()));
         v.add(new Int32Value(compressionResult.uncompressedSize()));
         v.add(new DataValue(compressionResult.data()));
+    }
 
-        return req;
+    /** Returns the root of the slime in the body of a request or response */
+    private Inspector decodeBody(Values v) {
+        CompressionType compression = CompressionType.valueOf(v.get(3).asInt8());
+        byte[] slimeBytes = compressor.decompress(v.get(5).asData(), compression, v.get(4).asInt32());
+        return BinaryFormat.decode(slimeBytes).get();
     }
 
+    /** Returns the root of a reply received by the method built by {@link #buildBatchReplyMethod} */
+    Inspector decodeBatchReply(Values args) {
+        return decodeBody(args);
+    }
+
+    /** Returns the id of the batch of the message replied to by the given decoded batch reply */
+    static long batchIdOf(Inspector reply) { return reply.field(BATCH_ID_F).asLong(); }
+
+    /** Returns the index in its batch of the message replied to by the given decoded batch reply */
+    static int batchIndexOf(Inspector reply) { return (int)reply.field(BATCH_INDEX_F).asLong(); }
+
     @Override
     protected Reply createReply(Values ret, String serviceName, Trace trace) {
-        CompressionType compression = CompressionType.valueOf(ret.get(3).asInt8());
-        byte[] slimeBytes = compressor.decompress(ret.get(5).asData(), compression, ret.get(4).asInt32());
-        Slime slime = BinaryFormat.decode(slimeBytes);
-        Inspector root = slime.get();
+        return createReply(decodeBody(ret), serviceName, trace);
+    }
 
+    Reply createReply(Inspector root, String serviceName, Trace trace) {
         Version version = new Version(new Utf8Array(root.field(VERSION_F).asUtf8()));
         byte[] payload = root.field(BLOB_F).asData();
 
@@ -152,10 +236,10 @@ public class RPCSendV2 extends RPCSend {
     }
 
     protected Params toParams(Values args) {
-        CompressionType compression = CompressionType.valueOf(args.get(3).asInt8());
-        byte[] slimeBytes = compressor.decompress(args.get(5).asData(), compression, args.get(4).asInt32());
-        Slime slime = BinaryFormat.decode(slimeBytes);
-        Inspector root = slime.get();
+        return toParams(decodeBody(args));
+    }
+
+    private Params toParams(Inspector root) {
         Params p = new Params();
         p.version = new Version(new Utf8Array(root.field(VERSION_F).asUtf8()));
         p.route = root.field(ROUTE_F).asString();
@@ -171,13 +255,12 @@ public class RPCSendV2 extends RPCSend {
 
     @Override
     protected void createResponse(Values ret, Reply reply, Version version, byte [] payload) {
-        ret.add(new Int8Value(CompressionType.NONE.getCode()));
-        ret.add(new Int32Value(0));
-        ret.add(new DataValue(new byte[0]));
-
         Slime slime = new Slime();
-        Cursor root = slime.setObject();
+        encodeReply(slime.setObject(), reply, version, payload);
+        addBody(ret, slime);
+    }
 
+    private void encodeReply(Cursor root, Reply reply, Version version, byte [] payload) {
         root.setString(VERSION_F, version.toUtf8().getBytes());
         root.setDouble(RETRYDELAY_F, reply.getRetryDelay());
         root.setString(PROTOCOL_F, reply.getProtocol().getBytes());
@@ -198,12 +281,41 @@ public class RPCSendV2 extends RPCSend {
                 }
             }
         }
+    }
 
-        Compressor.Compression compressionResult = BinaryFormat.encode_and_compress(slime, compressor);
+    private void invokeBatch(Request request) {
+        request.detach();
+        net.getExecutor().execute(() -> doInvokeBatch(request));
+    }
+
+    private void doInvokeBatch(Request request) {
+        Inspector root = decodeBody(request.parameters());
+        long batchId = root.field(BATCH_ID_F).asLong();
+        Inspector batch = root.field(BATCH_F);
+        List<Params> messages = new ArrayList<>(batch.entries());
+        for (int i = 0; i < batch.entries(); i++)
+            messages.add(toParams(batch.entry(i)));
+        Target sender = request.target();
+        request.discardParameters(); // allow garbage collection of request parameters
+        addBody(request.returnValues(), new Slime());
+        request.returnRequest();
 
-        ret.add(new Int8Value(compressionResult.type().getCode()));
-        ret.add(new Int32Value(compressionResult.uncompressedSize()));
-        ret.add(new DataValue(compressionResult.data()));
+        for (int i = 0; i < messages.size(); i++) {
+            int index = i;
+            deliver(messages.get(i), (reply, version, payload) -> returnBatchReply(sender, batchId, index, reply, version, payload));
+        }
+    }
+
+    /** Returns the reply to a message in a batch to its sender, independently of the other messages in the batch */
+    private void returnBatchReply(Target sender, long batchId, int index, Reply reply, Version version, byte[] payload) {
+        Slime slime = new Slime();
+        Cursor root = slime.setObject();
+        root.setLong(BATCH_ID_F, batchId);
+        root.setLong(BATCH_INDEX_F, index);
+        encodeReply(root, reply, version, payload);
+        Request request = new Request(BATCH_REPLY_METHOD_NAME);
+        addBody(request.parameters(), slime);
+        sender.invokeVoid(request);
     }
 
 }
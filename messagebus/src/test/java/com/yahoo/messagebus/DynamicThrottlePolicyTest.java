@@ -307,6 +307,7 @@ public class DynamicThrottlePolicyTest {
         final int[] currentTask;
         final List<Deque<Consumer<Boolean>>> outstandingTasks;
         int pending = 0;
+        int slowdown = 1;
 
         MockServer(int workPerSuccess, int numberOfWorkers, int maximumTaskPerWorker, int workerParallelism) {
             this.workPerSuccess = workPerSuccess;
@@ -332,7 +333,7 @@ public class DynamicThrottlePolicyTest {
                         tasks.pop().accept(false);
                         continue; // Spend work to signal failure to one excess task.
                     }
-                    currentTask[worker] = workPerSuccess; // Start work on next task.
+                    currentTask[worker] = currentWorkPerSuccess(); // Start work on next task.
                 }
                 if (--currentTask[worker] == 0)
                     tasks.poll().accept(true); // Signal success to the completed task.
@@ -347,6 +348,11 @@ public class DynamicThrottlePolicyTest {
 
         int pending() { return pending; }
 
+        /** Sets the factor by which the work per task is multiplied for tasks started from now on */
+        void setSlowdown(int slowdown) { this.slowdown = slowdown; }
+
+        int currentWorkPerSuccess() { return workPerSuccess * slowdown; }
+
     }
 
 }
\ No newline at end of file
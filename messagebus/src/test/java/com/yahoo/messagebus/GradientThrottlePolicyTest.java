@@ -0,0 +1,157 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus;
+
+import com.yahoo.messagebus.DynamicThrottlePolicyTest.MockServer;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+
+import static com.yahoo.messagebus.DynamicThrottlePolicyTest.assertInRange;
+import static com.yahoo.messagebus.DynamicThrottlePolicyTest.error;
+import static com.yahoo.messagebus.DynamicThrottlePolicyTest.message;
+import static com.yahoo.messagebus.DynamicThrottlePolicyTest.success;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives the {@link GradientThrottlePolicy}, and the {@link DynamicThrottlePolicy} for comparison, against the
+ * simulated server of {@link DynamicThrottlePolicyTest}, where the work per operation is increased for the
+ * middle third of each run, as when content nodes are busy merging.
+ *
+ * @author bratseth
+ */
+public class GradientThrottlePolicyTest {
+
+    @Test
+    public void windowFollowsLatency() {
+        CustomTimer timer = new CustomTimer();
+        GradientThrottlePolicy policy = new GradientThrottlePolicy(timer);
+        double initial = policy.getWindowSize();
+
+        replyAfter(10, 30, policy, timer); // flat latency, also with half the window: grow
+        double grown = policy.getWindowSize();
+        assertTrue(grown > initial);
+
+        replyAfter(40, 5, policy, timer); // latency inflated compared to that with half the window: shrink
+        assertTrue(policy.getWindowSize() < grown);
+    }
+
+    @Test
+    public void gradientVersusDynamicWithVariableServiceTime() {
+        long operations = 1_000_000;
+        int workPerSuccess = 6;
+        int numberOfWorkers = 4;
+        int maximumTasksPerWorker = 1000;
+        int workerParallelism = 32;
+
+        CustomTimer gradientTimer = new CustomTimer();
+        GradientThrottlePolicy gradient = new GradientThrottlePolicy(gradientTimer);
+        Summary gradientSummary = run(operations, workPerSuccess, 3, numberOfWorkers, maximumTasksPerWorker, workerParallelism,
+                                      gradientTimer, gradient, gradient::getWindowSize);
+
+        CustomTimer dynamicTimer = new CustomTimer();
+        DynamicThrottlePolicy dynamic = new DynamicThrottlePolicy(dynamicTimer);
+        Summary dynamicSummary = run(operations, workPerSuccess, 3, numberOfWorkers, maximumTasksPerWorker, workerParallelism,
+                                     dynamicTimer, dynamic, dynamic::getWindowSize);
+
+        double minMaxPending = numberOfWorkers * workerParallelism;
+        assertInRange(minMaxPending, gradientSummary.averagePending, 4 * minMaxPending);
+        assertInRange(1, gradientSummary.inefficiency, 1.05);
+        assertInRange(0, gradientSummary.waste, 0);
+        // Trades a little throughput for far lower latency
+        assertInRange(1, dynamicSummary.inefficiency, 1.05);
+        assertInRange(0, gradientSummary.averageLatency, 0.6 * dynamicSummary.averageLatency);
+    }
+
+    /** Sends messages up to the window size, and replies to all of them after the given time, for the given number of rounds */
+    private static void replyAfter(long millis, int rounds, GradientThrottlePolicy policy, CustomTimer timer) {
+        for (int round = 0; round < rounds; round++) {
+            int pending = 0;
+            while (policy.canSend(message, pending)) {
+                policy.processMessage(message);
+                pending++;
+            }
+            timer.millis += millis;
+            for ( ; pending > 0; pending--)
+                policy.processReply(success);
+        }
+    }
+
+    /**
+     * Runs the given number of operations through the given policy against a mock server,
+     * where the work per operation is multiplied by the given slowdown for the middle third of the operations.
+     */
+    private static Summary run(long operations, int workPerSuccess, int slowdown, int numberOfWorkers, int maximumTasksPerWorker,
+                               int workerParallelism, CustomTimer timer, ThrottlePolicy policy, DoubleSupplier window) {
+        System.err.printf("\n### Running %d operations of %d ticks each, %d times slower for a third of them, " +
+                          "through %s against %d workers with parallelism %d and queue size %d\n",
+                          operations, workPerSuccess, slowdown, policy.getClass().getSimpleName(), numberOfWorkers,
+                          workerParallelism, maximumTasksPerWorker);
+
+        MockServer resource = new MockServer(workPerSuccess, numberOfWorkers, maximumTasksPerWorker, workerParallelism);
+        AtomicLong outstanding = new AtomicLong(operations);
+        AtomicLong errors = new AtomicLong(0);
+        AtomicLong latencies = new AtomicLong(0);
+        AtomicLong work = new AtomicLong(0);
+        long ticks = 0;
+        long totalPending = 0;
+        double windows = 0;
+        int[] pending = new int[1];
+        while (outstanding.get() + resource.pending() > 0) {
+            boolean slow = outstanding.get() < operations * 2 / 3 && outstanding.get() > operations / 3;
+            resource.setSlowdown(slow ? slowdown : 1);
+            windows += window.getAsDouble();
+            while (policy.canSend(message, pending[0])) {
+                outstanding.decrementAndGet();
+                policy.processMessage(message);
+                ++pending[0];
+                long sent = timer.millis;
+                resource.send(successful -> {
+                    --pending[0];
+                    latencies.addAndGet(timer.millis - sent);
+                    if (successful) {
+                        work.addAndGet(resource.currentWorkPerSuccess());
+                        policy.processReply(success);
+                    }
+                    else {
+                        errors.incrementAndGet();
+                        outstanding.incrementAndGet();
+                        policy.processReply(error);
+                    }
+                });
+            }
+            ++ticks;
+            totalPending += resource.pending();
+            resource.tick();
+            ++timer.millis;
+        }
+
+        Summary summary = new Summary(ticks / (work.get() / (double) (numberOfWorkers * workerParallelism)),
+                                      errors.get() / (double) operations,
+                                      totalPending / (double) ticks,
+                                      windows / ticks,
+                                      latencies.get() / (double) (operations + errors.get()));
+        System.err.printf("inefficiency %.3f, waste %.3f, average pending %.1f, average window %.1f, average latency %.2f\n",
+                          summary.inefficiency, summary.waste, summary.averagePending, summary.averageWindow, summary.averageLatency);
+        return summary;
+    }
+
+    static class Summary {
+
+        final double inefficiency;
+        final double waste;
+        final double averagePending;
+        final double averageWindow;
+        final double averageLatency;
+
+        Summary(double inefficiency, double waste, double averagePending, double averageWindow, double averageLatency) {
+            this.inefficiency = inefficiency;       // Time spent working / minimum time possible
+            this.waste = waste;                     // Number of error replies / number of successful replies
+            this.averagePending = averagePending;   // Average number of pending operations in the server
+            this.averageWindow = averageWindow;     // Average window size of the policy
+            this.averageLatency = averageLatency;   // Average ticks from sending an operation until its reply
+        }
+
+    }
+
+}
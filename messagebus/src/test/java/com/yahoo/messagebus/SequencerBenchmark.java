@@ -0,0 +1,159 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus;
+
+import com.yahoo.messagebus.test.SimpleMessage;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Measures the throughput of sequenced sends and replies through the striped Sequencer, and through the previous
+ * implementation which guarded all sequencing state by a single monitor, when many threads send concurrently.
+ * This is only meaningful on a host with at least as many cores as sender threads.
+ *
+ * Each sender thread sends messages with random sequence ids, and then replies to one of the messages sent
+ * to the underlying sender, by any thread, such that there are always some messages in flight.
+ *
+ * @author bratseth
+ */
+public class SequencerBenchmark {
+
+    private static final int sequenceIds = 1 << 12;
+    private static final int messagesPerThread = 1 << 18;
+
+    private static final int rounds = 5;
+
+    /** Returns the number of sequenced messages sent and replied to per second */
+    public static double run(int threads, Function<MessageHandler, MessageHandler> sequencers) throws InterruptedException {
+        Queue<Message> sent = new ConcurrentLinkedQueue<>();
+        MessageHandler sequencer = sequencers.apply(sent::add);
+        ReplyHandler replies = reply -> { };
+        AtomicLong replied = new AtomicLong();
+
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int j = 0; j < messagesPerThread; j++) {
+                        Message message = new SequencedMessage(random.nextInt(sequenceIds));
+                        message.pushHandler(replies);
+                        sequencer.handleMessage(message);
+                        if (reply(sent.poll()))
+                            replied.incrementAndGet();
+                    }
+                }
+                catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        done.await();
+        while (replied.get() < (long) threads * messagesPerThread)
+            if (reply(sent.poll()))
+                replied.incrementAndGet();
+        return replied.get() * 1e9 / (System.nanoTime() - startNanos);
+    }
+
+    private static boolean reply(Message message) {
+        if (message == null) return false;
+
+        Reply reply = new EmptyReply();
+        reply.swapState(message);
+        reply.setMessage(message);
+        reply.popHandler().handleReply(reply);
+        return true;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        for (int threads : List.of(1, 8, 32)) {
+            double synchronizedBest = 0, stripedBest = 0;
+            for (int i = 0; i < rounds; i++) { // the first rounds also warm up
+                synchronizedBest = Math.max(synchronizedBest, run(threads, SynchronizedSequencer::new));
+                stripedBest = Math.max(stripedBest, run(threads, Sequencer::new));
+            }
+            System.out.println(String.format(Locale.ENGLISH, "%2d threads: synchronized %10.0f messages/s, striped %10.0f messages/s",
+                                             threads, synchronizedBest, stripedBest));
+        }
+    }
+
+    /** The previous Sequencer, which guards the state of all sequence ids by its own monitor */
+    private static class SynchronizedSequencer implements MessageHandler, ReplyHandler {
+
+        private final MessageHandler sender;
+        private final Map<Long, Queue<Message>> seqMap = new HashMap<>();
+
+        SynchronizedSequencer(MessageHandler sender) {
+            this.sender = sender;
+        }
+
+        @Override
+        public void handleMessage(Message msg) {
+            long seqId = msg.getSequenceId();
+            msg.setContext(seqId);
+            synchronized (this) {
+                if (seqMap.containsKey(seqId)) {
+                    seqMap.computeIfAbsent(seqId, __ -> new LinkedList<>()).add(msg);
+                    return;
+                }
+                seqMap.put(seqId, null);
+            }
+            msg.pushHandler(this);
+            sender.handleMessage(msg);
+        }
+
+        @Override
+        public void handleReply(Reply reply) {
+            long seqId = (Long) reply.getContext();
+            Message msg = null;
+            synchronized (this) {
+                Queue<Message> queue = seqMap.get(seqId);
+                if (queue == null || queue.isEmpty())
+                    seqMap.remove(seqId);
+                else
+                    msg = queue.remove();
+            }
+            if (msg != null) {
+                msg.pushHandler(this);
+                sender.handleMessage(msg);
+            }
+            reply.popHandler().handleReply(reply);
+        }
+
+    }
+
+    private static class SequencedMessage extends SimpleMessage {
+
+        private final long sequenceId;
+
+        SequencedMessage(long sequenceId) {
+            super("benchmark");
+            this.sequenceId = sequenceId;
+        }
+
+        @Override
+        public boolean hasSequenceId() { return true; }
+
+        @Override
+        public long getSequenceId() { return sequenceId; }
+
+    }
+
+}
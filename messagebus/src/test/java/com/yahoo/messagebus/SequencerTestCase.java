@@ -4,8 +4,14 @@ package com.yahoo.messagebus;
 import com.yahoo.messagebus.test.SimpleMessage;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -104,6 +110,59 @@ public class SequencerTestCase {
         assertEquals(0, dst.size());
     }
 
+    @Test
+    public void testConcurrentSenders() throws InterruptedException {
+        int threads = 4;
+        int messagesPerThread = 10000;
+        Queue<Message> sent = new ConcurrentLinkedQueue<>();
+        Map<Long, Integer> inFlight = new ConcurrentHashMap<>();
+        Map<List<Long>, Integer> lastSent = new ConcurrentHashMap<>();
+        AtomicInteger errors = new AtomicInteger();
+        Sequencer seq = new Sequencer(msg -> {
+            OrderedMessage message = (OrderedMessage) msg;
+            if (inFlight.merge(message.seqId, 1, Integer::sum) > 1)
+                errors.incrementAndGet(); // More than one message with this id sent at the same time.
+            if (lastSent.getOrDefault(List.of(message.seqId, (long) message.sender), -1) >= message.index)
+                errors.incrementAndGet(); // Messages from one sender with this id were not sent in order.
+            lastSent.put(List.of(message.seqId, (long) message.sender), message.index);
+            sent.add(msg);
+        });
+        AtomicInteger replies = new AtomicInteger();
+        ReplyHandler replyCounter = reply -> replies.incrementAndGet();
+
+        List<Thread> senders = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int sender = i;
+            senders.add(new Thread(() -> {
+                for (int j = 0; j < messagesPerThread; j++) {
+                    Message msg = new OrderedMessage(j % 16, sender, j);
+                    msg.pushHandler(replyCounter);
+                    seq.handleMessage(msg);
+                    replyTo(sent.poll(), inFlight);
+                }
+            }));
+        }
+        senders.forEach(Thread::start);
+        for (Thread sender : senders)
+            sender.join();
+        while (replies.get() < threads * messagesPerThread)
+            replyTo(sent.poll(), inFlight);
+
+        assertEquals(0, errors.get());
+        assertTrue(sent.isEmpty());
+        assertTrue(inFlight.values().stream().allMatch(count -> count == 0));
+    }
+
+    private static void replyTo(Message msg, Map<Long, Integer> inFlight) {
+        if (msg == null) return;
+
+        inFlight.merge(msg.getSequenceId(), -1, Integer::sum);
+        Reply reply = new EmptyReply();
+        reply.swapState(msg);
+        reply.setMessage(msg);
+        reply.popHandler().handleReply(reply);
+    }
+
     @SuppressWarnings("serial")
     private static class TestQueue extends LinkedList<Routable> implements ReplyHandler {
 
@@ -183,5 +242,17 @@ public class SequencerTestCase {
         }
     }
 
+    private static class OrderedMessage extends MyMessage {
+
+        final int sender;
+        final int index;
+
+        OrderedMessage(long seqId, int sender, int index) {
+            super(true, seqId);
+            this.sender = sender;
+            this.index = index;
+        }
+    }
+
 }
 
@@ -0,0 +1,223 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus.network.rpc;
+
+import com.yahoo.component.Vtag;
+import com.yahoo.jrt.ListenFailedException;
+import com.yahoo.jrt.Method;
+import com.yahoo.jrt.slobrok.server.Slobrok;
+import com.yahoo.messagebus.DestinationSession;
+import com.yahoo.messagebus.DestinationSessionParams;
+import com.yahoo.messagebus.ErrorCode;
+import com.yahoo.messagebus.Message;
+import com.yahoo.messagebus.MessageBusParams;
+import com.yahoo.messagebus.Reply;
+import com.yahoo.messagebus.SourceSession;
+import com.yahoo.messagebus.SourceSessionParams;
+import com.yahoo.messagebus.network.Identity;
+import com.yahoo.messagebus.network.rpc.test.TestServer;
+import com.yahoo.messagebus.routing.Route;
+import com.yahoo.messagebus.test.Receptor;
+import com.yahoo.messagebus.test.SimpleMessage;
+import com.yahoo.messagebus.test.SimpleProtocol;
+import com.yahoo.messagebus.test.SimpleReply;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author bratseth
+ */
+public class BatchingTestCase {
+
+    private Slobrok slobrok;
+    private TestServer srcServer, dstServer;
+    private SourceSession srcSession;
+    private DestinationSession dstSession;
+
+    @Before
+    public void setUp() throws ListenFailedException, UnknownHostException {
+        slobrok = new Slobrok();
+        dstServer = new TestServer(new MessageBusParams().addProtocol(new SimpleProtocol()),
+                                   new RPCNetworkParams().setIdentity(new Identity("dst"))
+                                                         .setSlobrokConfigId(TestServer.getSlobrokConfig(slobrok)));
+        dstSession = dstServer.mb.createDestinationSession(new DestinationSessionParams().setName("session")
+                                                                                        .setMessageHandler(new Receptor()));
+        srcServer = new TestServer(new MessageBusParams().addProtocol(new SimpleProtocol()),
+                                   new RPCNetworkParams().setSlobrokConfigId(TestServer.getSlobrokConfig(slobrok))
+                                                         .setMaxBatchBytes(100)
+                                                         .setMaxBatchDelaySecs(0.01));
+        srcSession = srcServer.mb.createSourceSession(new SourceSessionParams().setTimeout(600.0)
+                                                                              .setThrottlePolicy(null)
+                                                                              .setReplyHandler(new Receptor()));
+        assertTrue(srcServer.waitSlobrok("dst/session", 1));
+    }
+
+    @After
+    public void tearDown() {
+        slobrok.stop();
+        dstSession.destroy();
+        dstServer.destroy();
+        srcSession.destroy();
+        srcServer.destroy();
+    }
+
+    @Test
+    public void requireThatBatchedMessagesAreDeliveredAndRepliedTo() {
+        assertTrue(srcServer.net.getSendAdapter(Vtag.currentVersion) instanceof RPCSendBatcher);
+        int count = 50; // some batches are sent when full, and the last on timeout
+        for (int i = 0; i < count; i++)
+            assertTrue(srcSession.send(new SimpleMessage("message " + i), Route.parse("dst/session")).isAccepted());
+
+        Receptor messages = (Receptor)dstSession.getMessageHandler();
+        Set<String> received = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            Message msg = messages.getMessage(60);
+            assertNotNull(msg);
+            received.add(((SimpleMessage)msg).getValue());
+            Reply reply = new SimpleReply("reply to " + ((SimpleMessage)msg).getValue());
+            reply.swapState(msg);
+            dstSession.reply(reply);
+        }
+        assertEquals(count, received.size());
+
+        Receptor replies = (Receptor)srcSession.getReplyHandler();
+        Set<String> replied = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            Reply reply = replies.getReply(60);
+            assertNotNull(reply);
+            assertFalse(reply.getTrace().toString(), reply.hasErrors());
+            replied.add(((SimpleReply)reply).getValue());
+        }
+        assertEquals(count, replied.size());
+        assertTrue(replied.contains("reply to message 0"));
+    }
+
+    @Test
+    public void requireThatEachReplyIsReturnedWhenReady() {
+        for (String value : List.of("a", "b", "c"))
+            assertTrue(srcSession.send(new SimpleMessage(value), Route.parse("dst/session")).isAccepted());
+        Map<String, Message> received = receive(3);
+
+        reply(received.get("c"));
+        assertReply("c", ((Receptor)srcSession.getReplyHandler()).getReply(60));
+        assertNull(((Receptor)srcSession.getReplyHandler()).getReply(1));
+
+        reply(received.get("a"));
+        reply(received.get("b"));
+        Set<String> replied = new HashSet<>();
+        for (int i = 0; i < 2; i++) {
+            Reply reply = ((Receptor)srcSession.getReplyHandler()).getReply(60);
+            assertNotNull(reply);
+            assertFalse(reply.getTrace().toString(), reply.hasErrors());
+            replied.add(((SimpleReply)reply).getValue());
+        }
+        assertEquals(Set.of("reply to a", "reply to b"), replied);
+    }
+
+    @Test
+    public void requireThatEachMessageTimesOutAtItsOwnDeadline() {
+        Message shortLived = new SimpleMessage("a");
+        shortLived.setTimeRemaining(200);
+        assertTrue(srcSession.send(shortLived, Route.parse("dst/session")).isAccepted());
+        assertTrue(srcSession.send(new SimpleMessage("b"), Route.parse("dst/session")).isAccepted());
+        Map<String, Message> received = receive(2);
+
+        Reply timedOut = ((Receptor)srcSession.getReplyHandler()).getReply(60);
+        assertNotNull(timedOut);
+        assertEquals(ErrorCode.TIMEOUT, timedOut.getError(0).getCode());
+        assertNull(((Receptor)srcSession.getReplyHandler()).getReply(1));
+
+        reply(received.get("b"));
+        assertReply("b", ((Receptor)srcSession.getReplyHandler()).getReply(60));
+        reply(received.get("a")); // too late: not passed on
+        assertNull(((Receptor)srcSession.getReplyHandler()).getReply(1));
+    }
+
+    @Test
+    public void requireThatMessagesFailWhenTheConnectionIsLost() {
+        for (String value : List.of("a", "b")) {
+            Message msg = new SimpleMessage(value);
+            msg.setRetryEnabled(false);
+            assertTrue(srcSession.send(msg, Route.parse("dst/session")).isAccepted());
+        }
+        receive(2);
+
+        dstSession.destroy();
+        dstServer.destroy(); // closes the connection before the messages are replied to
+        for (int i = 0; i < 2; i++) {
+            Reply reply = ((Receptor)srcSession.getReplyHandler()).getReply(60); // far less than the 600 second timeout
+            assertNotNull(reply);
+            assertEquals(reply.getTrace().toString(), ErrorCode.CONNECTION_ERROR, reply.getError(0).getCode());
+        }
+        assertNull(((Receptor)srcSession.getReplyHandler()).getReply(1));
+    }
+
+    @Test
+    public void requireThatTargetsNotSupportingBatchesAreCheckedAgainWhenReconnected() throws InterruptedException {
+        AtomicInteger batchRequests = new AtomicInteger();
+        ((RPCNetwork)dstServer.net).getSupervisor().addMethod(new Method(RPCSendV2.BATCH_METHOD_NAME, "bixbix", "bixbix", request -> {
+            batchRequests.incrementAndGet();
+            request.setError(com.yahoo.jrt.ErrorCode.NO_SUCH_METHOD, "Batches are not supported by this target");
+        }));
+        RPCSendBatcher batcher = (RPCSendBatcher)srcServer.net.getSendAdapter(Vtag.currentVersion);
+        String spec = dstServer.net.getConnectionSpec();
+
+        sendAndReply("a");
+        assertEquals(1, batchRequests.get());
+        assertFalse(batcher.batchesTo(spec));
+        sendAndReply("b"); // sent without trying to batch
+        assertEquals(1, batchRequests.get());
+
+        srcServer.net.flushTargetPool(); // closes the connection, as when the target is restarted
+        long deadline = System.currentTimeMillis() + 60_000;
+        while ( ! batcher.batchesTo(spec)) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        sendAndReply("c");
+        assertEquals(2, batchRequests.get());
+    }
+
+    private void sendAndReply(String value) {
+        assertTrue(srcSession.send(new SimpleMessage(value), Route.parse("dst/session")).isAccepted());
+        reply(receive(1).get(value));
+        assertReply(value, ((Receptor)srcSession.getReplyHandler()).getReply(60));
+    }
+
+    private Map<String, Message> receive(int count) {
+        Map<String, Message> received = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            Message msg = ((Receptor)dstSession.getMessageHandler()).getMessage(60);
+            assertNotNull(msg);
+            received.put(((SimpleMessage)msg).getValue(), msg);
+        }
+        return received;
+    }
+
+    private void reply(Message msg) {
+        Reply reply = new SimpleReply("reply to " + ((SimpleMessage)msg).getValue());
+        reply.swapState(msg);
+        dstSession.reply(reply);
+    }
+
+    private static void assertReply(String value, Reply reply) {
+        assertNotNull(reply);
+        assertFalse(reply.getTrace().toString(), reply.hasErrors());
+        assertEquals("reply to " + value, ((SimpleReply)reply).getValue());
+    }
+
+}
@@ -0,0 +1,188 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Label;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorAddress;
+import com.yahoo.tensor.TensorType;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Splits tensors holding a batch of entries along a batch dimension into the entries,
+ * and joins entries into such batch tensors.
+ *
+ * @author bratseth
+ */
+class BatchTensors {
+
+    private BatchTensors() {}
+
+    /**
+     * Returns the entries of the given batch, which are the subspaces at each index of the batch dimension.
+     *
+     * @throws IllegalArgumentException if the batch does not have the given batch dimension as an indexed dimension
+     */
+    static List<Tensor> split(Tensor batch, String batchDimension) {
+        TensorType type = boundType(batch);
+        int batchIndex = requireIndexedDimension(type, batchDimension);
+        int size = type.dimensions().get(batchIndex).size().get().intValue();
+        TensorType entryType = without(type, batchDimension);
+
+        Tensor.Builder[] builders = new Tensor.Builder[size];
+        for (int i = 0; i < size; i++)
+            builders[i] = Tensor.Builder.of(entryType);
+        for (Iterator<Tensor.Cell> i = batch.cellIterator(); i.hasNext(); ) {
+            Tensor.Cell cell = i.next();
+            builders[(int)cell.getKey().numericLabel(batchIndex)].cell(remove(cell.getKey(), batchIndex), cell.getValue());
+        }
+
+        List<Tensor> entries = new ArrayList<>(size);
+        for (Tensor.Builder builder : builders)
+            entries.add(builder.build());
+        return entries;
+    }
+
+    /** Returns a batch tensor having the given entries at each index of the given batch dimension */
+    static Tensor join(List<Tensor> entries, String batchDimension) {
+        TensorType type = new TensorType.Builder(boundType(entries.get(0))).indexed(batchDimension, entries.size()).build();
+        int batchIndex = type.indexOfDimension(batchDimension).get();
+        Tensor.Builder builder = Tensor.Builder.of(type);
+        for (int i = 0; i < entries.size(); i++) {
+            for (Iterator<Tensor.Cell> cells = entries.get(i).cellIterator(); cells.hasNext(); ) {
+                Tensor.Cell cell = cells.next();
+                builder.cell(insert(cell.getKey(), batchIndex, i), cell.getValue());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the entries of the given batch concatenated along an indexed dimension of the entries,
+     * or empty if the batch does not have both dimensions.
+     * This is the inverse of split(tensor, dimension, size).
+     */
+    static Optional<Tensor> concatenate(Tensor batch, String batchDimension, String dimension) {
+        TensorType type = boundType(batch);
+        Optional<Integer> batchIndex = type.indexOfDimension(batchDimension);
+        Optional<Integer> dimensionIndex = type.indexOfDimension(dimension);
+        if (batchIndex.isEmpty() || dimensionIndex.isEmpty()) return Optional.empty();
+        Optional<Long> batchSize = type.dimensions().get(batchIndex.get()).size();
+        Optional<Long> entrySize = type.dimensions().get(dimensionIndex.get()).size();
+        if (batchSize.isEmpty() || entrySize.isEmpty()) return Optional.empty();
+
+        TensorType resultType = withSize(without(type, batchDimension), dimension, batchSize.get() * entrySize.get());
+        int resultIndex = resultType.indexOfDimension(dimension).get();
+        Tensor.Builder builder = Tensor.Builder.of(resultType);
+        for (Iterator<Tensor.Cell> i = batch.cellIterator(); i.hasNext(); ) {
+            Tensor.Cell cell = i.next();
+            long label = cell.getKey().numericLabel(batchIndex.get()) * entrySize.get() +
+                         cell.getKey().numericLabel(dimensionIndex.get());
+            builder.cell(remove(cell.getKey(), batchIndex.get()).withLabel(resultIndex, label), cell.getValue());
+        }
+        return Optional.of(builder.build());
+    }
+
+    /**
+     * Returns the given tensor split into the given number of equally sized parts along an indexed dimension,
+     * or empty if it does not have this dimension, or its size is not divisible by the number of parts.
+     */
+    static Optional<List<Tensor>> split(Tensor tensor, String dimension, int parts) {
+        TensorType type = boundType(tensor);
+        Optional<Integer> index = type.indexOfDimension(dimension);
+        if (index.isEmpty()) return Optional.empty();
+        Optional<Long> size = type.dimensions().get(index.get()).size();
+        if (size.isEmpty() || size.get() % parts != 0) return Optional.empty();
+
+        long partSize = size.get() / parts;
+        TensorType partType = withSize(type, dimension, partSize);
+        Tensor.Builder[] builders = new Tensor.Builder[parts];
+        for (int i = 0; i < parts; i++)
+            builders[i] = Tensor.Builder.of(partType);
+        for (Iterator<Tensor.Cell> i = tensor.cellIterator(); i.hasNext(); ) {
+            Tensor.Cell cell = i.next();
+            long label = cell.getKey().numericLabel(index.get());
+            builders[(int)(label / partSize)].cell(cell.getKey().withLabel(index.get(), label % partSize), cell.getValue());
+        }
+
+        List<Tensor> result = new ArrayList<>(parts);
+        for (Tensor.Builder builder : builders)
+            result.add(builder.build());
+        return Optional.of(result);
+    }
+
+    /** Returns whether the given type has the given dimension as an unbound indexed dimension */
+    static boolean hasUnboundDimension(TensorType type, String dimension) {
+        return type.dimension(dimension).map(d -> d.type() == TensorType.Dimension.Type.indexedUnbound).orElse(false);
+    }
+
+    private static int requireIndexedDimension(TensorType type, String dimension) {
+        Optional<Integer> index = type.indexOfDimension(dimension);
+        if (index.isEmpty() || type.dimensions().get(index.get()).size().isEmpty())
+            throw new IllegalArgumentException("Expected a batch tensor with the indexed dimension '" + dimension +
+                                               "', but got a tensor of type " + type);
+        return index.get();
+    }
+
+    /** Returns the type of the given tensor, with unbound dimensions bound to their actual size */
+    private static TensorType boundType(Tensor tensor) {
+        if ( ! (tensor instanceof IndexedTensor)) return tensor.type();
+        if (tensor.type().dimensions().stream().noneMatch(d -> d.type() == TensorType.Dimension.Type.indexedUnbound))
+            return tensor.type();
+
+        IndexedTensor indexed = (IndexedTensor)tensor;
+        TensorType.Builder builder = new TensorType.Builder(tensor.type().valueType());
+        for (int i = 0; i < tensor.type().dimensions().size(); i++)
+            builder.indexed(tensor.type().dimensions().get(i).name(), indexed.dimensionSizes().size(i));
+        return builder.build();
+    }
+
+    private static TensorType without(TensorType type, String dimension) {
+        TensorType.Builder builder = new TensorType.Builder(type.valueType());
+        for (TensorType.Dimension d : type.dimensions())
+            if ( ! d.name().equals(dimension))
+                builder.dimension(d);
+        return builder.build();
+    }
+
+    private static TensorType withSize(TensorType type, String dimension, long size) {
+        TensorType.Builder builder = new TensorType.Builder(type.valueType());
+        for (TensorType.Dimension d : type.dimensions()) {
+            if (d.name().equals(dimension))
+                builder.indexed(dimension, size);
+            else
+                builder.dimension(d);
+        }
+        return builder.build();
+    }
+
+    private static TensorAddress remove(TensorAddress address, int index) {
+        int[] retainedIndexes = new int[address.size() - 1];
+        for (int i = 0, j = 0; i < address.size(); i++)
+            if (i != index)
+                retainedIndexes[j++] = i;
+        return address.partialCopy(retainedIndexes);
+    }
+
+    private static TensorAddress insert(TensorAddress address, int index, long label) {
+        long[] labelIds = new long[address.size() + 1];
+        for (int i = 0, j = 0; i < labelIds.length; i++) {
+            if (i == index) continue;
+            labelIds[i] = address.labelId(j++);
+            if (labelIds[i] == Label.noId) return insertLabel(address, index, label);
+        }
+        return TensorAddress.ofLabelIds(labelIds).withLabel(index, label);
+    }
+
+    private static TensorAddress insertLabel(TensorAddress address, int index, long label) {
+        String[] labels = new String[address.size() + 1];
+        for (int i = 0, j = 0; i < labels.length; i++)
+            labels[i] = i == index ? String.valueOf(label) : address.label(j++);
+        return TensorAddress.of(labels);
+    }
+
+}
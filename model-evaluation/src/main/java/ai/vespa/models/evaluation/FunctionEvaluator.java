@@ -2,13 +2,19 @@
 package ai.vespa.models.evaluation;
 
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.evaluation.CompiledExpression;
 import com.yahoo.searchlib.rankingexpression.evaluation.StringValue;
 import com.yahoo.searchlib.rankingexpression.evaluation.TensorValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestBatchEvaluator;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
@@ -21,11 +27,24 @@ public class FunctionEvaluator {
 
     private final ExpressionFunction function;
     private final LazyArrayContext context;
+
+    /** The compiled function, or empty if it can only be evaluated by interpreting the expression */
+    private final Optional<CompiledExpression> compiled;
+
+    /** The batch evaluator of this function if it is a decision forest over arguments only, or empty otherwise */
+    private final Optional<GBDTForestBatchEvaluator> forest;
+
+    /** The dimension in which the ONNX models of this function accept a batch of inputs, or empty if not known */
+    private Optional<String> onnxBatchDimension = Optional.empty();
+
     private boolean evaluated = false;
 
-    FunctionEvaluator(ExpressionFunction function, LazyArrayContext context) {
+    FunctionEvaluator(ExpressionFunction function, LazyArrayContext context,
+                      Optional<CompiledExpression> compiled, Optional<GBDTForestBatchEvaluator> forest) {
         this.function = function;
         this.context = context;
+        this.compiled = compiled;
+        this.forest = forest;
     }
 
     /**
@@ -38,16 +57,20 @@ public class FunctionEvaluator {
     public FunctionEvaluator bind(String name, Tensor value) {
         if (evaluated)
             throw new IllegalStateException("Cannot bind a new value in a used evaluator");
+        validateArgument(name, value.type());
+        context.put(name, new TensorValue(value));
+        return this;
+    }
+
+    private void validateArgument(String name, TensorType type) {
         TensorType requiredType = function.argumentTypes().get(name);
         if (requiredType == null)
             throw new IllegalArgumentException("'" + name + "' is not a valid argument in " + function +
                                                ". Expected arguments: " + function.argumentTypes().entrySet().stream()
                                                                                   .map(e -> e.getKey() + ": " + e.getValue())
                                                                                   .collect(Collectors.joining(", ")));
-        if ( ! value.type().isAssignableTo(requiredType))
-            throw new IllegalArgumentException("'" + name + "' must be of type " + requiredType + ", not " + value.type());
-        context.put(name, new TensorValue(value));
-        return this;
+        if ( ! type.isAssignableTo(requiredType))
+            throw new IllegalArgumentException("'" + name + "' must be of type " + requiredType + ", not " + type);
     }
 
     /**
@@ -100,15 +123,185 @@ public class FunctionEvaluator {
         return setMissingValue(Tensor.Builder.of(TensorType.empty).cell(value).build());
     }
 
+    /**
+     * Sets the dimension in which the ONNX models evaluated by this function accept a batch of inputs.
+     * Batches of tensors are then evaluated by each model once for the whole batch, with the inputs of all entries
+     * concatenated along this dimension, if it is an unbound dimension of all the inputs and of the output.
+     * ONNX models are otherwise evaluated once for each entry in a batch, as an unbound dimension of a model
+     * need not hold a batch, but may, e.g., hold a sequence.
+     *
+     * @param dimension the name of the batch dimension of the ONNX models, e.g. "d0"
+     * @return this for chaining
+     */
+    public FunctionEvaluator setOnnxBatchDimension(String dimension) {
+        if (evaluated)
+            throw new IllegalStateException("Cannot change the ONNX batch dimension in a used evaluator");
+        onnxBatchDimension = Optional.of(dimension);
+        return this;
+    }
+
     public Tensor evaluate() {
         for (Map.Entry<String, TensorType> argument : function.argumentTypes().entrySet()) {
             checkArgument(argument.getKey(), argument.getValue());
         }
         evaluated = true;
+        return evaluateBound();
+    }
+
+    /** Evaluates this with the values currently bound in the context of this, which must be valid */
+    private Tensor evaluateBound() {
         evaluateOnnxModels();
+        if (compiled.isPresent() && context.defaultValue().hasDouble()) // unbound arguments may otherwise be tensors
+            return Tensor.Builder.of(TensorType.empty).cell(compiled.get().evaluate(context)).build();
         return function.getBody().evaluate(context).asTensor();
     }
 
+    /**
+     * Evaluates this function once for each of a batch of scalar argument values.
+     * This is equivalent to, but faster than, binding each set of values in a separate evaluator
+     * created the same way as this, including the values bound in this, and evaluating it.
+     * Functions which are decision forests are evaluated for the whole batch in one pass.
+     *
+     * @param arguments arrays of the values to bind to each argument, by argument name,
+     *                  holding one value per evaluation. All the arrays must have the same length.
+     *                  Arguments not included must be bound in this or have a valid missing value.
+     * @return the value of this function for each evaluation
+     */
+    public double[] evaluate(Map<String, double[]> arguments) {
+        if (evaluated)
+            throw new IllegalStateException("Cannot evaluate a used evaluator again");
+        int size = batchSize(arguments);
+        for (Map.Entry<String, TensorType> argument : function.argumentTypes().entrySet()) {
+            if ( ! arguments.containsKey(argument.getKey()))
+                checkArgument(argument.getKey(), argument.getValue());
+        }
+        evaluated = true;
+
+        double[] result = new double[size];
+        if (forest.isPresent() && context.defaultValue().hasDouble()) {
+            double[][] columns = new double[context.size()][];
+            for (String name : context.names()) {
+                int index = context.getIndex(name);
+                columns[index] = arguments.containsKey(name) ? arguments.get(name) : filled(size, context.getDouble(index));
+            }
+            forest.get().evaluate(columns, size, result);
+            return result;
+        }
+
+        FunctionEvaluator evaluator = copy();
+        int[] indexes = new int[arguments.size()];
+        double[][] values = new double[arguments.size()][];
+        int argumentIndex = 0;
+        for (Map.Entry<String, double[]> argument : arguments.entrySet()) {
+            indexes[argumentIndex] = evaluator.context.getIndex(argument.getKey());
+            values[argumentIndex++] = argument.getValue();
+        }
+        for (int i = 0; i < size; i++) {
+            if (i > 0)
+                evaluator.context.resetTo(context);
+            for (int j = 0; j < indexes.length; j++)
+                evaluator.context.put(indexes[j], values[j][i]);
+            result[i] = evaluator.evaluateBound().asDouble();
+        }
+        return result;
+    }
+
+    /**
+     * Evaluates this function once for each entry in a batch of tensor arguments.
+     * This is equivalent to, but faster than, binding each entry in a separate evaluator
+     * created the same way as this, including the values bound in this, and evaluating it.
+     * ONNX models whose inputs are all given in the batch are evaluated once for the whole batch
+     * if their batch dimension is set by {@link #setOnnxBatchDimension}, and once for each entry otherwise.
+     *
+     * @param batchDimension the name of the indexed dimension holding the entries of the batch in each argument
+     * @param arguments the values to bind to each argument, by argument name, where each has the type of the argument
+     *                  with the batch dimension added. The batch dimension must have the same size in all arguments.
+     *                  Arguments not included must be bound in this or have a valid missing value.
+     * @return the value of this function for each entry, with the batch dimension added
+     */
+    public Tensor evaluate(String batchDimension, Map<String, Tensor> arguments) {
+        if (evaluated)
+            throw new IllegalStateException("Cannot evaluate a used evaluator again");
+        if (arguments.isEmpty())
+            throw new IllegalArgumentException("At least one argument must be given values");
+
+        int size = -1;
+        Map<String, List<Tensor>> entries = new HashMap<>();
+        for (Map.Entry<String, Tensor> argument : arguments.entrySet()) {
+            List<Tensor> argumentEntries = BatchTensors.split(argument.getValue(), batchDimension);
+            if (size >= 0 && argumentEntries.size() != size)
+                throw new IllegalArgumentException("All arguments must have the same size of the batch dimension '" +
+                                                   batchDimension + "', but '" + argument.getKey() + "' has " +
+                                                   argumentEntries.size() + " while others have " + size);
+            size = argumentEntries.size();
+            if (size > 0)
+                validateArgument(argument.getKey(), argumentEntries.get(0).type());
+            entries.put(argument.getKey(), argumentEntries);
+        }
+        if (size == 0)
+            throw new IllegalArgumentException("The batch dimension '" + batchDimension + "' cannot be empty");
+        for (Map.Entry<String, TensorType> argument : function.argumentTypes().entrySet()) {
+            if ( ! arguments.containsKey(argument.getKey()))
+                checkArgument(argument.getKey(), argument.getValue());
+        }
+        evaluated = true;
+
+        entries.putAll(evaluateOnnxModels(batchDimension, arguments, size));
+        FunctionEvaluator evaluator = copy();
+        int[] indexes = new int[entries.size()];
+        List<List<Tensor>> values = new ArrayList<>(entries.size());
+        for (Map.Entry<String, List<Tensor>> entry : entries.entrySet()) {
+            indexes[values.size()] = evaluator.context.getIndex(entry.getKey());
+            values.add(entry.getValue());
+        }
+        List<Tensor> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            if (i > 0)
+                evaluator.context.resetTo(context);
+            for (int j = 0; j < indexes.length; j++)
+                evaluator.context.put(indexes[j], new TensorValue(values.get(j).get(i)));
+            results.add(evaluator.evaluateBound());
+        }
+        return BatchTensors.join(results, batchDimension);
+    }
+
+    /**
+     * Returns a new evaluator of the function of this, having the same bindings and missing value as this.
+     * Batches are evaluated by rebinding the arguments of a single copy for each entry.
+     */
+    private FunctionEvaluator copy() {
+        LazyArrayContext contextCopy = context.copy();
+        contextCopy.setMissingValue(context.defaultValue().asTensor());
+        return new FunctionEvaluator(function, contextCopy, compiled, Optional.empty());
+    }
+
+    /** Validates the given batch arguments and returns the batch size */
+    private int batchSize(Map<String, double[]> arguments) {
+        int size = -1;
+        for (Map.Entry<String, double[]> argument : arguments.entrySet()) {
+            TensorType type = function.argumentTypes().get(argument.getKey());
+            if (type == null)
+                throw new IllegalArgumentException("'" + argument.getKey() + "' is not a valid argument in " + function);
+            if (type.rank() > 0)
+                throw new IllegalArgumentException("'" + argument.getKey() + "' must be of type " + type +
+                                                   " and cannot be bound to numbers");
+            if (size >= 0 && argument.getValue().length != size)
+                throw new IllegalArgumentException("All arguments must have the same number of values, but '" +
+                                                   argument.getKey() + "' has " + argument.getValue().length +
+                                                   " while others have " + size);
+            size = argument.getValue().length;
+        }
+        if (size < 0)
+            throw new IllegalArgumentException("At least one argument must be given values");
+        return size;
+    }
+
+    private static double[] filled(int size, double value) {
+        double[] values = new double[size];
+        Arrays.fill(values, value);
+        return values;
+    }
+
     private void checkArgument(String name, TensorType type) {
         if (context.isMissing(name))
             throw new IllegalStateException("Missing argument '" + name + "': Must be bound to a value of type " + type);
@@ -134,6 +327,38 @@ public class FunctionEvaluator {
         }
     }
 
+    /**
+     * Evaluates the ONNX models which can be evaluated once for the given batch,
+     * which are those having the ONNX batch dimension of this in all their inputs and their output.
+     *
+     * @return the output of each model evaluated, split into the output of each entry, by ONNX feature
+     */
+    private Map<String, List<Tensor>> evaluateOnnxModels(String batchDimension, Map<String, Tensor> arguments, int size) {
+        Map<String, List<Tensor>> outputs = new HashMap<>();
+        if (onnxBatchDimension.isEmpty()) return outputs;
+        String modelBatchDimension = onnxBatchDimension.get();
+        for (Map.Entry<String, OnnxModel> entry : context().onnxModels().entrySet()) {
+            String onnxFeature = entry.getKey();
+            OnnxModel onnxModel = entry.getValue();
+            if ( ! context.get(onnxFeature).equals(context.defaultValue())) continue;
+            TensorType outputType = onnxModel.outputs().get(function.getName());
+            if (outputType == null || ! BatchTensors.hasUnboundDimension(outputType, modelBatchDimension)) continue;
+
+            Map<String, Tensor> inputs = new HashMap<>();
+            for (Map.Entry<String, TensorType> input : onnxModel.inputs().entrySet()) {
+                if ( ! arguments.containsKey(input.getKey())) break;
+                if ( ! BatchTensors.hasUnboundDimension(input.getValue(), modelBatchDimension)) break;
+                BatchTensors.concatenate(arguments.get(input.getKey()), batchDimension, modelBatchDimension)
+                            .ifPresent(batch -> inputs.put(input.getKey(), batch));
+            }
+            if (inputs.size() < onnxModel.inputs().size()) continue; // evaluate for each entry instead
+
+            Tensor result = onnxModel.evaluate(inputs, function.getName());  // Function name is output of model
+            BatchTensors.split(result, modelBatchDimension, size).ifPresent(entries -> outputs.put(onnxFeature, entries));
+        }
+        return outputs;
+    }
+
     /** Returns the function evaluated by this */
     public ExpressionFunction function() { return function; }
 
@@ -148,6 +148,15 @@ public final class LazyArrayContext extends Context implements ContextIndex {
         return new LazyArrayContext(function, indexedBindings);
     }
 
+    /**
+     * Resets the values of this to those of the given context, such that this can be reused to evaluate
+     * with other values bound. This must be a copy of the given context where only argument values are put.
+     * Values computed from functions are discarded.
+     */
+    void resetTo(LazyArrayContext original) {
+        indexedBindings.resetTo(original.indexedBindings);
+    }
+
     private static class IndexedBindings {
 
         /** The mapping from variable name to index */
@@ -345,6 +354,15 @@ public final class LazyArrayContext extends Context implements ContextIndex {
         Integer indexOf(String name) { return nameToIndex.get(name); }
         Map<String, OnnxModel> onnxModels() { return onnxModels; }
 
+        void resetTo(IndexedBindings original) {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] instanceof LazyValue)
+                    ((LazyValue)values[i]).clear();
+                else
+                    values[i] = original.values[i];
+            }
+        }
+
         IndexedBindings copy(Context context) {
             Value[] valueCopy = new Value[values.length];
             for (int i = 0; i < values.length; i++)
@@ -147,6 +147,11 @@ class LazyValue extends Value {
         return computedValue().hashCode();
     }
 
+    /** Discards the value computed by this, if any, such that it is computed again when requested */
+    void clear() {
+        computedValue = null;
+    }
+
     LazyValue copyFor(Context context) {
         return new LazyValue(this.function, context, model);
     }
@@ -5,10 +5,13 @@ import com.google.common.annotations.Beta;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.CompiledExpression;
 import com.yahoo.searchlib.rankingexpression.evaluation.ContextIndex;
 import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
 import com.yahoo.searchlib.rankingexpression.evaluation.ExpressionOptimizer;
 import com.yahoo.searchlib.rankingexpression.evaluation.Value;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestBatchEvaluator;
 import com.yahoo.tensor.TensorType;
 
 import java.util.Arrays;
@@ -16,6 +19,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
@@ -43,6 +47,12 @@ public class Model {
     /** Context prototypes, indexed by function name (as all invocations of the same function share the same context prototype) */
     private final ImmutableMap<String, LazyArrayContext> contextPrototypes;
 
+    /** Compiled versions of the free functions which only operate on scalars, indexed by function name */
+    private final ImmutableMap<String, CompiledExpression> compiledFunctions;
+
+    /** Batch evaluators of the free functions which are decision forests over arguments only, indexed by function name */
+    private final ImmutableMap<String, GBDTForestBatchEvaluator> forestFunctions;
+
     private final ExpressionOptimizer expressionOptimizer = new ExpressionOptimizer();
 
     /** Programmatically create a model containing functions without constant of function references only */
@@ -109,6 +119,47 @@ public class Model {
             functionsBuilder.put(function.getKey(), optimizedFunction);
         }
         this.referencedFunctions = functionsBuilder.build();
+
+        // Compile functions where possible, falling back to evaluating the expression otherwise
+        ImmutableMap.Builder<String, CompiledExpression> compiledBuilder = new ImmutableMap.Builder<>();
+        ImmutableMap.Builder<String, GBDTForestBatchEvaluator> forestBuilder = new ImmutableMap.Builder<>();
+        for (ExpressionFunction function : this.functions) {
+            LazyArrayContext context = contextPrototypes.get(function.getName());
+            if (context == null || ! isScalar(function, context)) continue;
+            RankingExpression optimized = optimizedCopy(function.getBody(), context);
+            CompiledExpression.compile(optimized, context)
+                              .ifPresent(compiled -> compiledBuilder.put(function.getName(), compiled));
+            if (context.names().stream().noneMatch(boundName -> FunctionReference.fromSerial(boundName).isPresent()))
+                GBDTForestBatchEvaluator.of(optimized.getRoot())
+                                        .ifPresent(forest -> forestBuilder.put(function.getName(), forest));
+        }
+        this.compiledFunctions = compiledBuilder.build();
+        this.forestFunctions = forestBuilder.build();
+    }
+
+    /** Returns an optimized copy of the given expression, leaving the expression evaluated by the interpreter unchanged */
+    private RankingExpression optimizedCopy(RankingExpression expression, ContextIndex context) {
+        RankingExpression copy = new RankingExpression(expression.getName(), expression.getRoot());
+        expressionOptimizer.optimize(copy, context);
+        return copy;
+    }
+
+    /** Returns whether all the values bound in the given context of this function are known to be scalars */
+    private boolean isScalar(ExpressionFunction function, LazyArrayContext context) {
+        if ( ! context.onnxModels().isEmpty()) return false;
+        for (String name : context.names()) {
+            TensorType type;
+            Optional<FunctionReference> reference = FunctionReference.fromSerial(name);
+            if (context.arguments().contains(name))
+                type = function.argumentTypes().get(name);
+            else if (reference.isPresent())
+                type = referencedFunctions.containsKey(reference.get())
+                       ? referencedFunctions.get(reference.get()).returnType().orElse(null) : null;
+            else // constant
+                type = context.get(name).type();
+            if (type == null || type.rank() > 0) return false;
+        }
+        return true;
     }
 
     /** Returns an optimized version of the given function */
@@ -229,7 +280,10 @@ public class Model {
 
     /** Returns a single-use evaluator of a function */
     private FunctionEvaluator evaluatorOf(ExpressionFunction function) {
-        return new FunctionEvaluator(function, requireContextPrototype(function.getName()).copy());
+        return new FunctionEvaluator(function,
+                                     requireContextPrototype(function.getName()).copy(),
+                                     Optional.ofNullable(compiledFunctions.get(function.getName())),
+                                     Optional.ofNullable(forestFunctions.get(function.getName())));
     }
 
     private void throwUndeterminedFunction(String message) {
@@ -6,6 +6,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
 import com.yahoo.component.AbstractComponent;
 import com.yahoo.filedistribution.fileacquirer.FileAcquirer;
+import com.yahoo.tensor.Tensor;
 import com.yahoo.vespa.config.search.RankProfilesConfig;
 import com.yahoo.vespa.config.search.core.OnnxModelsConfig;
 import com.yahoo.vespa.config.search.core.RankingConstantsConfig;
@@ -17,6 +18,8 @@ import java.util.Map;
  * Evaluates machine-learned models added to Vespa applications and available as config form.
  * Usage:
  * <code>Tensor result = evaluator.bind("foo", value).bind("bar", value").evaluate()</code>
+ * or, to evaluate for many values at once,
+ * <code>Tensor results = evaluator.evaluate("myModel", "batch", Map.of("foo", valuesWithBatchDimension, ...))</code>
  *
  * @author bratseth
  */
@@ -60,6 +63,21 @@ public class ModelsEvaluator extends AbstractComponent {
         return requireModel(modelName).evaluatorOf(names);
     }
 
+    /**
+     * Evaluates the given function in the given model once for each entry in a batch of arguments,
+     * see {@link FunctionEvaluator#evaluate(String, Map)}.
+     *
+     * @param modelName the name of the model
+     * @param batchDimension the name of the indexed dimension holding the entries of the batch in each argument
+     * @param arguments the values to bind to each argument, by argument name, each having the batch dimension added
+     * @param names the 0-2 name components identifying the output to compute
+     * @return the value of the function for each entry, with the batch dimension added
+     * @throws IllegalArgumentException if the function or model is not present, or the arguments are not valid
+     */
+    public Tensor evaluate(String modelName, String batchDimension, Map<String, Tensor> arguments, String ... names) {
+        return evaluatorOf(modelName, names).evaluate(batchDimension, arguments);
+    }
+
     /** Returns the given model, or throws a IllegalArgumentException if it does not exist */
     public Model requireModel(String name) {
         Model model = models.get(name);
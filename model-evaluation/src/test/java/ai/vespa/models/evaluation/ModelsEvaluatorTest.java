@@ -8,6 +8,7 @@ import com.yahoo.path.Path;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
 import com.yahoo.searchlib.rankingexpression.RankingExpression;
 import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorAddress;
 import com.yahoo.tensor.TensorType;
 import com.yahoo.vespa.config.search.RankProfilesConfig;
 import com.yahoo.vespa.config.search.core.OnnxModelsConfig;
@@ -18,9 +19,12 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author bratseth
@@ -124,6 +128,79 @@ public class ModelsEvaluatorTest {
 
     }
 
+    @Test
+    public void testScalarAndTensorFunctions() {
+        List<ExpressionFunction> functions = new ArrayList<>();
+        functions.add(new ExpressionFunction("scalar", RankingExpression.from("4 * (arg1 + arg2) + if (arg1 < 2, 1, 0)")));
+        functions.add(new ExpressionFunction("tensor", RankingExpression.from("arg1 * arg2"))
+                              .withArgument("arg1", TensorType.fromSpec("tensor(d0[2])")));
+        Model model = new Model("test-model", functions);
+
+        assertEquals(Tensor.from(13.0), model.evaluatorOf("scalar").bind("arg1", 1).bind("arg2", 2).evaluate());
+        assertEquals(Tensor.from(40.0), model.evaluatorOf("scalar").setMissingValue(5).bind("arg1", 5).evaluate());
+        assertTrue(Double.isNaN(model.evaluatorOf("scalar").evaluate().asDouble()));
+        assertEquals(Tensor.from("tensor(d0[2]):[3, 6]"),
+                     model.evaluatorOf("tensor").bind("arg1", Tensor.from("tensor(d0[2]):[1, 2]")).bind("arg2", 3).evaluate());
+    }
+
+    @Test
+    public void testBatchEvaluation() {
+        List<ExpressionFunction> functions = new ArrayList<>();
+        functions.add(new ExpressionFunction("forest", RankingExpression.from("if (arg1 < 2, 1, if (arg2 < 3, 2, 3)) + if (!(arg2 >= 1), 10, 20)")));
+        functions.add(new ExpressionFunction("scalar", RankingExpression.from("4 * (arg1 + arg2)")));
+        Model model = new Model("test-model", functions);
+
+        Map<String, double[]> arguments = Map.of("arg1", new double[] { 1, 2, 3 }, "arg2", new double[] { 0, 1, Double.NaN });
+        assertArrayEquals(new double[] { 11, 22, 13 }, model.evaluatorOf("forest").evaluate(arguments), delta);
+        assertArrayEquals(new double[] { 4, 12, Double.NaN }, model.evaluatorOf("scalar").evaluate(arguments), delta);
+
+        Map<String, double[]> someArguments = Map.of("arg1", new double[] { 1, 2, 3 });
+        assertArrayEquals(new double[] { 21, 22, 22 }, model.evaluatorOf("forest").bind("arg2", 2).evaluate(someArguments), delta);
+        assertArrayEquals(new double[] { 11, 13, 13 }, model.evaluatorOf("forest").evaluate(someArguments), delta);
+        assertArrayEquals(new double[] { 24, 28, 32 }, model.evaluatorOf("scalar").setMissingValue(5).evaluate(someArguments), delta);
+    }
+
+    @Test
+    public void testTensorBatchEvaluation() {
+        List<ExpressionFunction> functions = new ArrayList<>();
+        functions.add(new ExpressionFunction("tensor", RankingExpression.from("arg1 * arg2"))
+                              .withArgument("arg1", TensorType.fromSpec("tensor(d0[2])")));
+        functions.add(new ExpressionFunction("scalar", RankingExpression.from("4 * (arg1 + arg2)")));
+        Model model = new Model("test-model", functions);
+
+        Map<String, Tensor> arguments = Map.of("arg1", Tensor.from("tensor(batch[3],d0[2]):[[1, 2], [3, 4], [5, 6]]"),
+                                               "arg2", Tensor.from("tensor(batch[3]):[1, 2, 3]"));
+        assertEquals(Tensor.from("tensor(batch[3],d0[2]):[[1, 2], [6, 8], [15, 18]]"),
+                     model.evaluatorOf("tensor").evaluate("batch", arguments));
+        assertEquals(Tensor.from("tensor(batch[3],d0[2]):[[2, 4], [6, 8], [10, 12]]"),
+                     model.evaluatorOf("tensor").bind("arg2", 2).evaluate("batch", Map.of("arg1", arguments.get("arg1"))));
+        assertEquals(Tensor.from("tensor(batch[2]):[8, 20]"),
+                     model.evaluatorOf("scalar").evaluate("batch", Map.of("arg1", Tensor.from("tensor(batch[2]):[1, 2]"),
+                                                                          "arg2", Tensor.from("tensor(batch[2]):[1, 3]"))));
+
+        try {
+            model.evaluatorOf("tensor").evaluate("batch", Map.of("arg1", Tensor.from("tensor(d0[2]):[1, 2]")));
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("Expected a batch tensor with the indexed dimension 'batch', but got a tensor of type tensor(d0[2])",
+                         Exceptions.toMessageString(e));
+        }
+    }
+
+    @Test
+    public void testBatchEvaluationOfFunctionsDependingOnFunctions() {
+        ModelsEvaluator models = createModels("src/test/resources/config/rankexpression/");
+        Tensor results = models.evaluate("macros", "batch",
+                                         Map.of("match", Tensor.from("tensor(batch[3]):[3, 1, 3]"),
+                                                "rankBoost", Tensor.from("tensor(batch[3]):[5, 2, 5]")),
+                                         "secondphase");
+        assertEquals(32.0, results.get(TensorAddress.of(0)), delta);
+        assertEquals(models.evaluatorOf("macros", "secondphase").bind("match", 1).bind("rankBoost", 2).evaluate().asDouble(),
+                     results.get(TensorAddress.of(1)), delta);
+        assertEquals(32.0, results.get(TensorAddress.of(2)), delta);
+    }
+
     // TODO: Test argument-less function
     // TODO: Test with nested functions
 
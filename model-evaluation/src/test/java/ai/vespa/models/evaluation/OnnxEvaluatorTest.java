@@ -49,6 +49,26 @@ public class OnnxEvaluatorTest {
         assertEquals(function.evaluate(), Tensor.from("tensor<float>(d0[2],d1[1]):[0.63931,0.67574]"));
     }
 
+    @Test
+    public void testBatchOnnxEvaluation() {
+        ModelsEvaluator models = createModels("src/test/resources/config/onnx/");
+        Tensor batch = Tensor.from("tensor<float>(batch[2],d0[1],d1[3]):[[[0.1, 0.2, 0.3]],[[0.4,0.5,0.6]]]");
+        Tensor expected = Tensor.from("tensor<float>(batch[2],d0[1],d1[1]):[[[0.63931]],[[0.67574]]]");
+        assertEquals(expected, models.evaluatorOf("one_layer").evaluate("batch", Map.of("input", batch)));
+        assertEquals(expected, models.evaluatorOf("one_layer").setOnnxBatchDimension("d0").evaluate("batch", Map.of("input", batch)));
+    }
+
+    @Test
+    public void testBatchOnnxEvaluationWithUnboundDimensionWhichIsNotTheBatch() {
+        ModelsEvaluator models = createModels("src/test/resources/config/softmax_sequence/");
+        Tensor batch = Tensor.from("tensor<float>(batch[2],d0[1],d1[2]):[[[1, 2]],[[3, 5]]]");
+        Tensor expected = Tensor.from("tensor<float>(batch[2],d0[1],d1[2]):[[[0.26894, 0.73106]],[[0.11920, 0.88080]]]");
+        assertEquals(models.evaluatorOf("softmax_sequence").bind("input", Tensor.from("tensor<float>(d0[1],d1[2]):[[1, 2]]")).evaluate(),
+                     Tensor.from("tensor<float>(d0[1],d1[2]):[[0.26894, 0.73106]]"));
+        // The unbound dimension d1 holds a sequence, so each entry is evaluated by itself
+        assertEquals(expected, models.evaluatorOf("softmax_sequence").evaluate("batch", Map.of("input", batch)));
+    }
+
     private ModelsEvaluator createModels(String path) {
         Path configDir = Path.fromString(path);
         RankProfilesConfig config = new ConfigGetter<>(new FileSource(configDir.append("rank-profiles.cfg").toFile()),
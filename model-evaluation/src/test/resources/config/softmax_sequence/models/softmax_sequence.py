@@ -0,0 +1,24 @@
+# Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+
+import onnx
+from onnx import helper, TensorProto
+
+INPUT = helper.make_tensor_value_info('input', TensorProto.FLOAT, [1, 'sequence'])
+OUTPUT = helper.make_tensor_value_info('output', TensorProto.FLOAT, [1, 'sequence'])
+
+nodes = [
+    helper.make_node(
+        'Softmax',
+        ['input'],
+        ['output'],
+        axis=1,
+    ),
+]
+graph_def = helper.make_graph(
+    nodes,
+    'softmax_sequence',
+    [INPUT],
+    [OUTPUT],
+)
+model_def = helper.make_model(graph_def, producer_name='softmax_sequence.py', opset_imports=[onnx.OperatorSetIdProto(version=12)])
+onnx.save(model_def, 'softmax_sequence.onnx')
@@ -0,0 +1,567 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestNode;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTNode;
+import com.yahoo.searchlib.rankingexpression.rule.ArithmeticNode;
+import com.yahoo.searchlib.rankingexpression.rule.ArithmeticOperator;
+import com.yahoo.searchlib.rankingexpression.rule.BooleanNode;
+import com.yahoo.searchlib.rankingexpression.rule.ComparisonNode;
+import com.yahoo.searchlib.rankingexpression.rule.ConstantNode;
+import com.yahoo.searchlib.rankingexpression.rule.EmbracedNode;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.searchlib.rankingexpression.rule.Function;
+import com.yahoo.searchlib.rankingexpression.rule.FunctionNode;
+import com.yahoo.searchlib.rankingexpression.rule.IfNode;
+import com.yahoo.searchlib.rankingexpression.rule.NegativeNode;
+import com.yahoo.searchlib.rankingexpression.rule.NotNode;
+import com.yahoo.searchlib.rankingexpression.rule.ReferenceNode;
+import com.yahoo.searchlib.rankingexpression.rule.SetMembershipNode;
+import com.yahoo.searchlib.rankingexpression.rule.TruthOperator;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A ranking expression compiled to a tree of operations on primitive doubles, where variables are
+ * read by index from the context. This avoids the value objects, operator dispatch and name lookups
+ * done when evaluating the expression nodes directly, and produces the same results.
+ *
+ * Only expressions consisting of scalar operations can be compiled. Usage:
+ *
+ * <code>
+ * // Set up once
+ * RankingExpression expression = new RankingExpression(myExpressionString);
+ * DoubleOnlyArrayContext context = new DoubleOnlyArrayContext(expression);
+ * new ExpressionOptimizer().optimize(expression, context); // optional
+ * Optional&lt;CompiledExpression&gt; compiled = CompiledExpression.compile(expression, context);
+ *
+ * // Execute repeatedly
+ * context.put("featureName1", value1);
+ * ...
+ * double result = compiled.isPresent() ? compiled.get().evaluate(context) : expression.evaluate(context).asDouble();
+ * </code>
+ *
+ * Compiled expressions are immutable and may be used by multiple threads at the same time.
+ * They must be evaluated in contexts having the same name to index mapping as the context used
+ * to compile them, and where all variables are bound to values having a double representation.
+ *
+ * @author bratseth
+ */
+public final class CompiledExpression {
+
+    private final Node root;
+    private final String expression;
+
+    private CompiledExpression(Node root, String expression) {
+        this.root = root;
+        this.expression = expression;
+    }
+
+    /** Evaluates this in the given context, which must support lookup by the indexes this was compiled with */
+    public double evaluate(Context context) {
+        return root.evaluate(context);
+    }
+
+    @Override
+    public String toString() { return "compiled expression " + expression; }
+
+    /**
+     * Compiles the given expression.
+     *
+     * @param expression the expression to compile, which is not modified
+     * @param context the context providing the index of each variable in the expression
+     * @return the compiled expression, or empty if the expression contains operations which cannot be compiled
+     */
+    public static Optional<CompiledExpression> compile(RankingExpression expression, ContextIndex context) {
+        return compile(expression.getRoot(), context);
+    }
+
+    /** Same as compile(expression, context), but compiles the given expression node */
+    public static Optional<CompiledExpression> compile(ExpressionNode node, ContextIndex context) {
+        try {
+            return Optional.of(new CompiledExpression(new Compiler(context).compile(node), node.toString()));
+        }
+        catch (NotCompilableException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static class Compiler {
+
+        private final ContextIndex context;
+
+        Compiler(ContextIndex context) {
+            this.context = context;
+        }
+
+        Node compile(ExpressionNode node) {
+            if (node instanceof ConstantNode)
+                return new Constant(toDouble(((ConstantNode)node).getValue()));
+            if (node instanceof ReferenceNode)
+                return new Variable(indexOf(node.toString()));
+            if (node instanceof EmbracedNode)
+                return compile(((EmbracedNode)node).getValue());
+            if (node instanceof NegativeNode)
+                return compileNegative((NegativeNode)node);
+            if (node instanceof NotNode)
+                return new Not(compile(((NotNode)node).getValue()));
+            if (node instanceof ArithmeticNode)
+                return compileArithmetic((ArithmeticNode)node);
+            if (node instanceof ComparisonNode)
+                return compileComparison((ComparisonNode)node);
+            if (node instanceof IfNode)
+                return compileIf((IfNode)node);
+            if (node instanceof SetMembershipNode)
+                return compileSetMembership((SetMembershipNode)node);
+            if (node instanceof FunctionNode)
+                return compileFunction((FunctionNode)node);
+            if (node instanceof GBDTNode)
+                return new Tree(((GBDTNode)node).values());
+            if (node instanceof GBDTForestNode)
+                return new Forest(((GBDTForestNode)node).values());
+            throw new NotCompilableException();
+        }
+
+        /** Negated constants, such as negative set members, are compiled to constants */
+        private Node compileNegative(NegativeNode node) {
+            Node value = compile(node.getValue());
+            if (value instanceof Constant)
+                return new Constant( - ((Constant)value).value);
+            return new Negate(value);
+        }
+
+        /** Resolves operator precedence the same way as ArithmeticNode.evaluate */
+        private Node compileArithmetic(ArithmeticNode node) {
+            Iterator<ExpressionNode> child = node.children().iterator();
+            Deque<Operand> stack = new ArrayDeque<>();
+            stack.push(new Operand(ArithmeticOperator.OR, compile(child.next())));
+            for (Iterator<ArithmeticOperator> it = node.operators().iterator(); it.hasNext() && child.hasNext();) {
+                ArithmeticOperator op = it.next();
+                while (stack.peek().operator.hasPrecedenceOver(op))
+                    pop(stack);
+                stack.push(new Operand(op, compile(child.next())));
+            }
+            while (stack.size() > 1)
+                pop(stack);
+            return stack.getFirst().node;
+        }
+
+        private void pop(Deque<Operand> stack) {
+            Operand right = stack.pop();
+            Operand left = stack.peek();
+            left.node = binary(right.operator, left.node, right.node);
+        }
+
+        private Node binary(ArithmeticOperator operator, Node left, Node right) {
+            switch (operator) {
+                case OR: return new Or(left, right);
+                case AND: return new And(left, right);
+                case PLUS: return Sum.of(left, right);
+                case MINUS: return new Subtract(left, right);
+                case MULTIPLY: return new Multiply(left, right);
+                case DIVIDE: return new Divide(left, right);
+                case MODULO: return new Modulo(left, right);
+                case POWER: return new Power(left, right);
+                default: throw new NotCompilableException();
+            }
+        }
+
+        private Node compileIf(IfNode node) {
+            Node condition = compile(node.getCondition());
+            Node trueValue = compile(node.getTrueExpression());
+            Node falseValue = compile(node.getFalseExpression());
+            if (condition instanceof Smaller && ((Smaller)condition).left instanceof Variable
+                                             && ((Smaller)condition).right instanceof Constant)
+                return new IfVariableSmaller(((Variable)((Smaller)condition).left).index,
+                                             ((Constant)((Smaller)condition).right).value,
+                                             trueValue, falseValue);
+            return new If(condition, trueValue, falseValue);
+        }
+
+        private Node compileComparison(ComparisonNode node) {
+            Node left = compile(node.getLeftCondition());
+            Node right = compile(node.getRightCondition());
+            switch (node.getOperator()) {
+                case SMALLER: return new Smaller(left, right);
+                case LARGER: return new Larger(left, right);
+                case EQUAL: return new Equal(left, right);
+                default: return new Compare(node.getOperator(), left, right);
+            }
+        }
+
+        private Node compileSetMembership(SetMembershipNode node) {
+            if (node.getTestValue() instanceof BooleanNode) // booleans are compared as booleans rather than doubles
+                throw new NotCompilableException();
+            List<ExpressionNode> setValues = node.getSetValues();
+            double[] set = new double[setValues.size()];
+            for (int i = 0; i < set.length; i++)
+                set[i] = toSetValue(setValues.get(i));
+            return new In(compile(node.getTestValue()), set);
+        }
+
+        /** Set members which are strings are compared by their double representation, as done by GBDTOptimizer */
+        private double toSetValue(ExpressionNode node) {
+            if (node instanceof ConstantNode && ((ConstantNode)node).getValue() instanceof StringValue)
+                return ((ConstantNode)node).getValue().asDouble();
+            Node compiled = compile(node);
+            if ( ! (compiled instanceof Constant)) throw new NotCompilableException();
+            return ((Constant)compiled).value;
+        }
+
+        private Node compileFunction(FunctionNode node) {
+            List<ExpressionNode> arguments = node.children();
+            if (arguments.size() > 2) throw new NotCompilableException();
+            Node argument1 = arguments.size() > 0 ? compile(arguments.get(0)) : new Constant(0);
+            Node argument2 = arguments.size() > 1 ? compile(arguments.get(1)) : new Constant(0);
+            return new FunctionCall(node.getFunction(), argument1, argument2);
+        }
+
+        private double toDouble(Value value) {
+            if ( ! (value instanceof DoubleCompatibleValue)) throw new NotCompilableException();
+            return value.asDouble();
+        }
+
+        private int indexOf(String name) {
+            try {
+                return context.getIndex(name);
+            }
+            catch (RuntimeException e) { // not known to the context
+                throw new NotCompilableException();
+            }
+        }
+
+    }
+
+    private static class Operand {
+
+        final ArithmeticOperator operator;
+        Node node;
+
+        Operand(ArithmeticOperator operator, Node node) {
+            this.operator = operator;
+            this.node = node;
+        }
+
+    }
+
+    /** Thrown when encountering an expression which cannot be compiled */
+    private static class NotCompilableException extends RuntimeException {
+
+        NotCompilableException() {
+            super(null, null, false, false);
+        }
+
+    }
+
+    private static abstract class Node {
+
+        abstract double evaluate(Context context);
+
+    }
+
+    private static final class Constant extends Node {
+
+        final double value;
+
+        Constant(double value) { this.value = value; }
+
+        @Override
+        double evaluate(Context context) { return value; }
+
+    }
+
+    private static final class Variable extends Node {
+
+        final int index;
+
+        Variable(int index) { this.index = index; }
+
+        @Override
+        double evaluate(Context context) { return context.getDouble(index); }
+
+    }
+
+    private static final class Negate extends Node {
+
+        private final Node value;
+
+        Negate(Node value) { this.value = value; }
+
+        @Override
+        double evaluate(Context context) { return - value.evaluate(context); }
+
+    }
+
+    private static final class Not extends Node {
+
+        private final Node value;
+
+        Not(Node value) { this.value = value; }
+
+        @Override
+        double evaluate(Context context) { return value.evaluate(context) != 0.0 ? 0.0 : 1.0; }
+
+    }
+
+    private static abstract class Binary extends Node {
+
+        final Node left, right;
+
+        Binary(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+    }
+
+    private static final class Or extends Binary {
+
+        Or(Node left, Node right) { super(left, right); }
+
+        @Override
+        double evaluate(Context context) {
+            boolean l = left.evaluate(context) != 0.0;
+            boolean r = right.evaluate(context) != 0.0;
+            return l || r ? 1.0 : 0.0;
+        }
+
+    }
+
+    private static final class And extends Binary {
+
+        And(Node left, Node right) { super(left, right); }
+
+        @Override
+        double evaluate(Context context) {
+            boolean l = left.evaluate(context) != 0.0;
+            boolean r = right.evaluate(context) != 0.0;
+            return l && r ? 1.0 : 0.0;
+        }
+
+    }
+
+    /** A sum of terms, added from left to right, which avoids deep recursion when summing many terms */
+    private static final class Sum extends Node {
+
+        private final Node[] terms;
+
+        private Sum(Node[] terms) { this.terms = terms; }
+
+        static Sum of(Node left, Node right) {
+            if ( ! (left instanceof Sum)) return new Sum(new Node[] { left, right });
+            Node[] leftTerms = ((Sum)left).terms;
+            Node[] terms = Arrays.copyOf(leftTerms, leftTerms.length + 1);
+            terms[leftTerms.length] = right;
+            return new Sum(terms);
+        }
+
+        @Override
+        double evaluate(Context context) {
+            double sum = terms[0].evaluate(context);
+            for (int i = 1; i < terms.length; i++)
+                sum += terms[i].evaluate(context);
+            return sum;
+        }
+
+    }
+
+    private static final class Subtract extends Binary {
+
+        Subtract(Node left, Node right) { super(left, right); }
+
+        @Override
+        double evaluate(Context context) { return left.evaluate(context) - right.evaluate(context); }
+
+    }
+
+    private static final class Multiply extends Binary {
+
+        Multiply(Node left, Node right) { super(left, right); }
+
+        @Override
+        double evaluate(Context context) { return left.evaluate(context) * right.evaluate(context); }
+
+    }
+
+    private static final class Divide extends Binary {
+
+        Divide(Node left, Node right) { super(left, right); }
+
+        @Override
+        double evaluate(Context context) { return left.evaluate(context) / right.evaluate(context); }
+
+    }
+
+    private static final class Modulo extends Binary {
+
+        Modulo(Node left, Node right) { super(left, right); }
+
+        @Override
+        double evaluate(Context context) { return left.evaluate(context) % right.evaluate(context); }
+
+    }
+
+    private static final class Power extends Binary {
+
+        Power(Node left, Node right) { super(left, right); }
+
+        @Override
+        double evaluate(Context context) { return Math.pow(left.evaluate(context), right.evaluate(context)); }
+
+    }
+
+    private static final class Smaller extends Binary {
+
+        Smaller(Node left, Node right) { super(left, right); }
+
+        @Override
+        double evaluate(Context context) { return left.evaluate(context) < right.evaluate(context) ? 1.0 : 0.0; }
+
+    }
+
+    private static final class Larger extends Binary {
+
+        Larger(Node left, Node right) { super(left, right); }
+
+        @Override
+        double evaluate(Context context) { return left.evaluate(context) > right.evaluate(context) ? 1.0 : 0.0; }
+
+    }
+
+    private static final class Equal extends Binary {
+
+        Equal(Node left, Node right) { super(left, right); }
+
+        @Override
+        double evaluate(Context context) { return left.evaluate(context) == right.evaluate(context) ? 1.0 : 0.0; }
+
+    }
+
+    private static final class Compare extends Binary {
+
+        private final TruthOperator operator;
+
+        Compare(TruthOperator operator, Node left, Node right) {
+            super(left, right);
+            this.operator = operator;
+        }
+
+        @Override
+        double evaluate(Context context) {
+            return operator.evaluate(left.evaluate(context), right.evaluate(context)) ? 1.0 : 0.0;
+        }
+
+    }
+
+    private static final class If extends Node {
+
+        private final Node condition, trueValue, falseValue;
+
+        If(Node condition, Node trueValue, Node falseValue) {
+            this.condition = condition;
+            this.trueValue = trueValue;
+            this.falseValue = falseValue;
+        }
+
+        @Override
+        double evaluate(Context context) {
+            return condition.evaluate(context) != 0.0 ? trueValue.evaluate(context) : falseValue.evaluate(context);
+        }
+
+    }
+
+    /** The most common condition of decision trees */
+    private static final class IfVariableSmaller extends Node {
+
+        private final int index;
+        private final double value;
+        private final Node trueValue, falseValue;
+
+        IfVariableSmaller(int index, double value, Node trueValue, Node falseValue) {
+            this.index = index;
+            this.value = value;
+            this.trueValue = trueValue;
+            this.falseValue = falseValue;
+        }
+
+        @Override
+        double evaluate(Context context) {
+            return context.getDouble(index) < value ? trueValue.evaluate(context) : falseValue.evaluate(context);
+        }
+
+    }
+
+    private static final class In extends Node {
+
+        private final Node value;
+        private final double[] set;
+
+        In(Node value, double[] set) {
+            this.value = value;
+            this.set = set;
+        }
+
+        @Override
+        double evaluate(Context context) {
+            double testValue = value.evaluate(context);
+            for (double setValue : set)
+                if (testValue == setValue) return 1.0;
+            return 0.0;
+        }
+
+    }
+
+    private static final class FunctionCall extends Binary {
+
+        private final Function function;
+
+        FunctionCall(Function function, Node argument1, Node argument2) {
+            super(argument1, argument2);
+            this.function = function;
+        }
+
+        @Override
+        double evaluate(Context context) {
+            return function.evaluate(left.evaluate(context), right.evaluate(context));
+        }
+
+    }
+
+    private static final class Tree extends Node {
+
+        private final double[] values;
+
+        Tree(double[] values) { this.values = values; }
+
+        @Override
+        double evaluate(Context context) { return GBDTNode.evaluate(values, 0, context); }
+
+    }
+
+    private static final class Forest extends Node {
+
+        private final double[] values;
+
+        Forest(double[] values) { this.values = values; }
+
+        @Override
+        double evaluate(Context context) {
+            int pc = 0;
+            double treeSum = 0;
+            while (pc < values.length) {
+                int nextTree = (int)values[pc++];
+                treeSum += GBDTNode.evaluate(values, pc, context);
+                pc += nextTree;
+            }
+            return treeSum;
+        }
+
+    }
+
+}
@@ -0,0 +1,299 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization;
+
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Evaluates an optimized decision forest (or a single optimized tree) for many sets of feature values in one call.
+ *
+ * Feature values are given column-wise: columns[variableIndex][row] is the value in the given row of the
+ * variable having the given index in the context used when optimizing the expression.
+ * Columns of variables which are not used by the forest may be null.
+ *
+ * Trees are summed in the same order as in GBDTForestNode, so results are identical to evaluating
+ * the forest once for each row.
+ *
+ * Instances are immutable and may be used by multiple threads at the same time.
+ *
+ * @author bratseth
+ */
+public abstract class GBDTForestBatchEvaluator {
+
+    private GBDTForestBatchEvaluator() {}
+
+    /**
+     * Evaluates the forest of this for a number of rows.
+     *
+     * @param columns the feature values, where columns[variableIndex][row] is the value of a variable in a row
+     * @param rows the number of rows to evaluate, starting from row 0
+     * @param result the array receiving the value of the forest for each row, which must have at least rows elements
+     */
+    public abstract void evaluate(double[][] columns, int rows, double[] result);
+
+    /**
+     * Returns the fastest batch evaluator of the given node, or empty if it is not an
+     * optimized forest or tree.
+     */
+    public static Optional<GBDTForestBatchEvaluator> of(ExpressionNode node) {
+        Optional<GBDTForestBatchEvaluator> quickScorer = quickScorer(node);
+        if (quickScorer.isPresent()) return quickScorer;
+        return treeWalking(node);
+    }
+
+    /**
+     * Returns a batch evaluator which walks each tree for each row, or empty if the given node
+     * is not an optimized forest or tree. This supports all optimized trees.
+     */
+    public static Optional<GBDTForestBatchEvaluator> treeWalking(ExpressionNode node) {
+        return forestValues(node).map(TreeWalking::new);
+    }
+
+    /**
+     * Returns a batch evaluator using the QuickScorer algorithm (Lucchese et al., SIGIR 2015),
+     * or empty if the given node is not an optimized forest or tree where all trees are shallow enough
+     * to have at most 64 leaves and only contain conditions on the form a &lt; b or !(a &gt;= b).
+     * For such forests, this is faster than walking the trees as it replaces unpredictable branching by
+     * tight loops over sorted thresholds.
+     */
+    public static Optional<GBDTForestBatchEvaluator> quickScorer(ExpressionNode node) {
+        return forestValues(node).flatMap(QuickScorer::create);
+    }
+
+    /** Returns the values of the given node in the encoding of GBDTForestNode, or empty if it is not optimized */
+    private static Optional<double[]> forestValues(ExpressionNode node) {
+        if (node instanceof GBDTForestNode)
+            return Optional.of(((GBDTForestNode)node).values());
+        if (node instanceof GBDTNode) {
+            double[] tree = ((GBDTNode)node).values();
+            double[] forest = new double[tree.length + 1];
+            forest[0] = tree.length;
+            System.arraycopy(tree, 0, forest, 1, tree.length);
+            return Optional.of(forest);
+        }
+        return Optional.empty();
+    }
+
+    /** Evaluates one tree at the time for all rows, to keep the tree in cache */
+    private static final class TreeWalking extends GBDTForestBatchEvaluator {
+
+        private final double[] forest;
+
+        TreeWalking(double[] forest) {
+            this.forest = forest;
+        }
+
+        @Override
+        public void evaluate(double[][] columns, int rows, double[] result) {
+            Arrays.fill(result, 0, rows, 0);
+            int pc = 0;
+            while (pc < forest.length) {
+                int nextTree = (int)forest[pc++];
+                for (int row = 0; row < rows; row++)
+                    result[row] += GBDTNode.evaluate(forest, pc, columns, row);
+                pc += nextTree;
+            }
+        }
+
+    }
+
+    /**
+     * Evaluates all trees at once by keeping a bitvector of the possible exit leaves of each tree:
+     * Each condition which is false removes the leaves of its true branch from its tree, after which the
+     * exit leaf of each tree is the leftmost remaining leaf. The conditions of each variable are sorted
+     * by threshold, such that the false conditions are found by scanning until the first true one.
+     */
+    private static final class QuickScorer extends GBDTForestBatchEvaluator {
+
+        private static final int maxLeaves = 64;
+
+        /** The index of the first leaf of each tree in leafValues */
+        private final int[] leafOffsets;
+
+        /** The leaf values of all the trees, ordered from left to right (true to false) within each tree */
+        private final double[] leafValues;
+
+        /** The index of each variable having conditions */
+        private final int[] variables;
+
+        /** The 'variable &lt; threshold' conditions of each variable in variables */
+        private final Conditions[] smaller;
+
+        /** The '!(variable &gt;= threshold)' conditions of each variable in variables */
+        private final Conditions[] notLargerOrEqual;
+
+        private QuickScorer(int[] leafOffsets, double[] leafValues,
+                            int[] variables, Conditions[] smaller, Conditions[] notLargerOrEqual) {
+            this.leafOffsets = leafOffsets;
+            this.leafValues = leafValues;
+            this.variables = variables;
+            this.smaller = smaller;
+            this.notLargerOrEqual = notLargerOrEqual;
+        }
+
+        @Override
+        public void evaluate(double[][] columns, int rows, double[] result) {
+            long[] exitLeaves = new long[leafOffsets.length];
+            for (int row = 0; row < rows; row++) {
+                Arrays.fill(exitLeaves, -1L);
+                for (int i = 0; i < variables.length; i++) {
+                    double value = columns[variables[i]][row];
+                    smaller[i].removeFalseSmaller(value, exitLeaves);
+                    notLargerOrEqual[i].removeFalseNotLargerOrEqual(value, exitLeaves);
+                }
+
+                double sum = 0;
+                for (int tree = 0; tree < leafOffsets.length; tree++)
+                    sum += leafValues[leafOffsets[tree] + Long.numberOfTrailingZeros(exitLeaves[tree])];
+                result[row] = sum;
+            }
+        }
+
+        static Optional<GBDTForestBatchEvaluator> create(double[] forest) {
+            List<Integer> leafOffsets = new ArrayList<>();
+            List<Double> leafValues = new ArrayList<>();
+            List<Condition> conditions = new ArrayList<>();
+            try {
+                int pc = 0;
+                while (pc < forest.length) {
+                    int nextTree = (int)forest[pc++];
+                    leafOffsets.add(leafValues.size());
+                    int treeEnd = consumeNode(forest, pc, leafOffsets.size() - 1, leafValues.size(), leafValues, conditions);
+                    if (treeEnd != pc + nextTree)
+                        throw new IllegalArgumentException("Unexpected tree length");
+                    pc = treeEnd;
+                }
+            }
+            catch (IllegalArgumentException e) { // Not supported
+                return Optional.empty();
+            }
+
+            Map<Integer, List<Condition>> conditionsByVariable = new TreeMap<>();
+            for (Condition condition : conditions)
+                conditionsByVariable.computeIfAbsent(condition.variable, __ -> new ArrayList<>()).add(condition);
+
+            int[] variables = new int[conditionsByVariable.size()];
+            Conditions[] smaller = new Conditions[conditionsByVariable.size()];
+            Conditions[] notLargerOrEqual = new Conditions[conditionsByVariable.size()];
+            int i = 0;
+            for (Map.Entry<Integer, List<Condition>> entry : conditionsByVariable.entrySet()) {
+                variables[i] = entry.getKey();
+                smaller[i] = new Conditions(entry.getValue(), true);
+                notLargerOrEqual[i] = new Conditions(entry.getValue(), false);
+                i++;
+            }
+            return Optional.of(new QuickScorer(leafOffsets.stream().mapToInt(Integer::intValue).toArray(),
+                                               leafValues.stream().mapToDouble(Double::doubleValue).toArray(),
+                                               variables, smaller, notLargerOrEqual));
+        }
+
+        /**
+         * Consumes the tree node starting at pc, adding its leaves and conditions.
+         *
+         * @return the position after the node
+         * @throws IllegalArgumentException if the tree cannot be evaluated by this
+         */
+        private static int consumeNode(double[] forest, int pc, int tree, int treeFirstLeaf,
+                                       List<Double> leafValues, List<Condition> conditions) {
+            double value = forest[pc];
+            if (value < GBDTNode.MAX_LEAF_VALUE) {
+                if (leafValues.size() - treeFirstLeaf == maxLeaves)
+                    throw new IllegalArgumentException("More than " + maxLeaves + " leaves");
+                leafValues.add(value);
+                return pc + 1;
+            }
+
+            int offset = (int)value - GBDTNode.MAX_LEAF_VALUE;
+            boolean isSmaller;
+            if (offset < GBDTNode.MAX_VARIABLES) {
+                isSmaller = true;
+            }
+            else if (offset >= GBDTNode.MAX_VARIABLES * 3) {
+                isSmaller = false;
+                offset -= GBDTNode.MAX_VARIABLES * 3;
+            }
+            else {
+                throw new IllegalArgumentException("Unsupported condition");
+            }
+            double threshold = forest[pc + 1];
+            if (Double.isNaN(threshold))
+                throw new IllegalArgumentException("NaN threshold");
+
+            int firstTrueLeaf = leafValues.size();
+            int falseBranch = consumeNode(forest, pc + 3, tree, treeFirstLeaf, leafValues, conditions);
+            int trueLeaves = leafValues.size() - firstTrueLeaf;
+            long trueLeavesMask = ((1L << trueLeaves) - 1) << (firstTrueLeaf - treeFirstLeaf);
+            conditions.add(new Condition(offset, isSmaller, threshold, tree, ~trueLeavesMask));
+            return consumeNode(forest, falseBranch, tree, treeFirstLeaf, leafValues, conditions);
+        }
+
+    }
+
+    private static final class Condition {
+
+        final int variable;
+        final boolean isSmaller;
+        final double threshold;
+        final int tree;
+
+        /** The exit leaves of the tree which remains if this condition is false */
+        final long falseMask;
+
+        Condition(int variable, boolean isSmaller, double threshold, int tree, long falseMask) {
+            this.variable = variable;
+            this.isSmaller = isSmaller;
+            this.threshold = threshold;
+            this.tree = tree;
+            this.falseMask = falseMask;
+        }
+
+    }
+
+    /** The conditions of one kind on one variable, sorted by increasing threshold */
+    private static final class Conditions {
+
+        private final double[] thresholds;
+        private final int[] trees;
+        private final long[] falseMasks;
+
+        Conditions(List<Condition> conditions, boolean isSmaller) {
+            Condition[] sorted = conditions.stream()
+                                           .filter(condition -> condition.isSmaller == isSmaller)
+                                           .sorted(Comparator.comparingDouble(condition -> condition.threshold))
+                                           .toArray(Condition[]::new);
+            thresholds = new double[sorted.length];
+            trees = new int[sorted.length];
+            falseMasks = new long[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                thresholds[i] = sorted[i].threshold;
+                trees[i] = sorted[i].tree;
+                falseMasks[i] = sorted[i].falseMask;
+            }
+        }
+
+        /** Applies the conditions 'value &lt; threshold' which are false, which are the ones where threshold &lt;= value */
+        void removeFalseSmaller(double value, long[] exitLeaves) {
+            for (int i = 0; i < thresholds.length; i++) {
+                if (value < thresholds[i]) return;
+                exitLeaves[trees[i]] &= falseMasks[i];
+            }
+        }
+
+        /** Applies the conditions '!(value &gt;= threshold)' which are false, which are the ones where threshold &lt;= value */
+        void removeFalseNotLargerOrEqual(double value, long[] exitLeaves) {
+            for (int i = 0; i < thresholds.length; i++) {
+                if ( ! (value >= thresholds[i])) return;
+                exitLeaves[trees[i]] &= falseMasks[i];
+            }
+        }
+
+    }
+
+}
@@ -100,6 +100,50 @@ public final class GBDTNode extends ExpressionNode {
         }
     }
 
+    /**
+     * Same as evaluate(values, startOffset, context), but reads variables from the given row of
+     * column-wise laid out feature values, where columns[variableIndex][row] holds the value of a variable.
+     */
+    static double evaluate(double[] values, int startOffset, double[][] columns, int row) {
+        int pc = startOffset;
+        while (true) {
+            double nextValue = values[pc++];
+            if (nextValue >= MAX_LEAF_VALUE) { // a condition node
+                int offset = (int)nextValue - MAX_LEAF_VALUE;
+                boolean comparisonIsTrue = false;
+                if (offset < MAX_VARIABLES) {
+                    comparisonIsTrue = columns[offset][row]<values[pc++];
+                }
+                else if (offset < MAX_VARIABLES*2) {
+                    comparisonIsTrue = columns[offset-MAX_VARIABLES][row]==values[pc++];
+                }
+                else if (offset<MAX_VARIABLES*3) {
+                    double testValue = columns[offset-MAX_VARIABLES*2][row];
+                    int setValuesLeft = (int)values[pc++];
+                    while (setValuesLeft > 0) { // test each value in the set
+                        setValuesLeft--;
+                        if (testValue == values[pc++]) {
+                            comparisonIsTrue=true;
+                            break;
+                        }
+                    }
+                    pc += setValuesLeft; // jump to after the set
+                }
+                else { // offset<MAX_VARIABLES*4
+                    comparisonIsTrue = ! (columns[offset-MAX_VARIABLES*3][row]>=values[pc++]);
+                }
+
+                if (comparisonIsTrue)
+                    pc++; // true branch - skip the jump value
+                else
+                    pc += values[pc]; // false branch - jump
+            }
+            else { // a leaf
+                return nextValue;
+            }
+        }
+    }
+
     /** Returns "(optimized condition tree)" */
     @Override
     public StringBuilder toString(StringBuilder string, SerializationContext context, Deque<String> path, CompositeNode parent) {
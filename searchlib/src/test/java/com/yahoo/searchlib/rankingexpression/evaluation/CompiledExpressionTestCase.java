@@ -0,0 +1,94 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.parser.ParseException;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that compiled expressions produce the same results as interpreted ones.
+ *
+ * @author bratseth
+ */
+public class CompiledExpressionTestCase {
+
+    @Test
+    public void testCompiledEvaluation() throws ParseException {
+        assertCompiled("0.5 + a * b - c / 2");
+        assertCompiled("2*3+4*5 - a % 3 + b ^ 2");
+        assertCompiled("1 + 10 % 6 / 2 * a");
+        assertCompiled("-a + -(b * c)");
+        assertCompiled("a && b || !c");
+        assertCompiled("if (a < b, 1, if (b > c, 2, 3))");
+        assertCompiled("if (a <= b, 1, 2) + if (a >= b, 3, 4) + if (a == b, 5, 6) + if (a != b, 7, 8) + if (a ~= b, 9, 10)");
+        assertCompiled("if (a in [1, 2, 3], b, c)");
+        assertCompiled("if (a in [4, -2], b, c)");
+        assertCompiled("max(a, b) + min(a, c) + log(b) + sigmoid(c) + pow(a, 3) + fmod(b, 3)");
+        assertCompiled("if (a, b, c) * (a < b)");
+        assertCompiled("isNan(d) + d");
+    }
+
+    @Test
+    public void testCompiledGbdtEvaluation() throws ParseException {
+        String gbdt = "if (a < 1.5, 0.1, if (b < 2.5, if (c == 3, 0.3, 0.4), 0.5)) + " +
+                      "if (b in [1, 2, 3], if (!(c >= 2.5), 0.6, 0.7), 0.8) + " +
+                      "if (c < 3.5, -0.9, 1.0)";
+
+        RankingExpression expression = new RankingExpression(gbdt);
+        DoubleOnlyArrayContext context = new DoubleOnlyArrayContext(expression, true);
+        OptimizationReport report = new ExpressionOptimizer().optimize(expression, context);
+        assertEquals(1, report.getMetric("Number of forests"));
+        CompiledExpression compiled = CompiledExpression.compile(expression, context).get();
+        for (double a = 0; a < 5; a++) {
+            for (double b = 0; b < 5; b++) {
+                for (double c = 0; c < 5; c++) {
+                    MapContext mapContext = bind(new MapContext(), a, b, c);
+                    bind(context, a, b, c);
+                    assertEquals(new RankingExpression(gbdt).evaluate(mapContext).asDouble(), compiled.evaluate(context), 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNotCompilable() throws ParseException {
+        assertFalse(compile("\"foo\" == a").isPresent());
+        assertFalse(compile("if (a < 1 in [1], 1, 2)").isPresent());
+        assertTrue(compile("if (a < 1, 1, 2)").isPresent());
+    }
+
+    private void assertCompiled(String expressionString) throws ParseException {
+        RankingExpression expression = new RankingExpression(expressionString);
+        DoubleOnlyArrayContext context = new DoubleOnlyArrayContext(expression, true, DoubleValue.NaN);
+        CompiledExpression compiled = CompiledExpression.compile(expression, context).get();
+        double[] values = { -1.5, 0, 1, 2, 3 };
+        for (double a : values) {
+            for (double b : values) {
+                for (double c : values) {
+                    bind(context, a, b, c);
+                    assertEquals(expressionString + " with a=" + a + ", b=" + b + ", c=" + c,
+                                 expression.evaluate(context).asDouble(), compiled.evaluate(context), 0);
+                }
+            }
+        }
+    }
+
+    private Optional<CompiledExpression> compile(String expressionString) throws ParseException {
+        RankingExpression expression = new RankingExpression(expressionString);
+        return CompiledExpression.compile(expression, new DoubleOnlyArrayContext(expression, true));
+    }
+
+    private <CONTEXT extends Context> CONTEXT bind(CONTEXT context, double a, double b, double c) {
+        context.put("a", a);
+        context.put("b", b);
+        context.put("c", c);
+        return context;
+    }
+
+}
@@ -3,6 +3,7 @@ package com.yahoo.searchlib.rankingexpression.evaluation;
 
 import com.yahoo.io.IOUtils;
 import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestBatchEvaluator;
 import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestOptimizer;
 import com.yahoo.searchlib.rankingexpression.parser.ParseException;
 
@@ -10,6 +11,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Two small benchmarks of ranking expression evaluation
@@ -152,6 +154,98 @@ public class EvaluationBenchmark {
         double forestTotal=benchmark(forestOptimized,forestContext,iterations,"Forest optimized");
         assertEqualish(total,forestTotal);
         System.out.println("-----------------------------------------------------------------------------------------------------");
+
+        // Compiled...................
+        RankingExpression compiledExpression = new RankingExpression(gbdtString);
+        DoubleOnlyArrayContext compiledContext = new DoubleOnlyArrayContext(compiledExpression, true);
+        CompiledExpression compiled = CompiledExpression.compile(compiledExpression, compiledContext).get();
+        double compiledTotal = benchmark(compiled, compiledContext, iterations, "Compiled");
+        assertEqualish(total, compiledTotal);
+        System.out.println("-----------------------------------------------------------------------------------------------------");
+
+        // Optimized and compiled...................
+        RankingExpression optimizedCompiledExpression = new RankingExpression(gbdtString);
+        DoubleOnlyArrayContext optimizedCompiledContext = new DoubleOnlyArrayContext(optimizedCompiledExpression, true);
+        new ExpressionOptimizer().optimize(optimizedCompiledExpression, optimizedCompiledContext);
+        CompiledExpression optimizedCompiled = CompiledExpression.compile(optimizedCompiledExpression, optimizedCompiledContext).get();
+        double optimizedCompiledTotal = benchmark(optimizedCompiled, optimizedCompiledContext, iterations, "Optimized and compiled");
+        assertEqualish(total, optimizedCompiledTotal);
+        System.out.println("-----------------------------------------------------------------------------------------------------");
+
+        // Forest optimized, batch evaluated...................
+        GBDTForestBatchEvaluator batchEvaluator = GBDTForestBatchEvaluator.of(forestOptimized.getRoot()).get();
+        double batchTotal = benchmark(batchEvaluator, forestContext, iterations, "Forest optimized, batches of 1000");
+        assertEqualish(total, batchTotal);
+        System.out.println("-----------------------------------------------------------------------------------------------------");
+    }
+
+    private double benchmark(GBDTForestBatchEvaluator evaluator, AbstractArrayContext context, int iterations, String description) {
+        oul("Running '" + description + "':");
+        out("   Warming up ...");
+        double total = 0;
+        total += benchmarkIterations(evaluator, context, iterations/5);
+        oul("done");
+
+        out("   Running " + iterations + " of '" + description + "' ...");
+        long tStartTime = System.currentTimeMillis();
+        total += benchmarkIterations(evaluator, context, iterations);
+        long totalTime = System.currentTimeMillis() - tStartTime;
+        oul("done");
+        oul("   Total time running '" + description + "': " + totalTime + " ms (" + totalTime*1000/iterations + " microseconds/expression)");
+        return total;
+    }
+
+    private double benchmarkIterations(GBDTForestBatchEvaluator evaluator, AbstractArrayContext context, int iterations) {
+        int batchSize = 1000;
+        double[][] columns = new double[context.size()][batchSize];
+        for (int variable = 0; variable < columns.length; variable++)
+            Arrays.fill(columns[variable], context.getDouble(variable));
+        double[] ratio = column("LW_NEWS_SEARCHES_RATIO", columns, context);
+        double[] users = column("NEWS_USERS", columns, context);
+        double[] catid = column("catid", columns, context);
+        double[] result = new double[batchSize];
+
+        double total = 0;
+        for (int i = 0; i < iterations; i += batchSize) {
+            int rows = Math.min(batchSize, iterations - i);
+            for (int row = 0; row < rows; row++) {
+                ratio[row] = i + row;
+                users[row] = (double)(i + row)/1000*1000;
+                catid[row] = 100300102;
+            }
+            evaluator.evaluate(columns, rows, result);
+            for (int row = 0; row < rows; row++)
+                total += result[row];
+        }
+        return total;
+    }
+
+    private double benchmark(CompiledExpression compiled, Context context, int iterations, String description) {
+        oul("Running '" + description + "':");
+        out("   Warming up ...");
+        double total = 0;
+        total += benchmarkIterations(compiled, context, iterations/5);
+        oul("done");
+
+        out("   Running " + iterations + " of '" + description + "' ...");
+        long tStartTime = System.currentTimeMillis();
+        total += benchmarkIterations(compiled, context, iterations);
+        long totalTime = System.currentTimeMillis() - tStartTime;
+        oul("done");
+        oul("   Total time running '" + description + "': " + totalTime + " ms (" + totalTime*1000/iterations + " microseconds/expression)");
+        return total;
+    }
+
+    private double benchmarkIterations(CompiledExpression compiled, Context contextPrototype, int iterations) {
+        double total = 0;
+        Context context = copyForEvaluation(contextPrototype);
+        for (int i = 0; i < iterations; i++) {
+            context.put("LW_NEWS_SEARCHES_RATIO", (double)i);
+            context.put("NEWS_USERS", (double)i/1000*1000);
+            context.put("catid", 100300102);
+            total += compiled.evaluate(context);
+        }
+        return total;
     }
 
     private double benchmark(RankingExpression gbdt, Context context, int iterations, String description) {
@@ -184,6 +278,11 @@ public class EvaluationBenchmark {
         return total;
     }
 
+    /** Returns the column of the given variable, or a column which is not used if the expression does not reference it */
+    private double[] column(String name, double[][] columns, AbstractArrayContext context) {
+        return context.names().contains(name) ? columns[context.getIndex(name)] : new double[columns[0].length];
+    }
+
     private Context copyForEvaluation(Context contextPrototype) {
         if (contextPrototype instanceof AbstractArrayContext) // optimized - contains name to index map
             return ((AbstractArrayContext)contextPrototype).clone();
@@ -0,0 +1,119 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization;
+
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.ArrayContext;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.ExpressionOptimizer;
+import com.yahoo.searchlib.rankingexpression.parser.ParseException;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * @author bratseth
+ */
+public class GBDTForestBatchEvaluatorTestCase {
+
+    @Test
+    public void testBatchEvaluation() throws ParseException {
+        String gbdt =
+                "if (a < 1.5, 0.1, if (b < 2.5, if (!(c >= 3), 0.3, 0.4), 0.5)) + " +
+                "if (b < 2.5, if (!(c >= 2.5), 0.6, 0.7), 0.8) + " +
+                "if (c < 3.5, -0.9, 1.0)";
+        assertBatchEvaluation(gbdt, true);
+    }
+
+    @Test
+    public void testBatchEvaluationOfSingleTree() throws ParseException {
+        assertBatchEvaluation("if (a < 1.5, 0.1, if (b < 2.5, if (!(c >= 3), 0.3, 0.4), 0.5))", true);
+    }
+
+    @Test
+    public void testBatchEvaluationWithUnsupportedConditions() throws ParseException {
+        String gbdt =
+                "if (a == 1, 0.1, if (b < 2.5, if (c in [1, 3], 0.3, 0.4), 0.5)) + " +
+                "if (c < 3.5, -0.9, 1.0)";
+        assertBatchEvaluation(gbdt, false);
+    }
+
+    @Test
+    public void testBatchEvaluationOfRandomForests() throws ParseException {
+        Random random = new Random(1234);
+        for (int i = 0; i < 10; i++)
+            assertBatchEvaluation(randomForest(50, 5, false, random), true);
+        assertBatchEvaluation(randomForest(3, 7, true, random), false); // too many leaves
+    }
+
+    @Test
+    public void testNotOptimized() throws ParseException {
+        assertFalse(GBDTForestBatchEvaluator.of(new RankingExpression("a + b").getRoot()).isPresent());
+    }
+
+    private void assertBatchEvaluation(String gbdtString, boolean quickScorable) throws ParseException {
+        RankingExpression gbdt = new RankingExpression(gbdtString);
+        ArrayContext context = new ArrayContext(gbdt, DoubleValue.NaN);
+        new ExpressionOptimizer().optimize(gbdt, context);
+        assertEquals(quickScorable, GBDTForestBatchEvaluator.quickScorer(gbdt.getRoot()).isPresent());
+
+        int rows = 200;
+        Random random = new Random(rows);
+        double[][] columns = new double[context.size()][rows];
+        for (double[] column : columns) {
+            for (int row = 0; row < rows; row++)
+                column[row] = random.nextInt(10) == 0 ? Double.NaN : random.nextInt(10) / 2.0;
+        }
+
+        double[] expected = new double[rows];
+        for (int row = 0; row < rows; row++) {
+            ArrayContext rowContext = context.clone();
+            for (int variable = 0; variable < columns.length; variable++) {
+                if ( ! Double.isNaN(columns[variable][row])) // NaN is the missing value
+                    rowContext.put(variable, columns[variable][row]);
+            }
+            expected[row] = gbdt.evaluate(rowContext).asDouble();
+        }
+
+        List<GBDTForestBatchEvaluator> evaluators =
+                quickScorable ? List.of(GBDTForestBatchEvaluator.of(gbdt.getRoot()).get(),
+                                        GBDTForestBatchEvaluator.treeWalking(gbdt.getRoot()).get())
+                              : List.of(GBDTForestBatchEvaluator.of(gbdt.getRoot()).get());
+        for (GBDTForestBatchEvaluator evaluator : evaluators) {
+            double[] result = new double[rows];
+            evaluator.evaluate(columns, rows, result);
+            for (int row = 0; row < rows; row++)
+                assertEquals("Row " + row + " of " + gbdtString, expected[row], result[row], 0);
+        }
+    }
+
+    private String randomForest(int trees, int depth, boolean full, Random random) {
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < trees; i++) {
+            if (i > 0) b.append(" + ");
+            randomTree(depth, depth, full, random, b);
+        }
+        return b.toString();
+    }
+
+    private void randomTree(int depth, int maxDepth, boolean full, Random random, StringBuilder b) {
+        if (depth == 0 || ( ! full && depth < maxDepth && random.nextInt(5) == 0)) {
+            b.append(random.nextInt(1000) / 100.0);
+            return;
+        }
+        String variable = String.valueOf((char)('a' + random.nextInt(5)));
+        String threshold = String.valueOf(random.nextInt(10) / 2.0);
+        if (random.nextBoolean())
+            b.append("if (").append(variable).append(" < ").append(threshold).append(", ");
+        else
+            b.append("if (!(").append(variable).append(" >= ").append(threshold).append("), ");
+        randomTree(depth - 1, maxDepth, full, random, b);
+        b.append(", ");
+        randomTree(depth - 1, maxDepth, full, random, b);
+        b.append(")");
+    }
+
+}
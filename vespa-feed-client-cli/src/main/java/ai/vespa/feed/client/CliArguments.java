@@ -44,6 +44,7 @@ class CliArguments {
     private static final String HEADER_OPTION = "header";
     private static final String HELP_OPTION = "help";
     private static final String MAX_STREAMS_PER_CONNECTION = "max-streams-per-connection";
+    private static final String PARSER_THREADS_OPTION = "parser-threads";
     private static final String PRIVATE_KEY_OPTION = "private-key";
     private static final String ROUTE_OPTION = "route";
     private static final String TIMEOUT_OPTION = "timeout";
@@ -104,6 +105,8 @@ class CliArguments {
 
     OptionalInt maxStreamsPerConnection() throws CliArgumentsException { return intValue(MAX_STREAMS_PER_CONNECTION); }
 
+    OptionalInt parserThreads() throws CliArgumentsException { return intValue(PARSER_THREADS_OPTION); }
+
     Optional<CertificateAndKey> certificateAndKey() throws CliArgumentsException {
         Path certificateFile = fileValue(CERTIFICATE_OPTION).orElse(null);
         Path privateKeyFile = fileValue(PRIVATE_KEY_OPTION).orElse(null);
@@ -235,6 +238,12 @@ class CliArguments {
                         .hasArg()
                         .type(Number.class)
                         .build())
+                .addOption(Option.builder()
+                        .longOpt(PARSER_THREADS_OPTION)
+                        .desc("Number of threads parsing feed operations")
+                        .hasArg()
+                        .type(Number.class)
+                        .build())
                 .addOption(Option.builder()
                         .longOpt(CERTIFICATE_OPTION)
                         .desc("Path to PEM encoded X.509 certificate file")
@@ -70,7 +70,7 @@ public class CliClient {
                         try {
                             while ( ! latch.await(10, TimeUnit.SECONDS)) {
                                 synchronized (printMonitor) {
-                                    printBenchmarkResult(System.nanoTime() - startNanos, successes.get(), failures.get(), feedClient.stats(), systemError);
+                                    printBenchmarkResult(System.nanoTime() - startNanos, successes.get(), failures.get(), feeder.stats(), systemError);
                                 }
                             }
                         }
@@ -88,7 +88,7 @@ public class CliClient {
                 latch.await();
 
                 if (cliArgs.benchmarkModeEnabled()) {
-                    printBenchmarkResult(System.nanoTime() - startNanos, successes.get(), failures.get(), feedClient.stats(), systemOut);
+                    printBenchmarkResult(System.nanoTime() - startNanos, successes.get(), failures.get(), feeder.stats(), systemOut);
                 }
                 if (fatal.get() != null) throw fatal.get();
             }
@@ -138,6 +138,7 @@ public class CliClient {
         cliArgs.timeout().ifPresent(builder::withTimeout);
         cliArgs.route().ifPresent(builder::withRoute);
         cliArgs.traceLevel().ifPresent(builder::withTracelevel);
+        cliArgs.parserThreads().ifPresent(builder::withParserThreads);
         return builder.build();
     }
 
@@ -170,6 +171,11 @@ public class CliClient {
             writeFloatField(generator, "feeder.ok.rate", successes * 1e9 / Math.max(1, durationNanos), 3);
             generator.writeNumberField("feeder.error.count", failures);
             generator.writeNumberField("feeder.inflight.count", stats.inflight());
+            generator.writeNumberField("feeder.parse.count", stats.operationsParsed());
+            generator.writeNumberField("feeder.parse.bytes", stats.bytesParsed());
+            writeFloatField(generator, "feeder.parse.rate", stats.parseThroughput(), 3);
+            generator.writeNumberField("feeder.dispatch.count", stats.operationsDispatched());
+            writeFloatField(generator, "feeder.dispatch.rate", stats.dispatchThroughput(), 3);
 
             generator.writeNumberField("http.request.count", stats.requests());
             generator.writeNumberField("http.request.bytes", stats.bytesSent());
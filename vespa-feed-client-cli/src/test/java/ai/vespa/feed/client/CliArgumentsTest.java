@@ -23,11 +23,13 @@ class CliArgumentsTest {
                 "--max-streams-per-connection=128", "--certificate=cert.pem", "--private-key=key.pem",
                 "--ca-certificates=ca-certs.pem", "--disable-ssl-hostname-verification",
                 "--header=\"My-Header: my-value\"", "--header", "Another-Header: another-value", "--benchmark",
-                "--route=myroute", "--timeout=0.125", "--trace=9", "--verbose", "--silent", "--show-errors", "--show-all"});
+                "--route=myroute", "--timeout=0.125", "--trace=9", "--verbose", "--silent", "--show-errors", "--show-all",
+                "--parser-threads=4"});
         assertEquals(URI.create("https://vespa.ai:4443/"), args.endpoint());
         assertEquals(Paths.get("feed.json"), args.inputFile().get());
         assertEquals(10, args.connections().getAsInt());
         assertEquals(128, args.maxStreamsPerConnection().getAsInt());
+        assertEquals(4, args.parserThreads().getAsInt());
         assertEquals(Paths.get("cert.pem"), args.certificateAndKey().get().certificateFile);
         assertEquals(Paths.get("key.pem"), args.certificateAndKey().get().privateKeyFile);
         assertEquals(Paths.get("ca-certs.pem"), args.caCertificates().get());
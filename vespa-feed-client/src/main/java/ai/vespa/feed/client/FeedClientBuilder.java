@@ -46,6 +46,7 @@ public class FeedClientBuilder {
     Collection<X509Certificate> caCertificates;
     boolean benchmark = true;
     boolean dryrun = false;
+    boolean gradientThrottling = false;
 
     /** Creates a builder for a single container endpoint **/
     public static FeedClientBuilder create(URI endpoint) { return new FeedClientBuilder(Collections.singletonList(endpoint)); }
@@ -167,6 +168,16 @@ public class FeedClientBuilder {
         return this;
     }
 
+    /**
+     * Sets whether to adjust the number of requests inflight by how latency changes with it, using the
+     * {@link GradientThrottler}, rather than by searching for the highest throughput. This keeps latency
+     * lower when the cluster is busy, at the cost of some throughput.
+     */
+    public FeedClientBuilder setGradientThrottling(boolean enabled) {
+        this.gradientThrottling = enabled;
+        return this;
+    }
+
     /**
      * Overrides JVM default SSL truststore
      * @param caCertificatesFile Path to PEM encoded file containing trusted certificates
@@ -0,0 +1,103 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.feed.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.sqrt;
+
+/**
+ * Adjusts the target inflight by how latency changes with it, rather than by searching for the highest throughput,
+ * like the {@link DynamicThrottler}. Latency is averaged over periods of about one target inflight of responses.
+ * At regular intervals, one period is run with half the target, and the latency of the following periods
+ * is compared to this: while latency is within a tolerance of that with half the target, the server is not
+ * queueing requests, and the target grows by its square root each period; otherwise, it shrinks by the ratio
+ * between the two latencies, down to half in a single period.
+ *
+ * @author bratseth
+ */
+public class GradientThrottler extends StaticThrottler {
+
+    private static final double tolerance = 1.5;
+    private static final double smoothing = 0.2;
+    private static final int probeInterval = 20;
+
+    private enum Phase { normal, draining, probing }
+
+    private final LongSupplier nanoClock;
+    private final AtomicLong targetInflight;
+    private final Object monitor = new Object();
+    private Phase phase = Phase.normal;
+    private double target;
+    private long periods = 0;
+    private double probedLatency = 0;
+    private long responses = 0;
+    private double latencySum = 0;
+    private long sends = 0;
+    private double inflightSum = 0;
+
+    public GradientThrottler(FeedClientBuilder builder) {
+        this(builder, System::nanoTime);
+    }
+
+    GradientThrottler(FeedClientBuilder builder, LongSupplier nanoClock) {
+        super(builder);
+        this.nanoClock = nanoClock;
+        this.target = 8 * minInflight;
+        this.targetInflight = new AtomicLong((long) target);
+    }
+
+    @Override
+    public void sent(long inflight, CompletableFuture<HttpResponse> vessel) {
+        long startNanos = nanoClock.getAsLong();
+        synchronized (monitor) {
+            ++sends;
+            inflightSum += inflight;
+        }
+        vessel.whenComplete((__, ___) -> completed(nanoClock.getAsLong() - startNanos));
+    }
+
+    private void completed(long latencyNanos) {
+        synchronized (monitor) {
+            ++responses;
+            latencySum += latencyNanos;
+            if (responses < targetInflight.get() || latencySum == 0) return;
+
+            double latency = latencySum / responses;
+            switch (phase) {
+                case draining: // responses to requests sent with the full target arrive in this period: Ignore it
+                    phase = Phase.probing;
+                    break;
+                case probing:
+                    probedLatency = latency;
+                    phase = Phase.normal;
+                    break;
+                case normal:
+                    resize(latency, inflightSum / max(1, sends));
+                    if (++periods % probeInterval == 0)
+                        phase = Phase.draining;
+            }
+            targetInflight.set((long) (phase == Phase.normal ? target : max(minInflight, target / 2)));
+            responses = 0;
+            latencySum = 0;
+            sends = 0;
+            inflightSum = 0;
+        }
+    }
+
+    private void resize(double latency, double averageInflight) {
+        double gradient = probedLatency == 0 ? 1 : max(0.5, min(1, tolerance * probedLatency / latency));
+        double growth = averageInflight < target / 2 ? 0 : sqrt(target); // Grow only when the target is reached.
+        target = (1 - smoothing) * target + smoothing * (target * gradient + growth);
+        target = max(minInflight, min(maxInflight, target));
+    }
+
+    @Override
+    public long targetInflight() {
+        return min(super.targetInflight(), targetInflight.get());
+    }
+
+}
@@ -12,12 +12,22 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InterruptedIOException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static ai.vespa.feed.client.FeedClient.OperationType.PUT;
 import static ai.vespa.feed.client.FeedClient.OperationType.REMOVE;
@@ -45,10 +55,18 @@ public class JsonFeeder implements Closeable {
     });
     private final FeedClient client;
     private final OperationParameters protoParameters;
+    private final int parserThreads;
 
-    private JsonFeeder(FeedClient client, OperationParameters protoParameters) {
+    private final AtomicLong operationsParsed = new AtomicLong();
+    private final AtomicLong bytesParsed = new AtomicLong();
+    private final AtomicLong parseNanos = new AtomicLong();
+    private final AtomicLong operationsDispatched = new AtomicLong();
+    private final AtomicLong dispatchNanos = new AtomicLong();
+
+    private JsonFeeder(FeedClient client, OperationParameters protoParameters, int parserThreads) {
         this.client = client;
         this.protoParameters = protoParameters;
+        this.parserThreads = parserThreads;
     }
 
     public interface ResultCallback {
@@ -144,8 +162,9 @@ public class JsonFeeder implements Closeable {
         AtomicInteger pending = new AtomicInteger(1); // The below dispatch loop itself is counted as a single pending operation
         AtomicBoolean finalCallbackInvoked = new AtomicBoolean();
         try {
-            RingBufferStream buffer = new RingBufferStream(jsonStream, size);
-            while ((result = buffer.next()) != null) {
+            OperationSource operations = parserThreads > 1 ? new ParallelParsingOperationSource(jsonStream, parserThreads)
+                                                           : new RingBufferStream(jsonStream, size);
+            while ((result = operations.next()) != null) {
                 pending.incrementAndGet();
                 result.whenCompleteAsync((r, t) -> {
                     if (!finalCallbackInvoked.get()) {
@@ -175,6 +194,15 @@ public class JsonFeeder implements Closeable {
         return overallResult;
     }
 
+    /**
+     * Returns the statistics of the feed client used by this, together with the number of operations
+     * and bytes this has parsed and the operations it has dispatched to the client, and the time spent doing so.
+     */
+    public OperationStats stats() {
+        return client.stats().withFeeding(operationsParsed.get(), bytesParsed.get(), parseNanos.get() / 1_000_000,
+                                          operationsDispatched.get(), dispatchNanos.get() / 1_000_000);
+    }
+
     private static final JsonFactory factory = new JsonFactory();
 
     @Override public void close() throws IOException {
@@ -197,7 +225,15 @@ public class JsonFeeder implements Closeable {
         return new FeedException(e);
     }
 
-    private class RingBufferStream extends InputStream {
+    /** Dispatches the operations of a feed, one at a time */
+    private interface OperationSource {
+
+        /** Dispatches the next operation and returns its result, or returns null if there are no more operations */
+        CompletableFuture<Result> next() throws IOException;
+
+    }
+
+    private class RingBufferStream extends InputStream implements OperationSource {
 
         private final byte[] b = new byte[1];
         private final InputStream in;
@@ -255,6 +291,7 @@ public class JsonFeeder implements Closeable {
             }
         }
 
+        @Override
         public CompletableFuture<Result> next() throws IOException {
            return parserAndExecutor.next();
         }
@@ -351,6 +388,196 @@ public class JsonFeeder implements Closeable {
         }
     }
 
+    /**
+     * Splits the input into operations on a reader thread, without parsing them, and parses chunks of
+     * operations on a pool of threads. The parsed operations are dispatched in the order of the input,
+     * so operations on the same document are dispatched in the order they appear in the feed.
+     */
+    private class ParallelParsingOperationSource implements OperationSource {
+
+        /** The approximate number of bytes of operations to parse as one task */
+        private static final int chunkSize = 1 << 18;
+
+        private final Future<List<ParsedOperation>> endOfFeed = CompletableFuture.completedFuture(Collections.emptyList());
+
+        private final BlockingQueue<Future<List<ParsedOperation>>> chunks;
+        private final ExecutorService parsers;
+        private final AtomicBoolean aborted = new AtomicBoolean();
+        private Iterator<ParsedOperation> current = Collections.emptyIterator();
+
+        ParallelParsingOperationSource(InputStream in, int threads) {
+            this.chunks = new ArrayBlockingQueue<>(threads * 4);
+            AtomicInteger threadCount = new AtomicInteger();
+            this.parsers = Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "feed-parser-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            new Thread(() -> split(in), "feed-reader").start();
+        }
+
+        @Override
+        public CompletableFuture<Result> next() throws IOException {
+            try {
+                while ( ! current.hasNext()) {
+                    Future<List<ParsedOperation>> chunk = take();
+                    if (chunk == endOfFeed) return null;
+                    current = await(chunk).iterator();
+                }
+                return dispatch(current.next());
+            }
+            catch (IOException | RuntimeException e) {
+                abort();
+                throw e;
+            }
+        }
+
+        private Future<List<ParsedOperation>> take() throws IOException {
+            try {
+                return chunks.take();
+            }
+            catch (InterruptedException e) {
+                throw new InterruptedIOException("Interrupted waiting for operations: " + e.getMessage());
+            }
+        }
+
+        private List<ParsedOperation> await(Future<List<ParsedOperation>> chunk) throws IOException {
+            try {
+                return chunk.get();
+            }
+            catch (InterruptedException e) {
+                throw new InterruptedIOException("Interrupted waiting for operations: " + e.getMessage());
+            }
+            catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                throw new FeedException(e.getCause());
+            }
+        }
+
+        private void abort() {
+            aborted.set(true);
+            parsers.shutdownNow();
+            chunks.clear();
+        }
+
+        private List<ParsedOperation> parse(List<byte[]> operations) throws IOException {
+            List<ParsedOperation> parsed = new ArrayList<>(operations.size());
+            for (byte[] operation : operations)
+                parsed.add(new SingleOperationParserAndExecutor(operation).parse());
+            return parsed;
+        }
+
+        /** Returns whether the chunk was added, which it is unless parsing is aborted */
+        private boolean add(Future<List<ParsedOperation>> chunk) throws InterruptedException {
+            while ( ! chunks.offer(chunk, 100, TimeUnit.MILLISECONDS))
+                if (aborted.get()) return false;
+            return true;
+        }
+
+        private boolean submit(List<byte[]> operations) throws InterruptedException {
+            if (operations.isEmpty()) return true;
+            return add(parsers.submit(() -> parse(operations)));
+        }
+
+        private boolean fail(Exception e) throws InterruptedException {
+            CompletableFuture<List<ParsedOperation>> failure = new CompletableFuture<>();
+            failure.completeExceptionally(e);
+            return add(failure);
+        }
+
+        /**
+         * Reads the input and splits it into the JSON objects of either a JSON array or a sequence
+         * of objects (JSONL), by tracking the nesting depth outside strings.
+         */
+        private void split(InputStream in) {
+            List<byte[]> operations = new ArrayList<>(); // complete operations not yet submitted
+            try {
+                byte[] buffer = new byte[1 << 16];
+                long bufferOffset = 0; // the offset in the input of the start of the buffer
+                int length = 0, scanned = 0, operationStart = -1;
+                int depth = 0;
+                boolean inString = false, escaped = false, inArray = false, started = false;
+                int operationsSize = 0;
+
+                read: while (true) {
+                    if (length == buffer.length) {
+                        int discard = operationStart >= 0 ? operationStart : scanned;
+                        System.arraycopy(buffer, discard, buffer, 0, length - discard);
+                        bufferOffset += discard;
+                        length -= discard;
+                        scanned -= discard;
+                        if (operationStart >= 0) operationStart -= discard;
+                        if (length == buffer.length)
+                            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    }
+                    int read = in.read(buffer, length, buffer.length - length);
+                    if (read < 0) break;
+                    length += read;
+
+                    for ( ; scanned < length; scanned++) {
+                        byte b = buffer[scanned];
+                        if (depth > 0) {
+                            if (inString) {
+                                if (escaped) escaped = false;
+                                else if (b == '\\') escaped = true;
+                                else if (b == '"') inString = false;
+                            }
+                            else if (b == '"') inString = true;
+                            else if (b == '{' || b == '[') ++depth;
+                            else if ((b == '}' || b == ']') && --depth == 0) {
+                                operations.add(Arrays.copyOfRange(buffer, operationStart, scanned + 1));
+                                operationsSize += scanned + 1 - operationStart;
+                                operationStart = -1;
+                                if (operationsSize >= chunkSize) {
+                                    if ( ! submit(operations)) return;
+                                    operations = new ArrayList<>();
+                                    operationsSize = 0;
+                                }
+                            }
+                        }
+                        else if (b == '{') {
+                            depth = 1;
+                            operationStart = scanned;
+                            started = true;
+                        }
+                        else if (b == '[' && ! started) {
+                            inArray = started = true;
+                        }
+                        else if (b == ']' && inArray) {
+                            inArray = false;
+                            break read;
+                        }
+                        else if ( ! (Character.isWhitespace(b) || b == ',' && inArray)) {
+                            submit(operations);
+                            fail(new OperationParseException("Unexpected character '" + (char) b + "' at offset " + (bufferOffset + scanned)));
+                            return;
+                        }
+                    }
+                }
+                if ( ! submit(operations)) return;
+                if (depth > 0 || inArray)
+                    fail(new OperationParseException("Unexpected end of feed at offset " + (bufferOffset + length)));
+                else
+                    add(endOfFeed);
+            }
+            catch (IOException e) {
+                try {
+                    if (submit(operations)) // dispatch what was read before failing, like the single parser does
+                        fail(e);
+                }
+                catch (InterruptedException ignored) { }
+            }
+            catch (InterruptedException e) {
+                abort();
+            }
+            finally {
+                parsers.shutdown();
+            }
+        }
+
+    }
+
     private class SingleOperationParserAndExecutor extends OperationParserAndExecutor {
 
         private final byte[] json;
@@ -386,6 +613,13 @@ public class JsonFeeder implements Closeable {
         }
 
         CompletableFuture<Result> next() throws IOException {
+            ParsedOperation operation = parse();
+            return operation == null ? null : dispatch(operation);
+        }
+
+        /** Parses the next operation, or returns null if there are no more operations */
+        ParsedOperation parse() throws IOException {
+            long startNanos = System.nanoTime();
             JsonToken token = parser.nextToken();
             if (multipleOperations && ! arrayPrefixParsed && token == START_ARRAY) {
                 arrayPrefixParsed = true;
@@ -394,6 +628,7 @@ public class JsonFeeder implements Closeable {
             if (token == END_ARRAY && multipleOperations) return null;
             else if (token == null && ! arrayPrefixParsed) return null;
             else if (token != START_OBJECT) throw parseException("Unexpected token '" + parser.currentToken() + "'");
+            long operationStart = parser.getTokenLocation().getByteOffset();
             long start = 0, end = -1;
             OperationType type = null;
             DocumentId id = null;
@@ -441,13 +676,12 @@ public class JsonFeeder implements Closeable {
             else if (end < start)
                 throw parseException("No 'fields' object for document");
 
-            String payload = getDocumentJson(start, end);
-            switch (type) {
-                case PUT:    return client.put   (id, payload, parameters);
-                case UPDATE: return client.update(id, payload, parameters);
-                case REMOVE: return client.remove(id, parameters);
-                default: throw new OperationParseException("Unexpected operation type '" + type + "'");
-            }
+            long operationEnd = parser.getTokenLocation().getByteOffset() + 1;
+            ParsedOperation operation = new ParsedOperation(type, id, parameters, getDocumentJson(start, end));
+            operationsParsed.incrementAndGet();
+            bytesParsed.addAndGet(operationEnd - operationStart);
+            parseNanos.addAndGet(System.nanoTime() - startNanos);
+            return operation;
         }
 
         private void expect(JsonToken token) throws IOException {
@@ -481,10 +715,43 @@ public class JsonFeeder implements Closeable {
 
     }
 
+    private CompletableFuture<Result> dispatch(ParsedOperation operation) throws OperationParseException {
+        long startNanos = System.nanoTime();
+        try {
+            switch (operation.type) {
+                case PUT:    return client.put   (operation.id, operation.payload, operation.parameters);
+                case UPDATE: return client.update(operation.id, operation.payload, operation.parameters);
+                case REMOVE: return client.remove(operation.id, operation.parameters);
+                default: throw new OperationParseException("Unexpected operation type '" + operation.type + "'");
+            }
+        }
+        finally {
+            operationsDispatched.incrementAndGet();
+            dispatchNanos.addAndGet(System.nanoTime() - startNanos);
+        }
+    }
+
+    private static class ParsedOperation {
+
+        final OperationType type;
+        final DocumentId id;
+        final OperationParameters parameters;
+        final String payload;
+
+        ParsedOperation(OperationType type, DocumentId id, OperationParameters parameters, String payload) {
+            this.type = type;
+            this.id = id;
+            this.parameters = parameters;
+            this.payload = payload;
+        }
+
+    }
+
     public static class Builder {
 
         final FeedClient client;
         OperationParameters parameters = OperationParameters.empty();
+        int parserThreads = 1;
 
         private Builder(FeedClient client) {
             this.client = requireNonNull(client);
@@ -505,8 +772,20 @@ public class JsonFeeder implements Closeable {
             return this;
         }
 
+        /**
+         * Sets the number of threads used to parse the operations of a feed in feedMany. Default is 1.
+         * With more than one thread, the input is split into operations on a separate thread, and
+         * chunks of operations are parsed in parallel. Operations are still dispatched in input order.
+         */
+        public Builder withParserThreads(int parserThreads) {
+            if (parserThreads < 1)
+                throw new IllegalArgumentException("Number of parser threads must be at least 1, but was " + parserThreads);
+            this.parserThreads = parserThreads;
+            return this;
+        }
+
         public JsonFeeder build() {
-            return new JsonFeeder(client, parameters);
+            return new JsonFeeder(client, parameters, parserThreads);
         }
 
     }
@@ -21,10 +21,24 @@ public class OperationStats {
     private final long maxLatencyMillis;
     private final long bytesSent;
     private final long bytesReceived;
+    private final long operationsParsed;
+    private final long bytesParsed;
+    private final long parseMillis;
+    private final long operationsDispatched;
+    private final long dispatchMillis;
 
     public OperationStats(long requests, Map<Integer, Long> responsesByCode, long exceptions, long inflight,
                           long averageLatencyMillis, long minLatencyMillis, long maxLatencyMillis,
                           long bytesSent, long bytesReceived) {
+        this(requests, responsesByCode, exceptions, inflight, averageLatencyMillis, minLatencyMillis, maxLatencyMillis,
+             bytesSent, bytesReceived, 0, 0, 0, 0, 0);
+    }
+
+    public OperationStats(long requests, Map<Integer, Long> responsesByCode, long exceptions, long inflight,
+                          long averageLatencyMillis, long minLatencyMillis, long maxLatencyMillis,
+                          long bytesSent, long bytesReceived,
+                          long operationsParsed, long bytesParsed, long parseMillis,
+                          long operationsDispatched, long dispatchMillis) {
         this.requests = requests;
         this.responsesByCode = responsesByCode;
         this.exceptions = exceptions;
@@ -34,6 +48,19 @@ public class OperationStats {
         this.maxLatencyMillis = maxLatencyMillis;
         this.bytesSent = bytesSent;
         this.bytesReceived = bytesReceived;
+        this.operationsParsed = operationsParsed;
+        this.bytesParsed = bytesParsed;
+        this.parseMillis = parseMillis;
+        this.operationsDispatched = operationsDispatched;
+        this.dispatchMillis = dispatchMillis;
+    }
+
+    /** Returns a copy of this with the given statistics of parsing and dispatching feed operations. */
+    public OperationStats withFeeding(long operationsParsed, long bytesParsed, long parseMillis,
+                                      long operationsDispatched, long dispatchMillis) {
+        return new OperationStats(requests, responsesByCode, exceptions, inflight,
+                                  averageLatencyMillis, minLatencyMillis, maxLatencyMillis, bytesSent, bytesReceived,
+                                  operationsParsed, bytesParsed, parseMillis, operationsDispatched, dispatchMillis);
     }
 
     /** Returns the difference between this and the initial. Min and max latency are not modified. */
@@ -50,7 +77,12 @@ public class OperationStats {
                                   minLatencyMillis,
                                   maxLatencyMillis,
                                   bytesSent - initial.bytesSent,
-                                  bytesReceived - initial.bytesReceived);
+                                  bytesReceived - initial.bytesReceived,
+                                  operationsParsed - initial.operationsParsed,
+                                  bytesParsed - initial.bytesParsed,
+                                  parseMillis - initial.parseMillis,
+                                  operationsDispatched - initial.operationsDispatched,
+                                  dispatchMillis - initial.dispatchMillis);
     }
 
     /** Number of HTTP requests attempted. */
@@ -108,17 +140,54 @@ public class OperationStats {
         return bytesReceived;
     }
 
+    /** Number of feed operations parsed by a {@link JsonFeeder}. */
+    public long operationsParsed() {
+        return operationsParsed;
+    }
+
+    /** Number of bytes of feed operations parsed by a {@link JsonFeeder}. */
+    public long bytesParsed() {
+        return bytesParsed;
+    }
+
+    /** Time spent parsing feed operations, summed over all parser threads. */
+    public long parseMillis() {
+        return parseMillis;
+    }
+
+    /** Number of parsed feed operations per second of parsing, for each parser thread, or 0. */
+    public double parseThroughput() {
+        return parseMillis == 0 ? 0 : operationsParsed * 1000.0 / parseMillis;
+    }
+
+    /** Number of feed operations dispatched to the feed client by a {@link JsonFeeder}. */
+    public long operationsDispatched() {
+        return operationsDispatched;
+    }
+
+    /** Time spent dispatching feed operations, including waiting for the client to accept them. */
+    public long dispatchMillis() {
+        return dispatchMillis;
+    }
+
+    /** Number of dispatched feed operations per second of dispatching, or 0. */
+    public double dispatchThroughput() {
+        return dispatchMillis == 0 ? 0 : operationsDispatched * 1000.0 / dispatchMillis;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         OperationStats that = (OperationStats) o;
-        return requests == that.requests && inflight == that.inflight && exceptions == that.exceptions && averageLatencyMillis == that.averageLatencyMillis && minLatencyMillis == that.minLatencyMillis && maxLatencyMillis == that.maxLatencyMillis && bytesSent == that.bytesSent && bytesReceived == that.bytesReceived && responsesByCode.equals(that.responsesByCode);
+        return requests == that.requests && inflight == that.inflight && exceptions == that.exceptions && averageLatencyMillis == that.averageLatencyMillis && minLatencyMillis == that.minLatencyMillis && maxLatencyMillis == that.maxLatencyMillis && bytesSent == that.bytesSent && bytesReceived == that.bytesReceived && responsesByCode.equals(that.responsesByCode)
+               && operationsParsed == that.operationsParsed && bytesParsed == that.bytesParsed && parseMillis == that.parseMillis && operationsDispatched == that.operationsDispatched && dispatchMillis == that.dispatchMillis;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(requests, responsesByCode, inflight, exceptions, averageLatencyMillis, minLatencyMillis, maxLatencyMillis, bytesSent, bytesReceived);
+        return Objects.hash(requests, responsesByCode, inflight, exceptions, averageLatencyMillis, minLatencyMillis, maxLatencyMillis, bytesSent, bytesReceived,
+                            operationsParsed, bytesParsed, parseMillis, operationsDispatched, dispatchMillis);
     }
 
     @Override
@@ -133,6 +202,11 @@ public class OperationStats {
                ", maxLatencyMillis=" + maxLatencyMillis +
                ", bytesSent=" + bytesSent +
                ", bytesReceived=" + bytesReceived +
+               ", operationsParsed=" + operationsParsed +
+               ", bytesParsed=" + bytesParsed +
+               ", parseMillis=" + parseMillis +
+               ", operationsDispatched=" + operationsDispatched +
+               ", dispatchMillis=" + dispatchMillis +
                '}';
     }
 
@@ -0,0 +1,47 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.feed.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author bratseth
+ */
+class GradientThrottlerTest {
+
+    @Test
+    void targetFollowsLatency() {
+        AtomicLong nanos = new AtomicLong(0);
+        GradientThrottler throttler = new GradientThrottler(FeedClientBuilder.create(URI.create("https://dummy:123")), nanos::get);
+        long initial = throttler.targetInflight();
+
+        respondAfter(10_000_000, 30, throttler, nanos); // Flat latency, also with half the target: grow.
+        long grown = throttler.targetInflight();
+        assertTrue(grown > initial, grown + " > " + initial);
+
+        respondAfter(40_000_000, 5, throttler, nanos); // Latency inflated compared to that with half the target: shrink.
+        assertTrue(throttler.targetInflight() < grown, throttler.targetInflight() + " < " + grown);
+    }
+
+    /** Sends the target inflight of requests, and completes all of them after the given time, for the given number of rounds. */
+    private static void respondAfter(long latencyNanos, int rounds, GradientThrottler throttler, AtomicLong nanos) {
+        for (int round = 0; round < rounds; round++) {
+            List<CompletableFuture<HttpResponse>> vessels = new ArrayList<>();
+            for (long inflight = 0; inflight < throttler.targetInflight(); inflight++) {
+                CompletableFuture<HttpResponse> vessel = new CompletableFuture<>();
+                throttler.sent(inflight + 1, vessel);
+                vessels.add(vessel);
+            }
+            nanos.addAndGet(latencyNanos);
+            vessels.forEach(vessel -> vessel.complete(null));
+        }
+    }
+
+}
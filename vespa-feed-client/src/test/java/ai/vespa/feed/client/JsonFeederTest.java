@@ -9,8 +9,10 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -138,6 +140,90 @@ class JsonFeederTest {
         }
     }
 
+    @Test
+    public void operationsAreParsedInParallelAndDispatchedInOrder() throws IOException, ExecutionException, InterruptedException {
+        int ids = 100, rounds = 50;
+        StringBuilder jsonl = new StringBuilder();
+        for (int round = 0; round < rounds; round++)
+            for (int i = 0; i < ids; i++)
+                jsonl.append("{\"put\": \"id:ns:type::abc").append(i).append("\", \"fields\": { \"text\": \"round ").append(round)
+                     .append(" {[\\\"quoted\\\"]}\", \"padding\": \"").append(String.join("", Collections.nCopies(1000, "x"))).append("\" } }\n");
+        String array = "[" + jsonl.toString().replace("}\n{", "},\n{") + "]";
+
+        for (String json : Arrays.asList(jsonl.toString(), array)) {
+            MockClient client = new MockClient();
+            try (JsonFeeder feeder = JsonFeeder.builder(client).withParserThreads(4).build()) {
+                AtomicInteger resultsReceived = new AtomicInteger();
+                feeder.feedMany(new ByteArrayInputStream(json.getBytes(UTF_8)),
+                                new JsonFeeder.ResultCallback() {
+                                    @Override public void onNextResult(Result result, FeedException error) { resultsReceived.incrementAndGet(); }
+                                })
+                      .get();
+                assertEquals(ids * rounds, resultsReceived.get());
+                assertEquals(ids * rounds, client.operations.size());
+                for (int i = 0; i < ids; i++)
+                    assertTrue(client.putOperations.get(DocumentId.of("id:ns:type::abc" + i)).startsWith("{\"fields\":{ \"text\": \"round " + (rounds - 1) + " {[\\\"quoted\\\"]}\""));
+                List<DocumentId> inputOrder = new ArrayList<>();
+                for (int round = 0; round < rounds; round++)
+                    for (int i = 0; i < ids; i++)
+                        inputOrder.add(DocumentId.of("id:ns:type::abc" + i));
+                assertEquals(inputOrder, client.operations);
+
+                OperationStats stats = feeder.stats();
+                assertEquals(ids * rounds, stats.operationsParsed());
+                assertEquals(ids * rounds, stats.operationsDispatched());
+                assertEquals(jsonl.length() - ids * rounds, stats.bytesParsed());
+            }
+        }
+    }
+
+    @Test
+    public void parallelParsingFailsOnInvalidFeed() throws IOException {
+        MockClient client = new MockClient();
+        try (JsonFeeder feeder = JsonFeeder.builder(client).withParserThreads(2).build()) {
+            String json = "[{\"put\": \"id:ns:type::abc1\", \"fields\": { \"lul\": \"lal\" } },\n" +
+                          " {\"put\": \"id:ns:type::abc2\", \"fields\": { \"lul\": \"lal\" } },\n" +
+                          " \"oops\"]";
+            AtomicReference<FeedException> error = new AtomicReference<>();
+            CompletableFuture<Void> result = feeder.feedMany(new ByteArrayInputStream(json.getBytes(UTF_8)),
+                                                             new JsonFeeder.ResultCallback() {
+                                                                 @Override public void onError(FeedException e) { error.set(e); }
+                                                             });
+            ExecutionException thrown = assertThrows(ExecutionException.class, result::get);
+            assertEquals(OperationParseException.class, thrown.getCause().getClass());
+            assertEquals("Unexpected character '\"' at offset 119", thrown.getCause().getMessage());
+            assertEquals(thrown.getCause(), error.get());
+            client.assertPutDocumentIds("abc1", "abc2");
+        }
+    }
+
+    @Test
+    public void parallelParsingDispatchesOperationsReadBeforeInputFails() throws IOException {
+        MockClient client = new MockClient();
+        try (JsonFeeder feeder = JsonFeeder.builder(client).withParserThreads(2).build()) {
+            byte[] json = ("{\"put\": \"id:ns:type::abc1\", \"fields\": { \"lul\": \"lal\" } }\n" +
+                           "{\"put\": \"id:ns:type::abc2\", \"fields\": { \"lul\": \"lal\" } }\n" +
+                           "{\"put\": \"id:ns:type::abc3\", \"fie").getBytes(UTF_8);
+            InputStream in = new InputStream() {
+                final InputStream data = new ByteArrayInputStream(json);
+                @Override public int read() throws IOException { return check(data.read()); }
+                @Override public int read(byte[] b, int off, int len) throws IOException { return check(data.read(b, off, len)); }
+                int check(int read) throws IOException {
+                    if (read < 0) throw new IOException("Connection reset");
+                    return read;
+                }
+            };
+            AtomicReference<FeedException> error = new AtomicReference<>();
+            CompletableFuture<Void> result = feeder.feedMany(in, new JsonFeeder.ResultCallback() {
+                @Override public void onError(FeedException e) { error.set(e); }
+            });
+            ExecutionException thrown = assertThrows(ExecutionException.class, result::get);
+            assertEquals(thrown.getCause(), error.get());
+            assertEquals("Failed to parse document JSON: Connection reset", thrown.getCause().getMessage());
+            client.assertPutDocumentIds("abc1", "abc2");
+        }
+    }
+
     @Test
     public void singleJsonOperationIsDispatchedToFeedClient() throws IOException, ExecutionException, InterruptedException {
         MockClient client = new MockClient();
@@ -159,27 +245,31 @@ class JsonFeederTest {
         final Map<DocumentId, String> putOperations = new LinkedHashMap<>();
         final Map<DocumentId, String> updateOperations = new LinkedHashMap<>();
         final Map<DocumentId, String> removeOperations = new LinkedHashMap<>();
+        final List<DocumentId> operations = new ArrayList<>();
 
         @Override
         public CompletableFuture<Result> put(DocumentId documentId, String documentJson, OperationParameters params) {
             putOperations.put(documentId, documentJson);
+            operations.add(documentId);
             return createSuccessResult(documentId);
         }
 
         @Override
         public CompletableFuture<Result> update(DocumentId documentId, String updateJson, OperationParameters params) {
             updateOperations.put(documentId, updateJson);
+            operations.add(documentId);
             return createSuccessResult(documentId);
         }
 
         @Override
         public CompletableFuture<Result> remove(DocumentId documentId, OperationParameters params) {
             removeOperations.put(documentId, null);
+            operations.add(documentId);
             return createSuccessResult(documentId);
         }
 
         @Override
-        public OperationStats stats() { return null; }
+        public OperationStats stats() { return new OperationStats(0, Collections.emptyMap(), 0, 0, -1, -1, -1, 0, 0); }
 
         @Override
         public CircuitBreaker.State circuitBreakerState() { return null; }
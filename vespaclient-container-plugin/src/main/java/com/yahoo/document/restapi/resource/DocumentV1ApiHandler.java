@@ -100,6 +100,7 @@ import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static com.yahoo.documentapi.DocumentOperationParameters.parameters;
@@ -113,6 +114,7 @@ import static java.util.logging.Level.FINE;
 import static java.util.logging.Level.WARNING;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toUnmodifiableList;
 import static java.util.stream.Collectors.toUnmodifiableMap;
 
 /**
@@ -159,6 +161,10 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
     private static final String TIMEOUT = "timeout";
     private static final String TRACELEVEL = "tracelevel";
 
+    private static final String QUEUED_OPERATIONS_METRIC = "httpapi_queued_operations";
+    private static final String DISPATCH_LATENCY_METRIC = "httpapi_dispatch_latency";
+    private static final String DISPATCHER_DIMENSION = "dispatcher";
+
     private final Clock clock;
     private final Duration handlerTimeout;
     private final Metric metric;
@@ -168,12 +174,11 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
     private final DocumentAccess access;
     private final AsyncSession asyncSession;
     private final Map<String, StorageCluster> clusters;
-    private final Deque<Operation> operations;
+    private final List<DispatchShard> shards;
     private final Deque<BooleanSupplier> visitOperations = new ConcurrentLinkedDeque<>();
     private final AtomicLong enqueued = new AtomicLong();
-    private final AtomicLong outstanding = new AtomicLong();
+    private final AtomicLong outstanding = new AtomicLong(); // Operations sent by visitors — the shards keep track of their own.
     private final Map<VisitorControlHandler, VisitorSession> visits = new ConcurrentHashMap<>();
-    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("document-api-handler-"));
     private final ScheduledExecutorService visitDispatcher = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("document-api-handler-visit-"));
     private final Map<String, Map<Method, Handler>> handlers = defineApi();
 
@@ -194,18 +199,16 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
                          ClusterListConfig clusterListConfig, AllClustersBucketSpacesConfig bucketSpacesConfig) {
         this.clock = clock;
         this.handlerTimeout = handlerTimeout;
-        this.parser = new DocumentOperationParser(documentmanagerConfig);
+        this.parser = new DocumentOperationParser(documentmanagerConfig, executorConfig.lazyPuts());
         this.metric = metric;
         this.metrics = new DocumentApiMetrics(metricReceiver, "documentV1");
         this.maxThrottled = executorConfig.maxThrottled();
         this.access = access;
         this.asyncSession = access.createAsyncSession(new AsyncParameters());
         this.clusters = parseClusters(clusterListConfig, bucketSpacesConfig);
-        this.operations = new ConcurrentLinkedDeque<>();
-        this.dispatcher.scheduleWithFixedDelay(this::dispatchEnqueued,
-                                               executorConfig.resendDelayMillis(),
-                                               executorConfig.resendDelayMillis(),
-                                               TimeUnit.MILLISECONDS);
+        this.shards = IntStream.range(0, Math.max(1, executorConfig.dispatchThreads()))
+                               .mapToObj(index -> new DispatchShard(index, executorConfig.resendDelayMillis()))
+                               .collect(toUnmodifiableList());
         this.visitDispatcher.scheduleWithFixedDelay(this::dispatchVisitEnqueued,
                                                     executorConfig.resendDelayMillis(),
                                                     executorConfig.resendDelayMillis(),
@@ -266,26 +269,27 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         visits.values().forEach(VisitorSession::abort);
         visits.values().forEach(VisitorSession::destroy);
 
-        // Shut down both dispatchers, so only we empty the queues of outstanding operations, and can be sure they're empty.
-        dispatcher.shutdown();
+        // Shut down all dispatchers, so only we empty the queues of outstanding operations, and can be sure they're empty.
+        shards.forEach(shard -> shard.executor.shutdown());
         visitDispatcher.shutdown();
-        while ( ! (operations.isEmpty() && visitOperations.isEmpty()) && clock.instant().isBefore(doom)) {
+        while ( ! (queued() == 0 && visitOperations.isEmpty()) && clock.instant().isBefore(doom)) {
             dispatchEnqueued();
             dispatchVisitEnqueued();
         }
 
-        if ( ! operations.isEmpty())
-            log.log(WARNING, "Failed to empty request queue before shutdown timeout — " + operations.size() + " requests left");
+        if (queued() != 0)
+            log.log(WARNING, "Failed to empty request queue before shutdown timeout — " + queued() + " requests left");
 
         if ( ! visitOperations.isEmpty())
-            log.log(WARNING, "Failed to empty visitor operations queue before shutdown timeout — " + operations.size() + " operations left");
+            log.log(WARNING, "Failed to empty visitor operations queue before shutdown timeout — " + visitOperations.size() + " operations left");
 
         try {
-            while (outstanding.get() > 0 && clock.instant().isBefore(doom))
+            while (outstanding() > 0 && clock.instant().isBefore(doom))
                 Thread.sleep(Math.max(1, Duration.between(clock.instant(), doom).toMillis()));
 
-            if ( ! dispatcher.awaitTermination(Duration.between(clock.instant(), doom).toMillis(), TimeUnit.MILLISECONDS))
-                dispatcher.shutdownNow();
+            for (DispatchShard shard : shards)
+                if ( ! shard.executor.awaitTermination(Duration.between(clock.instant(), doom).toMillis(), TimeUnit.MILLISECONDS))
+                    shard.executor.shutdownNow();
 
             if ( ! visitDispatcher.awaitTermination(Duration.between(clock.instant(), doom).toMillis(), TimeUnit.MILLISECONDS))
                 visitDispatcher.shutdownNow();
@@ -295,8 +299,8 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         }
         finally {
             asyncSession.destroy();
-            if (outstanding.get() != 0)
-                log.log(WARNING, "Failed to receive a response to " + outstanding.get() + " outstanding document operations during shutdown");
+            if (outstanding() != 0)
+                log.log(WARNING, "Failed to receive a response to " + outstanding() + " outstanding document operations during shutdown");
         }
     }
 
@@ -354,7 +358,7 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
     }
 
     private ContentChannel getDocuments(HttpRequest request, DocumentPath path, ResponseHandler handler) {
-        enqueueAndDispatch(request, handler, () -> {
+        enqueueAndDispatch(shardOf(path.rawPath()), request, handler, () -> {
             VisitorParameters parameters = parseGetParameters(request, path);
             return () -> {
                 visitAndWrite(request, parameters, handler);
@@ -365,7 +369,7 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
     }
 
     private ContentChannel postDocuments(HttpRequest request, DocumentPath path, ResponseHandler handler) {
-        enqueueAndDispatch(request, handler, () -> {
+        enqueueAndDispatch(shardOf(path.rawPath()), request, handler, () -> {
             StorageCluster destination = resolveCluster(Optional.of(requireProperty(request, DESTINATION_CLUSTER)), clusters);
             VisitorParameters parameters = parseParameters(request, path);
             parameters.setRemoteDataHandler("[Content:cluster=" + destination.name() + "]"); // Bypass indexing.
@@ -380,7 +384,7 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
 
     private ContentChannel putDocuments(HttpRequest request, DocumentPath path, ResponseHandler handler) {
         return new ForwardingContentChannel(in -> {
-            enqueueAndDispatch(request, handler, () -> {
+            enqueueAndDispatch(shardOf(path.rawPath()), request, handler, () -> {
                 StorageCluster cluster = resolveCluster(Optional.of(requireProperty(request, CLUSTER)), clusters);
                 VisitorParameters parameters = parseParameters(request, path);
                 parameters.setFieldSet(DocIdOnly.NAME);
@@ -397,7 +401,7 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
     }
 
     private ContentChannel deleteDocuments(HttpRequest request, DocumentPath path, ResponseHandler handler) {
-        enqueueAndDispatch(request, handler, () -> {
+        enqueueAndDispatch(shardOf(path.rawPath()), request, handler, () -> {
             VisitorParameters parameters = parseParameters(request, path);
             parameters.setFieldSet(DocIdOnly.NAME);
             TestAndSetCondition condition = new TestAndSetCondition(requireProperty(request, SELECTION));
@@ -411,12 +415,13 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
     }
 
     private ContentChannel getDocument(HttpRequest request, DocumentPath path, ResponseHandler handler) {
-        enqueueAndDispatch(request, handler, () -> {
+        DispatchShard shard = shardOf(path.id());
+        enqueueAndDispatch(shard, request, handler, () -> {
             DocumentOperationParameters rawParameters = parametersFromRequest(request, CLUSTER, FIELD_SET);
             if (rawParameters.fieldSet().isEmpty())
                 rawParameters = rawParameters.withFieldSet(path.documentType().orElseThrow() + ":[document]");
             DocumentOperationParameters parameters = rawParameters.withResponseHandler(response -> {
-                outstanding.decrementAndGet();
+                shard.outstanding.decrementAndGet();
                 handle(path, handler, response, (document, jsonResponse) -> {
                     if (document != null) {
                         jsonResponse.writeSingleDocument(document);
@@ -426,55 +431,58 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
                         jsonResponse.commit(Response.Status.NOT_FOUND);
                 });
             });
-            return () -> dispatchOperation(() -> asyncSession.get(path.id(), parameters));
+            return () -> shard.dispatch(() -> asyncSession.get(path.id(), parameters));
         });
         return ignoredContent;
     }
 
     private ContentChannel postDocument(HttpRequest request, DocumentPath path, ResponseHandler rawHandler) {
         ResponseHandler handler = new MeasuringResponseHandler(rawHandler, com.yahoo.documentapi.metrics.DocumentOperationType.PUT, clock.instant());
+        DispatchShard shard = shardOf(path.id());
         return new ForwardingContentChannel(in -> {
-            enqueueAndDispatch(request, handler, () -> {
+            enqueueAndDispatch(shard, request, handler, () -> {
                 DocumentPut put = parser.parsePut(in, path.id().toString());
                 getProperty(request, CONDITION).map(TestAndSetCondition::new).ifPresent(put::setCondition);
                 DocumentOperationParameters parameters = parametersFromRequest(request, ROUTE)
                         .withResponseHandler(response -> {
-                            outstanding.decrementAndGet();
+                            shard.outstanding.decrementAndGet();
                             handle(path, handler, response);
                         });
-                return () -> dispatchOperation(() -> asyncSession.put(put, parameters));
+                return () -> shard.dispatch(() -> asyncSession.put(put, parameters));
             });
         });
     }
 
     private ContentChannel putDocument(HttpRequest request, DocumentPath path, ResponseHandler rawHandler) {
         ResponseHandler handler = new MeasuringResponseHandler(rawHandler, com.yahoo.documentapi.metrics.DocumentOperationType.UPDATE, clock.instant());
+        DispatchShard shard = shardOf(path.id());
         return new ForwardingContentChannel(in -> {
-            enqueueAndDispatch(request, handler, () -> {
+            enqueueAndDispatch(shard, request, handler, () -> {
                 DocumentUpdate update = parser.parseUpdate(in, path.id().toString());
                 getProperty(request, CONDITION).map(TestAndSetCondition::new).ifPresent(update::setCondition);
                 getProperty(request, CREATE, booleanParser).ifPresent(update::setCreateIfNonExistent);
                 DocumentOperationParameters parameters = parametersFromRequest(request, ROUTE)
                         .withResponseHandler(response -> {
-                            outstanding.decrementAndGet();
+                            shard.outstanding.decrementAndGet();
                             handle(path, handler, response);
                         });
-                return () -> dispatchOperation(() -> asyncSession.update(update, parameters));
+                return () -> shard.dispatch(() -> asyncSession.update(update, parameters));
             });
         });
     }
 
     private ContentChannel deleteDocument(HttpRequest request, DocumentPath path, ResponseHandler rawHandler) {
         ResponseHandler handler = new MeasuringResponseHandler(rawHandler, com.yahoo.documentapi.metrics.DocumentOperationType.REMOVE, clock.instant());
-        enqueueAndDispatch(request, handler, () -> {
+        DispatchShard shard = shardOf(path.id());
+        enqueueAndDispatch(shard, request, handler, () -> {
             DocumentRemove remove = new DocumentRemove(path.id());
             getProperty(request, CONDITION).map(TestAndSetCondition::new).ifPresent(remove::setCondition);
             DocumentOperationParameters parameters = parametersFromRequest(request, ROUTE)
                     .withResponseHandler(response -> {
-                        outstanding.decrementAndGet();
+                        shard.outstanding.decrementAndGet();
                         handle(path, handler, response);
                     });
-            return () -> dispatchOperation(() -> asyncSession.remove(remove, parameters));
+            return () -> shard.dispatch(() -> asyncSession.remove(remove, parameters));
         });
         return ignoredContent;
     }
@@ -505,28 +513,24 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         return parameters;
     }
 
-    /** Dispatches enqueued requests until one is blocked. */
+    /** Dispatches enqueued requests of each shard until one is blocked. */
     void dispatchEnqueued() {
-        try {
-            while (dispatchFirst());
-        }
-        catch (Exception e) {
-            log.log(WARNING, "Uncaught exception in /document/v1 dispatch thread", e);
-        }
+        shards.forEach(DispatchShard::dispatchEnqueued);
     }
 
-    /** Attempts to dispatch the first enqueued operations, and returns whether this was successful. */
-    private boolean dispatchFirst() {
-        Operation operation = operations.poll();
-        if (operation == null)
-            return false;
+    /** Returns the shard which dispatches operations with the given key, i.e., document id. */
+    private DispatchShard shardOf(Object key) {
+        return shards.get(Math.floorMod(key.hashCode(), shards.size()));
+    }
 
-        if (operation.dispatch()) {
-            enqueued.decrementAndGet();
-            return true;
-        }
-        operations.push(operation);
-        return false;
+    /** Returns the number of enqueued operations which are not yet dispatched, over all shards. */
+    private long queued() {
+        return shards.stream().mapToLong(shard -> shard.queued.get()).sum();
+    }
+
+    /** Returns the number of operations sent which are not yet responded to. */
+    private long outstanding() {
+        return outstanding.get() + shards.stream().mapToLong(shard -> shard.outstanding.get()).sum();
     }
 
     /** Dispatches enqueued requests until one is blocked. */
@@ -553,17 +557,17 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
     }
 
     /**
-     * Enqueues the given request and operation, or responds with "overload" if the queue is full,
-     * and then attempts to dispatch an enqueued operation from the head of the queue.
+     * Enqueues the given request and operation with the given shard, or responds with "overload" if the queues are full,
+     * and then attempts to dispatch an enqueued operation from the head of the queue of that shard.
      */
-    private void enqueueAndDispatch(HttpRequest request, ResponseHandler handler, Supplier<BooleanSupplier> operationParser) {
+    private void enqueueAndDispatch(DispatchShard shard, HttpRequest request, ResponseHandler handler, Supplier<BooleanSupplier> operationParser) {
         if (enqueued.incrementAndGet() > maxThrottled) {
             enqueued.decrementAndGet();
             overload(request, "Rejecting execution due to overload: " + maxThrottled + " requests already enqueued", handler);
             return;
         }
-        operations.offer(new Operation(request, handler, operationParser));
-        dispatchFirst();
+        shard.enqueue(new Operation(request, handler, operationParser, clock.instant()));
+        shard.dispatchFirst();
     }
 
 
@@ -781,13 +785,15 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         private final Lock lock = new ReentrantLock();
         private final HttpRequest request;
         private final ResponseHandler handler;
+        private final Instant enqueued;
         private BooleanSupplier operation; // The operation to attempt until it returns success.
         private Supplier<BooleanSupplier> parser; // The unparsed operation—getting this will parse it.
 
-        Operation(HttpRequest request, ResponseHandler handler, Supplier<BooleanSupplier> parser) {
+        Operation(HttpRequest request, ResponseHandler handler, Supplier<BooleanSupplier> parser, Instant enqueued) {
             this.request = request;
             this.handler = handler;
             this.parser = parser;
+            this.enqueued = enqueued;
         }
 
         /**
@@ -827,17 +833,70 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
 
     }
 
-    /** Attempts to send the given document operation, returning false if this needs to be retried. */
-    private boolean dispatchOperation(Supplier<Result> documentOperation) {
-        Result result = documentOperation.get();
-        if (result.type() == Result.ResultType.TRANSIENT_ERROR)
+    /**
+     * A queue of document operations, with a thread which retries dispatch of the operations in it when they are throttled.
+     * All operations on a document go through the same shard, which dispatches them in the order they were enqueued,
+     * while operations on different documents are dispatched in parallel, and are not held up by each other's throttling.
+     */
+    private class DispatchShard {
+
+        private final Deque<Operation> operations = new ConcurrentLinkedDeque<>();
+        private final AtomicLong queued = new AtomicLong();
+        private final AtomicLong outstanding = new AtomicLong();
+        private final Metric.Context context;
+        private final ScheduledExecutorService executor;
+
+        DispatchShard(int index, long resendDelayMillis) {
+            this.context = metric.createContext(Map.of(DISPATCHER_DIMENSION, Integer.toString(index)));
+            this.executor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("document-api-handler-" + index + "-"));
+            executor.scheduleWithFixedDelay(this::dispatchEnqueued, resendDelayMillis, resendDelayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        void enqueue(Operation operation) {
+            queued.incrementAndGet();
+            operations.offer(operation);
+        }
+
+        /** Dispatches enqueued requests until one is blocked, and then reports the number left in the queue. */
+        void dispatchEnqueued() {
+            try {
+                while (dispatchFirst());
+            }
+            catch (Exception e) {
+                log.log(WARNING, "Uncaught exception in /document/v1 dispatch thread", e);
+            }
+            metric.set(QUEUED_OPERATIONS_METRIC, queued.get(), context);
+        }
+
+        /** Attempts to dispatch the first enqueued operation, and returns whether this was successful. */
+        boolean dispatchFirst() {
+            Operation operation = operations.poll();
+            if (operation == null)
+                return false;
+
+            if (operation.dispatch()) {
+                queued.decrementAndGet();
+                enqueued.decrementAndGet();
+                metric.set(DISPATCH_LATENCY_METRIC, Duration.between(operation.enqueued, clock.instant()).toMillis() * 1e-3, context);
+                return true;
+            }
+            operations.push(operation);
             return false;
+        }
 
-        if (result.type() == Result.ResultType.FATAL_ERROR)
-            throw new DispatchException(result.getError());
+        /** Attempts to send the given document operation, returning false if this needs to be retried. */
+        boolean dispatch(Supplier<Result> documentOperation) {
+            Result result = documentOperation.get();
+            if (result.type() == Result.ResultType.TRANSIENT_ERROR)
+                return false;
+
+            if (result.type() == Result.ResultType.FATAL_ERROR)
+                throw new DispatchException(result.getError());
+
+            outstanding.incrementAndGet();
+            return true;
+        }
 
-        outstanding.incrementAndGet();
-        return true;
     }
 
     private static class DispatchException extends RuntimeException {
@@ -893,12 +952,16 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
     static class DocumentOperationParser {
 
         private final DocumentTypeManager manager;
+        private final boolean lazyPuts;
 
-        DocumentOperationParser(DocumentmanagerConfig config) {
+        DocumentOperationParser(DocumentmanagerConfig config, boolean lazyPuts) {
             this.manager = new DocumentTypeManager(config);
+            this.lazyPuts = lazyPuts;
         }
 
         DocumentPut parsePut(InputStream inputStream, String docId) {
+            if (lazyPuts) // field values are serialized as they are read
+                return new JsonReader(manager, inputStream, jsonFactory).readSingleLazyPut(docId);
             return (DocumentPut) parse(inputStream, docId, DocumentOperationType.PUT);
         }
 
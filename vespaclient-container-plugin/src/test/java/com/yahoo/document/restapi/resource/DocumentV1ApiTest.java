@@ -42,6 +42,7 @@ import com.yahoo.documentapi.VisitorResponse;
 import com.yahoo.documentapi.VisitorSession;
 import com.yahoo.documentapi.messagebus.protocol.PutDocumentMessage;
 import com.yahoo.jdisc.Metric;
+import com.yahoo.jdisc.test.MockMetric;
 import com.yahoo.messagebus.StaticThrottlePolicy;
 import com.yahoo.messagebus.Trace;
 import com.yahoo.messagebus.TraceNode;
@@ -61,6 +62,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -68,12 +70,15 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -86,6 +91,7 @@ import static com.yahoo.jdisc.http.HttpRequest.Method.POST;
 import static com.yahoo.jdisc.http.HttpRequest.Method.PUT;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -753,6 +759,58 @@ public class DocumentV1ApiTest {
         driver.close();
     }
 
+    @Test
+    public void testDispatchShards() {
+        DocumentOperationExecutorConfig executorConfig = new DocumentOperationExecutorConfig.Builder()
+                .resendDelayMillis(1 << 30)
+                .dispatchThreads(4)
+                .build();
+        MockMetric metric = new MockMetric();
+        handler = new DocumentV1ApiHandler(clock, Duration.ofMillis(1), metric, metrics, access, docConfig, executorConfig, clusterConfig, bucketConfig);
+        RequestHandlerTestDriver driver = new RequestHandlerTestDriver(handler);
+
+        // Operations on document 0 are throttled, which blocks only the shard they are assigned to.
+        AtomicBoolean throttled = new AtomicBoolean(true);
+        Map<String, List<String>> dispatched = new ConcurrentHashMap<>();
+        access.session.expect((operation, parameters) -> {
+            DocumentPut put = (DocumentPut) operation;
+            String id = put.getId().toString();
+            if (throttled.get() && id.equals("id:space:music::0"))
+                return new Result(Result.ResultType.TRANSIENT_ERROR, new Error("overload"));
+
+            dispatched.computeIfAbsent(id, __ -> new CopyOnWriteArrayList<>())
+                      .add(((StringFieldValue) put.getDocument().getFieldValue("artist")).getString());
+            parameters.responseHandler().get().handleResponse(new Response(0, null, Response.Outcome.SUCCESS));
+            return new Result(0);
+        });
+        List<RequestHandlerTestDriver.MockResponseHandler> responses = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+            for (int doc = 0; doc < 8; doc++)
+                responses.add(driver.sendRequest("http://localhost/document/v1/space/music/docid/" + doc,
+                                                 POST,
+                                                 "{ \"fields\": { \"artist\": \"" + i + "\" } }"));
+
+        handler.dispatchEnqueued();
+        assertNull(dispatched.get("id:space:music::0"));
+        assertFalse(dispatched.isEmpty());
+        Map<Map<String, ?>, Double> queued = metric.metrics().get("httpapi_queued_operations");
+        assertEquals(4, queued.size());
+        assertTrue(queued.values().stream().mapToDouble(Double::doubleValue).sum() >= 3);
+
+        clock.advance(Duration.ofSeconds(1));
+        throttled.set(false);
+        handler.dispatchEnqueued();
+        for (int doc = 0; doc < 8; doc++)
+            assertEquals(List.of("0", "1", "2"), dispatched.get("id:space:music::" + doc));
+        for (var response : responses) {
+            response.readAll();
+            assertEquals(200, response.getStatus());
+        }
+        assertEquals(0, metric.metrics().get("httpapi_queued_operations").values().stream().mapToDouble(Double::doubleValue).sum(), 0);
+        assertEquals(1.0, metric.metrics().get("httpapi_dispatch_latency").values().stream().mapToDouble(Double::doubleValue).max().getAsDouble(), 0);
+        driver.close();
+    }
+
 
     static class MockDocumentAccess extends DocumentAccess {
 
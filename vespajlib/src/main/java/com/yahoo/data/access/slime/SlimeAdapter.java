@@ -2,6 +2,7 @@
 package com.yahoo.data.access.slime;
 
 
+import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.AbstractMap;
 import java.util.List;
@@ -83,6 +84,16 @@ public final class SlimeAdapter implements com.yahoo.data.access.Inspector {
         }
         return inspector.asUtf8();
     }
+    /**
+     * Returns the UTF-8 bytes of this string as a buffer wrapping an array which must not be modified.
+     * This avoids copying the bytes where the underlying inspector allows it.
+     */
+    public ByteBuffer asUtf8Buffer() {
+        if (!verify(com.yahoo.slime.Type.NIX, com.yahoo.slime.Type.STRING)) {
+            throw new IllegalStateException("invalid data extraction!");
+        }
+        return inspector.asUtf8Buffer();
+    }
     public byte[] asData() {
         if (!verify(com.yahoo.slime.Type.NIX, com.yahoo.slime.Type.DATA)) {
             throw new IllegalStateException("invalid data extraction!");
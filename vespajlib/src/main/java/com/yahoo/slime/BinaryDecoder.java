@@ -45,7 +45,12 @@ final class BinaryDecoder {
     }
 
     long read_size(int meta) {
-        return (meta == 0) ? read_cmpr_long() : (meta - 1);
+        long size = (meta == 0) ? read_cmpr_long() : (meta - 1);
+        if (size < 0 || size > Integer.MAX_VALUE) { // a malformed size, which would wrap when used as an int
+            in.fail("underflow");
+            return 0;
+        }
+        return size;
     }
 
     long read_bytes_le(int bytes) {
@@ -149,8 +154,8 @@ final class BinaryDecoder {
         long numSymbols = read_cmpr_long();
         final byte [] backing = in.getBacking();
         for (int i = 0; i < numSymbols; ++i) {
-            long size = read_cmpr_long();
-            int sz = (int)size; // XXX
+            long size = read_size(0);
+            int sz = (int)size;
             int offset = in.getPosition();
             in.skip(sz);
             int symbol = slime.insert(Utf8Codec.decode(backing, offset, sz));
@@ -0,0 +1,367 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.slime;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.yahoo.slime.BinaryFormat.decode_double;
+import static com.yahoo.slime.BinaryFormat.decode_meta;
+import static com.yahoo.slime.BinaryFormat.decode_type;
+import static com.yahoo.slime.BinaryFormat.decode_zigzag;
+
+/**
+ * A read-only inspector of Slime data in binary format, which is an alternative
+ * to BinaryFormat.decode when the data is only to be read.
+ *
+ * Instead of creating an object for each value, inspecting the data only records the
+ * position of each value in a DecodeIndex, and the values are decoded from the binary
+ * data when they are read. Strings and data are not copied out of the binary data
+ * until they are accessed, so values which are never read cost nothing beyond the index.
+ *
+ * The binary data must not be modified while it is inspected.
+ **/
+public final class BinaryView implements Inspector {
+
+    private final byte[] data;
+    private final SymbolTable names;
+    private final DecodeIndex index;
+    private final int self;
+
+    private BinaryView(byte[] data, SymbolTable names, DecodeIndex index, int self) {
+        this.data = data;
+        this.names = names;
+        this.index = index;
+        this.self = self;
+    }
+
+    /**
+     * Returns an inspector of the root value of the given binary Slime data.
+     *
+     * If the data can't be deserialized without problems the returned
+     * inspector is the same as the root of the Slime returned by BinaryFormat.decode.
+     **/
+    public static Inspector inspect(byte[] data) {
+        return inspect(data, 0, data.length, new DecodeIndex());
+    }
+
+    /**
+     * Returns an inspector of the root value of the given binary Slime data,
+     * using the given index to hold the positions of the values.
+     * All inspectors of data previously inspected using the same index become
+     * invalid, so an index can only be reused once the previous data is no longer needed.
+     *
+     * If the data can't be deserialized without problems the returned
+     * inspector is the same as the root of the Slime returned by BinaryFormat.decode.
+     *
+     * @param data array containing the data to inspect
+     * @param offset where in the array the data starts
+     * @param length the length of the data
+     * @param index the index to (re)use for this data
+     **/
+    public static Inspector inspect(byte[] data, int offset, int length, DecodeIndex index) {
+        try {
+            return new Indexer(data, offset, length, index).index();
+        }
+        catch (IllegalArgumentException e) {
+            return BinaryFormat.decode(data, offset, length).get();
+        }
+    }
+
+    private int byteOffset() { return index.byteOffset(self); }
+    private byte typeAndMeta() { return data[byteOffset()]; }
+    private int meta() { return decode_meta(typeAndMeta()); }
+
+    /** Returns the size of a string, data, array or object */
+    private int size() {
+        int meta = meta();
+        return meta == 0 ? (int)readCmprLong(data, byteOffset() + 1) : meta - 1;
+    }
+
+    /** Returns the position of the first byte of a string or data value */
+    private int payloadOffset() {
+        int position = byteOffset() + 1;
+        if (meta() != 0) return position;
+        while ((data[position] & 0x80) != 0)
+            position++;
+        return position + 1;
+    }
+
+    private BinaryView child(int i) {
+        return new BinaryView(data, names, index, index.firstChild(self) + i);
+    }
+
+    @Override public boolean valid() { return true; }
+    @Override public Type type() { return decode_type(typeAndMeta()); }
+
+    @Override
+    public int children() {
+        Type type = type();
+        return type == Type.ARRAY || type == Type.OBJECT ? size() : 0;
+    }
+
+    @Override public int entries() { return type() == Type.ARRAY ? size() : 0; }
+    @Override public int fields() { return type() == Type.OBJECT ? size() : 0; }
+
+    @Override
+    public boolean asBool() {
+        return type() == Type.BOOL && meta() != 0;
+    }
+
+    @Override
+    public long asLong() {
+        switch (type()) {
+            case LONG: return decodeLong();
+            case DOUBLE: return (long)decodeDouble();
+            default: return 0;
+        }
+    }
+
+    @Override
+    public double asDouble() {
+        switch (type()) {
+            case LONG: return (double)decodeLong();
+            case DOUBLE: return decodeDouble();
+            default: return 0.0;
+        }
+    }
+
+    private long decodeLong() {
+        int position = byteOffset() + 1;
+        long value = 0;
+        for (int i = 0, shift = 0; i < meta(); i++, shift += 8)
+            value |= (data[position + i] & 0xffL) << shift;
+        return decode_zigzag(value);
+    }
+
+    private double decodeDouble() {
+        int position = byteOffset() + 1;
+        long value = 0;
+        for (int i = 0, shift = 56; i < meta(); i++, shift -= 8)
+            value |= (data[position + i] & 0xffL) << shift;
+        return decode_double(value);
+    }
+
+    @Override
+    public String asString() {
+        if (type() != Type.STRING) return "";
+        return Utf8Codec.decode(data, payloadOffset(), size());
+    }
+
+    @Override
+    public byte[] asUtf8() {
+        if (type() != Type.STRING) return new byte[0];
+        return copyPayload();
+    }
+
+    /** Returns a buffer wrapping the UTF-8 bytes of this string in the inspected data, without copying them */
+    @Override
+    public ByteBuffer asUtf8Buffer() {
+        if (type() != Type.STRING) return ByteBuffer.wrap(new byte[0]);
+        return ByteBuffer.wrap(data, payloadOffset(), size());
+    }
+
+    @Override
+    public byte[] asData() {
+        if (type() != Type.DATA) return new byte[0];
+        return copyPayload();
+    }
+
+    private byte[] copyPayload() {
+        int start = payloadOffset();
+        return Arrays.copyOfRange(data, start, start + size());
+    }
+
+    @Override
+    public void accept(Visitor v) {
+        switch (type()) {
+            case NIX: v.visitNix(); break;
+            case BOOL: v.visitBool(asBool()); break;
+            case LONG: v.visitLong(asLong()); break;
+            case DOUBLE: v.visitDouble(asDouble()); break;
+            case STRING: v.visitString(asUtf8()); break;
+            case DATA: v.visitData(asData()); break;
+            case ARRAY: v.visitArray(this); break;
+            case OBJECT: v.visitObject(this); break;
+        }
+    }
+
+    @Override
+    public void traverse(ArrayTraverser at) {
+        int entries = entries();
+        for (int i = 0; i < entries; i++)
+            at.entry(i, child(i));
+    }
+
+    @Override
+    public void traverse(ObjectSymbolTraverser ot) {
+        int fields = fields();
+        for (int i = 0; i < fields; i++)
+            ot.field(index.symbol(index.firstChild(self) + i), child(i));
+    }
+
+    @Override
+    public void traverse(ObjectTraverser ot) {
+        int fields = fields();
+        for (int i = 0; i < fields; i++)
+            ot.field(names.inspect(index.symbol(index.firstChild(self) + i)), child(i));
+    }
+
+    @Override
+    public Inspector entry(int idx) {
+        if (idx < 0 || idx >= entries()) return NixValue.invalid();
+        return child(idx);
+    }
+
+    @Override
+    public Inspector field(int sym) {
+        int fields = fields();
+        if (fields == 0) return NixValue.invalid();
+        int field = index.field(index.firstChild(self), fields, sym);
+        if (field < 0) return NixValue.invalid();
+        return new BinaryView(data, names, index, field);
+    }
+
+    @Override
+    public Inspector field(String name) {
+        int sym = names.lookup(name);
+        if (sym == SymbolTable.INVALID) return NixValue.invalid();
+        return field(sym);
+    }
+
+    @Override
+    public boolean equalTo(Inspector that) {
+        return Value.equal(this, that);
+    }
+
+    @Override
+    public String toString() {
+        try {
+            ByteArrayOutputStream a = new ByteArrayOutputStream();
+            new JsonFormat(true).encode(a, this);
+            byte[] utf8 = a.toByteArray();
+            return Utf8Codec.decode(utf8, 0, utf8.length);
+        } catch (Exception e) {
+            return "null";
+        }
+    }
+
+    private static long readCmprLong(byte[] data, int position) {
+        long next = data[position++];
+        long value = (next & 0x7f);
+        int shift = 7;
+        while ((next & 0x80) != 0) {
+            next = data[position++];
+            value |= ((next & 0x7f) << shift);
+            shift += 7;
+        }
+        return value;
+    }
+
+    /**
+     * Records the position of each value of some binary data in an index, such that the children of
+     * each array and object are consecutive in the index.
+     *
+     * @throws IllegalArgumentException if the data is not valid
+     **/
+    private static final class Indexer {
+
+        private final byte[] data;
+        private final int end;
+        private final DecodeIndex index;
+        private final SymbolTable names = new SymbolTable();
+        private int position;
+
+        Indexer(byte[] data, int offset, int length, DecodeIndex index) {
+            this.data = data;
+            this.position = offset;
+            this.end = offset + length;
+            this.index = index;
+        }
+
+        Inspector index() {
+            index.reset();
+            indexSymbolTable();
+            int root = index.reserve(1);
+            indexValue(root, SymbolTable.INVALID);
+            return new BinaryView(data, names, index, root);
+        }
+
+        private void indexSymbolTable() {
+            int numSymbols = readSize(0);
+            for (int i = 0; i < numSymbols; ++i) {
+                int size = readSize(0);
+                skip(size);
+                if (names.insert(Utf8Codec.decode(data, position - size, size)) != i)
+                    throw new IllegalArgumentException("duplicate symbols in symbol table");
+            }
+        }
+
+        private void indexValue(int value, int symbol) {
+            int byteOffset = position;
+            byte typeAndMeta = getByte();
+            int meta = decode_meta(typeAndMeta);
+            int firstChild = 0;
+            switch (decode_type(typeAndMeta)) {
+                case NIX:
+                case BOOL:
+                    break;
+                case LONG:
+                case DOUBLE:
+                    skip(meta);
+                    break;
+                case STRING:
+                case DATA:
+                    skip(readSize(meta));
+                    break;
+                case ARRAY: {
+                    int size = readSize(meta);
+                    firstChild = index.reserve(size);
+                    for (int i = 0; i < size; i++)
+                        indexValue(firstChild + i, SymbolTable.INVALID);
+                    break;
+                }
+                case OBJECT: {
+                    int size = readSize(meta);
+                    firstChild = index.reserve(size);
+                    for (int i = 0; i < size; i++)
+                        indexValue(firstChild + i, (int)readCmprLong());
+                    index.indexFields(firstChild, size);
+                    break;
+                }
+            }
+            index.set(value, byteOffset, firstChild, symbol);
+        }
+
+        private byte getByte() {
+            if (position == end) throw new IllegalArgumentException("underflow");
+            return data[position++];
+        }
+
+        private void skip(int size) {
+            if (size > end - position) throw new IllegalArgumentException("underflow");
+            position += size;
+        }
+
+        private long readCmprLong() {
+            long next = getByte();
+            long value = (next & 0x7f);
+            int shift = 7;
+            while ((next & 0x80) != 0) {
+                next = getByte();
+                value |= ((next & 0x7f) << shift);
+                shift += 7;
+            }
+            return value;
+        }
+
+        /** Reads a size, which can be no larger than the remaining data as each value or symbol needs at least one byte */
+        private int readSize(int meta) {
+            long size = (meta == 0) ? readCmprLong() : (meta - 1);
+            if (size < 0 || size > end - position) throw new IllegalArgumentException("underflow");
+            return (int)size;
+        }
+
+    }
+
+}
@@ -0,0 +1,108 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.slime;
+
+import java.util.Arrays;
+
+/**
+ * Reusable storage for the position of each value in some binary Slime data,
+ * as produced by BinaryView.inspect. This holds no objects per value, only
+ * a few primitive arrays which are grown as needed and kept when reused.
+ *
+ * An index may be reused for decoding other data, but this invalidates all
+ * inspectors of the data it previously held. It is not thread safe.
+ **/
+public final class DecodeIndex {
+
+    /** The max number of fields of an object for which a field is looked up by a linear search of its fields */
+    static final int maxLinearSearchFields = 8;
+
+    /** The byte offset of each value in the upper half, and the index of its first child in the lower half */
+    private long[] values;
+
+    /** The symbol of each value which is an object field */
+    private int[] symbols;
+
+    /**
+     * For the fields of each object with more than {@link #maxLinearSearchFields} fields:
+     * the fields in order of increasing symbol, such that fields can be looked up by binary search
+     */
+    private int[] fieldsBySymbol;
+
+    private int size = 0;
+
+    public DecodeIndex() {
+        this(64);
+    }
+
+    /** Creates an index with initial room for the given number of values */
+    public DecodeIndex(int capacity) {
+        values = new long[Math.max(capacity, 1)];
+        symbols = new int[values.length];
+        fieldsBySymbol = new int[values.length];
+    }
+
+    void reset() { size = 0; }
+
+    /** Reserves a number of consecutive values and returns the index of the first one */
+    int reserve(int count) {
+        int first = size;
+        if (size + count > values.length) {
+            int capacity = Math.max(values.length * 2, size + count);
+            values = Arrays.copyOf(values, capacity);
+            symbols = Arrays.copyOf(symbols, capacity);
+            fieldsBySymbol = Arrays.copyOf(fieldsBySymbol, capacity);
+        }
+        size += count;
+        return first;
+    }
+
+    void set(int value, int byteOffset, int firstChild, int symbol) {
+        values[value] = ((long)byteOffset << 32) | (firstChild & 0xffffffffL);
+        symbols[value] = symbol;
+    }
+
+    int byteOffset(int value) { return (int)(values[value] >>> 32); }
+    int firstChild(int value) { return (int)values[value]; }
+    int symbol(int value) { return symbols[value]; }
+
+    /** Makes the given fields of an object, whose symbols are set, searchable by {@link #field} */
+    void indexFields(int firstField, int fields) {
+        if (fields <= maxLinearSearchFields) return;
+
+        boolean sorted = true;
+        for (int i = 1; i < fields && sorted; i++)
+            sorted = symbols[firstField + i - 1] <= symbols[firstField + i];
+        if (sorted) {
+            for (int i = 0; i < fields; i++)
+                fieldsBySymbol[firstField + i] = firstField + i;
+            return;
+        }
+        long[] symbolsAndFields = new long[fields]; // sorted by symbol, then by field order
+        for (int i = 0; i < fields; i++)
+            symbolsAndFields[i] = ((long)symbols[firstField + i] << 32) | i;
+        Arrays.sort(symbolsAndFields);
+        for (int i = 0; i < fields; i++)
+            fieldsBySymbol[firstField + i] = firstField + (int)symbolsAndFields[i];
+    }
+
+    /** Returns the first of the given fields of an object which has the given symbol, or -1 if none has */
+    int field(int firstField, int fields, int symbol) {
+        if (fields <= maxLinearSearchFields) {
+            for (int i = firstField; i < firstField + fields; i++)
+                if (symbols[i] == symbol) return i;
+            return -1;
+        }
+        int low = firstField;
+        int high = firstField + fields;
+        while (low < high) { // find the first field with a symbol no less than the given
+            int middle = (low + high) >>> 1;
+            if (symbols[fieldsBySymbol[middle]] < symbol)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        if (low == firstField + fields || symbols[fieldsBySymbol[low]] != symbol) return -1;
+        return fieldsBySymbol[low];
+    }
+
+}
@@ -1,6 +1,8 @@
 // Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.slime;
 
+import java.nio.ByteBuffer;
+
 /**
  * Interface for read-only access to any value or object that is part
  * of a Slime. You can access meta-data such as validity and actual
@@ -56,6 +58,12 @@ public interface Inspector {
     /** the current value encoded into UTF-8 (for string values); default: empty array */
     byte[] asUtf8();
 
+    /**
+     * the current value encoded into UTF-8 (for string values), as a buffer wrapping an array
+     * which may be shared with other values and must not be modified; default: empty buffer
+     */
+    default ByteBuffer asUtf8Buffer() { return ByteBuffer.wrap(asUtf8()); }
+
     /** the current value (for data values); default: empty array */
     byte[] asData();
 
@@ -0,0 +1,126 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import java.util.Arrays;
+
+/**
+ * A compact index from tensor addresses to consecutive positions 0..size-1, in insertion order.
+ * This is used by sparse tensors to keep cell values in primitive arrays rather than in maps
+ * of boxed values: The addresses are kept in an array, and looked up through an open-addressing
+ * hash table of positions.
+ *
+ * This is mutable while a tensor is built, and must not be modified after it is handed to a tensor.
+ *
+ * @author bratseth
+ */
+final class AddressIndex {
+
+    private static final TensorAddress[] noAddresses = new TensorAddress[0];
+
+    private TensorAddress[] addresses;
+
+    /** The scrambled hash of each address, to avoid recomputing them on rehash and comparing addresses needlessly */
+    private int[] hashes;
+
+    /** Each slot holds position + 1 of the address hashed to it, or 0 if empty */
+    private int[] slots;
+
+    private int size = 0;
+
+    AddressIndex() {
+        this(16);
+    }
+
+    AddressIndex(int expectedSize) {
+        addresses = expectedSize == 0 ? noAddresses : new TensorAddress[expectedSize];
+        hashes = new int[expectedSize];
+        slots = new int[slotCountFor(expectedSize)];
+    }
+
+    private AddressIndex(AddressIndex other) {
+        this.addresses = Arrays.copyOf(other.addresses, other.addresses.length);
+        this.hashes = Arrays.copyOf(other.hashes, other.hashes.length);
+        this.slots = Arrays.copyOf(other.slots, other.slots.length);
+        this.size = other.size;
+    }
+
+    /** Returns a copy of this which can be modified independently */
+    AddressIndex copy() { return new AddressIndex(this); }
+
+    /** Returns the number of addresses in this */
+    int size() { return size; }
+
+    /** Returns the address at the given position */
+    TensorAddress address(int position) { return addresses[position]; }
+
+    /** Returns the position of the given address, or -1 if it is not present */
+    int indexOf(TensorAddress address) {
+        int hash = spread(address.hashCode());
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) return -1;
+            if (hashes[entry - 1] == hash && addresses[entry - 1].equals(address)) return entry - 1;
+        }
+    }
+
+    /**
+     * Adds an address to this if not already present.
+     *
+     * @return the position of the address in this
+     */
+    int add(TensorAddress address) {
+        int hash = spread(address.hashCode());
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        for (int entry; (entry = slots[slot]) != 0; slot = (slot + 1) & mask) {
+            if (hashes[entry - 1] == hash && addresses[entry - 1].equals(address)) return entry - 1;
+        }
+
+        if (size == addresses.length) {
+            addresses = Arrays.copyOf(addresses, Math.max(16, size * 2));
+            hashes = Arrays.copyOf(hashes, addresses.length);
+        }
+        addresses[size] = address;
+        hashes[size] = hash;
+        slots[slot] = ++size;
+        if (size * 2 > slots.length)
+            rehash(slots.length * 2);
+        return size - 1;
+    }
+
+    private void rehash(int slotCount) {
+        int[] newSlots = new int[slotCount];
+        int mask = slotCount - 1;
+        for (int position = 0; position < size; position++) {
+            int slot = hashes[position] & mask;
+            while (newSlots[slot] != 0)
+                slot = (slot + 1) & mask;
+            newSlots[slot] = position + 1;
+        }
+        slots = newSlots;
+    }
+
+    /** Releases unused capacity. Call this when no more addresses will be added. */
+    AddressIndex trim() {
+        if (addresses.length != size) {
+            addresses = Arrays.copyOf(addresses, size);
+            hashes = Arrays.copyOf(hashes, size);
+        }
+        if (slots.length > slotCountFor(size))
+            rehash(slotCountFor(size));
+        return this;
+    }
+
+    /** Returns the smallest power of two giving a load factor of at most 0.5 */
+    private static int slotCountFor(int size) {
+        return Integer.highestOneBit(Math.max(1, size) * 2 - 1) << 1;
+    }
+
+    /** Scrambles the hash, as address hash codes are often close to each other, which makes linear probing cluster */
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+}
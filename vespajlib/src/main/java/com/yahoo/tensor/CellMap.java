@@ -0,0 +1,56 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * A read-only map view of the cells of a tensor, which looks up and iterates the cells of the tensor
+ * rather than copying them.
+ *
+ * @author bratseth
+ */
+class CellMap extends AbstractMap<TensorAddress, Double> {
+
+    private final Tensor tensor;
+
+    CellMap(Tensor tensor) {
+        this.tensor = tensor;
+    }
+
+    @Override
+    public int size() { return (int)tensor.size(); }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof TensorAddress && tensor.has((TensorAddress)key);
+    }
+
+    @Override
+    public Double get(Object key) {
+        if ( ! containsKey(key)) return null;
+        return tensor.get((TensorAddress)key);
+    }
+
+    @Override
+    public Set<Entry<TensorAddress, Double>> entrySet() {
+        return new AbstractSet<>() {
+
+            @Override
+            public int size() { return CellMap.this.size(); }
+
+            @Override
+            public Iterator<Entry<TensorAddress, Double>> iterator() {
+                Iterator<Tensor.Cell> cells = tensor.cellIterator();
+                return new Iterator<>() {
+                    @Override public boolean hasNext() { return cells.hasNext(); }
+                    @Override public Entry<TensorAddress, Double> next() { return cells.next(); }
+                };
+            }
+
+        };
+    }
+
+}
@@ -0,0 +1,121 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import com.yahoo.tensor.functions.ScalarFunctions;
+
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Loops over the values of indexed tensors for the most common dense operations.
+ * These work directly on the value arrays of the tensors, without boxing, iterators or
+ * cell addresses, and are kept simple such that the JIT compiler can unroll and vectorize them.
+ *
+ * Values are combined and aggregated in the same order as the general implementations,
+ * so results are identical to those.
+ *
+ * @author bratseth
+ */
+public final class DenseKernels {
+
+    private DenseKernels() {}
+
+    /**
+     * Returns the sum of the products of length values of a and b,
+     * starting at the given value indexes in each.
+     */
+    public static double dotProduct(IndexedTensor a, int aStart, IndexedTensor b, int bStart, int length) {
+        double result = 0.0;
+        if (a instanceof IndexedDoubleTensor && b instanceof IndexedDoubleTensor) {
+            double[] aValues = ((IndexedDoubleTensor)a).valueArray();
+            double[] bValues = ((IndexedDoubleTensor)b).valueArray();
+            for (int i = 0; i < length; i++)
+                result += aValues[aStart + i] * bValues[bStart + i];
+        }
+        else if (a instanceof IndexedFloatTensor && b instanceof IndexedFloatTensor) {
+            float[] aValues = ((IndexedFloatTensor)a).valueArray();
+            float[] bValues = ((IndexedFloatTensor)b).valueArray();
+            for (int i = 0; i < length; i++)
+                result += (double)aValues[aStart + i] * (double)bValues[bStart + i];
+        }
+        else {
+            for (int i = 0; i < length; i++)
+                result += a.get(aStart + i) * b.get(bStart + i);
+        }
+        return result;
+    }
+
+    /** Returns the sum of all the values of the given tensor */
+    public static double sum(IndexedTensor tensor) {
+        double result = 0.0;
+        if (tensor instanceof IndexedDoubleTensor) {
+            for (double value : ((IndexedDoubleTensor)tensor).valueArray())
+                result += value;
+        }
+        else if (tensor instanceof IndexedFloatTensor) {
+            for (float value : ((IndexedFloatTensor)tensor).valueArray())
+                result += value;
+        }
+        else {
+            for (long i = 0; i < tensor.size(); i++)
+                result += tensor.get(i);
+        }
+        return result;
+    }
+
+    /** Returns the largest of the values of the given tensor, or negative infinity if it is empty */
+    public static double max(IndexedTensor tensor) {
+        double result = Double.NEGATIVE_INFINITY;
+        if (tensor instanceof IndexedDoubleTensor) {
+            for (double value : ((IndexedDoubleTensor)tensor).valueArray())
+                if (value > result) result = value;
+        }
+        else if (tensor instanceof IndexedFloatTensor) {
+            for (float value : ((IndexedFloatTensor)tensor).valueArray())
+                if (value > result) result = value;
+        }
+        else {
+            for (long i = 0; i < tensor.size(); i++)
+                if (tensor.get(i) > result) result = tensor.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the given combinator applied to each of the first length values of a and b.
+     * Common combinators are applied inline rather than through the operator.
+     */
+    public static double[] join(IndexedTensor a, IndexedTensor b, int length, DoubleBinaryOperator combinator) {
+        double[] aValues = doubleValues(a, length);
+        double[] bValues = doubleValues(b, length);
+        double[] result = new double[length];
+        if (combinator instanceof ScalarFunctions.Multiply) {
+            for (int i = 0; i < length; i++)
+                result[i] = aValues[i] * bValues[i];
+        }
+        else if (combinator instanceof ScalarFunctions.Add) {
+            for (int i = 0; i < length; i++)
+                result[i] = aValues[i] + bValues[i];
+        }
+        else if (combinator instanceof ScalarFunctions.Subtract) {
+            for (int i = 0; i < length; i++)
+                result[i] = aValues[i] - bValues[i];
+        }
+        else {
+            for (int i = 0; i < length; i++)
+                result[i] = combinator.applyAsDouble(aValues[i], bValues[i]);
+        }
+        return result;
+    }
+
+    /** Returns the first length values of the given tensor as doubles, without copying if possible */
+    private static double[] doubleValues(IndexedTensor tensor, int length) {
+        if (tensor instanceof IndexedDoubleTensor)
+            return ((IndexedDoubleTensor)tensor).valueArray();
+
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++)
+            values[i] = tensor.get(i);
+        return values;
+    }
+
+}
@@ -28,6 +28,9 @@ class IndexedDoubleTensor extends IndexedTensor {
     @Override
     public float getFloat(long valueIndex) { return (float)get(valueIndex); }
 
+    /** Returns the values of this in the standard value order. This is the internal array which must not be modified */
+    double[] valueArray() { return values; }
+
     @Override
     public IndexedTensor withType(TensorType type) {
         throwOnIncompatibleType(type);
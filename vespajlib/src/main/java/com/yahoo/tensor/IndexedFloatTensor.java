@@ -28,6 +28,9 @@ class IndexedFloatTensor extends IndexedTensor {
     @Override
     public float getFloat(long valueIndex) { return values[(int)valueIndex]; }
 
+    /** Returns the values of this in the standard value order. This is the internal array which must not be modified */
+    float[] valueArray() { return values; }
+
     @Override
     public IndexedTensor withType(TensorType type) {
         throwOnIncompatibleType(type);
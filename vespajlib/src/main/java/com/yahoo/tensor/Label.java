@@ -0,0 +1,199 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import com.yahoo.text.Utf8;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A process-wide dictionary of tensor address labels, which assigns a long id to each label
+ * such that addresses can be stored, hashed and compared as arrays of primitives.
+ *
+ * A label which is the canonical string form of an integer has that integer as its id, so numeric labels
+ * need no lookup in either direction. Other labels are assigned ids from a reserved range at the bottom
+ * of the long range, in the order they are first seen.
+ *
+ * Labels are never removed from the dictionary, so its size is bounded: Once it holds {@link #maxAssignedIds}
+ * labels, other labels get the id {@link #noId}, and addresses hold those labels as strings instead.
+ * Whether a label has an id therefore never changes once an address of it is created.
+ *
+ * @author bratseth
+ */
+public final class Label {
+
+    /** The id of labels which are not assigned an id because the dictionary is full. This is never the id of a label. */
+    public static final long noId = Long.MIN_VALUE;
+
+    /** The first id assigned to a label which is not a canonical integer */
+    private static final long firstAssignedId = Long.MIN_VALUE + 1;
+
+    /** The number of ids reserved for labels which are not canonical integers */
+    private static final long reservedIds = Integer.MAX_VALUE;
+
+    /** The max number of labels assigned ids, which keeps the dictionary below a few megabytes with typical labels */
+    static final int maxAssignedIds = 1 << 16;
+
+    private static final Dictionary dictionary = new Dictionary(maxAssignedIds);
+
+    private Label() {}
+
+    /** Returns the id of the given label, assigning one if necessary, or {@link #noId} if it has none */
+    public static long toNumber(String label) {
+        return dictionary.toNumber(label);
+    }
+
+    /**
+     * Returns the id of the label given as UTF-8 bytes, assigning one if necessary, or {@link #noId} if it has none.
+     * This only creates a string of the label if it is not a canonical integer and is not already in the dictionary.
+     */
+    public static long toNumber(byte[] utf8, int offset, int length) {
+        return dictionary.toNumber(utf8, offset, length);
+    }
+
+    /**
+     * Returns the label having the given id
+     *
+     * @throws IllegalArgumentException if no label has this id
+     */
+    public static String fromNumber(long id) {
+        return dictionary.fromNumber(id);
+    }
+
+    /** Returns whether this id is in the range reserved for ids assigned from the dictionary rather than being the value of an integer label */
+    static boolean isAssigned(long id) {
+        return id >= firstAssignedId && id < firstAssignedId + reservedIds;
+    }
+
+    /** The label dictionary, which is a separate class to allow testing it with a smaller size */
+    static final class Dictionary {
+
+        private final int maxSize;
+
+        private final ConcurrentHashMap<String, Long> ids = new ConcurrentHashMap<>();
+
+        /** The same ids by the UTF-8 bytes of their labels */
+        private final ConcurrentHashMap<Utf8Label, Long> idsByUtf8 = new ConcurrentHashMap<>();
+
+        /** The labels of the assigned ids, indexed by id - firstAssignedId */
+        private volatile String[] labels = new String[1024];
+
+        private int assignedCount = 0;
+
+        Dictionary(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        long toNumber(String label) {
+            long id = parseCanonicalInteger(label, null, 0, label.length());
+            if (id != Long.MIN_VALUE) return id;
+
+            Long assigned = ids.get(label);
+            if (assigned != null) return assigned;
+            if (assignedCount >= maxSize) return noId; // unsynchronized read: once full, this stays full
+            return assign(label);
+        }
+
+        long toNumber(byte[] utf8, int offset, int length) {
+            long id = parseCanonicalInteger(null, utf8, offset, length);
+            if (id != Long.MIN_VALUE) return id;
+
+            Long assigned = idsByUtf8.get(new Utf8Label(utf8, offset, length));
+            if (assigned != null) return assigned;
+            return toNumber(Utf8.toString(utf8, offset, length));
+        }
+
+        String fromNumber(long id) {
+            if (id == noId) throw new IllegalArgumentException("No label has id " + id);
+            if ( ! isAssigned(id)) return String.valueOf(id);
+
+            String[] labels = this.labels;
+            long index = id - firstAssignedId;
+            if (index >= labels.length || labels[(int)index] == null)
+                throw new IllegalArgumentException("No label has id " + id);
+            return labels[(int)index];
+        }
+
+        private synchronized long assign(String label) {
+            Long assigned = ids.get(label);
+            if (assigned != null) return assigned;
+            if (assignedCount >= maxSize) return noId;
+
+            String[] labels = this.labels;
+            if (assignedCount == labels.length)
+                labels = Arrays.copyOf(labels, Math.min(maxSize, labels.length * 2));
+            labels[assignedCount] = label;
+            this.labels = labels;
+
+            long id = firstAssignedId + assignedCount++;
+            byte[] utf8 = Utf8.toBytes(label);
+            idsByUtf8.put(new Utf8Label(utf8, 0, utf8.length), id);
+            ids.put(label, id); // after storing the label, so that any holder of the id can look it up
+            return id;
+        }
+
+    }
+
+    /** A label given as a range of UTF-8 bytes, which are not copied */
+    private static final class Utf8Label {
+
+        private final byte[] utf8;
+        private final int offset;
+        private final int length;
+        private final int hashCode;
+
+        Utf8Label(byte[] utf8, int offset, int length) {
+            this.utf8 = utf8;
+            this.offset = offset;
+            this.length = length;
+            int hashCode = 1;
+            for (int i = offset; i < offset + length; i++)
+                hashCode = 31 * hashCode + utf8[i];
+            this.hashCode = hashCode;
+        }
+
+        @Override
+        public int hashCode() { return hashCode; }
+
+        @Override
+        public boolean equals(Object o) {
+            if ( ! (o instanceof Utf8Label)) return false;
+            Utf8Label other = (Utf8Label)o;
+            return Arrays.equals(utf8, offset, offset + length, other.utf8, other.offset, other.offset + other.length);
+        }
+
+    }
+
+    /**
+     * Returns the value of the given label if it is the canonical string form of an integer
+     * outside the reserved range, and Long.MIN_VALUE otherwise. The label is given either as a string,
+     * or, if that is null, as a range of UTF-8 bytes, where an integer is a run of single-byte characters.
+     */
+    private static long parseCanonicalInteger(String label, byte[] utf8, int offset, int length) {
+        if (length == 0 || length > 20) return Long.MIN_VALUE;
+
+        boolean negative = charAt(label, utf8, offset, 0) == '-';
+        int start = negative ? 1 : 0;
+        if (start == length) return Long.MIN_VALUE;
+        if (charAt(label, utf8, offset, start) == '0' && length > start + 1) return Long.MIN_VALUE; // leading zero
+        if (negative && charAt(label, utf8, offset, start) == '0') return Long.MIN_VALUE; // "-0"
+
+        long value = 0; // accumulated negatively to cover the full range
+        for (int i = start; i < length; i++) {
+            int digit = charAt(label, utf8, offset, i) - '0';
+            if (digit < 0 || digit > 9) return Long.MIN_VALUE;
+            if (value < (Long.MIN_VALUE + digit) / 10) return Long.MIN_VALUE; // overflow
+            value = value * 10 - digit;
+        }
+        if ( ! negative) {
+            if (value == Long.MIN_VALUE) return Long.MIN_VALUE; // overflow
+            value = -value;
+        }
+        return isAssigned(value) || value == Long.MIN_VALUE ? Long.MIN_VALUE : value;
+    }
+
+    private static int charAt(String label, byte[] utf8, int offset, int i) {
+        return label != null ? label.charAt(i) : utf8[offset + i];
+    }
+
+}
@@ -1,15 +1,14 @@
 // Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.tensor;
 
-import com.google.common.collect.ImmutableMap;
-
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.function.DoubleBinaryOperator;
 
 /**
- * A sparse implementation of a tensor backed by a Map of cells to values.
+ * A sparse implementation of a tensor backed by an index of cell addresses and an array of values.
  *
  * @author bratseth
  */
@@ -17,34 +16,41 @@ public class MappedTensor implements Tensor {
 
     private final TensorType type;
 
-    private final ImmutableMap<TensorAddress, Double> cells;
+    /** The addresses of the cells of this, where the position of each address is the index of its value */
+    private final AddressIndex index;
+
+    private final double[] values;
 
     /** Creates a sparse tensor. The cell addresses must match the type. */
-    private MappedTensor(TensorType type, Map<TensorAddress, Double> cells) {
+    private MappedTensor(TensorType type, AddressIndex index, double[] values) {
         this.type = type;
-        this.cells = ImmutableMap.copyOf(cells);
+        this.index = index;
+        this.values = values;
     }
 
     @Override
     public TensorType type() { return type; }
 
     @Override
-    public long size() { return cells.size(); }
+    public long size() { return values.length; }
 
     @Override
-    public double get(TensorAddress address) { return cells.getOrDefault(address, 0.0); }
+    public double get(TensorAddress address) {
+        int position = index.indexOf(address);
+        return position < 0 ? 0.0 : values[position];
+    }
 
     @Override
-    public boolean has(TensorAddress address) { return cells.containsKey(address); }
+    public boolean has(TensorAddress address) { return index.indexOf(address) >= 0; }
 
     @Override
-    public Iterator<Cell> cellIterator() { return new CellIteratorAdaptor(cells.entrySet().iterator()); }
+    public Iterator<Cell> cellIterator() { return new CellIterator(); }
 
     @Override
-    public Iterator<Double> valueIterator() { return cells.values().iterator(); }
+    public Iterator<Double> valueIterator() { return Arrays.stream(values).iterator(); }
 
     @Override
-    public Map<TensorAddress, Double> cells() { return cells; }
+    public Map<TensorAddress, Double> cells() { return new CellMap(this); }
 
     @Override
     public Tensor withType(TensorType other) {
@@ -52,7 +58,7 @@ public class MappedTensor implements Tensor {
             throw new IllegalArgumentException("MappedTensor.withType: types are not compatible. Current type: '" +
                     this.type.toString() + "', requested type: '" + type.toString() + "'");
         }
-        return new MappedTensor(other, cells);
+        return new MappedTensor(other, index, values);
     }
 
     @Override
@@ -69,7 +75,12 @@ public class MappedTensor implements Tensor {
     }
 
     @Override
-    public int hashCode() { return cells.hashCode(); }
+    public int hashCode() {
+        int hashCode = 0; // as the hash code of a map of the cells
+        for (int i = 0; i < values.length; i++)
+            hashCode += index.address(i).hashCode() ^ Double.hashCode(values[i]);
+        return hashCode;
+    }
 
     @Override
     public String toString() { return Tensor.toStandardString(this); }
@@ -83,7 +94,14 @@ public class MappedTensor implements Tensor {
     public static class Builder implements Tensor.Builder {
 
         private final TensorType type;
-        private final ImmutableMap.Builder<TensorAddress, Double> cells = new ImmutableMap.Builder<>();
+        private AddressIndex index = new AddressIndex();
+        private double[] values = new double[16];
+
+        /** Whether the current index is owned by a built tensor, such that it must be copied before being modified */
+        private boolean indexShared = false;
+
+        /** The first address added more than once, if any, which makes this invalid */
+        private String duplicate = null;
 
         public static Builder of(TensorType type) { return new Builder(type); }
 
@@ -105,7 +123,20 @@ public class MappedTensor implements Tensor {
 
         @Override
         public Builder cell(TensorAddress address, double value) {
-            cells.put(address, value);
+            if (indexShared) {
+                index = index.copy();
+                indexShared = false;
+            }
+            int size = index.size();
+            int position = index.add(address);
+            if (position < size) {
+                if (duplicate == null)
+                    duplicate = address + "=" + value + " and " + address + "=" + values[position];
+                return this;
+            }
+            if (position == values.length)
+                values = Arrays.copyOf(values, values.length * 2);
+            values[position] = value;
             return this;
         }
 
@@ -116,32 +147,32 @@ public class MappedTensor implements Tensor {
 
         @Override
         public Builder cell(double value, long... labels) {
-            cells.put(TensorAddress.of(labels), value);
-            return this;
+            return cell(TensorAddress.of(labels), value);
         }
 
         @Override
         public MappedTensor build() {
-            return new MappedTensor(type, cells.build());
+            if (duplicate != null)
+                throw new IllegalArgumentException("Multiple entries with same key: " + duplicate);
+            indexShared = true;
+            return new MappedTensor(type, index.trim(), Arrays.copyOf(values, index.size()));
         }
 
     }
 
-    private static class CellIteratorAdaptor implements Iterator<Cell> {
+    private class CellIterator implements Iterator<Cell> {
 
-        private final Iterator<Map.Entry<TensorAddress, Double>> adaptedIterator;
-
-        private CellIteratorAdaptor(Iterator<Map.Entry<TensorAddress, Double>> adaptedIterator) {
-            this.adaptedIterator = adaptedIterator;
-        }
+        private int position = 0;
 
         @Override
-        public boolean hasNext() { return adaptedIterator.hasNext(); }
+        public boolean hasNext() { return position < values.length; }
 
         @Override
         public Cell next() {
-            Map.Entry<TensorAddress, Double> entry = adaptedIterator.next();
-            return new Cell(entry.getKey(), entry.getValue());
+            if ( ! hasNext()) throw new NoSuchElementException();
+            Cell cell = new Cell(index.address(position), values[position]);
+            position++;
+            return cell;
         }
 
     }
@@ -2,16 +2,17 @@
 
 package com.yahoo.tensor;
 
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.function.DoubleBinaryOperator;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * A mixed tensor type. This is class is currently suitable for serialization
@@ -29,15 +30,15 @@ public class MixedTensor implements Tensor {
     /** The dimension specification for this tensor */
     private final TensorType type;
 
-    /** The list of cells in the tensor */
-    private final ImmutableList<Cell> cells;
+    /** The cell values of the tensor, one dense subspace after another */
+    private final double[] values;
 
-    /** An index structure over the cell list */
+    /** An index structure over the cell values */
     private final Index index;
 
-    private MixedTensor(TensorType type, ImmutableList<Cell> cells, Index index) {
+    private MixedTensor(TensorType type, double[] values, Index index) {
         this.type = type;
-        this.cells = ImmutableList.copyOf(cells);
+        this.values = values;
         this.index = index;
     }
 
@@ -47,29 +48,21 @@ public class MixedTensor implements Tensor {
 
     /** Returns the size of the tensor measured in number of cells */
     @Override
-    public long size() { return cells.size(); }
+    public long size() { return values.length; }
 
     /** Returns the value at the given address */
     @Override
     public double get(TensorAddress address) {
         long cellIndex = index.indexOf(address);
-        if (cellIndex < 0 || cellIndex >= cells.size())
+        if (cellIndex < 0 || cellIndex >= values.length)
             return 0.0;
-        Cell cell = cells.get((int)cellIndex);
-        if ( ! address.equals(cell.getKey()))
-            return 0.0;
-        return cell.getValue();
+        return values[(int)cellIndex];
     }
 
     @Override
     public boolean has(TensorAddress address) {
         long cellIndex = index.indexOf(address);
-        if (cellIndex < 0 || cellIndex >= cells.size())
-            return false;
-        Cell cell = cells.get((int)cellIndex);
-        if ( ! address.equals(cell.getKey()))
-            return false;
-        return true;
+        return cellIndex >= 0 && cellIndex < values.length;
     }
 
     /**
@@ -81,7 +74,7 @@ public class MixedTensor implements Tensor {
      */
     @Override
     public Iterator<Cell> cellIterator() {
-        return cells.iterator();
+        return new CellIterator();
     }
 
     /**
@@ -90,27 +83,11 @@ public class MixedTensor implements Tensor {
      */
     @Override
     public Iterator<Double> valueIterator() {
-        return new Iterator<>() {
-            Iterator<Cell> cellIterator = cellIterator();
-            @Override
-            public boolean hasNext() {
-                return cellIterator.hasNext();
-            }
-            @Override
-            public Double next() {
-                return cellIterator.next().getValue();
-            }
-        };
+        return Arrays.stream(values).iterator();
     }
 
     @Override
-    public Map<TensorAddress, Double> cells() {
-        ImmutableMap.Builder<TensorAddress, Double> builder = new ImmutableMap.Builder<>();
-        for (Cell cell : cells) {
-            builder.put(cell.getKey(), cell.getValue());
-        }
-        return builder.build();
-    }
+    public Map<TensorAddress, Double> cells() { return new CellMap(this); }
 
     @Override
     public Tensor withType(TensorType other) {
@@ -118,7 +95,7 @@ public class MixedTensor implements Tensor {
             throw new IllegalArgumentException("MixedTensor.withType: types are not compatible. Current type: '" +
                     this.type.toString() + "', requested type: '" + type.toString() + "'");
         }
-        return new MixedTensor(other, cells, index);
+        return new MixedTensor(other, values, index);
     }
 
     @Override
@@ -126,13 +103,12 @@ public class MixedTensor implements Tensor {
         Tensor.Builder builder = Tensor.Builder.of(type());
 
         // iterate through all sparse addresses referencing a dense subspace
-        for (Map.Entry<TensorAddress, Long> entry : index.sparseMap.entrySet()) {
-            TensorAddress sparsePartialAddress = entry.getKey();
+        for (int subspace = 0; subspace < index.sparseMap.size(); subspace++) {
+            TensorAddress sparsePartialAddress = index.sparseMap.address(subspace);
             if ( ! addresses.contains(sparsePartialAddress)) {  // assumption: addresses only contain the sparse part
-                long offset = entry.getValue();
+                long offset = subspace * index.denseSubspaceSize;
                 for (int i = 0; i < index.denseSubspaceSize; ++i) {
-                    Cell cell = cells.get((int)offset + i);
-                    builder.cell(cell.getKey(), cell.getValue());
+                    builder.cell(index.addressOf(sparsePartialAddress, i), values[(int)offset + i]);
                 }
             }
         }
@@ -140,7 +116,12 @@ public class MixedTensor implements Tensor {
     }
 
     @Override
-    public int hashCode() { return cells.hashCode(); }
+    public int hashCode() {
+        int hashCode = 0; // as the hash code of a map of the cells
+        for (Iterator<Cell> i = cellIterator(); i.hasNext(); )
+            hashCode += i.next().hashCode();
+        return hashCode;
+    }
 
     @Override
     public String toString() {
@@ -218,15 +199,13 @@ public class MixedTensor implements Tensor {
     public static class BoundBuilder extends Builder {
 
         /** For each sparse partial address, hold a dense subspace */
-        private final Map<TensorAddress, double[]> denseSubspaceMap = new HashMap<>();
-        private final Index.Builder indexBuilder;
+        private final Map<TensorAddress, double[]> denseSubspaceMap = new LinkedHashMap<>();
         private final Index index;
         private final TensorType denseSubtype;
 
         private BoundBuilder(TensorType type) {
             super(type);
-            indexBuilder = new Index.Builder(type);
-            index = indexBuilder.index();
+            index = new Index(type);
             denseSubtype = new TensorType(type.valueType(),
                                           type.dimensions().stream().filter(d -> d.isIndexed()).collect(Collectors.toList()));
         }
@@ -256,7 +235,7 @@ public class MixedTensor implements Tensor {
         @Override
         public Tensor.Builder cell(TensorAddress address, double value) {
             TensorAddress sparsePart = index.sparsePartialAddress(address);
-            long denseOffset = index.denseOffset(address);
+            long denseOffset = index.checkedDenseOffset(address);
             double[] denseSubspace = denseSubspace(sparsePart);
             denseSubspace[(int)denseOffset] = value;
             return this;
@@ -274,22 +253,16 @@ public class MixedTensor implements Tensor {
 
         @Override
         public MixedTensor build() {
-            long count = 0;
-            ImmutableList.Builder<Cell> builder = new ImmutableList.Builder<>();
-
+            int denseSubspaceSize = (int)denseSubspaceSize();
+            double[] values = new double[denseSubspaceMap.size() * denseSubspaceSize];
+            Index.Builder indexBuilder = new Index.Builder(type); // a new index for each tensor built
+            int offset = 0;
             for (Map.Entry<TensorAddress, double[]> entry : denseSubspaceMap.entrySet()) {
-                TensorAddress sparsePart = entry.getKey();
-                indexBuilder.put(sparsePart, count);
-
-                double[] denseSubspace = entry.getValue();
-                for (long offset = 0; offset < denseSubspace.length; ++offset) {
-                    TensorAddress cellAddress = index.addressOf(sparsePart, offset);
-                    double value = denseSubspace[(int)offset];
-                    builder.add(new Cell(cellAddress, value));
-                    count++;
-                }
+                indexBuilder.put(entry.getKey());
+                System.arraycopy(entry.getValue(), 0, values, offset, denseSubspaceSize);
+                offset += denseSubspaceSize;
             }
-            return new MixedTensor(type, builder.build(), indexBuilder.build());
+            return new MixedTensor(type, values, indexBuilder.build());
         }
 
     }
@@ -309,7 +282,7 @@ public class MixedTensor implements Tensor {
 
         private UnboundBuilder(TensorType type) {
             super(type);
-            cells = new HashMap<>();
+            cells = new LinkedHashMap<>();
             dimensionBounds = new long[type.dimensions().size()];
         }
 
@@ -369,52 +342,55 @@ public class MixedTensor implements Tensor {
     private static class Index {
 
         private final TensorType type;
-        private final TensorType sparseType;
         private final TensorType denseType;
         private final List<TensorType.Dimension> mappedDimensions;
         private final List<TensorType.Dimension> indexedDimensions;
 
-        private ImmutableMap<TensorAddress, Long> sparseMap;
+        /** The indexes of the mapped dimensions in the type */
+        private final int[] mappedIndexes;
+
+        /** The sparse partial addresses of this, where the position of each is the index of its dense subspace */
+        private AddressIndex sparseMap;
         private long denseSubspaceSize = -1;
 
         private Index(TensorType type) {
             this.type = type;
             this.mappedDimensions = type.dimensions().stream().filter(d -> !d.isIndexed()).collect(Collectors.toList());
             this.indexedDimensions = type.dimensions().stream().filter(d -> d.isIndexed()).collect(Collectors.toList());
-            this.sparseType = createPartialType(type.valueType(), mappedDimensions);
             this.denseType = createPartialType(type.valueType(), indexedDimensions);
+            this.mappedIndexes = IntStream.range(0, type.dimensions().size()).filter(i -> ! type.dimensions().get(i).isIndexed()).toArray();
         }
 
         /** Returns the index of the given address, or -1 if it is not present */
         public long indexOf(TensorAddress address) {
             TensorAddress sparsePart = sparsePartialAddress(address);
-            if ( ! sparseMap.containsKey(sparsePart))
+            int subspace = sparseMap.indexOf(sparsePart);
+            if (subspace < 0)
                 return -1;
-            long base = sparseMap.get(sparsePart);
             long offset = denseOffset(address);
-            return base + offset;
+            if (offset < 0)
+                return -1;
+            return subspace * denseSubspaceSize() + offset;
         }
 
         public static class Builder {
 
             private final Index index;
-            private final ImmutableMap.Builder<TensorAddress, Long> builder;
+            private final AddressIndex sparseMap;
 
             public Builder(TensorType type) {
                 index = new Index(type);
-                builder = new ImmutableMap.Builder<>();
+                sparseMap = new AddressIndex();
             }
 
-            public void put(TensorAddress address, long index) {
-                builder.put(address, index);
+            /** Adds the sparse partial address of the next dense subspace */
+            public void put(TensorAddress address) {
+                sparseMap.add(address);
             }
 
             public Index build() {
-                index.sparseMap = builder.build();
-                return index;
-            }
-
-            public Index index() {
+                index.sparseMap = sparseMap.trim();
+                index.denseSubspaceSize(); // resolve the dense subspace size, which is read directly
                 return index;
             }
         }
@@ -436,15 +412,10 @@ public class MixedTensor implements Tensor {
         private TensorAddress sparsePartialAddress(TensorAddress address) {
             if (type.dimensions().size() != address.size())
                 throw new IllegalArgumentException("Tensor type of " + this + " is not the same size as " + address);
-            TensorAddress.Builder builder = new TensorAddress.Builder(sparseType);
-            for (int i = 0; i < type.dimensions().size(); ++i) {
-                TensorType.Dimension dimension = type.dimensions().get(i);
-                if ( ! dimension.isIndexed())
-                    builder.add(dimension.name(), address.label(i));
-            }
-            return builder.build();
+            return address.partialCopy(mappedIndexes);
         }
 
+        /** Returns the offset of the given address in its dense subspace, or -1 if it is outside the subspace */
         private long denseOffset(TensorAddress address) {
             long innerSize = 1;
             long offset = 0;
@@ -452,14 +423,30 @@ public class MixedTensor implements Tensor {
                 TensorType.Dimension dimension = type.dimensions().get(i);
                 if (dimension.isIndexed()) {
                     long label = address.numericLabel(i);
-                    offset += label * innerSize;
-                    innerSize *= dimension.size().orElseThrow(() ->
+                    long size = dimension.size().orElseThrow(() ->
                             new IllegalArgumentException("Unknown size of indexed dimension."));
+                    if (label < 0 || label >= size)
+                        return -1;
+                    offset += label * innerSize;
+                    innerSize *= size;
                 }
             }
             return offset;
         }
 
+        /** Returns the offset of the given address in its dense subspace, or throws if it is outside the subspace */
+        private long checkedDenseOffset(TensorAddress address) {
+            long offset = denseOffset(address);
+            if (offset >= 0) return offset;
+            for (int i = 0; i < type.dimensions().size(); i++) {
+                TensorType.Dimension dimension = type.dimensions().get(i);
+                if (dimension.isIndexed() && (address.numericLabel(i) < 0 || address.numericLabel(i) >= dimension.size().get()))
+                    throw new IndexOutOfBoundsException("Index " + address.numericLabel(i) +
+                                                        " out of bounds for length " + dimension.size().get());
+            }
+            throw new IllegalStateException("Offset of " + address + " is " + offset + ", but its indexes are in bounds");
+        }
+
         private TensorAddress denseOffsetToAddress(long denseOffset) {
             if (denseOffset < 0 || denseOffset > denseSubspaceSize) {
                 throw new IllegalArgumentException("Offset out of bounds");
@@ -483,18 +470,34 @@ public class MixedTensor implements Tensor {
 
         private TensorAddress addressOf(TensorAddress sparsePart, long denseOffset) {
             TensorAddress densePart = denseOffsetToAddress(denseOffset);
-            String[] labels = new String[type.dimensions().size()];
+            for (int i = 0; i < sparsePart.size(); i++)
+                if (sparsePart.labelId(i) == Label.noId) return addressOfLabels(sparsePart, densePart);
+
+            long[] labels = new long[type.dimensions().size()];
             int mappedIndex = 0;
             int indexedIndex = 0;
             for (TensorType.Dimension d : type.dimensions()) {
                 if (d.isIndexed()) {
-                    labels[mappedIndex + indexedIndex] = densePart.label(indexedIndex);
+                    labels[mappedIndex + indexedIndex] = densePart.labelId(indexedIndex);
                     indexedIndex++;
                 } else {
-                    labels[mappedIndex + indexedIndex] = sparsePart.label(mappedIndex);
+                    labels[mappedIndex + indexedIndex] = sparsePart.labelId(mappedIndex);
                     mappedIndex++;
                 }
             }
+            return TensorAddress.ofLabelIds(labels);
+        }
+
+        private TensorAddress addressOfLabels(TensorAddress sparsePart, TensorAddress densePart) {
+            String[] labels = new String[type.dimensions().size()];
+            int mappedIndex = 0;
+            int indexedIndex = 0;
+            for (int i = 0; i < labels.length; i++) {
+                if (type.dimensions().get(i).isIndexed())
+                    labels[i] = densePart.label(indexedIndex++);
+                else
+                    labels[i] = sparsePart.label(mappedIndex++);
+            }
             return TensorAddress.of(labels);
         }
 
@@ -513,10 +516,13 @@ public class MixedTensor implements Tensor {
 
             // Exactly 1 mapped dimension
             StringBuilder b = new StringBuilder("{");
-            sparseMap.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry -> {
-                b.append(TensorAddress.labelToString(entry.getKey().label(0 )));
+            IntStream.range(0, sparseMap.size())
+                     .boxed()
+                     .sorted(Comparator.comparing(sparseMap::address))
+                     .forEach(subspace -> {
+                b.append(TensorAddress.labelToString(sparseMap.address(subspace).label(0)));
                 b.append(":");
-                denseSubspaceToString(tensor, entry.getValue(), b);
+                denseSubspaceToString(tensor, subspace * denseSubspaceSize(), b);
                 b.append(",");
             });
             if (b.length() > 1)
@@ -558,7 +564,29 @@ public class MixedTensor implements Tensor {
         }
 
         private double getDouble(long indexedSubspaceIndex, long indexInIndexedSubspace, MixedTensor tensor) {
-            return tensor.cells.get((int)(indexedSubspaceIndex + indexInIndexedSubspace)).getDoubleValue();
+            return tensor.values[(int)(indexedSubspaceIndex + indexInIndexedSubspace)];
+        }
+
+    }
+
+    private class CellIterator implements Iterator<Cell> {
+
+        private int subspace = 0;
+        private int offsetInSubspace = 0;
+        private int valueIndex = 0;
+
+        @Override
+        public boolean hasNext() { return valueIndex < values.length; }
+
+        @Override
+        public Cell next() {
+            if ( ! hasNext()) throw new NoSuchElementException();
+            Cell cell = new Cell(index.addressOf(index.sparseMap.address(subspace), offsetInSubspace), values[valueIndex++]);
+            if (++offsetInSubspace == index.denseSubspaceSize()) {
+                offsetInSubspace = 0;
+                subspace++;
+            }
+            return cell;
         }
 
     }
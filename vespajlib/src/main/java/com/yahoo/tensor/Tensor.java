@@ -329,7 +329,8 @@ public interface Tensor {
     }
 
     static String contentToString(Tensor tensor) {
-        var cellEntries = new ArrayList<>(tensor.cells().entrySet());
+        List<Cell> cellEntries = new ArrayList<>((int)tensor.size());
+        tensor.cellIterator().forEachRemaining(cellEntries::add);
         if (tensor.type().dimensions().isEmpty()) {
             if (cellEntries.isEmpty()) return "{}";
             return "{" + cellEntries.get(0).getValue() +"}";
@@ -4,26 +4,85 @@ package com.yahoo.tensor;
 import java.util.Arrays;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.ToLongFunction;
 
 /**
  * An immutable address to a tensor cell. This simply supplies a value to each dimension
  * in a particular tensor type. By itself it is just a list of cell labels, it's meaning depends on its accompanying type.
  *
+ * Labels are held as the ids assigned to them by {@link Label}, such that addresses are hashed and compared
+ * without looking at label strings. Labels which have no id because the label dictionary is full are held as strings.
+ *
  * @author bratseth
  */
 public abstract class TensorAddress implements Comparable<TensorAddress> {
 
     public static TensorAddress of(String[] labels) {
-        return new StringTensorAddress(labels);
+        return of(labels, Label::toNumber);
+    }
+
+    /** Returns an address of the given labels, which are given ids by the given function */
+    static TensorAddress of(String[] labels, ToLongFunction<String> labelIds) {
+        long[] ids = new long[labels.length];
+        String[] unassigned = null;
+        for (int i = 0; i < labels.length; i++) {
+            ids[i] = labelIds.applyAsLong(labels[i]);
+            if (ids[i] == Label.noId) {
+                if (unassigned == null) unassigned = new String[labels.length];
+                unassigned[i] = labels[i];
+            }
+        }
+        return new LabelIdTensorAddress(ids, unassigned);
     }
 
     public static TensorAddress ofLabels(String ... labels) {
-        return new StringTensorAddress(labels);
+        return of(labels);
     }
 
     public static TensorAddress of(long ... labels) {
-        return new NumericTensorAddress(labels);
+        long[] labelIds = new long[labels.length];
+        String[] unassigned = null;
+        for (int i = 0; i < labels.length; i++) {
+            labelIds[i] = labelIdOf(labels[i]);
+            if (labelIds[i] == Label.noId) {
+                if (unassigned == null) unassigned = new String[labels.length];
+                unassigned[i] = String.valueOf(labels[i]);
+            }
+        }
+        return new LabelIdTensorAddress(labelIds, unassigned);
+    }
+
+    /**
+     * Returns an address of the given label ids, as returned from {@link Label#toNumber}
+     *
+     * @throws IllegalArgumentException if an id is {@link Label#noId}
+     */
+    public static TensorAddress ofLabelIds(long ... labelIds) {
+        for (long labelId : labelIds)
+            if (labelId == Label.noId)
+                throw new IllegalArgumentException("Labels without an id cannot be given by id");
+        return new LabelIdTensorAddress(Arrays.copyOf(labelIds, labelIds.length), null);
+    }
+
+    /**
+     * Returns an address of the given label ids, as returned from {@link Label#toNumber}, where the labels of ids which
+     * are {@link Label#noId} are given at the same index in the given labels. This takes ownership of the given arrays.
+     *
+     * @param labelIds the label ids of this address
+     * @param unassignedLabels the labels of the ids which are {@link Label#noId}, or null if there are none
+     */
+    public static TensorAddress ofLabelIds(long[] labelIds, String[] unassignedLabels) {
+        for (int i = 0; i < labelIds.length; i++)
+            if (labelIds[i] == Label.noId && (unassignedLabels == null || unassignedLabels[i] == null))
+                throw new IllegalArgumentException("Label " + i + " has no id and is not given");
+        return new LabelIdTensorAddress(labelIds, unassignedLabels);
+    }
+
+    /** Returns the label id of a numeric label */
+    private static long labelIdOf(long numericLabel) {
+        if (Label.isAssigned(numericLabel) || numericLabel == Long.MIN_VALUE) // a number Label does not use as its own id
+            return Label.toNumber(String.valueOf(numericLabel));
+        return numericLabel;
     }
 
     /** Returns the number of labels in this */
@@ -44,8 +103,33 @@ public abstract class TensorAddress implements Comparable<TensorAddress> {
      */
     public abstract long numericLabel(int i);
 
+    /**
+     * Returns the id of the i'th label in this, as assigned by {@link Label}, or {@link Label#noId}
+     * if this label has no id.
+     *
+     * @throws IllegalArgumentException if there is no label at this index
+     */
+    public long labelId(int i) { return Label.toNumber(label(i)); }
+
     public abstract TensorAddress withLabel(int labelIndex, long label);
 
+    /**
+     * Returns an address having the labels of this at the given indexes: Label i of the returned address
+     * is label indexMap[i] of this.
+     */
+    public TensorAddress partialCopy(int[] indexMap) {
+        long[] labelIds = new long[indexMap.length];
+        String[] unassigned = null;
+        for (int i = 0; i < indexMap.length; i++) {
+            labelIds[i] = labelId(indexMap[i]);
+            if (labelIds[i] == Label.noId) {
+                if (unassigned == null) unassigned = new String[indexMap.length];
+                unassigned[i] = label(indexMap[i]);
+            }
+        }
+        return new LabelIdTensorAddress(labelIds, unassigned);
+    }
+
     public final boolean isEmpty() { return size() == 0; }
 
     @Override
@@ -61,8 +145,10 @@ public abstract class TensorAddress implements Comparable<TensorAddress> {
     @Override
     public int hashCode() {
         int result = 1;
-        for (int i = 0; i < size(); i++)
-            result = 31 * result + label(i).hashCode();
+        for (int i = 0; i < size(); i++) {
+            long labelId = labelId(i);
+            result = 31 * result + (labelId == Label.noId ? label(i).hashCode() : Long.hashCode(labelId));
+        }
         return result;
     }
 
@@ -72,9 +158,11 @@ public abstract class TensorAddress implements Comparable<TensorAddress> {
         if ( ! (o instanceof TensorAddress)) return false;
         TensorAddress other = (TensorAddress)o;
         if (other.size() != this.size()) return false;
-        for (int i = 0; i < this.size(); i++)
-            if ( ! this.label(i).equals(other.label(i)))
-                return false;
+        for (int i = 0; i < this.size(); i++) {
+            long labelId = this.labelId(i);
+            if (labelId != other.labelId(i)) return false;
+            if (labelId == Label.noId && ! this.label(i).equals(other.label(i))) return false;
+        }
         return true;
     }
 
@@ -98,72 +186,77 @@ public abstract class TensorAddress implements Comparable<TensorAddress> {
         return "'" + label + "'";
     }
 
-    private static final class StringTensorAddress extends TensorAddress {
+    private static final class LabelIdTensorAddress extends TensorAddress {
 
-        private final String[] labels;
+        private final long[] labelIds;
+
+        /** The labels which have no id, at their index, or null if all labels have ids */
+        private final String[] unassigned;
 
-        private StringTensorAddress(String ... labels) {
-            this.labels = Arrays.copyOf(labels, labels.length);
+        /** Creates an address which takes ownership of the given arrays */
+        private LabelIdTensorAddress(long[] labelIds, String[] unassigned) {
+            this.labelIds = labelIds;
+            this.unassigned = unassigned;
         }
 
         @Override
-        public int size() { return labels.length; }
+        public int size() { return labelIds.length; }
 
         @Override
-        public String label(int i) { return labels[i]; }
+        public String label(int i) {
+            if (labelIds[i] == Label.noId) return unassigned[i];
+            return Label.fromNumber(labelIds[i]);
+        }
 
         @Override
         public long numericLabel(int i) {
+            if ( ! Label.isAssigned(labelIds[i]) && labelIds[i] != Label.noId) return labelIds[i];
+
+            String label = label(i);
             try {
-                return Long.parseLong(labels[i]);
+                return Long.parseLong(label);
             }
             catch (NumberFormatException e) {
-                throw new IllegalArgumentException("Expected an integer label in " + this + " at position " + i + " but got '" + labels[i] + "'");
+                throw new IllegalArgumentException("Expected an integer label in " + this + " at position " + i + " but got '" + label + "'");
             }
         }
 
         @Override
-        public TensorAddress withLabel(int index, long label) {
-            String[] labels = Arrays.copyOf(this.labels, this.labels.length);
-            labels[index] = String.valueOf(label);
-            return new StringTensorAddress(labels);
-        }
-
+        public long labelId(int i) { return labelIds[i]; }
 
         @Override
-        public String toString() {
-            return "cell address (" + String.join(",", labels) + ")";
-        }
-
-    }
-
-    private static final class NumericTensorAddress extends TensorAddress {
-
-        private final long[] labels;
-
-        private NumericTensorAddress(long[] labels) {
-            this.labels = Arrays.copyOf(labels, labels.length);
+        public TensorAddress withLabel(int index, long label) {
+            long[] labelIds = Arrays.copyOf(this.labelIds, this.labelIds.length);
+            String[] unassigned = this.unassigned == null ? null : Arrays.copyOf(this.unassigned, this.unassigned.length);
+            labelIds[index] = labelIdOf(label);
+            if (unassigned != null)
+                unassigned[index] = null;
+            if (labelIds[index] == Label.noId) {
+                if (unassigned == null) unassigned = new String[labelIds.length];
+                unassigned[index] = String.valueOf(label);
+            }
+            return new LabelIdTensorAddress(labelIds, unassigned);
         }
 
         @Override
-        public int size() { return labels.length; }
-
-        @Override
-        public String label(int i) { return String.valueOf(labels[i]); }
-
-        @Override
-        public long numericLabel(int i) { return labels[i]; }
+        public int hashCode() {
+            if (unassigned != null) return super.hashCode();
+            return Arrays.hashCode(labelIds);
+        }
 
         @Override
-        public TensorAddress withLabel(int index, long label) {
-            long[] labels = Arrays.copyOf(this.labels, this.labels.length);
-            labels[index] = label;
-            return new NumericTensorAddress(labels);
+        public boolean equals(Object o) {
+            if (o instanceof LabelIdTensorAddress && unassigned == null && ((LabelIdTensorAddress)o).unassigned == null)
+                return Arrays.equals(labelIds, ((LabelIdTensorAddress)o).labelIds);
+            return super.equals(o);
         }
 
         @Override
         public String toString() {
-            return "cell address (" + Arrays.stream(labels).mapToObj(String::valueOf).collect(Collectors.joining(",")) + ")";
+            StringBuilder b = new StringBuilder("cell address (");
+            for (int i = 0; i < labelIds.length; i++)
+                b.append(i > 0 ? "," : "").append(label(i));
+            return b.append(")").toString();
         }
 
     }
@@ -3,8 +3,10 @@ package com.yahoo.tensor.functions;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
+import com.yahoo.tensor.DenseKernels;
 import com.yahoo.tensor.DimensionSizes;
 import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Label;
 import com.yahoo.tensor.PartialAddress;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorAddress;
@@ -15,6 +17,7 @@ import com.yahoo.tensor.evaluation.Name;
 import com.yahoo.tensor.evaluation.TypeContext;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -35,6 +38,9 @@ import java.util.function.DoubleBinaryOperator;
  */
 public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYPE> {
 
+    /** A value which is never the id of a label, used to mark labels not set yet when joining by label id */
+    private static final long noLabel = Label.noId;
+
     private final TensorFunction<NAMETYPE> argumentA, argumentB;
     private final DoubleBinaryOperator combinator;
 
@@ -113,12 +119,8 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
 
     private static Tensor indexedVectorJoin(IndexedTensor a, IndexedTensor b, TensorType type, DoubleBinaryOperator combinator) {
         long joinedRank = Math.min(a.dimensionSizes().size(0), b.dimensionSizes().size(0));
-        Iterator<Double> aIterator = a.valueIterator();
-        Iterator<Double> bIterator = b.valueIterator();
-        IndexedTensor.Builder builder = IndexedTensor.Builder.of(type, new DimensionSizes.Builder(1).set(0, joinedRank).build());
-        for (int i = 0; i < joinedRank; i++)
-            builder.cell(combinator.applyAsDouble(aIterator.next(), bIterator.next()), i);
-        return builder.build();
+        double[] values = DenseKernels.join(a, b, (int)joinedRank, combinator);
+        return IndexedTensor.Builder.of(type, new DimensionSizes.Builder(1).set(0, joinedRank).build(), values).build();
     }
 
     /** When both tensors have the same dimensions, at most one cell matches a cell in the other tensor */
@@ -156,7 +158,7 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
 
         for (Iterator<IndexedTensor.SubspaceIterator> i = superspace.subspaceIterator(superDimensionNames, joinedSizes); i.hasNext(); ) {
             IndexedTensor.SubspaceIterator subspaceInSuper = i.next();
-            joinSubspaces(subspace.valueIterator(), subspace.size(),
+            joinSubspaces(subspace, subspace.size(),
                     subspaceInSuper, subspaceInSuper.size(),
                     reversedArgumentOrder, builder, combinator);
         }
@@ -164,7 +166,7 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
         return builder.build();
     }
 
-    private static void joinSubspaces(Iterator<Double> subspace, long subspaceSize,
+    private static void joinSubspaces(IndexedTensor subspace, long subspaceSize,
                                       Iterator<Tensor.Cell> superspace, long superspaceSize,
                                       boolean reversedArgumentOrder, IndexedTensor.Builder builder,
                                       DoubleBinaryOperator combinator) {
@@ -172,12 +174,12 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
         if (reversedArgumentOrder) {
             for (int i = 0; i < joinedLength; i++) {
                 Tensor.Cell supercell = superspace.next();
-                builder.cell(supercell, combinator.applyAsDouble(supercell.getValue(), subspace.next()));
+                builder.cell(supercell, combinator.applyAsDouble(supercell.getDoubleValue(), subspace.get(i)));
             }
         } else {
             for (int i = 0; i < joinedLength; i++) {
                 Tensor.Cell supercell = superspace.next();
-                builder.cell(supercell, combinator.applyAsDouble(subspace.next(), supercell.getValue()));
+                builder.cell(supercell, combinator.applyAsDouble(subspace.get(i), supercell.getDoubleValue()));
             }
         }
     }
@@ -223,10 +225,7 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
     }
 
     private static TensorAddress mapAddressToSubspace(TensorAddress superAddress, int[] subspaceIndexes) {
-        String[] subspaceLabels = new String[subspaceIndexes.length];
-        for (int i = 0; i < subspaceIndexes.length; i++)
-            subspaceLabels[i] = superAddress.label(subspaceIndexes[i]);
-        return TensorAddress.of(subspaceLabels);
+        return superAddress.partialCopy(subspaceIndexes);
     }
 
     /** Slow join which works for any two tensors */
@@ -373,11 +372,15 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
 
     private static TensorAddress joinAddresses(TensorAddress a, int[] aToIndexes, TensorAddress b, int[] bToIndexes,
                                                TensorType joinedType) {
-        String[] joinedLabels = new String[joinedType.dimensions().size()];
+        if ( ! hasLabelIds(a) || ! hasLabelIds(b))
+            return joinAddressesByLabel(a, aToIndexes, b, bToIndexes, joinedType);
+
+        long[] joinedLabels = new long[joinedType.dimensions().size()];
+        Arrays.fill(joinedLabels, noLabel);
         mapContent(a, joinedLabels, aToIndexes);
         boolean compatible = mapContent(b, joinedLabels, bToIndexes);
         if ( ! compatible) return null;
-        return TensorAddress.of(joinedLabels);
+        return TensorAddress.ofLabelIds(joinedLabels);
     }
 
     /**
@@ -386,6 +389,31 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
      * @return true if the mapping was successful, false if one of the destination positions was
      *         occupied by a different value
      */
+    private static boolean mapContent(TensorAddress from, long[] to, int[] indexMap) {
+        for (int i = 0; i < from.size(); i++) {
+            int toIndex = indexMap[i];
+            long label = from.labelId(i);
+            if (to[toIndex] != noLabel && to[toIndex] != label) return false;
+            to[toIndex] = label;
+        }
+        return true;
+    }
+
+    private static boolean hasLabelIds(TensorAddress address) {
+        for (int i = 0; i < address.size(); i++)
+            if (address.labelId(i) == Label.noId) return false;
+        return true;
+    }
+
+    private static TensorAddress joinAddressesByLabel(TensorAddress a, int[] aToIndexes, TensorAddress b, int[] bToIndexes,
+                                                      TensorType joinedType) {
+        String[] joinedLabels = new String[joinedType.dimensions().size()];
+        mapContent(a, joinedLabels, aToIndexes);
+        boolean compatible = mapContent(b, joinedLabels, bToIndexes);
+        if ( ! compatible) return null;
+        return TensorAddress.of(joinedLabels);
+    }
+
     private static boolean mapContent(TensorAddress from, String[] to, int[] indexMap) {
         for (int i = 0; i < from.size(); i++) {
             int toIndex = indexMap[i];
@@ -413,12 +441,7 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
     }
 
     private static TensorAddress partialCommonAddress(Tensor.Cell cell, int[] indexMap) {
-        TensorAddress address = cell.getKey();
-        String[] labels = new String[indexMap.length];
-        for (int i = 0; i < labels.length; ++i) {
-            labels[i] = address.label(indexMap[i]);
-        }
-        return TensorAddress.of(labels);
+        return cell.getKey().partialCopy(indexMap);
     }
 
 }
@@ -2,7 +2,9 @@
 package com.yahoo.tensor.functions;
 
 import com.google.common.collect.ImmutableList;
+import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.EvaluationContext;
 import com.yahoo.tensor.evaluation.Name;
 
 import java.util.List;
@@ -44,6 +46,13 @@ public class Matmul<NAMETYPE extends Name> extends CompositeTensorFunction<NAMET
                             dimension);
     }
 
+    /** Evaluates this as a reduce-join, which evaluates dense matrix products directly */
+    @Override
+    public Tensor evaluate(EvaluationContext<NAMETYPE> context) {
+        return new ReduceJoin<>(argument1, argument2, ScalarFunctions.multiply(), Reduce.Aggregator.sum, List.of(dimension))
+                       .evaluate(context);
+    }
+
     @Override
     public String toString(ToStringContext context) {
         return "matmul(" + argument1.toString(context) + ", " + argument2.toString(context) + ", " + dimension + ")";
@@ -2,6 +2,7 @@
 package com.yahoo.tensor.functions;
 
 import com.google.common.collect.ImmutableList;
+import com.yahoo.tensor.DenseKernels;
 import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorAddress;
@@ -13,9 +14,9 @@ import com.yahoo.tensor.evaluation.TypeContext;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -124,7 +125,7 @@ public class Reduce<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMET
         TensorType reducedType = outputType(argument.type(), dimensions);
 
         // Reduce cells
-        Map<TensorAddress, ValueAggregator> aggregatingCells = new HashMap<>();
+        Map<TensorAddress, ValueAggregator> aggregatingCells = new LinkedHashMap<>();
         for (Iterator<Tensor.Cell> i = argument.cellIterator(); i.hasNext(); ) {
             Map.Entry<TensorAddress, Double> cell = i.next();
             TensorAddress reducedAddress = reduceDimensions(cell.getKey(), argument.type(), reducedType, dimensions);
@@ -144,15 +145,20 @@ public class Reduce<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMET
         for (String dimensionToRemove : dimensions)
             indexesToRemove.add(argumentType.indexOfDimension(dimensionToRemove).get());
 
-        String[] reducedLabels = new String[reducedType.dimensions().size()];
+        int[] retainedIndexes = new int[reducedType.dimensions().size()];
         int reducedLabelIndex = 0;
         for (int i = 0; i < address.size(); i++)
             if ( ! indexesToRemove.contains(i))
-                reducedLabels[reducedLabelIndex++] = address.label(i);
-        return TensorAddress.of(reducedLabels);
+                retainedIndexes[reducedLabelIndex++] = i;
+        return address.partialCopy(retainedIndexes);
     }
 
     private static Tensor reduceAllGeneral(Tensor argument, Aggregator aggregator) {
+        if (argument instanceof IndexedTensor && aggregator == Aggregator.sum)
+            return Tensor.Builder.of(TensorType.empty).cell(DenseKernels.sum((IndexedTensor)argument)).build();
+        if (argument instanceof IndexedTensor && aggregator == Aggregator.max)
+            return Tensor.Builder.of(TensorType.empty).cell(DenseKernels.max((IndexedTensor)argument)).build();
+
         ValueAggregator valueAggregator = ValueAggregator.ofType(aggregator);
         for (Iterator<Double> i = argument.valueIterator(); i.hasNext(); )
             valueAggregator.aggregate(i.next());
@@ -160,6 +166,11 @@ public class Reduce<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMET
     }
 
     private static Tensor reduceIndexedVector(IndexedTensor argument, Aggregator aggregator) {
+        if (aggregator == Aggregator.sum)
+            return Tensor.Builder.of(TensorType.empty).cell(DenseKernels.sum(argument)).build();
+        if (aggregator == Aggregator.max)
+            return Tensor.Builder.of(TensorType.empty).cell(DenseKernels.max(argument)).build();
+
         ValueAggregator valueAggregator = ValueAggregator.ofType(aggregator);
         for (int i = 0; i < argument.dimensionSizes().size(0); i++)
             valueAggregator.aggregate(argument.get(i));
@@ -2,6 +2,7 @@
 package com.yahoo.tensor.functions;
 
 import com.google.common.collect.ImmutableList;
+import com.yahoo.tensor.DenseKernels;
 import com.yahoo.tensor.DimensionSizes;
 import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.Tensor;
@@ -146,6 +147,11 @@ public class ReduceJoin<NAMETYPE extends Name> extends CompositeTensorFunction<N
         IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(reducedType);
         long commonSize = Math.min(a.dimensionSizes().size(0), b.dimensionSizes().size(0));
 
+        if (isDotProduct()) {
+            builder.cellByDirectIndex(0, DenseKernels.dotProduct(a, 0, b, 0, (int)commonSize));
+            return builder.build();
+        }
+
         Reduce.ValueAggregator agg = Reduce.ValueAggregator.ofType(aggregator);
         for (int ic = 0; ic < commonSize; ++ic) {
             double va = a.get(ic);
@@ -164,6 +170,13 @@ public class ReduceJoin<NAMETYPE extends Name> extends CompositeTensorFunction<N
         DimensionSizes sizesA = a.dimensionSizes();
         DimensionSizes sizesB = b.dimensionSizes();
 
+        if (isDotProduct()) {
+            int commonSize = (int)Math.min(sizesA.size(0), sizesB.size(1));
+            for (int ib = 0; ib < sizesB.size(0); ++ib)
+                builder.cellByDirectIndex(ib, DenseKernels.dotProduct(a, 0, b, (int)(ib * sizesB.size(1)), commonSize));
+            return builder.build();
+        }
+
         Reduce.ValueAggregator agg = Reduce.ValueAggregator.ofType(aggregator);
         for (int ib = 0; ib < sizesB.size(0); ++ib) {
             agg.reset();
@@ -190,6 +203,17 @@ public class ReduceJoin<NAMETYPE extends Name> extends CompositeTensorFunction<N
         long strideA = iaToReduced < ibToReduced ? sizesB.size(0) : 1;
         long strideB = ibToReduced < iaToReduced ? sizesA.size(0) : 1;
 
+        if (isDotProduct()) {
+            int commonSize = (int)Math.min(sizesA.size(1), sizesB.size(1));
+            for (int ia = 0; ia < sizesA.size(0); ++ia) {
+                for (int ib = 0; ib < sizesB.size(0); ++ib) {
+                    double product = DenseKernels.dotProduct(a, (int)(ia * sizesA.size(1)), b, (int)(ib * sizesB.size(1)), commonSize);
+                    builder.cellByDirectIndex(ia * strideA + ib * strideB, product);
+                }
+            }
+            return builder.build();
+        }
+
         Reduce.ValueAggregator agg = Reduce.ValueAggregator.ofType(aggregator);
         for (int ia = 0; ia < sizesA.size(0); ++ia) {
             for (int ib = 0; ib < sizesB.size(0); ++ib) {
@@ -205,6 +229,11 @@ public class ReduceJoin<NAMETYPE extends Name> extends CompositeTensorFunction<N
         return builder.build();
     }
 
+    /** Returns whether this multiplies and sums, such that products can be computed by {@link DenseKernels} */
+    private boolean isDotProduct() {
+        return combinator instanceof ScalarFunctions.Multiply && aggregator == Reduce.Aggregator.sum;
+    }
+
     private Tensor evaluateGeneral(IndexedTensor a, IndexedTensor b, TensorType reducedType) {
         IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(reducedType);
         TensorType onlyInA = Reduce.outputType(a.type(), dimensions);
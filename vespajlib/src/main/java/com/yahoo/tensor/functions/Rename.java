@@ -121,10 +121,10 @@ public class Rename<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMET
     }
 
     private TensorAddress rename(TensorAddress address, int[] toIndexes) {
-        String[] reorderedLabels = new String[toIndexes.length];
+        int[] fromIndexes = new int[toIndexes.length];
         for (int i = 0; i < toIndexes.length; i++)
-            reorderedLabels[toIndexes[i]] = address.label(i);
-        return TensorAddress.of(reorderedLabels);
+            fromIndexes[toIndexes[i]] = i;
+        return address.partialCopy(fromIndexes);
     }
 
     @Override
@@ -0,0 +1,56 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.serialization;
+
+import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.tensor.Label;
+import com.yahoo.tensor.TensorAddress;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.text.Utf8;
+
+import java.util.List;
+
+/**
+ * Decodes tensor addresses of labels encoded as UTF-8 strings directly to the label ids addresses hold,
+ * such that no string is created for labels which are canonical integers or already in the label dictionary.
+ * Instances are not thread safe, and are meant to be used for decoding a single tensor.
+ *
+ * @author bratseth
+ */
+class AddressDecoder {
+
+    private final boolean allowEmptyLabels;
+
+    /** Holds the UTF-8 bytes of the label currently being decoded */
+    private byte[] utf8 = new byte[64];
+
+    /**
+     * Creates a decoder
+     *
+     * @param allowEmptyLabels whether empty labels are allowed, rather than taken to be missing labels
+     */
+    AddressDecoder(boolean allowEmptyLabels) {
+        this.allowEmptyLabels = allowEmptyLabels;
+    }
+
+    /** Decodes an address of the next labels in the given buffer, one for each of the given dimensions of the type */
+    TensorAddress decode(GrowableByteBuffer buffer, List<TensorType.Dimension> dimensions, TensorType type) {
+        long[] labelIds = new long[dimensions.size()];
+        String[] unassignedLabels = null;
+        for (int i = 0; i < labelIds.length; i++) {
+            int length = buffer.getInt1_4Bytes();
+            if (length == 0 && ! allowEmptyLabels)
+                throw new IllegalArgumentException("Missing a label for dimension " +
+                                                   dimensions.get(i).name() + " for " + type);
+            if (length > utf8.length)
+                utf8 = new byte[Math.max(length, utf8.length * 2)];
+            buffer.get(utf8, 0, length);
+            labelIds[i] = Label.toNumber(utf8, 0, length);
+            if (labelIds[i] == Label.noId) { // the label dictionary is full
+                if (unassignedLabels == null) unassignedLabels = new String[labelIds.length];
+                unassignedLabels[i] = Utf8.toString(utf8, 0, length);
+            }
+        }
+        return TensorAddress.ofLabelIds(labelIds, unassignedLabels);
+    }
+
+}
@@ -21,7 +21,7 @@ import com.yahoo.tensor.functions.ConstantTensor;
 import com.yahoo.tensor.functions.Slice;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -99,7 +99,10 @@ public class JsonFormat {
         Cursor cells = cursor.setObject("cells");
         if (tensor.type().dimensions().size() > 1)
             throw new IllegalStateException("JSON encode of mapped tensor can only contain a single dimension");
-        tensor.cells().forEach((k,v) -> cells.setDouble(k.label(0), v));
+        for (Iterator<Tensor.Cell> i = tensor.cellIterator(); i.hasNext(); ) {
+            Tensor.Cell cell = i.next();
+            cells.setDouble(cell.getKey().label(0), cell.getDoubleValue());
+        }
     }
 
     private static void encodeAddress(TensorType type, TensorAddress address, Cursor addressObject) {
@@ -130,7 +133,7 @@ public class JsonFormat {
         TensorType mappedSubType = new TensorType.Builder(mappedDimensions).build();
 
         // Find all unique indices for the mapped dimensions
-        Set<TensorAddress> denseSubSpaceAddresses = new HashSet<>();
+        Set<TensorAddress> denseSubSpaceAddresses = new LinkedHashSet<>();
         tensor.cellIterator().forEachRemaining((cell) -> {
             denseSubSpaceAddresses.add(subAddress(cell.getKey(), mappedSubType, tensor.type()));
         });
@@ -138,7 +138,6 @@ class MixedBinaryFormat implements BinaryFormat {
 
     private void decodeCells(GrowableByteBuffer buffer, MixedTensor.BoundBuilder builder, TensorType type, Supplier<Double> supplier) {
         List<TensorType.Dimension> sparseDimensions = type.dimensions().stream().filter(d -> !d.isIndexed()).collect(Collectors.toList());
-        TensorType sparseType = MixedTensor.createPartialType(type.valueType(), sparseDimensions);
         long denseSubspaceSize = builder.denseSubspaceSize();
 
         int numBlocks = 1;
@@ -147,15 +146,13 @@ class MixedBinaryFormat implements BinaryFormat {
         }
 
         double[] denseSubspace = new double[(int)denseSubspaceSize];
+        AddressDecoder addresses = new AddressDecoder(true);
         for (int i = 0; i < numBlocks; ++i) {
-            TensorAddress.Builder sparseAddress = new TensorAddress.Builder(sparseType);
-            for (TensorType.Dimension sparseDimension : sparseDimensions) {
-                sparseAddress.add(sparseDimension.name(), buffer.getUtf8String());
-            }
+            TensorAddress sparseAddress = addresses.decode(buffer, sparseDimensions, type);
             for (long denseOffset = 0; denseOffset < denseSubspaceSize; denseOffset++) {
                 denseSubspace[(int)denseOffset] = supplier.get();
             }
-            builder.block(sparseAddress.build(), denseSubspace);
+            builder.block(sparseAddress, denseSubspace);
         }
     }
 
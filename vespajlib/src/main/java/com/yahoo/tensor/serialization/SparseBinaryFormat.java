@@ -113,19 +113,10 @@ class SparseBinaryFormat implements BinaryFormat {
 
     private void decodeCells(GrowableByteBuffer buffer, Tensor.Builder builder, TensorType type, Supplier<Double> supplier) {
         long numCells = buffer.getInt1_4Bytes(); // XXX: Size truncation
+        AddressDecoder addresses = new AddressDecoder(false); // an empty label is a missing label, as when building the address by dimension
         for (long i = 0; i < numCells; ++i) {
-            Tensor.Builder.CellBuilder cellBuilder = builder.cell();
-            decodeAddress(buffer, cellBuilder, type);
-            cellBuilder.value(supplier.get());
-        }
-    }
-
-    private void decodeAddress(GrowableByteBuffer buffer, Tensor.Builder.CellBuilder builder, TensorType type) {
-        for (TensorType.Dimension dimension : type.dimensions()) {
-            String label = buffer.getUtf8String();
-            if ( ! label.isEmpty()) {
-                builder.label(dimension.name(), label);
-            }
+            TensorAddress address = addresses.decode(buffer, type.dimensions(), type);
+            builder.cell(address, supplier.get());
         }
     }
 
@@ -0,0 +1,191 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.slime;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryViewTestCase {
+
+    private static Slime createSlime() {
+        Slime slime = new Slime();
+        Cursor root = slime.setObject();
+        root.setNix("nix");
+        root.setBool("true", true);
+        root.setBool("false", false);
+        root.setLong("small", 7);
+        root.setLong("negative", -123456789012L);
+        root.setDouble("double", 3.5);
+        root.setDouble("nan", Double.NaN);
+        root.setString("string", "hello w\u00f6rld");
+        root.setString("empty", "");
+        root.setString("long string", "x".repeat(100));
+        root.setData("data", new byte[] { 1, 2, 3 });
+        Cursor array = root.setArray("array");
+        for (int i = 0; i < 40; i++)
+            array.addLong(i);
+        array.addString("last");
+        Cursor nested = array.addObject();
+        nested.setString("string", "nested");
+        nested.setArray("empty array");
+        nested.setObject("empty object");
+        return slime;
+    }
+
+    @Test
+    public void testInspectingValues() {
+        Slime slime = createSlime();
+        Inspector view = BinaryView.inspect(BinaryFormat.encode(slime));
+        assertTrue(view.equalTo(slime.get()));
+        assertTrue(slime.get().equalTo(view));
+        assertEquals(slime.get().toString(), view.toString());
+
+        assertEquals(Type.OBJECT, view.type());
+        assertEquals(12, view.fields());
+        assertEquals(12, view.children());
+        assertEquals(0, view.entries());
+        assertTrue(view.field("nix").valid());
+        assertEquals(Type.NIX, view.field("nix").type());
+        assertTrue(view.field("true").asBool());
+        assertFalse(view.field("false").asBool());
+        assertEquals(7, view.field("small").asLong());
+        assertEquals(7.0, view.field("small").asDouble(), 0);
+        assertEquals(-123456789012L, view.field("negative").asLong());
+        assertEquals(3.5, view.field("double").asDouble(), 0);
+        assertEquals(3, view.field("double").asLong());
+        assertTrue(Double.isNaN(view.field("nan").asDouble()));
+        assertEquals("hello w\u00f6rld", view.field("string").asString());
+        assertArrayEquals(slime.get().field("string").asUtf8(), view.field("string").asUtf8());
+        ByteBuffer utf8 = view.field("string").asUtf8Buffer();
+        assertEquals("hello w\u00f6rld", Utf8Codec.decode(utf8.array(), utf8.arrayOffset() + utf8.position(), utf8.remaining()));
+        assertEquals(0, view.field("data").asUtf8Buffer().remaining());
+        assertEquals("", view.field("empty").asString());
+        assertEquals("x".repeat(100), view.field("long string").asString());
+        assertArrayEquals(new byte[] { 1, 2, 3 }, view.field("data").asData());
+        assertEquals(0, view.field("data").asUtf8().length);
+        assertEquals("", view.field("data").asString());
+
+        Inspector array = view.field("array");
+        assertEquals(42, array.entries());
+        assertEquals(0, array.fields());
+        assertEquals(39, array.entry(39).asLong());
+        assertEquals("last", array.entry(40).asString());
+        assertEquals("nested", array.entry(41).field("string").asString());
+        assertEquals(0, array.entry(41).field("empty array").entries());
+        assertEquals(Type.OBJECT, array.entry(41).field("empty object").type());
+
+        assertFalse(view.field("unknown").valid());
+        assertFalse(view.field("nested").valid()); // a symbol, but not a field of this
+        assertFalse(view.entry(0).valid());
+        assertFalse(array.entry(-1).valid());
+        assertFalse(array.entry(42).valid());
+        assertFalse(array.field("string").valid());
+    }
+
+    @Test
+    public void testTraversal() {
+        Slime slime = createSlime();
+        Inspector view = BinaryView.inspect(BinaryFormat.encode(slime));
+
+        List<String> names = new ArrayList<>();
+        view.traverse((ObjectTraverser)(name, value) -> names.add(name));
+        assertEquals(List.of("nix", "true", "false", "small", "negative", "double", "nan",
+                             "string", "empty", "long string", "data", "array"),
+                     names);
+
+        view.traverse((ObjectSymbolTraverser)(symbol, value) -> assertTrue(value.equalTo(slime.get().field(symbol))));
+
+        List<Long> entries = new ArrayList<>();
+        view.field("array").traverse((ArrayTraverser)(index, value) -> { if (index < 3) entries.add(value.asLong()); });
+        assertEquals(List.of(0L, 1L, 2L), entries);
+    }
+
+    @Test
+    public void testReusingIndex() {
+        DecodeIndex index = new DecodeIndex(1);
+        for (int i = 0; i < 3; i++) {
+            Slime slime = createSlime();
+            slime.get().setLong("iteration", i);
+            byte[] data = BinaryFormat.encode(slime);
+            byte[] padded = new byte[data.length + 10];
+            System.arraycopy(data, 0, padded, 5, data.length);
+            Inspector view = BinaryView.inspect(padded, 5, data.length, index);
+            assertTrue(view.equalTo(slime.get()));
+            assertEquals(i, view.field("iteration").asLong());
+        }
+    }
+
+    @Test
+    public void testScalarRoot() {
+        Slime slime = new Slime();
+        slime.setString("root");
+        Inspector view = BinaryView.inspect(BinaryFormat.encode(slime));
+        assertEquals("root", view.asString());
+        assertEquals(0, view.children());
+    }
+
+    @Test
+    public void testLookingUpFieldsOfWideObjects() {
+        Slime slime = new Slime();
+        Cursor array = slime.setArray();
+        Cursor ascending = array.addObject();
+        for (int i = 0; i < 100; i++)
+            ascending.setLong("field" + i, i);
+        Cursor descending = array.addObject(); // fields in the opposite order of their symbols
+        for (int i = 99; i >= 0; i--)
+            descending.setLong("field" + i, i);
+        Cursor shuffled = array.addObject();
+        for (int i = 0; i < 100; i++)
+            shuffled.setLong("field" + (i * 37 % 100), i * 37 % 100);
+        Cursor few = array.addObject();
+        few.setLong("field7", 7);
+        few.setLong("field3", 3);
+
+        Inspector view = BinaryView.inspect(BinaryFormat.encode(slime));
+        for (int object = 0; object < 3; object++) {
+            for (int i = 0; i < 100; i++)
+                assertEquals(i, view.entry(object).field("field" + i).asLong());
+            assertFalse(view.entry(object).field("unknown").valid());
+            assertFalse(view.entry(object).field(1000).valid());
+        }
+        assertEquals(3, view.entry(3).field("field3").asLong());
+        assertEquals(7, view.entry(3).field("field7").asLong());
+        assertFalse(view.entry(3).field("field0").valid());
+        assertTrue(view.equalTo(slime.get()));
+    }
+
+    @Test
+    public void testNegativeSizesAreInvalid() {
+        byte[] negativeVarint = { (byte)0xff, (byte)0xff, (byte)0xff, (byte)0xff, (byte)0xff,
+                                  (byte)0xff, (byte)0xff, (byte)0xff, (byte)0xff, 0x01 };
+        for (Type type : new Type[] { Type.STRING, Type.DATA, Type.ARRAY, Type.OBJECT }) {
+            byte[] data = new byte[2 + negativeVarint.length + 4];
+            data[0] = 0; // no symbols
+            data[1] = type.ID; // meta 0: the size follows as a varint
+            System.arraycopy(negativeVarint, 0, data, 2, negativeVarint.length);
+            Inspector view = BinaryView.inspect(data);
+            Inspector decoded = BinaryFormat.decode(data).get();
+            assertTrue(type.toString(), view.equalTo(decoded));
+            assertTrue(type.toString(), view.field("partial_result").valid());
+        }
+    }
+
+    @Test
+    public void testInvalidDataGivesSameResultAsDecoding() {
+        byte[] data = BinaryFormat.encode(createSlime());
+        for (int length = 0; length < data.length; length++) {
+            Inspector view = BinaryView.inspect(data, 0, length, new DecodeIndex());
+            Inspector decoded = BinaryFormat.decode(data, 0, length).get();
+            assertTrue("Truncated to " + length + " bytes", view.equalTo(decoded));
+            assertTrue(view.field("partial_result").valid());
+        }
+    }
+
+}
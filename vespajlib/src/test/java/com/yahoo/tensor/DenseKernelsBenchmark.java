@@ -0,0 +1,79 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import com.yahoo.tensor.evaluation.MapEvaluationContext;
+import com.yahoo.tensor.evaluation.Name;
+import com.yahoo.tensor.evaluation.VariableTensor;
+import com.yahoo.tensor.functions.Reduce;
+import com.yahoo.tensor.functions.ReduceJoin;
+import com.yahoo.tensor.functions.ScalarFunctions;
+import com.yahoo.tensor.functions.TensorFunction;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Microbenchmark of dense dot products and joins, comparing the kernels used for multiplication
+ * with the general path taken for combinators which are not recognized.
+ *
+ * @author bratseth
+ */
+public class DenseKernelsBenchmark {
+
+    private final static Random random = new Random();
+
+    /** Returns the time per iteration in ms */
+    public double benchmark(int iterations, String valueType, int size, boolean kernels) {
+        DoubleBinaryOperator multiply = kernels ? ScalarFunctions.multiply() : (a, b) -> a * b;
+        MapEvaluationContext<Name> context = new MapEvaluationContext<>();
+        context.put("a", random("tensor<" + valueType + ">(y[" + size + "])"));
+        context.put("b", random("tensor<" + valueType + ">(y[" + size + "])"));
+        context.put("m", random("tensor<" + valueType + ">(x[16],y[" + size + "])"));
+        TensorFunction<Name> dotProduct = new ReduceJoin<>(new VariableTensor<>("a"), new VariableTensor<>("b"),
+                                                           multiply, Reduce.Aggregator.sum, List.of("y"));
+        TensorFunction<Name> vectorMatrix = new ReduceJoin<>(new VariableTensor<>("a"), new VariableTensor<>("m"),
+                                                             multiply, Reduce.Aggregator.sum, List.of("y"));
+
+        run(Math.max(iterations / 10, 10), dotProduct, vectorMatrix, multiply, context); // warmup
+        System.gc();
+        long startTime = System.currentTimeMillis();
+        run(iterations, dotProduct, vectorMatrix, multiply, context);
+        return (double)(System.currentTimeMillis() - startTime) / iterations;
+    }
+
+    private double run(int iterations,
+                       TensorFunction<Name> dotProduct, TensorFunction<Name> vectorMatrix,
+                       DoubleBinaryOperator multiply, MapEvaluationContext<Name> context) {
+        double result = 0;
+        Tensor a = context.getTensor("a");
+        Tensor b = context.getTensor("b");
+        for (int i = 0; i < iterations; i++) {
+            result += dotProduct.evaluate(context).asDouble();
+            result += vectorMatrix.evaluate(context).sum().asDouble();
+            result += a.join(b, multiply).sum().asDouble();
+        }
+        return result;
+    }
+
+    private Tensor random(String type) {
+        IndexedTensor.Builder builder = IndexedTensor.Builder.of(TensorType.fromSpec(type));
+        IndexedTensor.Indexes indexes = IndexedTensor.Indexes.of(builder.type());
+        for (long i = 0; i < indexes.size(); i++) {
+            indexes.next();
+            builder.cell(random.nextDouble(), indexes.indexesCopy());
+        }
+        return builder.build();
+    }
+
+    public static void main(String[] args) {
+        DenseKernelsBenchmark benchmark = new DenseKernelsBenchmark();
+        for (String valueType : List.of("double", "float")) {
+            System.out.printf("%1$6s, kernels: %2$8.3f ms, general: %3$8.3f ms\n",
+                              valueType,
+                              benchmark.benchmark(10000, valueType, 512, true),
+                              benchmark.benchmark(10000, valueType, 512, false));
+        }
+    }
+
+}
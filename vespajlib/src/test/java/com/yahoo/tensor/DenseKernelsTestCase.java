@@ -0,0 +1,92 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import com.yahoo.tensor.evaluation.MapEvaluationContext;
+import com.yahoo.tensor.evaluation.Name;
+import com.yahoo.tensor.evaluation.VariableTensor;
+import com.yahoo.tensor.functions.Reduce;
+import com.yahoo.tensor.functions.ReduceJoin;
+import com.yahoo.tensor.functions.ScalarFunctions;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.DoubleBinaryOperator;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that the dense kernels give the same results as the general tensor functions.
+ *
+ * @author bratseth
+ */
+public class DenseKernelsTestCase {
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void testSumAndMax() {
+        for (String type : List.of("tensor(x[37])", "tensor<float>(x[37])", "tensor<float>(x[3],y[5])")) {
+            Tensor tensor = random(type);
+            double sum = 0, max = Double.NEGATIVE_INFINITY;
+            for (var i = tensor.valueIterator(); i.hasNext(); ) {
+                double value = i.next();
+                sum += value;
+                max = Math.max(max, value);
+            }
+            assertEquals(Tensor.from(sum), tensor.sum());
+            assertEquals(Tensor.from(max), tensor.max());
+        }
+    }
+
+    @Test
+    public void testJoin() {
+        for (String valueType : List.of("double", "float")) {
+            Tensor a = random("tensor<" + valueType + ">(x[37])");
+            Tensor b = random("tensor<" + valueType + ">(x[37])");
+            for (DoubleBinaryOperator combinator : List.of(ScalarFunctions.multiply(), ScalarFunctions.add(),
+                                                           ScalarFunctions.subtract(), ScalarFunctions.max()))
+                assertEquals(a.join(b, general(combinator)), a.join(b, combinator));
+        }
+    }
+
+    @Test
+    public void testDotProducts() {
+        Tensor vector = random("tensor(y[7])");
+        Tensor floatVector = random("tensor<float>(y[7])");
+        Tensor matrix = random("tensor<float>(x[5],y[7])");
+        Tensor other = random("tensor(z[3],y[7])");
+        assertSameAsGeneral(vector, floatVector);
+        assertSameAsGeneral(floatVector, floatVector);
+        assertSameAsGeneral(vector, matrix);
+        assertSameAsGeneral(matrix, vector);
+        assertSameAsGeneral(matrix, other);
+        assertSameAsGeneral(other, matrix);
+        assertEquals(matrix.join(other, general(ScalarFunctions.multiply())).sum("y"), matrix.matmul(other, "y"));
+    }
+
+    private void assertSameAsGeneral(Tensor a, Tensor b) {
+        MapEvaluationContext<Name> context = new MapEvaluationContext<>();
+        context.put("a", a);
+        context.put("b", b);
+        Tensor result = new ReduceJoin<>(new VariableTensor<>("a"), new VariableTensor<>("b"),
+                                         ScalarFunctions.multiply(), Reduce.Aggregator.sum, List.of("y")).evaluate(context);
+        assertEquals(a.join(b, general(ScalarFunctions.multiply())).sum("y"), result);
+    }
+
+    /** Returns a combinator which is not recognized by the kernels */
+    private static DoubleBinaryOperator general(DoubleBinaryOperator combinator) {
+        return (x, y) -> combinator.applyAsDouble(x, y);
+    }
+
+    private Tensor random(String type) {
+        IndexedTensor.Builder builder = IndexedTensor.Builder.of(TensorType.fromSpec(type));
+        IndexedTensor.Indexes indexes = IndexedTensor.Indexes.of(builder.type());
+        for (long i = 0; i < indexes.size(); i++) {
+            indexes.next();
+            builder.cell(random.nextDouble(), indexes.indexesCopy());
+        }
+        return builder.build();
+    }
+
+}
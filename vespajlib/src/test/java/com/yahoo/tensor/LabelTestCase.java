@@ -0,0 +1,152 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.ToLongFunction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author bratseth
+ */
+public class LabelTestCase {
+
+    @Test
+    public void testIntegerLabelsAreTheirOwnIds() {
+        assertEquals(0, Label.toNumber("0"));
+        assertEquals(42, Label.toNumber("42"));
+        assertEquals(-42, Label.toNumber("-42"));
+        assertEquals(Long.MAX_VALUE, Label.toNumber(String.valueOf(Long.MAX_VALUE)));
+        assertEquals("42", Label.fromNumber(42));
+        assertEquals("-42", Label.fromNumber(-42));
+    }
+
+    @Test
+    public void testOtherLabelsAreAssignedIds() {
+        for (String label : new String[] { "foo", "", "-", "042", "-0", "+1", "1.0", "99999999999999999999",
+                                           String.valueOf(Long.MIN_VALUE) }) {
+            long id = Label.toNumber(label);
+            assertTrue(label, Label.isAssigned(id));
+            assertEquals(id, Label.toNumber(label));
+            assertEquals(label, Label.fromNumber(id));
+        }
+        assertNotEquals(Label.toNumber("foo"), Label.toNumber("bar"));
+    }
+
+    @Test
+    public void testUtf8LabelsHaveTheIdsOfTheirStrings() {
+        for (String label : new String[] { "0", "42", "-42", "042", "-0", "", "foo", "blåbær", "\u8349",
+                                           String.valueOf(Long.MAX_VALUE), String.valueOf(Long.MIN_VALUE) }) {
+            byte[] utf8 = ("[" + label + "]").getBytes(StandardCharsets.UTF_8);
+            assertEquals(label, Label.toNumber(label), Label.toNumber(utf8, 1, utf8.length - 2));
+        }
+        byte[] utf8 = "new label".getBytes(StandardCharsets.UTF_8); // assigned its id when looked up by bytes
+        long id = Label.toNumber(utf8, 0, utf8.length);
+        assertTrue(Label.isAssigned(id));
+        assertEquals(id, Label.toNumber("new label"));
+        assertEquals(id, Label.toNumber(utf8, 0, utf8.length));
+    }
+
+    @Test
+    public void testUtf8LabelsInBoundedDictionary() {
+        Label.Dictionary dictionary = new Label.Dictionary(1);
+        byte[] a = "a".getBytes(StandardCharsets.UTF_8);
+        byte[] b = "b".getBytes(StandardCharsets.UTF_8);
+        long id = dictionary.toNumber(a, 0, a.length);
+        assertEquals(id, dictionary.toNumber("a"));
+        assertEquals(Label.noId, dictionary.toNumber(b, 0, b.length));
+        assertEquals(7, dictionary.toNumber("7".getBytes(StandardCharsets.UTF_8), 0, 1));
+    }
+
+    @Test
+    public void testAddressesOfLabelsAndNumbersAreEqual() {
+        assertEquals(TensorAddress.of(1, 2), TensorAddress.ofLabels("1", "2"));
+        assertEquals(TensorAddress.of(1, 2).hashCode(), TensorAddress.ofLabels("1", "2").hashCode());
+        assertNotEquals(TensorAddress.of(1, 2), TensorAddress.ofLabels("1", "02"));
+        assertEquals(2, TensorAddress.ofLabels("1", "02").numericLabel(1));
+        assertEquals(TensorAddress.ofLabels("a", "b"),
+                     TensorAddress.ofLabelIds(Label.toNumber("a"), Label.toNumber("b")));
+
+        TensorAddress address = TensorAddress.of(Long.MIN_VALUE + 1); // a number in the range of assigned ids
+        assertEquals(String.valueOf(Long.MIN_VALUE + 1), address.label(0));
+        assertEquals(Long.MIN_VALUE + 1, address.numericLabel(0));
+    }
+
+    @Test
+    public void testDictionaryIsBounded() {
+        Label.Dictionary dictionary = new Label.Dictionary(3);
+        long a = dictionary.toNumber("a");
+        long b = dictionary.toNumber("b");
+        long c = dictionary.toNumber("c");
+        assertEquals(Label.noId, dictionary.toNumber("d"));
+        assertEquals(Label.noId, dictionary.toNumber("e"));
+        assertEquals(42, dictionary.toNumber("42"));
+        assertEquals(a, dictionary.toNumber("a"));
+        assertEquals("b", dictionary.fromNumber(b));
+        assertEquals("c", dictionary.fromNumber(c));
+        try {
+            dictionary.fromNumber(Label.noId);
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("No label has id " + Label.noId, e.getMessage());
+        }
+    }
+
+    @Test
+    public void testAddressesOfLabelsWithoutIds() {
+        ToLongFunction<String> labelIds = label -> label.startsWith("unassigned") ? Label.noId : Label.toNumber(label);
+        TensorAddress address = TensorAddress.of(new String[] { "a", "unassigned1", "3" }, labelIds);
+        assertEquals("unassigned1", address.label(1));
+        assertEquals(Label.noId, address.labelId(1));
+        assertEquals(3, address.numericLabel(2));
+        assertEquals(address, TensorAddress.of(new String[] { "a", "unassigned1", "3" }, labelIds));
+        assertEquals(address.hashCode(), TensorAddress.of(new String[] { "a", "unassigned1", "3" }, labelIds).hashCode());
+        assertNotEquals(address, TensorAddress.of(new String[] { "a", "unassigned2", "3" }, labelIds));
+        assertNotEquals(address, TensorAddress.ofLabels("a", "b", "3"));
+        assertEquals("cell address (a,unassigned1,3)", address.toString());
+
+        TensorAddress copy = address.partialCopy(new int[] { 1, 0 });
+        assertEquals(TensorAddress.of(new String[] { "unassigned1", "a" }, labelIds), copy);
+        assertEquals(TensorAddress.of(new String[] { "a", "unassigned1", "7" }, labelIds), address.withLabel(2, 7));
+        assertEquals(TensorAddress.ofLabels("a", "5", "3"), address.withLabel(1, 5));
+        assertEquals(Label.noId, address.withLabel(2, 7).labelId(1));
+
+        assertEquals(address, TensorAddress.ofLabelIds(new long[] { Label.toNumber("a"), Label.noId, 3 },
+                                                       new String[] { null, "unassigned1", null }));
+        try {
+            TensorAddress.ofLabelIds(new long[] { Label.toNumber("a"), Label.noId }, null);
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("Label 1 has no id and is not given", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testJoiningLabelsWithoutIds() {
+        ToLongFunction<String> labelIds = label -> label.startsWith("unassigned") ? Label.noId : Label.toNumber(label);
+        Tensor a = Tensor.Builder.of(TensorType.fromSpec("tensor(x{},y{})"))
+                                 .cell(TensorAddress.of(new String[] { "x1", "unassigned1" }, labelIds), 2)
+                                 .cell(TensorAddress.of(new String[] { "x2", "b" }, labelIds), 3)
+                                 .build();
+        Tensor b = Tensor.Builder.of(TensorType.fromSpec("tensor(y{})"))
+                                 .cell(TensorAddress.of(new String[] { "unassigned1" }, labelIds), 5)
+                                 .cell(TensorAddress.of(new String[] { "b" }, labelIds), 7)
+                                 .build();
+        Tensor c = Tensor.Builder.of(TensorType.fromSpec("tensor(y{},z{})"))
+                                 .cell(TensorAddress.of(new String[] { "unassigned1", "unassigned2" }, labelIds), 11)
+                                 .cell(TensorAddress.of(new String[] { "b", "z1" }, labelIds), 13)
+                                 .build();
+        assertEquals("tensor(x{},y{}):{{x:x1,y:unassigned1}:10.0,{x:x2,y:b}:21.0}", a.multiply(b).toString());
+        assertEquals("tensor(x{},y{},z{}):{{x:x1,y:unassigned1,z:unassigned2}:22.0,{x:x2,y:b,z:z1}:39.0}", a.multiply(c).toString());
+        assertEquals("tensor(x{}):{x1:2.0,x2:3.0}", a.sum("y").toString());
+        assertEquals("tensor(x{},z{}):{{x:b,z:z1}:13.0,{x:unassigned1,z:unassigned2}:11.0}", c.rename("y", "x").toString());
+    }
+
+}
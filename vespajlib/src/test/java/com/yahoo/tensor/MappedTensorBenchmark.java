@@ -0,0 +1,90 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Microbenchmark of building, looking up and iterating mapped tensors,
+ * compared to keeping the cells in a map of boxed values.
+ *
+ * @author bratseth
+ */
+public class MappedTensorBenchmark {
+
+    private final static Random random = new Random();
+
+    private final TensorType type = new TensorType.Builder().mapped("x").mapped("y").build();
+    private final List<TensorAddress> addresses;
+    private final double[] values;
+
+    public MappedTensorBenchmark(int cellCount) {
+        addresses = new ArrayList<>(cellCount);
+        values = new double[cellCount];
+        for (int i = 0; i < cellCount; i++) {
+            addresses.add(TensorAddress.ofLabels("label" + (i / 100), "label" + (i % 100)));
+            values[i] = random.nextDouble();
+        }
+    }
+
+    /** Returns the time per iteration in ms */
+    public double benchmarkTensor(int iterations) {
+        runTensor(Math.max(iterations / 10, 10)); // warmup
+        System.gc();
+        long startTime = System.currentTimeMillis();
+        runTensor(iterations);
+        return (double)(System.currentTimeMillis() - startTime) / iterations;
+    }
+
+    /** Returns the time per iteration in ms */
+    public double benchmarkMap(int iterations) {
+        runMap(Math.max(iterations / 10, 10)); // warmup
+        System.gc();
+        long startTime = System.currentTimeMillis();
+        runMap(iterations);
+        return (double)(System.currentTimeMillis() - startTime) / iterations;
+    }
+
+    private double runTensor(int iterations) {
+        double result = 0;
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            MappedTensor.Builder builder = MappedTensor.Builder.of(type);
+            for (int i = 0; i < values.length; i++)
+                builder.cell(addresses.get(i), values[i]);
+            Tensor tensor = builder.build();
+            for (TensorAddress address : addresses)
+                result += tensor.get(address);
+            for (var i = tensor.valueIterator(); i.hasNext(); )
+                result += i.next();
+        }
+        return result;
+    }
+
+    private double runMap(int iterations) {
+        double result = 0;
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            ImmutableMap.Builder<TensorAddress, Double> builder = new ImmutableMap.Builder<>();
+            for (int i = 0; i < values.length; i++)
+                builder.put(addresses.get(i), values[i]);
+            Map<TensorAddress, Double> cells = builder.build();
+            for (TensorAddress address : addresses)
+                result += cells.getOrDefault(address, 0.0);
+            for (double value : cells.values())
+                result += value;
+        }
+        return result;
+    }
+
+    public static void main(String[] args) {
+        MappedTensorBenchmark benchmark = new MappedTensorBenchmark(10000);
+        System.out.printf("Mapped tensor, 10000 cells. Time per build, lookup and iterate: %1$8.3f ms\n",
+                          benchmark.benchmarkTensor(1000));
+        System.out.printf("Map of boxed values, 10000 cells. Time per build, lookup and iterate: %1$8.3f ms\n",
+                          benchmark.benchmarkMap(1000));
+    }
+
+}
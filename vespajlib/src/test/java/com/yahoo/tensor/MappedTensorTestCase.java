@@ -4,8 +4,13 @@ package com.yahoo.tensor;
 import com.google.common.collect.Sets;
 import org.junit.Test;
 
+import java.util.Map;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Basic tensor tests. Tensor operations are tested in EvaluationTestCase
@@ -28,6 +33,24 @@ public class MappedTensorTestCase {
         assertEquals(empty, emptyFromString);
     }
 
+    @Test
+    public void testCellsView() {
+        Tensor tensor = Tensor.from("tensor(x{},y{}):{{x:a,y:0}:1.0,{x:b,y:1}:2.0}");
+        Map<TensorAddress, Double> cells = tensor.cells();
+        assertEquals(2, cells.size());
+        assertEquals(2.0, cells.get(TensorAddress.ofLabels("b", "1")), 0.0);
+        assertNull(cells.get(TensorAddress.ofLabels("b", "0")));
+        assertTrue(cells.keySet().contains(TensorAddress.ofLabels("a", "0")));
+        assertFalse(cells.containsKey(TensorAddress.ofLabels("a", "1")));
+        assertEquals(Map.of(TensorAddress.ofLabels("a", "0"), 1.0, TensorAddress.ofLabels("b", "1"), 2.0), cells);
+        try {
+            cells.put(TensorAddress.ofLabels("c", "2"), 3.0);
+            fail("Expected exception");
+        }
+        catch (UnsupportedOperationException expected) {
+        }
+    }
+
     @Test
     public void testOneDimensionalBuilding() {
         TensorType type = new TensorType.Builder().mapped("x").build();
@@ -48,4 +71,33 @@ public class MappedTensorTestCase {
         assertEquals("tensor(x{},y{}):{{x:0,y:0}:1.0,{x:1,y:0}:2.0}", tensor.toString());
     }
 
+    @Test
+    public void testLookup() {
+        TensorType type = new TensorType.Builder().mapped("x").mapped("y").build();
+        Tensor.Builder builder = Tensor.Builder.of(type);
+        for (int i = 0; i < 100; i++)
+            builder.cell(TensorAddress.ofLabels("x" + i, "y" + i), i);
+        Tensor tensor = builder.build();
+        assertEquals(100, tensor.size());
+        assertEquals(7.0, tensor.get(TensorAddress.ofLabels("x7", "y7")), 0.0);
+        assertEquals(99.0, tensor.get(TensorAddress.ofLabels("x99", "y99")), 0.0);
+        assertTrue(tensor.has(TensorAddress.ofLabels("x0", "y0")));
+        assertFalse(tensor.has(TensorAddress.ofLabels("x0", "y1")));
+        assertEquals(0.0, tensor.get(TensorAddress.ofLabels("x0", "y1")), 0.0);
+        assertEquals(tensor.cells().hashCode(), tensor.hashCode());
+    }
+
+    @Test
+    public void testDuplicateAddresses() {
+        TensorType type = new TensorType.Builder().mapped("x").build();
+        Tensor.Builder builder = Tensor.Builder.of(type).cell(TensorAddress.ofLabels("a"), 1).cell(TensorAddress.ofLabels("a"), 2);
+        try {
+            builder.build();
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("Multiple entries with same key: cell address (a)=2.0 and cell address (a)=1.0", e.getMessage());
+        }
+    }
+
 }
@@ -7,6 +7,7 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Basic mixed tensor tests. Tensor operations are tested in EvaluationTestCase
@@ -32,6 +33,55 @@ public class MixedTensorTestCase {
         assertEquals(scalar.asDouble(), 42.0, 1e-6);
     }
 
+    @Test
+    public void testBuildingTwice() {
+        TensorType type = new TensorType.Builder().mapped("x").indexed("y", 2).build();
+        Tensor.Builder builder = MixedTensor.Builder.of(type).
+                cell().label("x", "a").label("y", 0).value(1).
+                cell().label("x", "a").label("y", 1).value(2);
+        Tensor first = builder.build();
+        builder.cell().label("x", "b").label("y", 0).value(3);
+        Tensor second = builder.build();
+        assertEquals("tensor(x{},y[2]):{a:[1.0, 2.0]}", first.toString());
+        assertEquals(2, first.size());
+        assertEquals(0.0, first.get(TensorAddress.ofLabels("b", "0")), 0.0);
+        assertEquals(4, second.size());
+        assertEquals(3.0, second.get(TensorAddress.ofLabels("b", "0")), 0.0);
+    }
+
+    @Test
+    public void testHashCodeIsIndependentOfCellOrder() {
+        TensorType type = new TensorType.Builder().mapped("x").indexed("y", 2).build();
+        Tensor ab = MixedTensor.Builder.of(type).
+                cell().label("x", "a").label("y", 0).value(1).
+                cell().label("x", "a").label("y", 1).value(2).
+                cell().label("x", "b").label("y", 0).value(3).
+                cell().label("x", "b").label("y", 1).value(4).
+                build();
+        Tensor ba = MixedTensor.Builder.of(type).
+                cell().label("x", "b").label("y", 0).value(3).
+                cell().label("x", "b").label("y", 1).value(4).
+                cell().label("x", "a").label("y", 0).value(1).
+                cell().label("x", "a").label("y", 1).value(2).
+                build();
+        assertEquals(ab, ba);
+        assertEquals(ab.hashCode(), ba.hashCode());
+        assertEquals(Tensor.from("tensor(x{},y[2]):{a:[1,2],b:[3,4]}").hashCode(),
+                     Tensor.from("tensor(x{},y[2]):{b:[3,4],a:[1,2]}").hashCode());
+    }
+
+    @Test
+    public void testBuildingCellOutsideDenseSubspace() {
+        TensorType type = new TensorType.Builder().mapped("x").indexed("y", 2).build();
+        try {
+            MixedTensor.Builder.of(type).cell().label("x", "a").label("y", 2).value(1);
+            fail("Expected exception");
+        }
+        catch (IndexOutOfBoundsException e) {
+            assertEquals("Index 2 out of bounds for length 2", e.getMessage());
+        }
+    }
+
     @Test
     public void testOneIndexedBuilding() {
         TensorType type = new TensorType.Builder().indexed("y", 3).build();